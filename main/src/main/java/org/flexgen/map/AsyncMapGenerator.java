@@ -0,0 +1,437 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Class providing asynchronous generation of a map. The map is generated by a map generator on a
+ * generation executor, and the outcome is delivered through a CompletableFuture. Cancelling the
+ * future cancels the generation of the map; the map generator then stops as described for
+ * MapGenerator.generate( CancellationToken ). Generation progress and restart listeners added
+ * through this class are informed on a listener executor. Listeners informed on another thread
+ * must not use the map generator they are given.
+ *
+ * The map generator must not be used by other threads while a generation of the map is in
+ * progress. Only one generation of the map can run on a map generator at a time, even through
+ * several instances of this class: a generation started while another one runs completes its
+ * future exceptionally with an IllegalStateException.
+ */
+public class AsyncMapGenerator
+{
+    /**
+     * Map generator that generates the map.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Executor on which the map is generated.
+     */
+    private final Executor generationExecutor;
+
+    /**
+     * Executor on which listeners added through this class are informed.
+     */
+    private volatile Executor listenerExecutor;
+
+    /**
+     * Flag indicating whether or not a generation of the map is running on the generation
+     * executor. Access is synchronized on this object.
+     */
+    private boolean running;
+
+    /**
+     * Construct an asynchronous map generator that generates the map on a shared pool of daemon
+     * threads, one per available processor. Generations submitted while all of these threads are
+     * busy wait for one of them. Callers running on a JDK with virtual threads that need many
+     * generations to run at once should pass an executor that starts a virtual thread per task
+     * instead.
+     *
+     * @param mapGenerator
+     *            Map generator that generates the map. Cannot be null.
+     */
+    public AsyncMapGenerator( MapGenerator mapGenerator )
+    {
+        this( mapGenerator, DefaultExecutorHolder.EXECUTOR );
+    }
+
+    /**
+     * Construct an asynchronous map generator that generates the map on a specified executor.
+     *
+     * @param mapGenerator
+     *            Map generator that generates the map. Cannot be null.
+     * @param generationExecutor
+     *            Executor on which the map is generated. Cannot be null.
+     */
+    public AsyncMapGenerator( MapGenerator mapGenerator, Executor generationExecutor )
+    {
+        if ( mapGenerator == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapGenerator' cannot be null." );
+        }
+
+        if ( generationExecutor == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'generationExecutor' cannot be null." );
+        }
+
+        this.mapGenerator       = mapGenerator;
+        this.generationExecutor = generationExecutor;
+        this.listenerExecutor   = DirectExecutor.INSTANCE;
+        this.running            = false;
+    }
+
+    /**
+     * Get the map generator that generates the map.
+     *
+     * @return The map generator.
+     */
+    public MapGenerator getMapGenerator()
+    {
+        return mapGenerator;
+    }
+
+    /**
+     * Get the executor on which listeners added through this class are informed.
+     *
+     * @return The listener executor.
+     */
+    public Executor getListenerExecutor()
+    {
+        return listenerExecutor;
+    }
+
+    /**
+     * Set the executor on which listeners added through this class are informed. By default,
+     * listeners are informed on the thread that generates the map.
+     *
+     * @param listenerExecutor
+     *            Listener executor. Cannot be null.
+     */
+    public void setListenerExecutor( Executor listenerExecutor )
+    {
+        if ( listenerExecutor == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'listenerExecutor' cannot be null." );
+        }
+
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    /**
+     * Add a new generation progress listener that is informed on the listener executor. Unless the
+     * listener executor runs tasks on the calling thread, which is the default, the listener runs
+     * while the map keeps being generated on another thread. It must then not call any method of
+     * the map generator it is given, since the map generator is not thread-safe; it may only use
+     * the counters it is given, and read the map through MapGenerator.getSnapshot().
+     *
+     * @param generationProgressListener
+     *            The listener to add. Cannot be null.
+     */
+    public void addGenerationProgressListener(
+            final GenerationProgressListener generationProgressListener )
+    {
+        if ( generationProgressListener == null )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'generationProgressListener' cannot be null." );
+        }
+
+        mapGenerator.addGenerationProgressListener( new GenerationProgressListener()
+        {
+            public void generationProgressed( final MapGenerator mapGenerator,
+                                              final int placementCount, final int frontierSize,
+                                              final int removedCount )
+            {
+                listenerExecutor.execute( new Runnable()
+                {
+                    public void run()
+                    {
+                        generationProgressListener.generationProgressed(
+                                mapGenerator, placementCount, frontierSize, removedCount );
+                    }
+                } );
+            }
+        } );
+    }
+
+    /**
+     * Add a new restart listener that is informed on the listener executor. Unless the listener
+     * executor runs tasks on the calling thread, which is the default, the listener runs while the
+     * map keeps being generated on another thread. It must then not call any method of the map
+     * generator it is given, since the map generator is not thread-safe; it may only use the
+     * restart cause, policy and scope it is given, and read the map through
+     * MapGenerator.getSnapshot().
+     *
+     * @param restartListener
+     *            The listener to add. Cannot be null.
+     */
+    public void addRestartListener( final RestartListener restartListener )
+    {
+        if ( restartListener == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'restartListener' cannot be null." );
+        }
+
+        mapGenerator.addRestartListener( new RestartListener()
+        {
+            public void restarted( final MapGenerator mapGenerator,
+                                   final RestartCause restartCause,
+                                   final RestartPolicy restartPolicy,
+                                   final RestartScope restartScope )
+            {
+                listenerExecutor.execute( new Runnable()
+                {
+                    public void run()
+                    {
+                        restartListener.restarted( mapGenerator, restartCause, restartPolicy,
+                                                   restartScope );
+                    }
+                } );
+            }
+        } );
+    }
+
+    /**
+     * Generate the map asynchronously.
+     *
+     * @return A future that completes with COMPLETE when the map is finished, or with CANCELLED
+     *         if the generation was cancelled by cancelling the future after it started. The
+     *         future completes exceptionally if the map generator throws an exception.
+     */
+    public CompletableFuture< GenerationStatus > generate()
+    {
+        return submit( false, 0 );
+    }
+
+    /**
+     * Generate the map asynchronously, stopping once a deadline passes.
+     *
+     * @param deadline
+     *            Value of System.nanoTime() after which no more map tiles are to be placed.
+     *
+     * @return A future that completes with COMPLETE when the map is finished, with
+     *         DEADLINE_EXCEEDED if the deadline passed, or with CANCELLED if the generation was
+     *         cancelled by cancelling the future after it started. The future completes
+     *         exceptionally if the map generator throws an exception.
+     */
+    public CompletableFuture< GenerationStatus > generate( long deadline )
+    {
+        return submit( true, deadline );
+    }
+
+    /**
+     * Determine whether or not a generation of the map is running on the generation executor. A
+     * generation that was cancelled keeps running until the map generator notices the
+     * cancellation.
+     *
+     * @return True if a generation of the map is running, false otherwise.
+     */
+    public synchronized boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * Submit a generation of the map to the generation executor.
+     *
+     * @param deadlineSet
+     *            Flag indicating whether or not a deadline is to be checked.
+     * @param deadline
+     *            Value of System.nanoTime() after which no more map tiles are to be placed.
+     *
+     * @return The future of the generation.
+     */
+    private CompletableFuture< GenerationStatus > submit( final boolean deadlineSet,
+                                                          final long deadline )
+    {
+        synchronized ( this )
+        {
+            if ( running )
+            {
+                throw new IllegalStateException( "A generation of the map is already running." );
+            }
+
+            running = true;
+        }
+
+        final CancellationToken cancellationToken = new CancellationToken();
+        final CompletableFuture< GenerationStatus > future =
+                new CompletableFuture< GenerationStatus >();
+
+        // cancelling the future cancels the generation; cancelling a finished generation has no
+        // effect
+        future.whenComplete( new BiConsumer< GenerationStatus, Throwable >()
+        {
+            public void accept( GenerationStatus generationStatus, Throwable throwable )
+            {
+                cancellationToken.cancel();
+            }
+        } );
+
+        try
+        {
+            generationExecutor.execute( new Runnable()
+            {
+                public void run()
+                {
+                    runGeneration( future, cancellationToken, deadlineSet, deadline );
+                }
+            } );
+        }
+        catch ( RuntimeException e )
+        {
+            setNotRunning();
+            future.completeExceptionally( e );
+        }
+
+        return future;
+    }
+
+    /**
+     * Generate the map on the current thread and complete the future of the generation. The
+     * generation is recorded as no longer running before the future is completed, since stages
+     * that depend on the future, and callers waiting for it, may start another generation at once.
+     *
+     * @param future
+     *            Future of the generation.
+     * @param cancellationToken
+     *            Cancellation token that is cancelled when the future is cancelled.
+     * @param deadlineSet
+     *            Flag indicating whether or not a deadline is to be checked.
+     * @param deadline
+     *            Value of System.nanoTime() after which no more map tiles are to be placed.
+     */
+    private void runGeneration( CompletableFuture< GenerationStatus > future,
+                                CancellationToken cancellationToken, boolean deadlineSet,
+                                long deadline )
+    {
+        GenerationStatus generationStatus;
+
+        try
+        {
+            if ( deadlineSet )
+            {
+                generationStatus = mapGenerator.generate( cancellationToken, deadline );
+            }
+            else
+            {
+                generationStatus = mapGenerator.generate( cancellationToken );
+            }
+        }
+        catch ( Throwable throwable )
+        {
+            setNotRunning();
+            future.completeExceptionally( throwable );
+            return;
+        }
+
+        setNotRunning();
+        future.complete( generationStatus );
+    }
+
+    /**
+     * Record that no generation of the map is running on the generation executor.
+     */
+    private synchronized void setNotRunning()
+    {
+        running = false;
+    }
+
+    /**
+     * Executor that runs tasks on the calling thread.
+     */
+    private static final class DirectExecutor implements Executor
+    {
+        /**
+         * The single instance of the direct executor.
+         */
+        private static final DirectExecutor INSTANCE = new DirectExecutor();
+
+        /**
+         * Run a task on the calling thread.
+         *
+         * @param runnable
+         *            Task to run.
+         */
+        public void execute( Runnable runnable )
+        {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Holder of the shared executor used when no generation executor is specified. The executor
+     * is created the first time it is needed. It has one thread per available processor, so any
+     * number of generations can be submitted without creating more threads; generations beyond
+     * that number wait in a queue. Its threads are daemon threads, so they do not keep the virtual
+     * machine alive.
+     */
+    private static final class DefaultExecutorHolder
+    {
+        /**
+         * The shared executor.
+         */
+        private static final ExecutorService EXECUTOR =
+                Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(),
+                                              new ThreadFactory()
+                {
+                    /**
+                     * Number of threads created so far.
+                     */
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    /**
+                     * Create a daemon thread for the shared executor.
+                     *
+                     * @param runnable
+                     *            Task run by the thread.
+                     *
+                     * @return The thread.
+                     */
+                    public Thread newThread( Runnable runnable )
+                    {
+                        Thread thread = new Thread(
+                                runnable, "flexgen-generator-" + threadCount.incrementAndGet() );
+                        thread.setDaemon( true );
+                        return thread;
+                    }
+                } );
+    }
+}
@@ -0,0 +1,389 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing the backtrack limits of a map generator, together with the number of map
+ * tiles removed while recovering from bad open locations during the generation in progress. The
+ * limits only apply while the generation in progress is placing map tiles, and they are scaled by
+ * the restart policy after each restart. Recovering from bad open locations is also interrupted
+ * when the generation in progress is cancelled or its deadline passes.
+ */
+class BacktrackBudget
+{
+    /**
+     * Maximum number of map tiles that can be removed while recovering from bad open locations
+     * during a call to generate(), before the map generator restarts. There is no limit if the
+     * value is 0.
+     */
+    private int backtrackLimit;
+
+    /**
+     * Maximum number of map tiles that can be removed while recovering from a single placement
+     * during a call to generate(), before the map generator restarts. There is no limit if the
+     * value is 0.
+     */
+    private int backtrackDepthLimit;
+
+    /**
+     * Restart policy applied when a backtrack limit is exceeded.
+     */
+    private RestartPolicy restartPolicy;
+
+    /**
+     * Flag indicating whether or not map tiles are being placed by the generation in progress.
+     */
+    private boolean active;
+
+    /**
+     * Number of map tiles removed while recovering from bad open locations since the generation in
+     * progress started, or since its last restart.
+     */
+    private int backtrackCount;
+
+    /**
+     * Number of map tiles removed while recovering from the most recent placement.
+     */
+    private int backtrackDepth;
+
+    /**
+     * Number of restarts during the generation in progress or the most recent generation.
+     */
+    private int restartCount;
+
+    /**
+     * Number of map tiles removed while recovering from bad open locations since the generation in
+     * progress started, including map tiles removed before a restart.
+     */
+    private int removedCount;
+
+    /**
+     * Backtrack limit that was exceeded by the recovery in progress, or null if no backtrack limit
+     * was exceeded.
+     */
+    private RestartCause restartCause;
+
+    /**
+     * Cancellation token checked while map tiles are placed, or null if there is none.
+     */
+    private CancellationToken cancellationToken;
+
+    /**
+     * Flag indicating whether or not a deadline is checked while map tiles are placed.
+     */
+    private boolean deadlineSet;
+
+    /**
+     * Value of System.nanoTime() after which map tiles are no longer placed, if a deadline is set.
+     */
+    private long deadline;
+
+    /**
+     * Reason why the recovery in progress was interrupted, or null if it was not interrupted.
+     */
+    private GenerationStatus interruptionStatus;
+
+    /**
+     * Construct a backtrack budget without any limits.
+     */
+    BacktrackBudget()
+    {
+        this.backtrackLimit      = 0;
+        this.backtrackDepthLimit = 0;
+        this.restartPolicy       = RestartPolicy.NONE;
+        this.active              = false;
+        this.backtrackCount      = 0;
+        this.backtrackDepth      = 0;
+        this.restartCount        = 0;
+        this.removedCount        = 0;
+        this.restartCause        = null;
+        this.cancellationToken   = null;
+        this.deadlineSet         = false;
+        this.deadline            = 0;
+        this.interruptionStatus  = null;
+    }
+
+    /**
+     * Get the backtrack limit.
+     *
+     * @return The backtrack limit, or 0 if there is no limit.
+     */
+    int getBacktrackLimit()
+    {
+        return backtrackLimit;
+    }
+
+    /**
+     * Set the backtrack limit.
+     *
+     * @param backtrackLimit
+     *            Backtrack limit, or 0 if there is to be no limit.
+     */
+    void setBacktrackLimit( int backtrackLimit )
+    {
+        this.backtrackLimit = backtrackLimit;
+    }
+
+    /**
+     * Get the backtrack depth limit.
+     *
+     * @return The backtrack depth limit, or 0 if there is no limit.
+     */
+    int getBacktrackDepthLimit()
+    {
+        return backtrackDepthLimit;
+    }
+
+    /**
+     * Set the backtrack depth limit.
+     *
+     * @param backtrackDepthLimit
+     *            Backtrack depth limit, or 0 if there is to be no limit.
+     */
+    void setBacktrackDepthLimit( int backtrackDepthLimit )
+    {
+        this.backtrackDepthLimit = backtrackDepthLimit;
+    }
+
+    /**
+     * Get the restart policy.
+     *
+     * @return The restart policy.
+     */
+    RestartPolicy getRestartPolicy()
+    {
+        return restartPolicy;
+    }
+
+    /**
+     * Set the restart policy.
+     *
+     * @param restartPolicy
+     *            Restart policy.
+     */
+    void setRestartPolicy( RestartPolicy restartPolicy )
+    {
+        this.restartPolicy = restartPolicy;
+    }
+
+    /**
+     * Get the number of restarts during the generation in progress or the most recent generation.
+     *
+     * @return The number of restarts.
+     */
+    int getRestartCount()
+    {
+        return restartCount;
+    }
+
+    /**
+     * Get the number of map tiles removed while recovering from bad open locations during the
+     * generation in progress or the most recent generation.
+     *
+     * @return The number of removed map tiles.
+     */
+    int getRemovedCount()
+    {
+        return removedCount;
+    }
+
+    /**
+     * Determine whether or not the map generator may need to restart during a call to generate().
+     *
+     * @return True if a restart policy other than NONE is set and at least one backtrack limit is
+     *         set, false otherwise.
+     */
+    boolean isRestartable()
+    {
+        return (( restartPolicy != RestartPolicy.NONE ) &&
+                (( backtrackLimit > 0 ) || ( backtrackDepthLimit > 0 )));
+    }
+
+    /**
+     * Reset the backtrack count and the restart count at the start of the generation of a map.
+     */
+    void start()
+    {
+        backtrackCount = 0;
+        restartCount = 0;
+        removedCount = 0;
+        restartCause = null;
+    }
+
+    /**
+     * Start applying the backtrack limits when the generation in progress starts placing map
+     * tiles.
+     *
+     * @param cancellationToken
+     *            Cancellation token to check while map tiles are placed, or null if there is none.
+     * @param deadlineSet
+     *            Flag indicating whether or not a deadline is to be checked.
+     * @param deadline
+     *            Value of System.nanoTime() after which map tiles are no longer to be placed.
+     */
+    void resume( CancellationToken cancellationToken, boolean deadlineSet, long deadline )
+    {
+        this.active             = true;
+        this.cancellationToken  = cancellationToken;
+        this.deadlineSet        = deadlineSet;
+        this.deadline           = deadline;
+        this.interruptionStatus = null;
+    }
+
+    /**
+     * Stop applying the backtrack limits when the generation in progress stops placing map tiles.
+     * Map tiles removed while the backtrack limits are not applied are not counted.
+     */
+    void suspend()
+    {
+        active = false;
+        restartCause = null;
+        cancellationToken = null;
+        deadlineSet = false;
+        interruptionStatus = null;
+    }
+
+    /**
+     * Start counting the map tiles removed while recovering from a placement.
+     */
+    void startRecovery()
+    {
+        backtrackDepth = 0;
+    }
+
+    /**
+     * Count map tiles removed while recovering from bad open locations.
+     *
+     * @param count
+     *            Number of removed map tiles.
+     */
+    void addRemovedMapTiles( int count )
+    {
+        if ( active )
+        {
+            backtrackCount += count;
+            backtrackDepth += count;
+            removedCount += count;
+        }
+    }
+
+    /**
+     * Determine whether or not the generation in progress was cancelled or its deadline passed.
+     *
+     * @return CANCELLED if the generation in progress was cancelled, DEADLINE_EXCEEDED if its
+     *         deadline passed, or null otherwise.
+     */
+    GenerationStatus checkInterruption()
+    {
+        if (( cancellationToken != null ) && ( cancellationToken.isCancelled() ))
+        {
+            return GenerationStatus.CANCELLED;
+        }
+
+        if (( deadlineSet ) && ( System.nanoTime() - deadline >= 0 ))
+        {
+            return GenerationStatus.DEADLINE_EXCEEDED;
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the reason why the most recent recovery from bad open locations was interrupted.
+     *
+     * @return CANCELLED or DEADLINE_EXCEEDED if the recovery was interrupted, or null otherwise.
+     */
+    GenerationStatus getInterruptionStatus()
+    {
+        return interruptionStatus;
+    }
+
+    /**
+     * Determine whether or not recovering from bad open locations has to stop, because a backtrack
+     * limit was exceeded or the generation in progress was interrupted. If a limit was exceeded,
+     * the restart cause is recorded. If the generation was interrupted, the reason is recorded.
+     *
+     * @return True if recovering from bad open locations has to stop, false otherwise.
+     */
+    boolean isExceeded()
+    {
+        if ( ! active )
+        {
+            return false;
+        }
+
+        interruptionStatus = checkInterruption();
+
+        if ( interruptionStatus != null )
+        {
+            return true;
+        }
+
+        if (( backtrackDepthLimit > 0 ) &&
+            ( backtrackDepth > restartPolicy.scaleLimit( backtrackDepthLimit, restartCount )))
+        {
+            restartCause = RestartCause.BACKTRACK_DEPTH;
+            return true;
+        }
+
+        if (( backtrackLimit > 0 ) &&
+            ( backtrackCount > restartPolicy.scaleLimit( backtrackLimit, restartCount )))
+        {
+            restartCause = RestartCause.BACKTRACK_COUNT;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the backtrack limit that was exceeded by the most recent recovery.
+     *
+     * @return The backtrack limit that was exceeded, or null if no backtrack limit was exceeded.
+     */
+    RestartCause getRestartCause()
+    {
+        return restartCause;
+    }
+
+    /**
+     * Record a restart. The exceeded backtrack limit is forgotten, the backtrack count starts over
+     * and the backtrack limits are scaled up for the next attempt.
+     */
+    void restarted()
+    {
+        restartCause = null;
+        restartCount++;
+        backtrackCount = 0;
+    }
+}
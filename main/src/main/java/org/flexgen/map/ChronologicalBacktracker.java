@@ -0,0 +1,157 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class containing the logic a map generator uses to recover from bad open locations with
+ * chronological backtracking.
+ */
+class ChronologicalBacktracker
+{
+    /**
+     * Map generator that recovers from bad open locations.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Logic used to change the excluded variants of the map generator.
+     */
+    private final MapTileExclusionRecorder mapTileExclusionRecorder;
+
+    /**
+     * Backtrack limits of the map generator.
+     */
+    private final BacktrackBudget backtrackBudget;
+
+    /**
+     * Logic used to remove map tiles from the map generator while recovering.
+     */
+    private final MapTileRemover mapTileRemover;
+
+    /**
+     * Construct a chronological backtracker.
+     *
+     * @param mapGenerator
+     *            Map generator that recovers from bad open locations.
+     * @param mapTileExclusionRecorder
+     *            Logic used to change the excluded variants of the map generator.
+     * @param backtrackBudget
+     *            Backtrack limits of the map generator.
+     * @param mapTileRemover
+     *            Logic used to remove map tiles from the map generator while recovering.
+     */
+    ChronologicalBacktracker( MapGenerator mapGenerator,
+                              MapTileExclusionRecorder mapTileExclusionRecorder,
+                              BacktrackBudget backtrackBudget, MapTileRemover mapTileRemover )
+    {
+        this.mapGenerator             = mapGenerator;
+        this.mapTileExclusionRecorder = mapTileExclusionRecorder;
+        this.backtrackBudget          = backtrackBudget;
+        this.mapTileRemover           = mapTileRemover;
+    }
+
+    /**
+     * Remove map tiles until no bad open locations exist, starting with the map tile at the
+     * specified location and moving on to the most recent neighbor of the last removed map tile
+     * as long as bad open locations remain.
+     *
+     * @param mapTileLocation
+     *            Location of the map tile to remove first.
+     */
+    void backtrack( MapTileLocation mapTileLocation )
+    {
+        boolean done = false;
+        MapTileLocation localMapTileLocation = mapTileLocation;
+
+        while ( ! done )
+        {
+            if ( backtrackBudget.isExceeded() )
+            {
+                return;
+            }
+
+            mapTileRemover.excludeAndRemove( localMapTileLocation, null );
+
+            if ( mapGenerator.badOpenLocationsExist() )
+            {
+                mapTileExclusionRecorder.clearExcludedVariants( localMapTileLocation );
+                mapGenerator.updateMapTileDomain( localMapTileLocation );
+
+                MapTileLocation mostRecentMapTileLocation = null;
+                MapTileLocation tempMapTileLocation;
+
+                tempMapTileLocation = new MapTileLocation(
+                        localMapTileLocation.getX(), localMapTileLocation.getY() - 1 );
+
+                if ( mapGenerator.compareMapTileLocationAge( tempMapTileLocation,
+                                                             mostRecentMapTileLocation ))
+                {
+                    mostRecentMapTileLocation = tempMapTileLocation;
+                }
+
+                tempMapTileLocation = new MapTileLocation(
+                        localMapTileLocation.getX(), localMapTileLocation.getY() + 1 );
+
+                if ( mapGenerator.compareMapTileLocationAge( tempMapTileLocation,
+                                                             mostRecentMapTileLocation ))
+                {
+                    mostRecentMapTileLocation = tempMapTileLocation;
+                }
+
+                tempMapTileLocation = new MapTileLocation(
+                        localMapTileLocation.getX() - 1, localMapTileLocation.getY() );
+
+                if ( mapGenerator.compareMapTileLocationAge( tempMapTileLocation,
+                                                             mostRecentMapTileLocation ))
+                {
+                    mostRecentMapTileLocation = tempMapTileLocation;
+                }
+
+                tempMapTileLocation = new MapTileLocation(
+                        localMapTileLocation.getX() + 1, localMapTileLocation.getY() );
+
+                if ( mapGenerator.compareMapTileLocationAge( tempMapTileLocation,
+                                                             mostRecentMapTileLocation ))
+                {
+                    mostRecentMapTileLocation = tempMapTileLocation;
+                }
+
+                localMapTileLocation = mostRecentMapTileLocation;
+            }
+            else
+            {
+                done = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Class containing the logic a map generator uses to recover from bad open locations with
+ * conflict-directed backjumping.
+ */
+class ConflictDirectedBackjumper
+{
+    /**
+     * Map generator that recovers from bad open locations.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Variants that are excluded for various locations in the map.
+     */
+    private final MapTileExclusionStore mapTileExclusionStore;
+
+    /**
+     * Logic used to change the excluded variants of the map generator.
+     */
+    private final MapTileExclusionRecorder mapTileExclusionRecorder;
+
+    /**
+     * Backtrack limits of the map generator.
+     */
+    private final BacktrackBudget backtrackBudget;
+
+    /**
+     * Logic used to remove map tiles from the map generator while recovering.
+     */
+    private final MapTileRemover mapTileRemover;
+
+    /**
+     * Construct a conflict-directed backjumper.
+     *
+     * @param mapGenerator
+     *            Map generator that recovers from bad open locations.
+     * @param mapTileExclusionStore
+     *            Variants that are excluded for various locations in the map.
+     * @param mapTileExclusionRecorder
+     *            Logic used to change the excluded variants of the map generator.
+     * @param backtrackBudget
+     *            Backtrack limits of the map generator.
+     * @param mapTileRemover
+     *            Logic used to remove map tiles from the map generator while recovering.
+     */
+    ConflictDirectedBackjumper( MapGenerator mapGenerator,
+                                MapTileExclusionStore mapTileExclusionStore,
+                                MapTileExclusionRecorder mapTileExclusionRecorder,
+                                BacktrackBudget backtrackBudget, MapTileRemover mapTileRemover )
+    {
+        this.mapGenerator             = mapGenerator;
+        this.mapTileExclusionStore    = mapTileExclusionStore;
+        this.mapTileExclusionRecorder = mapTileExclusionRecorder;
+        this.backtrackBudget          = backtrackBudget;
+        this.mapTileRemover           = mapTileRemover;
+    }
+
+    /**
+     * Remove map tiles until no bad open locations exist, using conflict-directed backjumping. The
+     * map tiles next to the bad open locations, together with the map tiles that caused variants
+     * to be excluded at the bad open locations, form the conflict set. Recovery jumps straight to
+     * the most recent map tile in the conflict set, excludes its variant at its location for as
+     * long as the rest of the conflict set stays in place, and removes it together with the newer
+     * map tiles connected to it. The conflict set carries over while bad open locations remain.
+     */
+    void backjump()
+    {
+        Set< MapTileLocation > conflictSet = new HashSet< MapTileLocation >();
+
+        while ( mapGenerator.badOpenLocationsExist() )
+        {
+            // exclusions whose reasons are gone no longer apply
+            for ( MapTileLocation deadLocation :
+                  new ArrayList< MapTileLocation >( mapGenerator.getDeadLocations() ))
+            {
+                validateExcludedVariants( deadLocation );
+            }
+
+            if (( ! mapGenerator.badOpenLocationsExist() ) || ( backtrackBudget.isExceeded() ))
+            {
+                return;
+            }
+
+            for ( MapTileLocation deadLocation : mapGenerator.getDeadLocations() )
+            {
+                addConflicts( deadLocation, conflictSet );
+            }
+
+            MapTileLocation culpritMapTileLocation = null;
+            Iterator< MapTileLocation > iterator = conflictSet.iterator();
+
+            while ( iterator.hasNext() )
+            {
+                MapTileLocation conflictMapTileLocation = iterator.next();
+
+                if ( mapGenerator.getVariant( conflictMapTileLocation ) == MapTileStore.NONE )
+                {
+                    iterator.remove();
+                }
+                else if ( mapGenerator.compareMapTileLocationAge( conflictMapTileLocation,
+                                                                  culpritMapTileLocation ))
+                {
+                    culpritMapTileLocation = conflictMapTileLocation;
+                }
+            }
+
+            if ( culpritMapTileLocation == null )
+            {
+                return;
+            }
+
+            conflictSet.remove( culpritMapTileLocation );
+            mapTileRemover.excludeAndRemove( culpritMapTileLocation, conflictSet );
+        }
+    }
+
+    /**
+     * Add the map tiles that cause a bad open location to a conflict set. These are the map tiles
+     * next to the bad open location and the map tiles that caused variants to be excluded there.
+     *
+     * @param deadLocation
+     *            Bad open location.
+     * @param conflictSet
+     *            Conflict set to add the map tiles to. Locations of empty neighbors are added as
+     *            well.
+     */
+    private void addConflicts( MapTileLocation deadLocation, Set< MapTileLocation > conflictSet )
+    {
+        conflictSet.add( new MapTileLocation( deadLocation.getX(),     deadLocation.getY() - 1 ));
+        conflictSet.add( new MapTileLocation( deadLocation.getX(),     deadLocation.getY() + 1 ));
+        conflictSet.add( new MapTileLocation( deadLocation.getX() - 1, deadLocation.getY()     ));
+        conflictSet.add( new MapTileLocation( deadLocation.getX() + 1, deadLocation.getY()     ));
+
+        MapTileExclusion mapTileExclusion = mapTileExclusionStore.get( deadLocation );
+
+        if ( mapTileExclusion != null )
+        {
+            for ( int i = 0; i < mapTileExclusion.getReasonCount(); i++ )
+            {
+                conflictSet.add( mapTileExclusion.getReasonLocation( i ));
+            }
+        }
+    }
+
+    /**
+     * Clear the excluded variants of a map tile location if any of the map tiles that caused them
+     * to be excluded have been removed.
+     *
+     * @param mapTileLocation
+     *            Map tile location whose excluded variants are to be validated.
+     */
+    private void validateExcludedVariants( MapTileLocation mapTileLocation )
+    {
+        MapTileExclusion mapTileExclusion = mapTileExclusionStore.get( mapTileLocation );
+
+        if ( mapTileExclusion == null )
+        {
+            return;
+        }
+
+        for ( int i = 0; i < mapTileExclusion.getReasonCount(); i++ )
+        {
+            int age = mapGenerator.getAge( mapTileExclusion.getReasonLocation( i ));
+
+            if ( age != mapTileExclusion.getReasonAge( i ))
+            {
+                mapTileExclusionRecorder.clearExcludedVariants( mapTileLocation );
+                mapGenerator.updateMapTileDomain( mapTileLocation );
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Collection;
+
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Generation strategy that chooses a map tile type by weight from the map tile types that can be
+ * legally placed anywhere on the frontier, followed by a uniformly chosen legal placement of that
+ * map tile type. This is the strategy map generators use by default. Exactly two random numbers are
+ * drawn for each selection.
+ */
+public class DefaultGenerationStrategy implements GenerationStrategy
+{
+    /**
+     * Select the next map tile to place.
+     *
+     * @param generationContext
+     *            Generation context giving read access to the state of the map generator. Cannot
+     *            be null.
+     *
+     * @return The next map tile placement, or null if no legal map tile can be placed.
+     */
+    public MapTilePlacement selectMapTilePlacement( GenerationContext generationContext )
+    {
+        if ( generationContext == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'generationContext' cannot be null." );
+        }
+
+        MapTileSet mapTileSet = generationContext.getMapTileSet();
+        ImprovedRandom improvedRandom = generationContext.getImprovedRandom();
+        Collection< MapTileLocation > frontier = generationContext.getFrontier();
+        long[] legalPlacementCounts = new long[ mapTileSet.getMapTileTypeCount() ];
+        long legalPlacementCount = 0;
+
+        // count the legal placements of each map tile type
+        for ( MapTileLocation mapTileLocation : frontier )
+        {
+            MapTileCandidates mapTileDomain = generationContext.getMapTileDomain( mapTileLocation );
+            int i = 0;
+
+            while ( i < mapTileDomain.getVariantCount() )
+            {
+                int mapTileTypeIndex =
+                        mapTileSet.getMapTileTypeIndex( mapTileDomain.getVariant( i ));
+                int count = mapTileDomain.getVariantCount( mapTileTypeIndex );
+
+                legalPlacementCounts[ mapTileTypeIndex ] += count;
+                legalPlacementCount += count;
+                i += count;
+            }
+        }
+
+        if ( legalPlacementCount == 0 )
+        {
+            return null;
+        }
+
+        // randomly pick a map tile type
+        int mapTileTypeIndex = chooseMapTileType( mapTileSet, improvedRandom,
+                                                  legalPlacementCounts );
+
+        // randomly pick one of the legal placements of the selected map tile type
+        long placementIndex = improvedRandom.nextLong( legalPlacementCounts[ mapTileTypeIndex ] );
+
+        // walk the frontier again rather than keeping copies of it, since the map has not changed
+        for ( MapTileLocation mapTileLocation : frontier )
+        {
+            MapTileCandidates mapTileDomain = generationContext.getMapTileDomain( mapTileLocation );
+            int count = mapTileDomain.getVariantCount( mapTileTypeIndex );
+
+            if ( placementIndex < count )
+            {
+                return new MapTilePlacement(
+                        mapTileLocation,
+                        mapTileDomain.getMapTile( mapTileDomain.getFirstIndex( mapTileTypeIndex ) +
+                                                  (int) placementIndex ));
+            }
+
+            placementIndex -= count;
+        }
+
+        throw new IllegalStateException( "Illegal state." );
+    }
+
+    /**
+     * Randomly choose a map tile type from the map tile types that have at least one legal
+     * placement. The probability of choosing a map tile type is its weight divided by the sum of
+     * the weights of all map tile types that have at least one legal placement.
+     *
+     * @param mapTileSet
+     *            Map tile set the map tile types belong to.
+     * @param improvedRandom
+     *            Random number generator to use.
+     * @param legalPlacementCounts
+     *            Number of legal placements of each map tile type, indexed by map tile type index.
+     *
+     * @return The index of the chosen map tile type.
+     */
+    private static int chooseMapTileType( MapTileSet mapTileSet, ImprovedRandom improvedRandom,
+                                          long[] legalPlacementCounts )
+    {
+        long totalWeight = 0;
+
+        for ( int i = 0; i < legalPlacementCounts.length; i++ )
+        {
+            if ( legalPlacementCounts[ i ] > 0 )
+            {
+                totalWeight += mapTileSet.getMapTileType( i ).getWeight();
+            }
+        }
+
+        if ( totalWeight == 0 )
+        {
+            throw new IllegalStateException( "No legal map tile types with any weight exist." );
+        }
+
+        long value = improvedRandom.nextLong( totalWeight );
+
+        for ( int i = 0; i < legalPlacementCounts.length; i++ )
+        {
+            if ( legalPlacementCounts[ i ] > 0 )
+            {
+                int weight = mapTileSet.getMapTileType( i ).getWeight();
+
+                if ( value < weight )
+                {
+                    return i;
+                }
+
+                value -= weight;
+            }
+        }
+
+        throw new IllegalStateException( "Illegal state." );
+    }
+}
@@ -0,0 +1,188 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the set of open locations of a map generator whose map fits a known
+ * rectangle. The iteration order is kept exactly as in its parent class, but whether or not a map
+ * tile location in the rectangle is open is also recorded in a bitmap, so the membership tests
+ * made for every neighbor of every placement are answered without hashing.
+ */
+class DenseOpenLocationSet extends OpenLocationSet
+{
+    /**
+     * Smallest X coordinate of the rectangle.
+     */
+    private final int minX;
+
+    /**
+     * Smallest Y coordinate of the rectangle.
+     */
+    private final int minY;
+
+    /**
+     * Number of map tile locations in each row of the rectangle.
+     */
+    private final int width;
+
+    /**
+     * Number of map tile locations in each column of the rectangle.
+     */
+    private final int height;
+
+    /**
+     * Bitmap with one bit set for every open location in the rectangle.
+     */
+    private final long[] openBits;
+
+    /**
+     * Construct an empty open location set covering the bounds of a map tile location filter.
+     *
+     * @param mapTileLocationFilter
+     *            Map tile location filter whose bounds give the rectangle. The rectangle cannot
+     *            cover more than MapTileDenseGrid.MAX_CELL_COUNT map tile locations.
+     */
+    DenseOpenLocationSet( MapTileLocationFilter mapTileLocationFilter )
+    {
+        super( mapTileLocationFilter );
+
+        this.minX     = mapTileLocationFilter.getMinX();
+        this.minY     = mapTileLocationFilter.getMinY();
+        this.width    = mapTileLocationFilter.getMaxX() - minX + 1;
+        this.height   = mapTileLocationFilter.getMaxY() - minY + 1;
+        this.openBits = new long[ (( width * height ) + 63 ) / 64 ];
+    }
+
+    /**
+     * Determine whether or not the map tile location with the specified coordinates is an open
+     * location in this set. The bitmap answers for the map tile locations in the rectangle.
+     *
+     * @param x
+     *            X coordinate of the map tile location to check.
+     * @param y
+     *            Y coordinate of the map tile location to check.
+     *
+     * @return True if the map tile location is an open location in this set, false otherwise.
+     */
+    boolean contains( int x, int y )
+    {
+        int index = indexOf( x, y );
+
+        if ( index < 0 )
+        {
+            return super.contains( x, y );
+        }
+
+        return ( openBits[ index >>> 6 ] & ( 1L << index )) != 0;
+    }
+
+    /**
+     * Remove an open location from this set.
+     *
+     * @param obj
+     *            Open location to remove.
+     *
+     * @return True if the open location was removed, false otherwise.
+     */
+    public boolean remove( Object obj )
+    {
+        if ( ! super.remove( obj ))
+        {
+            return false;
+        }
+
+        MapTileLocation mapTileLocation = (MapTileLocation) obj;
+        int index = indexOf( mapTileLocation.getX(), mapTileLocation.getY() );
+
+        if ( index >= 0 )
+        {
+            openBits[ index >>> 6 ] &= ~( 1L << index );
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove all open locations from this set.
+     */
+    public void clear()
+    {
+        super.clear();
+        Arrays.fill( openBits, 0 );
+    }
+
+    /**
+     * Add an open location at the position in the iteration order given by a sequence number.
+     *
+     * @param mapTileLocation
+     *            Open location to add. Must not be in this set.
+     * @param sequenceNumber
+     *            Sequence number the open location had when it was removed.
+     */
+    void restore( MapTileLocation mapTileLocation, long sequenceNumber )
+    {
+        super.restore( mapTileLocation, sequenceNumber );
+
+        int index = indexOf( mapTileLocation.getX(), mapTileLocation.getY() );
+
+        if ( index >= 0 )
+        {
+            openBits[ index >>> 6 ] |= 1L << index;
+        }
+    }
+
+    /**
+     * Get the index into the bitmap of a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The index of the map tile location, or -1 if it is outside of the rectangle.
+     */
+    private int indexOf( int x, int y )
+    {
+        int column = x - minX;
+        int row    = y - minY;
+
+        if (( column < 0 ) || ( column >= width ) || ( row < 0 ) || ( row >= height ))
+        {
+            return -1;
+        }
+
+        return ( row * width ) + column;
+    }
+}
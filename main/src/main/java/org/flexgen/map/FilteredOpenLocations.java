@@ -0,0 +1,213 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class providing a live view of the open locations of a map generator that lie within the bounds
+ * of a rectangular map tile location filter. The view is read-only and reflects changes to the
+ * open locations as they happen, so the frontier does not have to be copied every time the map
+ * changes. Counting the open locations in the view takes time proportional to the number of open
+ * locations.
+ */
+class FilteredOpenLocations extends AbstractCollection< MapTileLocation >
+{
+    /**
+     * Open locations of the map generator.
+     */
+    private final OpenLocationSet openLocations;
+
+    /**
+     * Smallest X coordinate allowed by the map tile location filter.
+     */
+    private final int minX;
+
+    /**
+     * Smallest Y coordinate allowed by the map tile location filter.
+     */
+    private final int minY;
+
+    /**
+     * Largest X coordinate allowed by the map tile location filter.
+     */
+    private final int maxX;
+
+    /**
+     * Largest Y coordinate allowed by the map tile location filter.
+     */
+    private final int maxY;
+
+    /**
+     * Construct a view of the open locations within the bounds of a rectangular map tile location
+     * filter.
+     *
+     * @param openLocations
+     *            Open locations of the map generator.
+     * @param mapTileLocationFilter
+     *            Rectangular map tile location filter whose bounds limit the view.
+     */
+    FilteredOpenLocations( OpenLocationSet openLocations,
+                           RectangularMapTileLocationFilter mapTileLocationFilter )
+    {
+        this.openLocations = openLocations;
+        this.minX          = mapTileLocationFilter.getMinX();
+        this.minY          = mapTileLocationFilter.getMinY();
+        this.maxX          = mapTileLocationFilter.getMaxX();
+        this.maxY          = mapTileLocationFilter.getMaxY();
+    }
+
+    /**
+     * Get an iterator over the open locations within the bounds, in the order in which they were
+     * opened. The iterator does not support removal.
+     *
+     * @return An iterator over the open locations within the bounds.
+     */
+    public Iterator< MapTileLocation > iterator()
+    {
+        final Iterator< MapTileLocation > iterator = openLocations.iterator();
+
+        return new Iterator< MapTileLocation >()
+        {
+            /**
+             * Next open location within the bounds to return, or null if there is none.
+             */
+            private MapTileLocation nextMapTileLocation = findNext( iterator );
+
+            /**
+             * Determine whether or not there are more open locations within the bounds.
+             *
+             * @return True if there are more open locations within the bounds, false otherwise.
+             */
+            public boolean hasNext()
+            {
+                return nextMapTileLocation != null;
+            }
+
+            /**
+             * Get the next open location within the bounds.
+             *
+             * @return The next open location within the bounds.
+             */
+            public MapTileLocation next()
+            {
+                if ( nextMapTileLocation == null )
+                {
+                    throw new NoSuchElementException();
+                }
+
+                MapTileLocation mapTileLocation = nextMapTileLocation;
+                nextMapTileLocation = findNext( iterator );
+                return mapTileLocation;
+            }
+
+            /**
+             * Removal is not supported.
+             */
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Get the number of open locations within the bounds.
+     *
+     * @return The number of open locations within the bounds.
+     */
+    public int size()
+    {
+        int size = 0;
+        Iterator< MapTileLocation > iterator = iterator();
+
+        while ( iterator.hasNext() )
+        {
+            iterator.next();
+            size++;
+        }
+
+        return size;
+    }
+
+    /**
+     * Determine whether or not there are no open locations within the bounds.
+     *
+     * @return True if there are no open locations within the bounds, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return ! iterator().hasNext();
+    }
+
+    /**
+     * Determine whether or not a map tile location lies within the bounds.
+     *
+     * @param mapTileLocation
+     *            Map tile location to check.
+     *
+     * @return True if the map tile location lies within the bounds, false otherwise.
+     */
+    boolean isWithinBounds( MapTileLocation mapTileLocation )
+    {
+        return (( mapTileLocation.getX() >= minX ) &&
+                ( mapTileLocation.getY() >= minY ) &&
+                ( mapTileLocation.getX() <= maxX ) &&
+                ( mapTileLocation.getY() <= maxY ));
+    }
+
+    /**
+     * Advance an iterator over the open locations to the next open location within the bounds.
+     *
+     * @param iterator
+     *            Iterator over the open locations.
+     *
+     * @return The next open location within the bounds, or null if there is none.
+     */
+    private MapTileLocation findNext( Iterator< MapTileLocation > iterator )
+    {
+        while ( iterator.hasNext() )
+        {
+            MapTileLocation mapTileLocation = iterator.next();
+
+            if ( isWithinBounds( mapTileLocation ))
+            {
+                return mapTileLocation;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Class giving a generation strategy read access to the state of the map generator that is
+ * generating a map.
+ */
+public class GenerationContext
+{
+    /**
+     * Map generator that is generating the map.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Random number generator of the map generator.
+     */
+    private final ImprovedRandom improvedRandom;
+
+    /**
+     * Open locations that are allowed by the map tile location filter, or null if they have not
+     * been computed since the map last changed.
+     */
+    private Collection< MapTileLocation > frontier;
+
+    /**
+     * Construct a generation context.
+     *
+     * @param mapGenerator
+     *            Map generator that is generating the map.
+     * @param improvedRandom
+     *            Random number generator of the map generator.
+     */
+    GenerationContext( MapGenerator mapGenerator, ImprovedRandom improvedRandom )
+    {
+        this.mapGenerator   = mapGenerator;
+        this.improvedRandom = improvedRandom;
+        this.frontier       = null;
+    }
+
+    /**
+     * Construct a generation context whose frontier is limited to a region of the map.
+     *
+     * @param mapGenerator
+     *            Map generator that is generating the map.
+     * @param improvedRandom
+     *            Random number generator to use for the region.
+     * @param frontier
+     *            Open locations of the region that are allowed by the map tile location filter, in
+     *            the order in which they were opened.
+     */
+    GenerationContext( MapGenerator mapGenerator, ImprovedRandom improvedRandom,
+                       Collection< MapTileLocation > frontier )
+    {
+        this.mapGenerator   = mapGenerator;
+        this.improvedRandom = improvedRandom;
+        this.frontier       = Collections.unmodifiableCollection( frontier );
+    }
+
+    /**
+     * Get the map generator that is generating the map. Generation strategies must not modify the
+     * map generator.
+     *
+     * @return The map generator that is generating the map.
+     */
+    public MapGenerator getMapGenerator()
+    {
+        return mapGenerator;
+    }
+
+    /**
+     * Get the map tile set of the map generator.
+     *
+     * @return The map tile set of the map generator.
+     */
+    public MapTileSet getMapTileSet()
+    {
+        return mapGenerator.getMapTileSet();
+    }
+
+    /**
+     * Get the random number generator of the map generator. Generation strategies that draw
+     * random numbers must draw them from this random number generator, so that the same seed
+     * produces the same map.
+     *
+     * @return The random number generator of the map generator.
+     */
+    public ImprovedRandom getImprovedRandom()
+    {
+        return improvedRandom;
+    }
+
+    /**
+     * Get the frontier of the map, which is the collection of open locations that are allowed by
+     * the map tile location filter. The frontier is computed on demand and reused until the map
+     * changes.
+     *
+     * @return Unmodifiable collection of the open locations that are allowed by the map tile
+     *         location filter, in the order in which they were opened.
+     */
+    public Collection< MapTileLocation > getFrontier()
+    {
+        if ( frontier == null )
+        {
+            frontier = Collections.unmodifiableCollection(
+                    mapGenerator.getFilteredOpenLocations() );
+        }
+
+        return frontier;
+    }
+
+    /**
+     * Get the candidate domain of an open location. The candidate domain contains the map tiles
+     * that can legally be placed at the open location, leaving out map tiles that are excluded or
+     * that were rejected by propagation.
+     *
+     * @param mapTileLocation
+     *            Open location for which to get the candidate domain. Cannot be null.
+     *
+     * @return The candidate domain of the open location.
+     */
+    public MapTileCandidates getMapTileDomain( MapTileLocation mapTileLocation )
+    {
+        if ( mapTileLocation == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
+        }
+
+        MapTileCandidates mapTileDomain = mapGenerator.getOpenLocationDomain( mapTileLocation );
+
+        if ( mapTileDomain == null )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'mapTileLocation' must locate an open location." );
+        }
+
+        return mapTileDomain;
+    }
+
+    /**
+     * Get the open location at the head of the map tile location queue of the map generator.
+     *
+     * @return The open location at the head of the map tile location queue, or null if the queue
+     *         is empty.
+     */
+    MapTileLocation peekMapTileLocationQueue()
+    {
+        return mapGenerator.peekMapTileLocationQueue();
+    }
+
+    /**
+     * Forget the computed frontier. Called whenever the map changes.
+     */
+    void invalidate()
+    {
+        frontier = null;
+    }
+}
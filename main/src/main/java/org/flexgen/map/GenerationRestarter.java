@@ -0,0 +1,230 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class containing the logic a map generator uses to restart the generation of the map after a
+ * backtrack limit was exceeded.
+ */
+class GenerationRestarter
+{
+    /**
+     * Radius of the square of map tile locations that is cleared when restarting a region.
+     */
+    private static final int RESTART_REGION_RADIUS = 4;
+
+    /**
+     * Map generator that is restarted.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Backtrack limits of the map generator.
+     */
+    private final BacktrackBudget backtrackBudget;
+
+    /**
+     * List of restart listeners.
+     */
+    private final List< RestartListener > restartListeners;
+
+    /**
+     * Part of the map that is cleared when the map generator restarts.
+     */
+    private RestartScope restartScope;
+
+    /**
+     * Age of the first map tile placed by the call to generate() in progress.
+     */
+    private int generationStartAge;
+
+    /**
+     * Construct a generation restarter.
+     *
+     * @param mapGenerator
+     *            Map generator that is restarted.
+     * @param backtrackBudget
+     *            Backtrack limits of the map generator.
+     */
+    GenerationRestarter( MapGenerator mapGenerator, BacktrackBudget backtrackBudget )
+    {
+        this.mapGenerator       = mapGenerator;
+        this.backtrackBudget    = backtrackBudget;
+        this.restartListeners   = new LinkedList< RestartListener >();
+        this.restartScope       = RestartScope.MAP;
+        this.generationStartAge = 0;
+    }
+
+    /**
+     * Add a new restart listener.
+     *
+     * @param restartListener
+     *            The listener to add.
+     */
+    void addRestartListener( RestartListener restartListener )
+    {
+        restartListeners.add( restartListener );
+    }
+
+    /**
+     * Get the part of the map that is cleared when the map generator restarts.
+     *
+     * @return The restart scope.
+     */
+    RestartScope getRestartScope()
+    {
+        return restartScope;
+    }
+
+    /**
+     * Set the part of the map that is cleared when the map generator restarts.
+     *
+     * @param restartScope
+     *            Restart scope.
+     */
+    void setRestartScope( RestartScope restartScope )
+    {
+        this.restartScope = restartScope;
+    }
+
+    /**
+     * Record the start of a call to generate().
+     *
+     * @param generationStartAge
+     *            Age of the first map tile placed by the call to generate().
+     */
+    void start( int generationStartAge )
+    {
+        this.generationStartAge = generationStartAge;
+    }
+
+    /**
+     * Restart the generation of the map after a backtrack limit was exceeded, according to the
+     * restart policy and restart scope.
+     *
+     * @param generationMark
+     *            Mark placed on the trail when generation started.
+     * @param mapTileLocation
+     *            Location of the placement that exceeded the backtrack limit.
+     */
+    void restart( int generationMark, MapTileLocation mapTileLocation )
+    {
+        RestartCause restartCause = backtrackBudget.getRestartCause();
+        RestartPolicy restartPolicy = backtrackBudget.getRestartPolicy();
+
+        if ( restartPolicy == RestartPolicy.NONE )
+        {
+            if ( restartCause == RestartCause.BACKTRACK_DEPTH )
+            {
+                throw new IllegalStateException( "Backtrack depth limit exceeded." );
+            }
+
+            throw new IllegalStateException( "Backtrack limit exceeded." );
+        }
+
+        mapGenerator.clearRejectedMapTiles();
+        RestartScope appliedRestartScope = restartScope;
+
+        if ( appliedRestartScope == RestartScope.REGION )
+        {
+            removeRegion( mapTileLocation );
+
+            if ( mapGenerator.badOpenLocationsExist() )
+            {
+                appliedRestartScope = RestartScope.MAP;
+            }
+        }
+
+        if ( appliedRestartScope == RestartScope.MAP )
+        {
+            mapGenerator.undoTrail( generationMark );
+        }
+
+        backtrackBudget.restarted();
+
+        for ( RestartListener restartListener : restartListeners )
+        {
+            restartListener.restarted( mapGenerator, restartCause, restartPolicy,
+                                       appliedRestartScope );
+        }
+    }
+
+    /**
+     * Remove the map tiles placed by the call to generate() in progress within a square of map
+     * tile locations around a map tile location, newest first.
+     *
+     * @param mapTileLocation
+     *            Map tile location at the center of the square.
+     */
+    private void removeRegion( MapTileLocation mapTileLocation )
+    {
+        List< MapTileLocation > regionMapTileLocations = new ArrayList< MapTileLocation >();
+
+        for ( int y = mapTileLocation.getY() - RESTART_REGION_RADIUS;
+              y <= mapTileLocation.getY() + RESTART_REGION_RADIUS; y++ )
+        {
+            for ( int x = mapTileLocation.getX() - RESTART_REGION_RADIUS;
+                  x <= mapTileLocation.getX() + RESTART_REGION_RADIUS; x++ )
+            {
+                MapTileLocation regionMapTileLocation = new MapTileLocation( x, y );
+                int age = mapGenerator.getAge( regionMapTileLocation );
+
+                if (( age != MapTileStore.NONE ) && ( age >= generationStartAge ))
+                {
+                    regionMapTileLocations.add( regionMapTileLocation );
+                }
+            }
+        }
+
+        Collections.sort( regionMapTileLocations, new Comparator< MapTileLocation >()
+        {
+            public int compare( MapTileLocation mapTileLocation1,
+                                MapTileLocation mapTileLocation2 )
+            {
+                return Integer.compare( mapGenerator.getAge( mapTileLocation2 ),
+                                        mapGenerator.getAge( mapTileLocation1 ));
+            }
+        } );
+
+        for ( MapTileLocation regionMapTileLocation : regionMapTileLocations )
+        {
+            mapGenerator.removeMapTileInternal( regionMapTileLocation );
+        }
+    }
+}
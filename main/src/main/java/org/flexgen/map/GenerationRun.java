@@ -0,0 +1,461 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Class representing the generation of a map that is in progress. The generation can be split
+ * across several calls, each limited by a number of placements or an amount of time, and resumes
+ * exactly where the previous call stopped. A map generated in several calls is identical to a map
+ * generated in a single call. The generation can also be cancelled or given a deadline, in which
+ * case the placement that was interrupted is undone so that no bad open locations remain.
+ */
+class GenerationRun
+{
+    /**
+     * Map generator that generates the map.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Random number generator of the map generator, used to seed the random number generator that
+     * is used after a restart.
+     */
+    private final ImprovedRandom improvedRandom;
+
+    /**
+     * Backtrack limits of the map generator.
+     */
+    private final BacktrackBudget backtrackBudget;
+
+    /**
+     * Logic used to restart the generation of the map after a backtrack limit was exceeded.
+     */
+    private final GenerationRestarter generationRestarter;
+
+    /**
+     * Logic used to select several map tile placements at once from separate regions of the map.
+     */
+    private final ParallelPlacementSelector parallelPlacementSelector;
+
+    /**
+     * Map tile placements selected from separate regions of the map that are still to be made.
+     */
+    private final Deque< MapTilePlacement > pendingMapTilePlacements;
+
+    /**
+     * Logic used to remove map tiles while recovering from bad open locations.
+     */
+    private final MapTileRemover mapTileRemover;
+
+    /**
+     * List of generation progress listeners of the map generator.
+     */
+    private final List< GenerationProgressListener > generationProgressListeners;
+
+    /**
+     * Flag indicating whether or not the generation may need to restart.
+     */
+    private final boolean restartable;
+
+    /**
+     * Flag indicating whether or not map tiles placed by the generation are removed by popping the
+     * trail.
+     */
+    private final boolean trailBacktracking;
+
+    /**
+     * Mark placed on the trail when generation started, if the generation may need to restart or
+     * removes map tiles by popping the trail.
+     */
+    private final int generationMark;
+
+    /**
+     * Generation context passed to the generation strategy.
+     */
+    private GenerationContext generationContext;
+
+    /**
+     * Flag indicating whether or not placements are checked by the map tile propagator.
+     */
+    private boolean propagate;
+
+    /**
+     * Number of map tiles placed since the generation started, including map tiles that were
+     * removed again.
+     */
+    private int placementCount;
+
+    /**
+     * Start the generation of a map.
+     *
+     * @param mapGenerator
+     *            Map generator that generates the map.
+     * @param improvedRandom
+     *            Random number generator of the map generator.
+     * @param backtrackBudget
+     *            Backtrack limits of the map generator.
+     * @param generationRestarter
+     *            Logic used to restart the generation of the map.
+     * @param parallelPlacementSelector
+     *            Logic used to select several map tile placements at once.
+     * @param generationProgressListeners
+     *            List of generation progress listeners of the map generator.
+     * @param generationStartAge
+     *            Age of the first map tile placed by the generation.
+     */
+    GenerationRun( MapGenerator mapGenerator, ImprovedRandom improvedRandom,
+                   BacktrackBudget backtrackBudget, GenerationRestarter generationRestarter,
+                   ParallelPlacementSelector parallelPlacementSelector,
+                   List< GenerationProgressListener > generationProgressListeners,
+                   int generationStartAge )
+    {
+        this.mapGenerator                = mapGenerator;
+        this.improvedRandom              = improvedRandom;
+        this.backtrackBudget             = backtrackBudget;
+        this.generationRestarter         = generationRestarter;
+        this.parallelPlacementSelector   = parallelPlacementSelector;
+        this.pendingMapTilePlacements    = new ArrayDeque< MapTilePlacement >();
+        this.mapTileRemover              = mapGenerator.getMapTileRemover();
+        this.generationProgressListeners = generationProgressListeners;
+        this.restartable                 = backtrackBudget.isRestartable();
+        this.trailBacktracking           = mapTileRemover.isTrailBacktracking();
+        this.generationContext           = new GenerationContext( mapGenerator, improvedRandom );
+        this.propagate                   = ( mapGenerator.getPropagationRadius() > 0 );
+        this.placementCount              = 0;
+
+        if (( restartable ) || ( trailBacktracking ))
+        {
+            this.generationMark = mapGenerator.markTrail();
+        }
+        else
+        {
+            this.generationMark = 0;
+        }
+
+        if ( trailBacktracking )
+        {
+            mapTileRemover.start( generationMark );
+        }
+
+        backtrackBudget.start();
+        generationRestarter.start( generationStartAge );
+    }
+
+    /**
+     * Place map tiles selected by the generation strategy until no open locations that are allowed
+     * by the map tile location filter remain, until the budget runs out, or until the generation
+     * is interrupted. The placements made by a call include map tiles that are removed again while
+     * recovering from bad open locations.
+     *
+     * @param maxPlacements
+     *            Maximum number of map tiles to place.
+     * @param maxNanos
+     *            Maximum number of nanoseconds to spend, or Long.MAX_VALUE if the time is not
+     *            limited. The time is checked before each placement.
+     * @param cancellationToken
+     *            Cancellation token to check before each placement and while recovering from bad
+     *            open locations, or null if there is none.
+     * @param deadlineSet
+     *            Flag indicating whether or not a deadline is to be checked.
+     * @param deadline
+     *            Value of System.nanoTime() after which map tiles are no longer to be placed.
+     *
+     * @return The status of the generation.
+     */
+    GenerationStatus run( long maxPlacements, long maxNanos, CancellationToken cancellationToken,
+                          boolean deadlineSet, long deadline )
+    {
+        long startNanos = 0;
+
+        if ( maxNanos != Long.MAX_VALUE )
+        {
+            startNanos = System.nanoTime();
+        }
+
+        long callPlacementCount = 0;
+        boolean interruptible = (( cancellationToken != null ) || ( deadlineSet ));
+
+        // the map may have been changed since the previous call
+        generationContext.invalidate();
+        backtrackBudget.resume( cancellationToken, deadlineSet, deadline );
+
+        try
+        {
+            while ( mapGenerator.frontierExists( generationContext ))
+            {
+                if (( callPlacementCount >= maxPlacements ) ||
+                    (( maxNanos != Long.MAX_VALUE ) &&
+                     ( System.nanoTime() - startNanos >= maxNanos )))
+                {
+                    if ( callPlacementCount > 0 )
+                    {
+                        return GenerationStatus.PROGRESSED;
+                    }
+
+                    return GenerationStatus.BUDGET_EXHAUSTED;
+                }
+
+                GenerationStatus interruptionStatus = backtrackBudget.checkInterruption();
+
+                if ( interruptionStatus == null )
+                {
+                    if ( placeMapTile( interruptible ))
+                    {
+                        callPlacementCount++;
+                        placementCount++;
+                        reportProgress();
+                    }
+
+                    interruptionStatus = backtrackBudget.getInterruptionStatus();
+                }
+
+                if ( interruptionStatus != null )
+                {
+                    return interruptionStatus;
+                }
+            }
+
+            return GenerationStatus.COMPLETE;
+        }
+        finally
+        {
+            backtrackBudget.suspend();
+        }
+    }
+
+    /**
+     * Place the map tile selected by the generation strategy, unless the placement is rejected.
+     *
+     * @param interruptible
+     *            Flag indicating whether or not the recovery from bad open locations can be
+     *            interrupted, in which case the placement is undone.
+     *
+     * @return True if a map tile was placed, false otherwise.
+     */
+    private boolean placeMapTile( boolean interruptible )
+    {
+        MapTilePlacement mapTilePlacement = selectMapTilePlacement();
+
+        if ( mapTilePlacement == null )
+        {
+            if ( ! mapGenerator.rejectedMapTilesExist() )
+            {
+                throw new IllegalStateException( "No legal map tiles with any weight exist." );
+            }
+
+            // propagation rejected every legal placement, so fall back to placing without it and
+            // let the map tiles be removed again if needed
+            mapGenerator.clearRejectedMapTiles();
+            propagate = false;
+            return false;
+        }
+
+        MapTileLocation mapTileLocation = mapTilePlacement.getMapTileLocation();
+        MapTile mapTile = mapTilePlacement.getMapTile();
+        MapTileCandidates mapTileDomain = mapGenerator.getOpenLocationDomain( mapTileLocation );
+        int variant = mapGenerator.getMapTileSet().getVariant( mapTile );
+
+        if (( mapTileDomain == null ) || ( ! mapTileDomain.containsVariant( variant )))
+        {
+            throw new IllegalStateException(
+                    "Generation strategy selected an illegal map tile placement." );
+        }
+
+        if (( propagate ) && ( ! mapGenerator.isConsistent( mapTileLocation, variant )))
+        {
+            // reject the placement until the map changes
+            mapGenerator.rejectVariant( mapTileLocation, variant );
+            return false;
+        }
+
+        // add the selected map tile at the selected map tile location
+        mapGenerator.clearRejectedMapTiles();
+        int removedCount = backtrackBudget.getRemovedCount();
+
+        if ( interruptible )
+        {
+            if ( ! addMapTile( mapTileLocation, mapTile ))
+            {
+                return false;
+            }
+        }
+        else
+        {
+            mapGenerator.addMapTile( mapTileLocation, mapTile );
+        }
+
+        generationContext.invalidate();
+        propagate = ( mapGenerator.getPropagationRadius() > 0 );
+
+        if ( backtrackBudget.getRemovedCount() != removedCount )
+        {
+            // the pending placements were selected for map tiles that were removed again
+            pendingMapTilePlacements.clear();
+        }
+
+        if ( backtrackBudget.getRestartCause() != null )
+        {
+            // continue with a random number generator seeded from the one of the map generator
+            generationRestarter.restart( generationMark, mapTileLocation );
+            ImprovedRandom restartImprovedRandom = new ImprovedRandom();
+            restartImprovedRandom.setSeed( improvedRandom.nextLong() );
+            generationContext = new GenerationContext( mapGenerator, restartImprovedRandom );
+            pendingMapTilePlacements.clear();
+        }
+
+        return true;
+    }
+
+    /**
+     * Select the next map tile placement. Placements selected from separate regions of the map are
+     * made first, skipping those that are no longer legal. Once none remain, a new round of
+     * placements is selected if the map generator selects placements from several regions at
+     * once, and otherwise the generation strategy selects a single placement.
+     *
+     * @return The selected map tile placement, or null if no legal map tile can be placed.
+     */
+    private MapTilePlacement selectMapTilePlacement()
+    {
+        if (( pendingMapTilePlacements.isEmpty() ) && ( parallelPlacementSelector.isEnabled() ))
+        {
+            pendingMapTilePlacements.addAll(
+                    parallelPlacementSelector.selectMapTilePlacements( generationContext ));
+        }
+
+        while ( ! pendingMapTilePlacements.isEmpty() )
+        {
+            MapTilePlacement mapTilePlacement = pendingMapTilePlacements.removeFirst();
+            MapTileCandidates mapTileDomain =
+                    mapGenerator.getOpenLocationDomain( mapTilePlacement.getMapTileLocation() );
+
+            if (( mapTileDomain != null ) &&
+                ( mapTileDomain.containsVariant(
+                        mapGenerator.getMapTileSet().getVariant( mapTilePlacement.getMapTile() ))))
+            {
+                return mapTilePlacement;
+            }
+        }
+
+        return mapGenerator.getGenerationStrategy().selectMapTilePlacement( generationContext );
+    }
+
+    /**
+     * Add a map tile to the map, undoing the placement if the recovery from the bad open locations
+     * it caused is interrupted.
+     *
+     * @param mapTileLocation
+     *            Location at which to add the map tile.
+     * @param mapTile
+     *            Map tile to add.
+     *
+     * @return True if the map tile was added, false if the placement was undone.
+     */
+    private boolean addMapTile( MapTileLocation mapTileLocation, MapTile mapTile )
+    {
+        int placementMark = mapGenerator.markTrail();
+        mapTileRemover.startPlacement();
+
+        try
+        {
+            mapGenerator.addMapTile( mapTileLocation, mapTile );
+
+            if ( backtrackBudget.getInterruptionStatus() != null )
+            {
+                mapGenerator.undoTrail( mapTileRemover.getUndoMark( placementMark ));
+                generationContext.invalidate();
+                pendingMapTilePlacements.clear();
+                return false;
+            }
+
+            return true;
+        }
+        finally
+        {
+            mapGenerator.releaseTrail();
+        }
+    }
+
+    /**
+     * Inform the generation progress listeners of the progress of the generation and publish a
+     * new snapshot of the map, if the number of placed map tiles is a multiple of the progress
+     * interval of the map generator.
+     */
+    private void reportProgress()
+    {
+        if ( placementCount % mapGenerator.getProgressInterval() != 0 )
+        {
+            return;
+        }
+
+        mapGenerator.republishSnapshot();
+
+        if ( generationProgressListeners.isEmpty() )
+        {
+            return;
+        }
+
+        int frontierSize = generationContext.getFrontier().size();
+
+        for ( GenerationProgressListener generationProgressListener :
+              generationProgressListeners )
+        {
+            generationProgressListener.generationProgressed(
+                    mapGenerator, placementCount, frontierSize,
+                    backtrackBudget.getRemovedCount() );
+        }
+    }
+
+    /**
+     * Finish the generation of the map, after it completed, failed or was interrupted.
+     */
+    void finish()
+    {
+        backtrackBudget.suspend();
+
+        if ( trailBacktracking )
+        {
+            mapTileRemover.finish();
+        }
+
+        if (( restartable ) || ( trailBacktracking ))
+        {
+            mapGenerator.releaseTrail();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing the outcome of a call to one of the methods that generate part of a map.
+ */
+public class GenerationStatus
+{
+    /**
+     * No open locations that are allowed by the map tile location filter remain, so the map is
+     * finished.
+     */
+    public static final GenerationStatus COMPLETE = new GenerationStatus( "Complete" );
+
+    /**
+     * At least one map tile was placed before the budget ran out, and the map is not finished yet.
+     */
+    public static final GenerationStatus PROGRESSED = new GenerationStatus( "Progressed" );
+
+    /**
+     * The budget ran out before any map tile was placed, and the map is not finished yet.
+     */
+    public static final GenerationStatus BUDGET_EXHAUSTED =
+            new GenerationStatus( "BudgetExhausted" );
+
+    /**
+     * The generation of the map was cancelled. The map tiles placed so far are kept, and no bad
+     * open locations remain.
+     */
+    public static final GenerationStatus CANCELLED = new GenerationStatus( "Cancelled" );
+
+    /**
+     * The deadline passed before the map was finished. The map tiles placed so far are kept, and no
+     * bad open locations remain.
+     */
+    public static final GenerationStatus DEADLINE_EXCEEDED =
+            new GenerationStatus( "DeadlineExceeded" );
+
+    /**
+     * Name of the generation status.
+     */
+    private final String name;
+
+    /**
+     * Construct a generation status with the specified name.
+     *
+     * @param name
+     *            Name of the generation status.
+     */
+    private GenerationStatus( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Get the string representation of this object.
+     *
+     * @return The string representation of this object.
+     */
+    public String toString()
+    {
+        return name;
+    }
+}
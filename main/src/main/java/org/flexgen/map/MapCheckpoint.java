@@ -0,0 +1,111 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing a checkpoint of the state of a map generator. While a checkpoint is held,
+ * the map generator records every change it makes, so the map can be rolled back to the
+ * checkpoint in time proportional to the number of changes made since. A checkpoint has to be
+ * released once it is no longer needed, so the map generator can stop recording changes.
+ */
+public class MapCheckpoint
+{
+    /**
+     * Map generator whose state the checkpoint captures.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Mark placed on the trail of the map generator when the checkpoint was taken.
+     */
+    private final int mark;
+
+    /**
+     * Flag indicating whether or not the checkpoint was released.
+     */
+    private boolean released;
+
+    /**
+     * Construct a checkpoint.
+     *
+     * @param mapGenerator
+     *            Map generator whose state the checkpoint captures.
+     * @param mark
+     *            Mark placed on the trail of the map generator.
+     */
+    MapCheckpoint( MapGenerator mapGenerator, int mark )
+    {
+        this.mapGenerator = mapGenerator;
+        this.mark         = mark;
+        this.released     = false;
+    }
+
+    /**
+     * Get the map generator whose state the checkpoint captures.
+     *
+     * @return The map generator.
+     */
+    public MapGenerator getMapGenerator()
+    {
+        return mapGenerator;
+    }
+
+    /**
+     * Determine whether or not the checkpoint was released. A checkpoint is released explicitly,
+     * or when the map is rolled back to an older checkpoint.
+     *
+     * @return True if the checkpoint was released, false otherwise.
+     */
+    public boolean isReleased()
+    {
+        return released;
+    }
+
+    /**
+     * Get the mark placed on the trail of the map generator when the checkpoint was taken.
+     *
+     * @return The mark.
+     */
+    int getMark()
+    {
+        return mark;
+    }
+
+    /**
+     * Mark the checkpoint as released.
+     */
+    void setReleased()
+    {
+        released = true;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class keeping track of the checkpoints held on the state of a map generator, and rolling the map
+ * back to them.
+ */
+class MapCheckpointTracker
+{
+    /**
+     * Map generator whose checkpoints are tracked.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Checkpoints that are held, oldest first.
+     */
+    private final List< MapCheckpoint > mapCheckpoints;
+
+    /**
+     * Construct a checkpoint tracker.
+     *
+     * @param mapGenerator
+     *            Map generator whose checkpoints are tracked.
+     */
+    MapCheckpointTracker( MapGenerator mapGenerator )
+    {
+        this.mapGenerator   = mapGenerator;
+        this.mapCheckpoints = new ArrayList< MapCheckpoint >();
+    }
+
+    /**
+     * Take a checkpoint of the state of the map.
+     *
+     * @return The checkpoint.
+     */
+    MapCheckpoint checkpoint()
+    {
+        if ( mapGenerator.isGenerating() )
+        {
+            throw new IllegalStateException(
+                    "Cannot take a checkpoint while the map is being generated." );
+        }
+
+        MapCheckpoint mapCheckpoint = new MapCheckpoint( mapGenerator, mapGenerator.markTrail() );
+        mapCheckpoints.add( mapCheckpoint );
+        return mapCheckpoint;
+    }
+
+    /**
+     * Roll the map back to the state it was in when a checkpoint was taken, releasing the
+     * checkpoints taken after it.
+     *
+     * @param mapCheckpoint
+     *            Checkpoint to roll back to.
+     */
+    void rollback( MapCheckpoint mapCheckpoint )
+    {
+        validateMapCheckpoint( mapCheckpoint );
+
+        if ( mapGenerator.isGenerating() )
+        {
+            throw new IllegalStateException( "Cannot roll back while the map is being generated." );
+        }
+
+        while ( mapCheckpoints.get( mapCheckpoints.size() - 1 ) != mapCheckpoint )
+        {
+            release( mapCheckpoints.get( mapCheckpoints.size() - 1 ));
+        }
+
+        mapGenerator.clearRejectedMapTiles();
+        mapGenerator.undoTrail( mapCheckpoint.getMark() );
+    }
+
+    /**
+     * Release a checkpoint.
+     *
+     * @param mapCheckpoint
+     *            Checkpoint to release.
+     */
+    void release( MapCheckpoint mapCheckpoint )
+    {
+        validateMapCheckpoint( mapCheckpoint );
+
+        mapCheckpoints.remove( mapCheckpoint );
+        mapCheckpoint.setReleased();
+        mapGenerator.releaseTrail();
+    }
+
+    /**
+     * Validate a checkpoint passed to the map generator.
+     *
+     * @param mapCheckpoint
+     *            Checkpoint to validate.
+     */
+    private void validateMapCheckpoint( MapCheckpoint mapCheckpoint )
+    {
+        if ( mapCheckpoint == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapCheckpoint' cannot be null." );
+        }
+
+        if ( mapCheckpoint.getMapGenerator() != mapGenerator )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'mapCheckpoint' must be a checkpoint of this map generator." );
+        }
+
+        if ( mapCheckpoint.isReleased() )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'mapCheckpoint' must not be released." );
+        }
+    }
+}
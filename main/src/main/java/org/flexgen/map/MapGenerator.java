@@ -32,32 +32,42 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.flexgen.map;
 
+import java.nio.IntBuffer;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.flexgen.util.Chooser;
 import org.flexgen.util.ImprovedRandom;
 
 /**
  * Class containing logic for randomly generating a map using a specified set of map tile types.
  */
-public class MapGenerator
+public class MapGenerator implements AutoCloseable
 {
+    /**
+     * Default maximum number of map tile locations for which excluded variants are kept.
+     */
+    private static final int DEFAULT_EXCLUSION_CAPACITY = 4096;
+
+    /**
+     * Default number of map tiles placed between reports to the generation progress listeners.
+     */
+    private static final int DEFAULT_PROGRESS_INTERVAL = 100;
+
     /**
      * Random number generator to use for generating the map.
      */
     private final ImprovedRandom improvedRandom;
 
     /**
-     * Array of map tile types that define the available map tile types for randomly generating the
-     * map.
+     * Map tile set that defines the available map tile types for randomly generating the map.
      */
-    private final MapTileType[] mapTileTypes;
+    private final MapTileSet mapTileSet;
 
     /**
      * Map tile location filter for open locations.
@@ -65,55 +75,155 @@ public class MapGenerator
     private final MapTileLocationFilter mapTileLocationFilter;
 
     /**
-     * Data structure containing the map. Maps map tile locations to map tiles.
+     * Data structure containing the map. Holds the variant of the map tile at each map tile
+     * location, and the age tracking when the map tile location was added to the map.
+     */
+    private final MapTileStore mapTiles;
+
+    /**
+     * Storage used for the map tiles of the map.
+     */
+    private final MapStorage mapStorage;
+
+    /**
+     * Flag indicating whether or not the map generator was closed.
      */
-    private final Map< MapTileLocation, MapTile > map;
+    private boolean closed;
 
     /**
-     * Data structure tracking when each map tile location was added to the map.
+     * Bounding box of the map tiles on the map.
      */
-    private final Map< MapTileLocation, Integer > mapAge;
+    private final MapTileBounds mapTileBounds;
 
     /**
      * Set of open locations on the map.
      */
-    private final Set< MapTileLocation > openLocations;
+    private final OpenLocationSet openLocations;
+
+    /**
+     * Logic used to open and close locations as map tiles are added and removed.
+     */
+    private final OpenLocationTracker openLocationTracker;
 
     /**
-     * Map tiles that are excluded for various locations in the map.
+     * Variants that are excluded for various locations in the map.
      */
-    private final Map< MapTileLocation, Collection< MapTile >> excludedMapTilesMap;
+    private final MapTileExclusionStore mapTileExclusionStore;
 
     /**
-     * List of "before map tile added" listeners.
+     * Candidate domains, dead locations and rejected variants of the open locations on the map.
      */
-    private final List< BeforeMapTileAddedListener > beforeMapTileAddedListeners;
+    private final MapTileDomainTracker mapTileDomainTracker;
 
     /**
-     * List of "before map tile removed" listeners.
+     * Listeners notified of the map tiles being added to and removed from the map.
      */
-    private final List< BeforeMapTileRemovedListener > beforeMapTileRemovedListeners;
+    private final MapTileListeners mapTileListeners;
 
     /**
-     * List of "map tile added" listeners.
+     * List of generation progress listeners.
      */
-    private final List< MapTileAddedListener > mapTileAddedListeners;
+    private final List< GenerationProgressListener > generationProgressListeners;
 
     /**
-     * List of "map tile removed" listeners.
+     * Map tile propagator used to reject placements that would leave a nearby empty map tile
+     * location without any fitting variant.
      */
-    private final List< MapTileRemovedListener > mapTileRemovedListeners;
+    private final MapTilePropagator mapTilePropagator;
 
     /**
-     * The size of the map unit array that defines the map tile types used by this map generator.
+     * Way in which the generate() method selects the next map tile to place.
      */
-    private final int tileSize;
+    private MapTileSelectionMode mapTileSelectionMode;
+
+    /**
+     * Generation strategy that selects the next map tile to place while generating the map.
+     */
+    private GenerationStrategy generationStrategy;
+
+    /**
+     * Undo log of the changes made to the map.
+     */
+    private final MapTileTrail mapTileTrail;
+
+    /**
+     * Logic used to change the excluded variants, recording the changes on the trail.
+     */
+    private final MapTileExclusionRecorder mapTileExclusionRecorder;
+
+    /**
+     * Checkpoints that are held on the state of the map.
+     */
+    private final MapCheckpointTracker mapCheckpointTracker;
 
     /**
      * Counter tracking the age of map tile locations as they are added to the map.
      */
     private int ageCounter;
 
+    /**
+     * Radius within which placements are checked by the map tile propagator. Propagation is
+     * disabled if the radius is 0.
+     */
+    private int propagationRadius;
+
+    /**
+     * Flag indicating whether or not recovery from bad open locations jumps back to the map tiles
+     * that caused them.
+     */
+    private boolean conflictDirectedBackjumping;
+
+    /**
+     * Backtrack limits and the number of map tiles removed while recovering from bad open
+     * locations.
+     */
+    private final BacktrackBudget backtrackBudget;
+
+    /**
+     * Logic used to select several map tile placements at once from separate regions of the map.
+     */
+    private final ParallelPlacementSelector parallelPlacementSelector;
+
+    /**
+     * Logic used to remove map tiles while recovering from bad open locations.
+     */
+    private final MapTileRemover mapTileRemover;
+
+    /**
+     * Logic used to recover from bad open locations with chronological backtracking.
+     */
+    private final ChronologicalBacktracker chronologicalBacktracker;
+
+    /**
+     * Logic used to recover from bad open locations with conflict-directed backjumping.
+     */
+    private final ConflictDirectedBackjumper conflictDirectedBackjumper;
+
+    /**
+     * Logic used to restart the generation of the map after a backtrack limit was exceeded.
+     */
+    private final GenerationRestarter generationRestarter;
+
+    /**
+     * Generation of the map that is in progress, or null if the map is not being generated.
+     */
+    private GenerationRun generationRun;
+
+    /**
+     * Flag indicating whether or not a call that generates the map is running on any thread.
+     */
+    private final AtomicBoolean generationCallRunning;
+
+    /**
+     * Store from which snapshots of the map are published.
+     */
+    private final MapSnapshotStore mapSnapshotStore;
+
+    /**
+     * Number of map tiles placed between reports to the generation progress listeners.
+     */
+    private int progressInterval;
+
     /**
      * Construct a map generator.
      *
@@ -129,58 +239,34 @@ public class MapGenerator
      */
     public MapGenerator( ImprovedRandom improvedRandom, MapTileType[] mapTileTypes,
                          MapTileLocationFilter mapTileLocationFilter )
+    {
+        this( improvedRandom, mapTileTypes, mapTileLocationFilter, MapStorage.HASH_TABLE );
+    }
+
+    /**
+     * Construct a map generator that stores its map tiles in the specified way.
+     *
+     * @param improvedRandom
+     *            Random number generator to use for generating the map. Cannot be null.
+     * @param mapTileTypes
+     *            Array of map tile types that define the available map tile types for randomly
+     *            generating the map. Cannot be null. Must contain at least one element. No element
+     *            can be null. Cannot contain two or more elements that are identical. All map tile
+     *            types in the array must be the same size.
+     * @param mapTileLocationFilter
+     *            Map tile location filter for open locations. Cannot be null.
+     * @param mapStorage
+     *            Storage to use for the map tiles of the map. Cannot be null.
+     */
+    public MapGenerator( ImprovedRandom improvedRandom, MapTileType[] mapTileTypes,
+                         MapTileLocationFilter mapTileLocationFilter, MapStorage mapStorage )
     {
         if ( improvedRandom == null )
         {
             throw new IllegalArgumentException( "Parameter 'improvedRandom' cannot be null." );
         }
 
-        if ( mapTileTypes == null )
-        {
-            throw new IllegalArgumentException( "Parameter 'mapTileTypes' cannot be null." );
-        }
-
-        if ( mapTileTypes.length == 0 )
-        {
-            throw new IllegalArgumentException(
-                    "Parameter 'mapTileTypes' must contain at least one element." );
-        }
-
-        int tileSize = 0;
-
-        for ( int i = 0; i < mapTileTypes.length; i++ )
-        {
-            // check for a null element
-            if ( mapTileTypes[ i ] == null )
-            {
-                throw new IllegalArgumentException(
-                        "Parameter 'mapTileTypes' must not contain any null elements." );
-            }
-
-            // check for a duplicate element
-            for ( int j = i + 1; j < mapTileTypes.length; j++ )
-            {
-                if ( mapTileTypes[ i ].equals( mapTileTypes[ j ] ))
-                {
-                    throw new IllegalArgumentException(
-                            "Parameter 'mapTileTypes' must not contain any duplicate elements." );
-                }
-            }
-
-            // check to see that all elements are the same size
-            if ( tileSize == 0 )
-            {
-                tileSize = mapTileTypes[ i ].getSize();
-            }
-            else
-            {
-                if ( tileSize != mapTileTypes[ i ].getSize() )
-                {
-                    throw new IllegalArgumentException( "All map tile types in parameter " +
-                                                        "'mapTileTypes' must be the same size." );
-                }
-            }
-        }
+        MapTileSet mapTileSet = MapTileSet.getInstance( mapTileTypes );
 
         if ( mapTileLocationFilter == null )
         {
@@ -188,27 +274,59 @@ public class MapGenerator
                     "Parameter 'mapTileLocationFilter' cannot be null." );
         }
 
-        // TODO: Update openLocations to use HashSet once the tests are no longer sensitive to the
-        //       iteration order of elements in the set.
+        if ( mapStorage == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapStorage' cannot be null." );
+        }
 
         this.improvedRandom                = improvedRandom;
-        this.mapTileTypes                  = mapTileTypes;
+        this.mapTileSet                    = mapTileSet;
         this.mapTileLocationFilter         = mapTileLocationFilter;
-        this.map                           = new HashMap< MapTileLocation, MapTile >();
-        this.mapAge                        = new HashMap< MapTileLocation, Integer >();
-        this.openLocations                 = new LinkedHashSet< MapTileLocation >();
-        this.excludedMapTilesMap           = new HashMap< MapTileLocation,
-                                                          Collection< MapTile > >();
-        this.beforeMapTileAddedListeners   = new LinkedList< BeforeMapTileAddedListener >();
-        this.beforeMapTileRemovedListeners = new LinkedList< BeforeMapTileRemovedListener >();
-        this.mapTileAddedListeners         = new LinkedList< MapTileAddedListener >();
-        this.mapTileRemovedListeners       = new LinkedList< MapTileRemovedListener >();
-        this.tileSize                      = tileSize;
+        this.mapTiles                      = mapStorage.createMapTileStore(
+                mapTileLocationFilter );
+        this.mapStorage                    = mapStorage;
+        this.closed                        = false;
+        this.mapTileBounds                 = new MapTileBounds();
+        this.mapTileTrail                  = new MapTileTrail();
+        this.openLocations                 = mapStorage.createOpenLocationSet(
+                mapTileLocationFilter );
+        this.mapTileExclusionStore         = new MapTileExclusionStore(
+                mapTileSet.getAllVariantWordCount(), DEFAULT_EXCLUSION_CAPACITY );
+        this.mapTileDomainTracker          = new MapTileDomainTracker(
+                this, mapTileSet, mapTileExclusionStore, openLocations );
+        this.openLocationTracker           = new OpenLocationTracker(
+                mapTiles, mapTileSet, openLocations, mapTileTrail, mapTileDomainTracker );
+        this.mapTileListeners              = new MapTileListeners( this );
+        this.generationProgressListeners   = new LinkedList< GenerationProgressListener >();
+        this.mapTilePropagator             = new MapTilePropagator( this, mapTileSet,
+                                                                    mapTileLocationFilter );
+        this.mapTileSelectionMode          = MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE;
+        this.generationStrategy            = new DefaultGenerationStrategy();
+        this.mapTileExclusionRecorder      = new MapTileExclusionRecorder(
+                this, mapTileExclusionStore, mapTileTrail );
+        this.mapCheckpointTracker          = new MapCheckpointTracker( this );
+        this.mapSnapshotStore              = new MapSnapshotStore();
         this.ageCounter                    = 0;
+        this.conflictDirectedBackjumping   = false;
+        this.backtrackBudget               = new BacktrackBudget();
+        this.parallelPlacementSelector     = new ParallelPlacementSelector( this );
+        this.mapTileRemover                = new MapTileRemover(
+                this, mapTileTrail, mapTileExclusionRecorder, backtrackBudget );
+        this.chronologicalBacktracker      = new ChronologicalBacktracker(
+                this, mapTileExclusionRecorder, backtrackBudget, mapTileRemover );
+        this.conflictDirectedBackjumper    = new ConflictDirectedBackjumper(
+                this, mapTileExclusionStore, mapTileExclusionRecorder, backtrackBudget,
+                mapTileRemover );
+        this.generationRestarter           = new GenerationRestarter( this, backtrackBudget );
+        this.generationRun                 = null;
+        this.generationCallRunning         = new AtomicBoolean( false );
+        this.progressInterval              = DEFAULT_PROGRESS_INTERVAL;
+        this.propagationRadius             = 0;
     }
 
     /**
-     * Construct a map generator.
+     * Construct a map generator. The map tiles are kept in dense storage unless the bounds cover
+     * too many map tile locations for it, in which case they are kept in a hash table.
      *
      * @param improvedRandom
      *            Random number generator to use for generating the map. Cannot be null.
@@ -232,7 +350,8 @@ public class MapGenerator
                          int minX, int minY, int maxX, int maxY )
     {
         this( improvedRandom, mapTileTypes,
-              new RectangularMapTileLocationFilter( minX, minY, maxX, maxY ));
+              new RectangularMapTileLocationFilter( minX, minY, maxX, maxY ),
+              MapStorage.getDefault( minX, minY, maxX, maxY ));
     }
 
     /**
@@ -244,7 +363,120 @@ public class MapGenerator
      */
     public int getTileSize()
     {
-        return tileSize;
+        return mapTileSet.getTileSize();
+    }
+
+    /**
+     * Get the map tile set that defines the available map tile types for randomly generating the
+     * map.
+     *
+     * @return The map tile set that defines the available map tile types for randomly generating
+     *         the map.
+     */
+    public MapTileSet getMapTileSet()
+    {
+        return mapTileSet;
+    }
+
+    /**
+     * Get the storage used for the map tiles of the map.
+     *
+     * @return The storage used for the map tiles of the map.
+     */
+    public MapStorage getMapStorage()
+    {
+        return mapStorage;
+    }
+
+    /**
+     * Get the width and height of the chunks in which the map tiles are stored, for storages that
+     * split the map into chunks.
+     *
+     * @return The width and height of the chunks, in map tile locations.
+     */
+    public int getChunkSize()
+    {
+        checkChunked();
+        return MapTileChunkGrid.CHUNK_SIZE;
+    }
+
+    /**
+     * Get a read-only view of the variants of the map tiles in a chunk, for storages that split
+     * the map into chunks. The view is not a copy, so it reflects later changes to the map, and it
+     * must not be used once the map generator is closed. It holds the variants of the map tile
+     * locations of the chunk row by row, starting at the smallest X and Y coordinates, with -1 for
+     * empty map tile locations. The map tile set of the map generator maps the variants to map
+     * tiles.
+     *
+     * @param chunkX
+     *            X coordinate of the chunk, which is the X coordinate of its map tile locations
+     *            divided by the chunk size, rounded down.
+     * @param chunkY
+     *            Y coordinate of the chunk, which is the Y coordinate of its map tile locations
+     *            divided by the chunk size, rounded down.
+     *
+     * @return The view of the variants of the chunk, or null if no map tile was ever placed in the
+     *         chunk.
+     */
+    public IntBuffer getChunkVariants( int chunkX, int chunkY )
+    {
+        checkChunked();
+        return ((MapTileChunkGrid) mapTiles ).getVariantView( chunkX, chunkY );
+    }
+
+    /**
+     * Close the map generator, dropping the buffers that store its map tiles. Direct memory
+     * outside of the heap is not freed here: the garbage collector reclaims it once the buffers
+     * are unreachable. The map generator cannot be used afterwards. Closing it again does nothing.
+     */
+    public void close()
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        if ( generationRun != null )
+        {
+            throw new IllegalStateException( "Cannot close while the map is being generated." );
+        }
+
+        closed = true;
+        mapTiles.close();
+    }
+
+    /**
+     * Determine whether or not the map generator was closed.
+     *
+     * @return True if the map generator was closed, false otherwise.
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Make sure that the map generator is not closed.
+     */
+    private void checkOpen()
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( "The map generator was closed." );
+        }
+    }
+
+    /**
+     * Make sure that the map generator is not closed and stores its map tiles in chunks.
+     */
+    private void checkChunked()
+    {
+        checkOpen();
+
+        if ( !( mapTiles instanceof MapTileChunkGrid ))
+        {
+            throw new IllegalStateException( "The map storage does not use chunks." );
+        }
     }
 
     /**
@@ -256,12 +488,9 @@ public class MapGenerator
     {
         int minX = mapTileLocationFilter.getMinX();
 
-        for ( MapTileLocation mapTileLocation : map.keySet() )
+        if (( !mapTileBounds.isEmpty() ) && ( mapTileBounds.getMinX() < minX ))
         {
-            if ( mapTileLocation.getX() < minX )
-            {
-                minX = mapTileLocation.getX();
-            }
+            minX = mapTileBounds.getMinX();
         }
 
         return minX;
@@ -276,12 +505,9 @@ public class MapGenerator
     {
         int minY = mapTileLocationFilter.getMinY();
 
-        for ( MapTileLocation mapTileLocation : map.keySet() )
+        if (( !mapTileBounds.isEmpty() ) && ( mapTileBounds.getMinY() < minY ))
         {
-            if ( mapTileLocation.getY() < minY )
-            {
-                minY = mapTileLocation.getY();
-            }
+            minY = mapTileBounds.getMinY();
         }
 
         return minY;
@@ -296,12 +522,9 @@ public class MapGenerator
     {
         int maxX = mapTileLocationFilter.getMaxX();
 
-        for ( MapTileLocation mapTileLocation : map.keySet() )
+        if (( !mapTileBounds.isEmpty() ) && ( mapTileBounds.getMaxX() > maxX ))
         {
-            if ( mapTileLocation.getX() > maxX )
-            {
-                maxX = mapTileLocation.getX();
-            }
+            maxX = mapTileBounds.getMaxX();
         }
 
         return maxX;
@@ -316,12 +539,9 @@ public class MapGenerator
     {
         int maxY = mapTileLocationFilter.getMaxY();
 
-        for ( MapTileLocation mapTileLocation : map.keySet() )
+        if (( !mapTileBounds.isEmpty() ) && ( mapTileBounds.getMaxY() > maxY ))
         {
-            if ( mapTileLocation.getY() > maxY )
-            {
-                maxY = mapTileLocation.getY();
-            }
+            maxY = mapTileBounds.getMaxY();
         }
 
         return maxY;
@@ -336,7 +556,7 @@ public class MapGenerator
     public void addBeforeMapTileAddedListener(
             BeforeMapTileAddedListener beforeMapTileAddedListener )
     {
-        beforeMapTileAddedListeners.add( beforeMapTileAddedListener );
+        mapTileListeners.addBeforeMapTileAddedListener( beforeMapTileAddedListener );
     }
 
     /**
@@ -348,7 +568,7 @@ public class MapGenerator
     public void addBeforeMapTileRemovedListener(
             BeforeMapTileRemovedListener beforeMapTileRemovedListener )
     {
-        beforeMapTileRemovedListeners.add( beforeMapTileRemovedListener );
+        mapTileListeners.addBeforeMapTileRemovedListener( beforeMapTileRemovedListener );
     }
 
     /**
@@ -359,7 +579,7 @@ public class MapGenerator
      */
     public void addMapTileAddedListener( MapTileAddedListener mapTileAddedListener )
     {
-        mapTileAddedListeners.add( mapTileAddedListener );
+        mapTileListeners.addMapTileAddedListener( mapTileAddedListener );
     }
 
     /**
@@ -370,7 +590,55 @@ public class MapGenerator
      */
     public void addMapTileRemovedListener( MapTileRemovedListener mapTileRemovedListener )
     {
-        mapTileRemovedListeners.add( mapTileRemovedListener );
+        mapTileListeners.addMapTileRemovedListener( mapTileRemovedListener );
+    }
+
+    /**
+     * Add a new "map tile added" listener that is notified by coordinates.
+     *
+     * @param mapTileAddedCoordinatesListener
+     *            The listener to add.
+     */
+    public void addMapTileAddedCoordinatesListener(
+            MapTileAddedCoordinatesListener mapTileAddedCoordinatesListener )
+    {
+        mapTileListeners.addMapTileAddedCoordinatesListener( mapTileAddedCoordinatesListener );
+    }
+
+    /**
+     * Add a new "map tile removed" listener that is notified by coordinates.
+     *
+     * @param mapTileRemovedCoordinatesListener
+     *            The listener to add.
+     */
+    public void addMapTileRemovedCoordinatesListener(
+            MapTileRemovedCoordinatesListener mapTileRemovedCoordinatesListener )
+    {
+        mapTileListeners.addMapTileRemovedCoordinatesListener(
+                mapTileRemovedCoordinatesListener );
+    }
+
+    /**
+     * Add a new restart listener.
+     *
+     * @param restartListener
+     *            The listener to add.
+     */
+    public void addRestartListener( RestartListener restartListener )
+    {
+        generationRestarter.addRestartListener( restartListener );
+    }
+
+    /**
+     * Add a new generation progress listener.
+     *
+     * @param generationProgressListener
+     *            The listener to add.
+     */
+    public void addGenerationProgressListener(
+            GenerationProgressListener generationProgressListener )
+    {
+        generationProgressListeners.add( generationProgressListener );
     }
 
     /**
@@ -388,386 +656,1113 @@ public class MapGenerator
             throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
         }
 
-        return map.get( mapTileLocation );
+        return getMapTile( mapTileLocation.getX(), mapTileLocation.getY() );
     }
 
     /**
-     * Add a map tile to the map at the specified location.
+     * Get the map tile at the location with the specified coordinates. No map tile location object
+     * is created.
+     *
+     * @param x
+     *            X coordinate of the location for which to get the map tile.
+     * @param y
+     *            Y coordinate of the location for which to get the map tile.
+     *
+     * @return The map tile at the location, or null if the location is empty.
+     */
+    public MapTile getMapTile( int x, int y )
+    {
+        checkOpen();
+
+        int variant = mapTiles.getVariant( x, y );
+
+        if ( variant == MapTileStore.NONE )
+        {
+            return null;
+        }
+
+        return mapTileSet.getMapTile( variant );
+    }
+
+    /**
+     * Get the map tile candidates that fit the neighbors of the specified location. Map tiles that
+     * have been excluded from the location by bad location correction are not taken into account.
+     * The returned map tile candidates are shared by all map generators that use the same map tile
+     * set.
      *
      * @param mapTileLocation
-     *            Location at which to add the map tile. Cannot be null.
-     * @param mapTile
-     *            Map tile to add. Cannot be null.
+     *            Map tile location for which to get the map tile candidates. Cannot be null.
+     *
+     * @return The map tile candidates that fit the neighbors of the location.
      */
-    public void addMapTile( MapTileLocation mapTileLocation, MapTile mapTile )
+    public MapTileCandidates getMapTileCandidates( MapTileLocation mapTileLocation )
     {
         if ( mapTileLocation == null )
         {
             throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
         }
 
-        if ( mapTile == null )
+        checkOpen();
+
+        int x = mapTileLocation.getX();
+        int y = mapTileLocation.getY();
+        long neighborSignature = 0;
+        int neighbor;
+
+        neighbor = mapTiles.getVariant( x, y - 1 );
+
+        if ( neighbor != MapTileStore.NONE )
         {
-            throw new IllegalArgumentException( "Parameter 'mapTile' cannot be null." );
+            neighborSignature |=
+                    mapTileSet.getNeighborSignature( MapTileEdgePosition.TOP.getIndex(), neighbor );
         }
 
-        for ( BeforeMapTileAddedListener beforeMapTileAddedListener : beforeMapTileAddedListeners )
+        neighbor = mapTiles.getVariant( x + 1, y );
+
+        if ( neighbor != MapTileStore.NONE )
         {
-            beforeMapTileAddedListener.beforeMapTileAdded( this, mapTileLocation );
+            neighborSignature |= mapTileSet.getNeighborSignature(
+                    MapTileEdgePosition.RIGHT.getIndex(), neighbor );
         }
 
-        openLocations.remove( mapTileLocation );
-        map.put( mapTileLocation, mapTile );
-        mapAge.put( mapTileLocation, ageCounter++ );
-        addOpenLocations( mapTileLocation );
+        neighbor = mapTiles.getVariant( x, y + 1 );
 
-        for ( MapTileAddedListener mapTileAddedListener : mapTileAddedListeners )
+        if ( neighbor != MapTileStore.NONE )
         {
-            mapTileAddedListener.mapTileAdded( this, mapTileLocation );
+            neighborSignature |= mapTileSet.getNeighborSignature(
+                    MapTileEdgePosition.BOTTOM.getIndex(), neighbor );
         }
 
-        boolean done = ! badOpenLocationsExist();
-        MapTileLocation localMapTileLocation = mapTileLocation;
+        neighbor = mapTiles.getVariant( x - 1, y );
 
-        while ( ! done )
+        if ( neighbor != MapTileStore.NONE )
         {
-            if ( ! excludedMapTilesMap.containsKey( localMapTileLocation ))
-            {
-                excludedMapTilesMap.put( localMapTileLocation, new LinkedList< MapTile >() );
-            }
-
-            excludedMapTilesMap.get( localMapTileLocation ).add( map.get( localMapTileLocation ));
+            neighborSignature |= mapTileSet.getNeighborSignature(
+                    MapTileEdgePosition.LEFT.getIndex(), neighbor );
+        }
 
-            removeNewerMapTileLocations( localMapTileLocation );
+        return mapTileSet.getMapTileCandidates( neighborSignature );
+    }
 
-            if ( badOpenLocationsExist() )
-            {
-                excludedMapTilesMap.remove( localMapTileLocation );
+    /**
+     * Get the dead locations on the map. A dead location is an open location where no legal map
+     * tile can be placed. Since the map generator removes map tiles as soon as a dead location
+     * appears, this set is normally empty between calls into the map generator; it can be non-empty
+     * when inspected from a listener.
+     *
+     * @return Unmodifiable view of the set of dead locations on the map.
+     */
+    public Set< MapTileLocation > getDeadLocations()
+    {
+        return Collections.unmodifiableSet( mapTileDomainTracker.getDeadLocations() );
+    }
 
-                MapTileLocation mostRecentMapTileLocation = null;
-                MapTileLocation tempMapTileLocation;
+    /**
+     * Get the radius within which placements made by the generate() method are checked for
+     * whether they would leave a nearby empty location without any legal map tile.
+     *
+     * @return The propagation radius. Propagation is disabled if the radius is 0.
+     */
+    public int getPropagationRadius()
+    {
+        return propagationRadius;
+    }
 
-                tempMapTileLocation = new MapTileLocation(
-                        localMapTileLocation.getX(), localMapTileLocation.getY() - 1 );
+    /**
+     * Set the radius within which placements made by the generate() method are checked for
+     * whether they would leave a nearby empty location without any legal map tile. Candidate
+     * domains are propagated across the empty locations within the radius, and placements that
+     * would empty any of them are rejected before they are made, which reduces the number of map
+     * tiles that have to be removed again. Propagation is disabled by default, in which case the
+     * generate() method produces the same map for the same random number generator as it always
+     * has.
+     *
+     * @param propagationRadius
+     *            Largest Manhattan distance from a placement of the empty locations to check.
+     *            Cannot be negative. A radius of 0 disables propagation.
+     */
+    public void setPropagationRadius( int propagationRadius )
+    {
+        if ( propagationRadius < 0 )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'propagationRadius' cannot be negative." );
+        }
 
-                if ( compareMapTileLocationAge( tempMapTileLocation, mostRecentMapTileLocation ))
-                {
-                    mostRecentMapTileLocation = tempMapTileLocation;
-                }
+        this.propagationRadius = propagationRadius;
+    }
 
-                tempMapTileLocation = new MapTileLocation(
-                        localMapTileLocation.getX(), localMapTileLocation.getY() + 1 );
+    /**
+     * Get the way in which the generate() method selects the next map tile to place.
+     *
+     * @return The map tile selection mode.
+     */
+    public MapTileSelectionMode getMapTileSelectionMode()
+    {
+        return mapTileSelectionMode;
+    }
 
-                if ( compareMapTileLocationAge( tempMapTileLocation, mostRecentMapTileLocation ))
-                {
-                    mostRecentMapTileLocation = tempMapTileLocation;
-                }
+    /**
+     * Set the way in which the generate() method selects the next map tile to place. The default
+     * map tile selection mode is MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE, which produces the
+     * same map for the same random number generator as the generate() method always has. The
+     * other map tile selection modes fill the most constrained open location first, which reduces
+     * the number of map tiles that have to be removed again. They assume that the map tile
+     * location filter accepts or rejects each map tile location on its own. Setting the map tile
+     * selection mode also replaces the generation strategy with the built-in generation strategy
+     * for the map tile selection mode.
+     *
+     * @param mapTileSelectionMode
+     *            Map tile selection mode to use. Cannot be null.
+     */
+    public void setMapTileSelectionMode( MapTileSelectionMode mapTileSelectionMode )
+    {
+        if ( mapTileSelectionMode == null )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'mapTileSelectionMode' cannot be null." );
+        }
 
-                tempMapTileLocation = new MapTileLocation(
-                        localMapTileLocation.getX() - 1, localMapTileLocation.getY() );
+        this.mapTileSelectionMode = mapTileSelectionMode;
 
-                if ( compareMapTileLocationAge( tempMapTileLocation, mostRecentMapTileLocation ))
-                {
-                    mostRecentMapTileLocation = tempMapTileLocation;
-                }
+        if ( mapTileSelectionMode == MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE )
+        {
+            generationStrategy = new DefaultGenerationStrategy();
+        }
+        else
+        {
+            generationStrategy = new PriorityGenerationStrategy();
+        }
 
-                tempMapTileLocation = new MapTileLocation(
-                        localMapTileLocation.getX() + 1, localMapTileLocation.getY() );
+        mapTileDomainTracker.rebuildMapTileLocationQueue( openLocations );
+    }
 
-                if ( compareMapTileLocationAge( tempMapTileLocation, mostRecentMapTileLocation ))
-                {
-                    mostRecentMapTileLocation = tempMapTileLocation;
-                }
+    /**
+     * Get the generation strategy that selects the next map tile to place while generating the
+     * map.
+     *
+     * @return The generation strategy.
+     */
+    public GenerationStrategy getGenerationStrategy()
+    {
+        return generationStrategy;
+    }
 
-                localMapTileLocation = mostRecentMapTileLocation;
-            }
-            else
-            {
-                done = true;
-            }
+    /**
+     * Set the generation strategy that selects the next map tile to place while generating the
+     * map. The default generation strategy is a DefaultGenerationStrategy.
+     *
+     * @param generationStrategy
+     *            Generation strategy to use. Cannot be null.
+     */
+    public void setGenerationStrategy( GenerationStrategy generationStrategy )
+    {
+        if ( generationStrategy == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'generationStrategy' cannot be null." );
         }
+
+        this.generationStrategy = generationStrategy;
     }
 
     /**
-     * Remove a map tile from the map at the specified location.
+     * Determine whether or not the map generator uses conflict-directed backjumping to recover
+     * from bad open locations.
      *
-     * @param mapTileLocation
-     *            Location at which to remove the map tile. Cannot be null. Map tile must be present
-     *            at the specified location.
+     * @return True if conflict-directed backjumping is used, false otherwise.
      */
-    public void removeMapTile( MapTileLocation mapTileLocation )
+    public boolean isConflictDirectedBackjumping()
     {
-        if ( mapTileLocation == null )
+        return conflictDirectedBackjumping;
+    }
+
+    /**
+     * Set whether or not the map generator uses conflict-directed backjumping to recover from bad
+     * open locations. By default, recovery starts at the map tile that was just added and moves
+     * back through the most recent neighbors of the removed map tiles. With conflict-directed
+     * backjumping, recovery jumps straight to the most recent map tile next to a bad open
+     * location, which usually removes fewer map tiles.
+     *
+     * @param conflictDirectedBackjumping
+     *            True if conflict-directed backjumping is to be used, false otherwise.
+     */
+    public void setConflictDirectedBackjumping( boolean conflictDirectedBackjumping )
+    {
+        this.conflictDirectedBackjumping = conflictDirectedBackjumping;
+    }
+
+    /**
+     * Determine whether or not the map generator recovers from bad open locations by popping its
+     * undo log.
+     *
+     * @return True if trail backtracking is used, false otherwise.
+     */
+    public boolean isTrailBacktracking()
+    {
+        return mapTileRemover.isTrailBacktracking();
+    }
+
+    /**
+     * Set whether or not the map generator recovers from bad open locations by popping its undo
+     * log. By default, each map tile removed during recovery is removed together with the newer
+     * map tiles connected to it, one at a time. With trail backtracking, the changes made while
+     * generating are recorded, and a map tile placed by the generation in progress is removed by
+     * undoing every change made since its placement, including the placements of newer map tiles
+     * that are not connected to it. This produces different maps for the same seed, and keeps the
+     * changes of the whole generation in memory until it finishes. The setting applies to
+     * generations started afterwards.
+     *
+     * @param trailBacktracking
+     *            True if trail backtracking is to be used, false otherwise.
+     */
+    public void setTrailBacktracking( boolean trailBacktracking )
+    {
+        mapTileRemover.setTrailBacktracking( trailBacktracking );
+    }
+
+    /**
+     * Determine whether or not the map generator counts the open edges facing every location.
+     *
+     * @return True if open edges are counted, false otherwise.
+     */
+    public boolean isOpenEdgeCounting()
+    {
+        return openLocationTracker.isOpenEdgeCounting();
+    }
+
+    /**
+     * Set whether or not the map generator counts the open edges facing every location. By
+     * default, removing a map tile closes the locations next to it and opens again the ones that
+     * other map tiles still face, which moves them to the end of the order in which open locations
+     * are visited. With open edge counting, every location keeps the number of placed map tiles
+     * whose open edges face it, so removing a map tile only closes the locations whose count drops
+     * to zero, and the other open locations keep their place. This produces different maps for the
+     * same seed. Turning counting on takes time proportional to the number of map tiles.
+     *
+     * @param openEdgeCounting
+     *            True if open edges are to be counted, false otherwise.
+     */
+    public void setOpenEdgeCounting( boolean openEdgeCounting )
+    {
+        checkOpen();
+        openLocationTracker.setOpenEdgeCounting( openEdgeCounting );
+    }
+
+    /**
+     * Get the maximum number of map tile locations for which the map generator keeps excluded
+     * variants. Variants are excluded at a map tile location while recovering from bad open
+     * locations.
+     *
+     * @return The maximum number of map tile locations for which excluded variants are kept.
+     */
+    public int getExclusionCapacity()
+    {
+        return mapTileExclusionStore.getCapacity();
+    }
+
+    /**
+     * Set the maximum number of map tile locations for which the map generator keeps excluded
+     * variants. Once the limit is reached, the excluded variants of the map tile location that
+     * was added first are dropped. The default is 4096.
+     *
+     * @param exclusionCapacity
+     *            Maximum number of map tile locations for which excluded variants are kept. Must
+     *            be greater than 0.
+     */
+    public void setExclusionCapacity( int exclusionCapacity )
+    {
+        if ( exclusionCapacity <= 0 )
         {
-            throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
+            throw new IllegalArgumentException(
+                    "Parameter 'exclusionCapacity' must be greater than 0." );
+        }
+
+        mapTileExclusionStore.setCapacity( exclusionCapacity );
+        mapTileExclusionRecorder.evictExcludedVariants();
+    }
+
+    /**
+     * Get the maximum number of map tiles that can be removed while recovering from bad open
+     * locations during a call to generate(), before the map generator restarts.
+     *
+     * @return The backtrack limit, or 0 if there is no limit.
+     */
+    public int getBacktrackLimit()
+    {
+        return backtrackBudget.getBacktrackLimit();
+    }
+
+    /**
+     * Set the maximum number of map tiles that can be removed while recovering from bad open
+     * locations during a call to generate(), before the map generator restarts. The count starts
+     * over after each restart, and the limit is scaled by the restart policy. There is no limit by
+     * default.
+     *
+     * @param backtrackLimit
+     *            Backtrack limit, or 0 if there is to be no limit. Cannot be negative.
+     */
+    public void setBacktrackLimit( int backtrackLimit )
+    {
+        if ( backtrackLimit < 0 )
+        {
+            throw new IllegalArgumentException( "Parameter 'backtrackLimit' cannot be negative." );
         }
 
-        if ( ! map.containsKey( mapTileLocation ))
+        backtrackBudget.setBacktrackLimit( backtrackLimit );
+    }
+
+    /**
+     * Get the maximum number of map tiles that can be removed while recovering from a single
+     * placement during a call to generate(), before the map generator restarts.
+     *
+     * @return The backtrack depth limit, or 0 if there is no limit.
+     */
+    public int getBacktrackDepthLimit()
+    {
+        return backtrackBudget.getBacktrackDepthLimit();
+    }
+
+    /**
+     * Set the maximum number of map tiles that can be removed while recovering from a single
+     * placement during a call to generate(), before the map generator restarts. The limit is
+     * scaled by the restart policy. There is no limit by default.
+     *
+     * @param backtrackDepthLimit
+     *            Backtrack depth limit, or 0 if there is to be no limit. Cannot be negative.
+     */
+    public void setBacktrackDepthLimit( int backtrackDepthLimit )
+    {
+        if ( backtrackDepthLimit < 0 )
         {
             throw new IllegalArgumentException(
-                    "Parameter 'mapTileLocation' must locate an existing map tile." );
+                    "Parameter 'backtrackDepthLimit' cannot be negative." );
         }
 
-        for ( BeforeMapTileRemovedListener beforeMapTileRemovedListener :
-                beforeMapTileRemovedListeners )
+        backtrackBudget.setBacktrackDepthLimit( backtrackDepthLimit );
+    }
+
+    /**
+     * Get the restart policy applied when a backtrack limit is exceeded.
+     *
+     * @return The restart policy.
+     */
+    public RestartPolicy getRestartPolicy()
+    {
+        return backtrackBudget.getRestartPolicy();
+    }
+
+    /**
+     * Set the restart policy applied when a backtrack limit is exceeded. With the default policy,
+     * NONE, the generate() method fails when a backtrack limit is exceeded. With any other policy,
+     * the map generator records its changes while generating so that it can undo them when it
+     * restarts.
+     *
+     * @param restartPolicy
+     *            Restart policy. Cannot be null.
+     */
+    public void setRestartPolicy( RestartPolicy restartPolicy )
+    {
+        if ( restartPolicy == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'restartPolicy' cannot be null." );
+        }
+
+        backtrackBudget.setRestartPolicy( restartPolicy );
+    }
+
+    /**
+     * Get the part of the map that is cleared when the map generator restarts.
+     *
+     * @return The restart scope.
+     */
+    public RestartScope getRestartScope()
+    {
+        return generationRestarter.getRestartScope();
+    }
+
+    /**
+     * Set the part of the map that is cleared when the map generator restarts.
+     *
+     * @param restartScope
+     *            Restart scope. Cannot be null.
+     */
+    public void setRestartScope( RestartScope restartScope )
+    {
+        if ( restartScope == null )
         {
-            beforeMapTileRemovedListener.beforeMapTileRemoved( this, mapTileLocation );
+            throw new IllegalArgumentException( "Parameter 'restartScope' cannot be null." );
         }
 
-        map.remove( mapTileLocation );
-        mapAge.remove( mapTileLocation );
+        generationRestarter.setRestartScope( restartScope );
+    }
 
-        openLocations.remove(
-                new MapTileLocation( mapTileLocation.getX(),     mapTileLocation.getY() - 1 ));
-        openLocations.remove(
-                new MapTileLocation( mapTileLocation.getX(),     mapTileLocation.getY() + 1 ));
-        openLocations.remove(
-                new MapTileLocation( mapTileLocation.getX() - 1, mapTileLocation.getY()     ));
-        openLocations.remove(
-                new MapTileLocation( mapTileLocation.getX() + 1, mapTileLocation.getY()     ));
+    /**
+     * Get the number of times the map generator restarted during the most recent call to
+     * generate().
+     *
+     * @return The number of restarts.
+     */
+    public int getRestartCount()
+    {
+        return backtrackBudget.getRestartCount();
+    }
 
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX(),     mapTileLocation.getY() - 1 ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX(),     mapTileLocation.getY() + 1 ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() - 1, mapTileLocation.getY()     ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() + 1, mapTileLocation.getY()     ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX(),     mapTileLocation.getY() - 2 ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX(),     mapTileLocation.getY() + 2 ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() - 2, mapTileLocation.getY()     ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() + 2, mapTileLocation.getY()     ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() - 1, mapTileLocation.getY() - 1 ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() + 1, mapTileLocation.getY() - 1 ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() - 1, mapTileLocation.getY() + 1 ));
-        addOpenLocations(
-                new MapTileLocation( mapTileLocation.getX() + 1, mapTileLocation.getY() + 1 ));
+    /**
+     * Get the width and height of the regions from which map tile placements are selected at once.
+     *
+     * @return The region size, or 0 if map tile placements are selected one at a time.
+     */
+    public int getParallelRegionSize()
+    {
+        return parallelPlacementSelector.getRegionSize();
+    }
 
-        for ( MapTileRemovedListener mapTileRemovedListener : mapTileRemovedListeners )
+    /**
+     * Select map tile placements from several regions of the map at once. The map is split into
+     * square regions colored like a two by two checkerboard, and each round the generation
+     * strategy selects one placement in every region of one color, possibly on several threads.
+     * The map depends on the seed and the region size, but not on the executor. The map tile
+     * selection modes that fill the most constrained open location first are not affected. Only
+     * the selection runs on the executor: placement, propagation and backtracking stay on the
+     * thread that generates the map. A generation strategy other than DefaultGenerationStrategy
+     * is always called on that thread, since it may not be thread-safe.
+     *
+     * @param regionSize
+     *            Width and height of the regions, or 0 to select placements one at a time, which
+     *            is the default. Cannot be negative.
+     * @param executor
+     *            Executor on which the placements are selected, or null to select them on the
+     *            thread that generates the map.
+     */
+    public void setParallelGeneration( int regionSize, Executor executor )
+    {
+        if ( regionSize < 0 )
         {
-            mapTileRemovedListener.mapTileRemoved( this, mapTileLocation );
+            throw new IllegalArgumentException( "Parameter 'regionSize' cannot be negative." );
         }
+
+        parallelPlacementSelector.configure( regionSize, executor );
     }
 
     /**
-     * Generate the map.
+     * Get the number of map tiles placed between reports to the generation progress listeners.
+     *
+     * @return The progress interval.
      */
-    public void generate()
+    public int getProgressInterval()
     {
-        Collection< MapTileLocation > filteredOpenLocations =
-                mapTileLocationFilter.getFilteredMapTileLocations( openLocations );
+        return progressInterval;
+    }
 
-        while ( ! filteredOpenLocations.isEmpty() )
+    /**
+     * Set the number of map tiles placed between reports to the generation progress listeners.
+     *
+     * @param progressInterval
+     *            Progress interval. Must be greater than 0.
+     */
+    public void setProgressInterval( int progressInterval )
+    {
+        if ( progressInterval <= 0 )
         {
-            Chooser< MapTileType > mapTileTypeChooser =
-                    new Chooser< MapTileType >( improvedRandom );
+            throw new IllegalArgumentException(
+                    "Parameter 'progressInterval' must be greater than 0." );
+        }
 
-            // determine what map tile types can be added to the map
-            for ( MapTileType mapTileType : mapTileTypes )
-            {
-                if ( legalMapTileType( mapTileType, filteredOpenLocations ))
-                {
-                    mapTileTypeChooser.addOption( mapTileType, mapTileType.getWeight() );
-                }
-            }
+        this.progressInterval = progressInterval;
+    }
 
-            // randomly pick a map tile type
-            MapTileType mapTileType = mapTileTypeChooser.choose();
+    /**
+     * Add a map tile to the map at the specified location.
+     *
+     * @param mapTileLocation
+     *            Location at which to add the map tile. Cannot be null.
+     * @param mapTile
+     *            Map tile to add. Cannot be null. Must be of a map tile type that is part of the
+     *            map tile set of this map generator.
+     */
+    public void addMapTile( MapTileLocation mapTileLocation, MapTile mapTile )
+    {
+        if ( mapTileLocation == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
+        }
 
-            Chooser< MapTilePosition > mapTilePositionChooser =
-                    new Chooser< MapTilePosition >( improvedRandom );
+        checkOpen();
 
-            // determine at what map tile positions the selected map tile type can be added
-            for ( MapTileLocation mapTileLocation : filteredOpenLocations )
-            {
-                for ( MapTileOrientation mapTileOrientation :
-                        mapTileType.getDistinctMapTileOrientations() )
-                {
-                    MapTilePosition mapTilePosition =
-                            new MapTilePosition( mapTileLocation, mapTileOrientation );
+        if ( mapTile == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTile' cannot be null." );
+        }
 
-                    if ( legalMapTilePlacement( mapTileType, mapTilePosition ))
-                    {
-                        mapTilePositionChooser.addOption( mapTilePosition, 1 );
-                    }
-                }
-            }
+        int variant = mapTileSet.getVariant( mapTile );
+
+        if ( variant == -1 )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTile' must be of a map tile type " +
+                                                "that is part of the map tile set." );
+        }
+
+        mapTileListeners.beforeMapTileAdded( mapTileLocation );
+
+        openLocationTracker.closeLocation( mapTileLocation );
+        placeMapTile( mapTileLocation, variant, ageCounter++ );
+        openLocationTracker.mapTileAdded( mapTileLocation.getX(), mapTileLocation.getY() );
+        mapTileDomainTracker.updateMapTileDomains( mapTileLocation );
 
-            // randomly pick a map tile position
-            MapTilePosition mapTilePosition = mapTilePositionChooser.choose();
+        mapTileListeners.mapTileAdded( mapTileLocation );
 
-            // add the selected map tile type at the selected map tile position
-            addMapTile( mapTilePosition.getMapTileLocation(),
-                        new MapTile( mapTileType, mapTilePosition.getMapTileOrientation() ));
+        backtrackBudget.startRecovery();
 
-            filteredOpenLocations =
-                    mapTileLocationFilter.getFilteredMapTileLocations( openLocations );
+        if ( badOpenLocationsExist() )
+        {
+            if ( conflictDirectedBackjumping )
+            {
+                conflictDirectedBackjumper.backjump();
+            }
+            else
+            {
+                chronologicalBacktracker.backtrack( mapTileLocation );
+            }
         }
     }
 
     /**
-     * Determine whether or not a specified map tile tile can be legally added to the map.
+     * Add a map tile to the map at the location with the specified coordinates.
      *
-     * @param mapTileType
-     *            Map tile type to check.
-     * @param filteredOpenLocations
-     *            Set of open locations filtered by the map tile location filter.
+     * @param x
+     *            X coordinate of the location at which to add the map tile.
+     * @param y
+     *            Y coordinate of the location at which to add the map tile.
+     * @param mapTile
+     *            Map tile to add. Cannot be null. Must be of a map tile type that is part of the
+     *            map tile set of this map generator.
+     */
+    public void addMapTile( int x, int y, MapTile mapTile )
+    {
+        addMapTile( new MapTileLocation( x, y ), mapTile );
+    }
+
+    /**
+     * Remove a map tile from the map at the location with the specified coordinates.
      *
-     * @return True if the map tile type can be legally added to the map, false otherwise.
+     * @param x
+     *            X coordinate of the location at which to remove the map tile.
+     * @param y
+     *            Y coordinate of the location at which to remove the map tile. Map tile must be
+     *            present at the specified location.
      */
-    private boolean legalMapTileType( MapTileType mapTileType,
-                                      Collection< MapTileLocation > filteredOpenLocations )
+    public void removeMapTile( int x, int y )
     {
-        for ( MapTileLocation mapTileLocation : filteredOpenLocations )
+        removeMapTile( new MapTileLocation( x, y ));
+    }
+
+    /**
+     * Remove a map tile from the map at the specified location.
+     *
+     * @param mapTileLocation
+     *            Location at which to remove the map tile. Cannot be null. Map tile must be present
+     *            at the specified location.
+     */
+    public void removeMapTile( MapTileLocation mapTileLocation )
+    {
+        if ( mapTileLocation == null )
         {
-            for ( MapTileOrientation mapTileOrientation :
-                    mapTileType.getDistinctMapTileOrientations() )
-            {
-                MapTilePosition mapTilePosition =
-                        new MapTilePosition( mapTileLocation, mapTileOrientation );
+            throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
+        }
 
-                if ( legalMapTilePlacement( mapTileType, mapTilePosition ))
-                {
-                    return true;
-                }
-            }
+        checkOpen();
+
+        if ( getVariant( mapTileLocation ) == MapTileStore.NONE )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'mapTileLocation' must locate an existing map tile." );
         }
 
-        return false;
+        removeMapTileInternal( mapTileLocation );
     }
 
     /**
-     * Determine whether or not a specified map tile tile can be legally added to the map at the
-     * specified position.
+     * Remove a map tile from the map at the specified location. Does not validate its parameter.
      *
-     * @param mapTileType
-     *            Map tile type to check.
-     * @param mapTilePosition
-     *            Map tile position to check.
+     * @param mapTileLocation
+     *            Location at which to remove the map tile. Map tile must be present at the
+     *            specified location.
+     */
+    void removeMapTileInternal( MapTileLocation mapTileLocation )
+    {
+        mapTileListeners.beforeMapTileRemoved( mapTileLocation );
+
+        int variant = getVariant( mapTileLocation );
+        takeMapTile( mapTileLocation );
+
+        openLocationTracker.mapTileRemoved(
+                mapTileLocation.getX(), mapTileLocation.getY(), variant );
+
+        mapTileDomainTracker.updateMapTileDomains( mapTileLocation );
+
+        mapTileListeners.mapTileRemoved( mapTileLocation );
+    }
+
+    /**
+     * Take a checkpoint of the state of the map. Until the checkpoint is released, every change to
+     * the map is recorded, and the map can be rolled back to the checkpoint in time proportional
+     * to the number of changes made since the checkpoint was taken. A checkpoint cannot be taken
+     * while the map is being generated, since a restart of the generation undoes the changes made
+     * since the generation started.
      *
-     * @return True if the map tile type can be legally added to the map at the specified position,
-     *         false otherwise.
+     * @return The checkpoint.
      */
-    private boolean legalMapTilePlacement( MapTileType mapTileType,
-                                           MapTilePosition mapTilePosition )
+    public MapCheckpoint checkpoint()
     {
-        MapTile mapTile = new MapTile( mapTileType, mapTilePosition.getMapTileOrientation() );
-        MapTileLocation mapTileLocation = mapTilePosition.getMapTileLocation();
-        MapTileLocation neighborLocation;
-        MapTile neighbor;
+        checkOpen();
+        return mapCheckpointTracker.checkpoint();
+    }
+
+    /**
+     * Roll the map back to the state it was in when a checkpoint was taken. Every map tile placed
+     * since is removed and every map tile removed since is added back, in reverse order, and the
+     * map tile listeners are notified of each of these changes. Checkpoints taken after the
+     * specified checkpoint are released. The specified checkpoint is kept, so the map can be
+     * rolled back to it again.
+     *
+     * @param mapCheckpoint
+     *            Checkpoint to roll back to. Cannot be null. Must be a checkpoint of this map
+     *            generator that has not been released.
+     */
+    public void rollback( MapCheckpoint mapCheckpoint )
+    {
+        mapCheckpointTracker.rollback( mapCheckpoint );
+    }
 
-        neighborLocation =
-                new MapTileLocation( mapTileLocation.getX(), mapTileLocation.getY() - 1 );
-        neighbor = map.get( neighborLocation );
+    /**
+     * Release a checkpoint. The changes made to the map since the checkpoint was taken are kept.
+     * Once no checkpoints are held, changes to the map are no longer recorded.
+     *
+     * @param mapCheckpoint
+     *            Checkpoint to release. Cannot be null. Must be a checkpoint of this map generator
+     *            that has not been released.
+     */
+    public void release( MapCheckpoint mapCheckpoint )
+    {
+        mapCheckpointTracker.release( mapCheckpoint );
+    }
+
+    /**
+     * Publish an immutable snapshot of the current map. Must be called by the thread that changes
+     * the map. Once the first snapshot is published, the map generator keeps the snapshot store up
+     * to date and publishes a new snapshot every time the generation progress listeners would be
+     * informed and whenever a call to generate the map returns.
+     *
+     * @return The published snapshot.
+     */
+    public MapSnapshot publishSnapshot()
+    {
+        checkOpen();
 
-        if (( neighbor != null ) &&
-            ( ! neighbor.getMapTileEdge( MapTileEdgePosition.BOTTOM ).mapTileEdgeMatches(
-                        mapTile.getMapTileEdge( MapTileEdgePosition.TOP ))))
+        if ( !mapSnapshotStore.isEnabled() )
         {
-            return false;
+            mapSnapshotStore.enable( mapTiles );
         }
 
-        neighborLocation =
-                new MapTileLocation( mapTileLocation.getX(), mapTileLocation.getY() + 1 );
-        neighbor = map.get( neighborLocation );
+        return mapSnapshotStore.publish( mapTileSet );
+    }
 
-        if (( neighbor != null ) &&
-            ( ! neighbor.getMapTileEdge( MapTileEdgePosition.TOP ).mapTileEdgeMatches(
-                        mapTile.getMapTileEdge( MapTileEdgePosition.BOTTOM ))))
+    /**
+     * Get the most recently published snapshot of the map. Can be called from any thread without
+     * locking, while the map is being generated.
+     *
+     * @return The most recently published snapshot of the map, or null if no snapshot was
+     *         published yet.
+     */
+    public MapSnapshot getSnapshot()
+    {
+        return mapSnapshotStore.getSnapshot();
+    }
+
+    /**
+     * Publish a new snapshot of the map if snapshots are being published.
+     */
+    void republishSnapshot()
+    {
+        if ( mapSnapshotStore.isEnabled() )
         {
-            return false;
+            mapSnapshotStore.publish( mapTileSet );
         }
+    }
 
-        neighborLocation =
-                new MapTileLocation( mapTileLocation.getX() - 1, mapTileLocation.getY() );
-        neighbor = map.get( neighborLocation );
+    /**
+     * Generate the map. The generation strategy of the map generator selects each map tile to
+     * place, until no open locations that are allowed by the map tile location filter remain. If
+     * recovering from bad open locations exceeds a backtrack limit, the restart policy is applied.
+     * If the generation of the map was started by generate( int ) or generateFor(), it is
+     * continued where it stopped.
+     */
+    public void generate()
+    {
+        generateMapTiles( Long.MAX_VALUE, Long.MAX_VALUE, null, false, 0 );
+    }
 
-        if (( neighbor != null ) &&
-            ( ! neighbor.getMapTileEdge( MapTileEdgePosition.RIGHT ).mapTileEdgeMatches(
-                        mapTile.getMapTileEdge( MapTileEdgePosition.LEFT ))))
+    /**
+     * Generate part of the map, placing no more than a specified number of map tiles. Later calls
+     * to this method, generateFor() or generate() continue the generation of the map exactly where
+     * this call stopped, so a map generated in several calls is identical to a map generated by a
+     * single call to generate(). Map tiles placed while recovering from bad open locations count
+     * towards the maximum, as do map tiles that are removed again by a restart.
+     *
+     * @param maxPlacements
+     *            Maximum number of map tiles to place. Must be greater than 0.
+     *
+     * @return COMPLETE if the map is finished, or PROGRESSED if the maximum number of map tiles
+     *         were placed before the map was finished.
+     */
+    public GenerationStatus generate( int maxPlacements )
+    {
+        if ( maxPlacements <= 0 )
         {
-            return false;
+            throw new IllegalArgumentException(
+                    "Parameter 'maxPlacements' must be greater than 0." );
         }
 
-        neighborLocation =
-                new MapTileLocation( mapTileLocation.getX() + 1, mapTileLocation.getY() );
-        neighbor = map.get( neighborLocation );
+        return generateMapTiles( maxPlacements, Long.MAX_VALUE, null, false, 0 );
+    }
 
-        if (( neighbor != null ) &&
-            ( ! neighbor.getMapTileEdge( MapTileEdgePosition.LEFT ).mapTileEdgeMatches(
-                        mapTile.getMapTileEdge( MapTileEdgePosition.RIGHT ))))
+    /**
+     * Generate part of the map, spending no more than a specified amount of time. The time is
+     * checked before each map tile is placed, so a call can take longer than the specified time by
+     * the time needed to place a single map tile and recover from any bad open locations it causes.
+     * Later calls to this method, generate( int ) or generate() continue the generation of the map
+     * exactly where this call stopped, so a map generated in several calls is identical to a map
+     * generated by a single call to generate().
+     *
+     * @param nanos
+     *            Maximum number of nanoseconds to spend. Cannot be negative.
+     *
+     * @return COMPLETE if the map is finished, PROGRESSED if at least one map tile was placed
+     *         before the time ran out, or BUDGET_EXHAUSTED if the time ran out before any map tile
+     *         was placed.
+     */
+    public GenerationStatus generateFor( long nanos )
+    {
+        if ( nanos < 0 )
         {
-            return false;
+            throw new IllegalArgumentException( "Parameter 'nanos' cannot be negative." );
         }
 
-        if (( excludedMapTilesMap.containsKey( mapTileLocation )) &&
-            ( excludedMapTilesMap.get( mapTileLocation ).contains( mapTile )))
+        return generateMapTiles( Long.MAX_VALUE, nanos, null, false, 0 );
+    }
+
+    /**
+     * Generate the map until it is finished or the generation of the map is cancelled. The
+     * cancellation token is checked before each map tile is placed and while recovering from bad
+     * open locations. If recovering from the bad open locations caused by a map tile is cancelled,
+     * the placement of the map tile is undone, so the map tiles placed so far are kept and no bad
+     * open locations remain. A cancelled generation of the map is finished; a later call starts a
+     * new generation from the map as it is.
+     *
+     * @param cancellationToken
+     *            Cancellation token to check. Cannot be null.
+     *
+     * @return COMPLETE if the map is finished, or CANCELLED if the generation was cancelled.
+     */
+    public GenerationStatus generate( CancellationToken cancellationToken )
+    {
+        if ( cancellationToken == null )
         {
-            return false;
+            throw new IllegalArgumentException( "Parameter 'cancellationToken' cannot be null." );
         }
 
-        return true;
+        return generateMapTiles( Long.MAX_VALUE, Long.MAX_VALUE, cancellationToken, false, 0 );
     }
 
     /**
-     * Add open locations for the map tile at the specified map tile location.
+     * Generate the map until it is finished, the generation of the map is cancelled or the
+     * deadline passes. The cancellation token and the deadline are checked before each map tile
+     * is placed and while recovering from bad open locations. If recovering from the bad open
+     * locations caused by a map tile is interrupted, the placement of the map tile is undone, so
+     * the map tiles placed so far are kept and no bad open locations remain. An interrupted
+     * generation of the map is finished; a later call starts a new generation from the map as it
+     * is.
      *
-     * @param mapTileLocation
-     *            Map tile location specifying the map tile for which to add open locations.
+     * @param cancellationToken
+     *            Cancellation token to check. Cannot be null.
+     * @param deadline
+     *            Value of System.nanoTime() after which no more map tiles are to be placed.
+     *
+     * @return COMPLETE if the map is finished, CANCELLED if the generation was cancelled, or
+     *         DEADLINE_EXCEEDED if the deadline passed.
      */
-    private void addOpenLocations( MapTileLocation mapTileLocation )
+    public GenerationStatus generate( CancellationToken cancellationToken, long deadline )
     {
-        MapTile mapTile = map.get( mapTileLocation );
-
-        if ( mapTile != null )
+        if ( cancellationToken == null )
         {
-            for ( MapTileLocation neighborLocation :
-                    mapTileLocation.getNeighborLocations( mapTile.getOpenMapTileEdgePositions() ))
-            {
-                if ( ! map.containsKey( neighborLocation ))
-                {
-                    openLocations.add( neighborLocation );
-                }
-            }
+            throw new IllegalArgumentException( "Parameter 'cancellationToken' cannot be null." );
         }
+
+        return generateMapTiles( Long.MAX_VALUE, Long.MAX_VALUE, cancellationToken, true,
+                                 deadline );
     }
 
     /**
-     * Get a flag indicating whether or not any bad open locations exist. A bad open location is an
-     * open location where no legal map tile can be placed there.
+     * Determine whether or not the generation of the map was started by generate( int ) or
+     * generateFor() and is not finished yet.
      *
-     * @return True if one or more bad locations exist, false otherwise.
+     * @return True if the generation of the map is in progress, false otherwise.
      */
-    private boolean badOpenLocationsExist()
+    public boolean isGenerating()
     {
-start:  for ( MapTileLocation mapTileLocation : openLocations )
+        return ( generationRun != null );
+    }
+
+    /**
+     * Place map tiles selected by the generation strategy until no open locations that are
+     * allowed by the map tile location filter remain, until the budget runs out, or until the
+     * generation is interrupted. The generation of the map is started if it is not in progress.
+     * It is finished once the map is finished, the generation is interrupted, or an exception is
+     * thrown. Calls that overlap, from another thread or from a listener, are refused, since a map
+     * generator is not thread-safe; this also covers several AsyncMapGenerator facades sharing it.
+     *
+     * @param maxPlacements
+     *            Maximum number of map tiles to place.
+     * @param maxNanos
+     *            Maximum number of nanoseconds to spend, or Long.MAX_VALUE if the time is not
+     *            limited.
+     * @param cancellationToken
+     *            Cancellation token to check, or null if there is none.
+     * @param deadlineSet
+     *            Flag indicating whether or not a deadline is to be checked.
+     * @param deadline
+     *            Value of System.nanoTime() after which no more map tiles are to be placed.
+     *
+     * @return The status of the generation.
+     */
+    private GenerationStatus generateMapTiles( long maxPlacements, long maxNanos,
+                                               CancellationToken cancellationToken,
+                                               boolean deadlineSet, long deadline )
+    {
+        checkOpen();
+
+        if ( ! generationCallRunning.compareAndSet( false, true ))
         {
-            for ( MapTileType mapTileType : mapTileTypes )
+            throw new IllegalStateException( "The map is already being generated." );
+        }
+
+        try
+        {
+            if ( generationRun == null )
+            {
+                generationRun = new GenerationRun( this, improvedRandom, backtrackBudget,
+                                                   generationRestarter, parallelPlacementSelector,
+                                                   generationProgressListeners, ageCounter );
+            }
+
+            boolean finished = true;
+
+            try
+            {
+                GenerationStatus generationStatus =
+                        generationRun.run( maxPlacements, maxNanos, cancellationToken, deadlineSet,
+                                           deadline );
+                finished = (( generationStatus != GenerationStatus.PROGRESSED ) &&
+                            ( generationStatus != GenerationStatus.BUDGET_EXHAUSTED ));
+                return generationStatus;
+            }
+            finally
             {
-                for ( MapTileOrientation mapTileOrientation :
-                        mapTileType.getDistinctMapTileOrientations() )
+                if ( finished )
                 {
-                    if ( legalMapTilePlacement(
-                            mapTileType, new MapTilePosition( mapTileLocation,
-                                                              mapTileOrientation )))
-                    {
-                        continue start;
-                    }
+                    generationRun.finish();
+                    generationRun = null;
                 }
+
+                republishSnapshot();
             }
+        }
+        finally
+        {
+            generationCallRunning.set( false );
+        }
+    }
 
-            return true;
+    /**
+     * Determine whether or not any open locations that are allowed by the map tile location
+     * filter exist.
+     *
+     * @param generationContext
+     *            Generation context of the map generation in progress.
+     *
+     * @return True if the frontier of the map is not empty, false otherwise.
+     */
+    boolean frontierExists( GenerationContext generationContext )
+    {
+        if ( mapTileSelectionMode != MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE )
+        {
+            return ( mapTileDomainTracker.getMapTileLocationQueueSize() > 0 );
         }
 
-        return false;
+        return ! generationContext.getFrontier().isEmpty();
+    }
+
+    /**
+     * Reject a variant at an open location until the map changes.
+     *
+     * @param mapTileLocation
+     *            Open location at which to reject the variant.
+     * @param variant
+     *            Variant to reject.
+     */
+    void rejectVariant( MapTileLocation mapTileLocation, int variant )
+    {
+        mapTileDomainTracker.rejectVariant( mapTileLocation, variant );
+    }
+
+    /**
+     * Determine whether or not any map tiles were rejected by propagation since the map last
+     * changed.
+     *
+     * @return True if rejected map tiles exist, false otherwise.
+     */
+    boolean rejectedMapTilesExist()
+    {
+        return mapTileDomainTracker.rejectedMapTilesExist();
+    }
+
+    /**
+     * Determine whether or not a placement leaves every empty map tile location within the
+     * propagation radius with at least one fitting variant.
+     *
+     * @param mapTileLocation
+     *            Map tile location of the placement.
+     * @param variant
+     *            Variant of the placement.
+     *
+     * @return True if the placement is consistent, false otherwise.
+     */
+    boolean isConsistent( MapTileLocation mapTileLocation, int variant )
+    {
+        return mapTilePropagator.isConsistent( mapTileLocation, variant, propagationRadius );
+    }
+
+    /**
+     * Clear all rejected map tiles.
+     */
+    void clearRejectedMapTiles()
+    {
+        mapTileDomainTracker.clearRejectedMapTiles();
+    }
+
+    /**
+     * Update the candidate domain of a map tile location. The map tile location only has a
+     * candidate domain if it is an open location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to update the candidate domain.
+     */
+    void updateMapTileDomain( MapTileLocation mapTileLocation )
+    {
+        mapTileDomainTracker.updateMapTileDomain( mapTileLocation );
+    }
+
+    /**
+     * Get the variant at a map tile location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to get the variant.
+     *
+     * @return The variant at the map tile location, or MapTileStore.NONE if the map tile location
+     *         is empty.
+     */
+    int getVariant( MapTileLocation mapTileLocation )
+    {
+        return mapTiles.getVariant( mapTileLocation.getX(), mapTileLocation.getY() );
+    }
+
+    /**
+     * Get the age of the map tile at a map tile location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to get the age.
+     *
+     * @return The age of the map tile at the map tile location, or MapTileStore.NONE if the map
+     *         tile location is empty.
+     */
+    int getAge( MapTileLocation mapTileLocation )
+    {
+        return mapTiles.getAge( mapTileLocation.getX(), mapTileLocation.getY() );
+    }
+
+    /**
+     * Get the open locations that are allowed by the map tile location filter.
+     *
+     * @return The open locations that are allowed by the map tile location filter.
+     */
+    Collection< MapTileLocation > getFilteredOpenLocations()
+    {
+        return openLocations.getFilteredOpenLocations();
+    }
+
+    /**
+     * Get the open location at the head of the map tile location queue.
+     *
+     * @return The open location at the head of the map tile location queue, or null if the queue
+     *         is empty.
+     */
+    MapTileLocation peekMapTileLocationQueue()
+    {
+        return mapTileDomainTracker.peekMapTileLocationQueue();
+    }
+
+    /**
+     * Determine whether or not a map tile location is an open location.
+     *
+     * @param mapTileLocation
+     *            Map tile location to check.
+     *
+     * @return True if the map tile location is an open location, false otherwise.
+     */
+    boolean isOpenLocation( MapTileLocation mapTileLocation )
+    {
+        return openLocations.contains( mapTileLocation );
+    }
+
+    /**
+     * Get the candidate domain of an open location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to get the candidate domain.
+     *
+     * @return The candidate domain of the map tile location, or null if the map tile location is
+     *         not an open location.
+     */
+    MapTileCandidates getOpenLocationDomain( MapTileLocation mapTileLocation )
+    {
+        return mapTileDomainTracker.getOpenLocationDomain( mapTileLocation );
+    }
+
+    /**
+     * Get the candidate domain of an empty map tile location. The candidate domains of open
+     * locations are kept up to date; the candidate domains of other empty map tile locations are
+     * computed on demand.
+     *
+     * @param mapTileLocation
+     *            Empty map tile location for which to get the candidate domain.
+     *
+     * @return The candidate domain of the map tile location.
+     */
+    MapTileCandidates getMapTileDomain( MapTileLocation mapTileLocation )
+    {
+        return mapTileDomainTracker.getMapTileDomain( mapTileLocation );
+    }
+
+    /**
+     * Get a flag indicating whether or not any bad open locations exist. A bad open location is an
+     * open location where no legal map tile can be placed there. Dead locations are tracked as
+     * map tiles are added and removed, so this check does not scan the open locations.
+     *
+     * @return True if one or more bad locations exist, false otherwise.
+     */
+    boolean badOpenLocationsExist()
+    {
+        return ! mapTileDomainTracker.getDeadLocations().isEmpty();
     }
 
     /**
@@ -780,94 +1775,184 @@ start:  for ( MapTileLocation mapTileLocation : openLocations )
      *
      * @return True if the first map location exists and is newer than the second map location.
      */
-    private boolean compareMapTileLocationAge( MapTileLocation mapTileLocation1,
-                                               MapTileLocation mapTileLocation2 )
+    boolean compareMapTileLocationAge( MapTileLocation mapTileLocation1,
+                                       MapTileLocation mapTileLocation2 )
     {
-        return (( mapAge.containsKey( mapTileLocation1 )) &&
-                (( mapTileLocation2 == null ) ||
-                 ( mapAge.get( mapTileLocation2 ) < mapAge.get( mapTileLocation1 ))));
+        int age1 = getAge( mapTileLocation1 );
+
+        return (( age1 != MapTileStore.NONE ) &&
+                (( mapTileLocation2 == null ) || ( getAge( mapTileLocation2 ) < age1 )));
     }
 
     /**
-     * Remove the specified map tile location and all connected map tile locations that are newer
-     * than the specified map tile location.
+     * Place a map tile at an empty map tile location, recording the change on the trail.
      *
      * @param mapTileLocation
-     *            Map tile location to remove.
+     *            Map tile location at which to place the map tile.
+     * @param variant
+     *            Variant of the map tile.
+     * @param age
+     *            Age of the map tile.
      */
-    private void removeNewerMapTileLocations( MapTileLocation mapTileLocation )
+    private void placeMapTile( MapTileLocation mapTileLocation, int variant, int age )
     {
-        // list of map tile locations to be removed that need to have their adjacent map tile
-        // locations checked to see if they also need to be removed
-        List< MapTileLocation > openRemovedMapTileLocationList =
-                new LinkedList< MapTileLocation >();
+        mapTiles.put( mapTileLocation.getX(), mapTileLocation.getY(), variant, age );
+        mapTileBounds.add( mapTileLocation );
+        mapSnapshotStore.put( mapTileLocation, variant );
+        mapTileTrail.record( MapTileTrail.PLACE, mapTileLocation, variant, age, null );
+    }
 
-        // list of map tile locations to be removed that have already had their adjacent map
-        // tile locations checked
-        List< MapTileLocation > closedRemovedMapTileLocationList =
-                new LinkedList< MapTileLocation >();
+    /**
+     * Take the map tile away from a map tile location, recording the change on the trail.
+     *
+     * @param mapTileLocation
+     *            Map tile location from which to take the map tile.
+     */
+    private void takeMapTile( MapTileLocation mapTileLocation )
+    {
+        int variant = getVariant( mapTileLocation );
+        int age = getAge( mapTileLocation );
+        mapTiles.remove( mapTileLocation.getX(), mapTileLocation.getY() );
+        mapTileBounds.remove( mapTileLocation );
+        mapSnapshotStore.remove( mapTileLocation );
+        mapTileTrail.record( MapTileTrail.REMOVE, mapTileLocation, variant, age, null );
+    }
 
-        openRemovedMapTileLocationList.add( mapTileLocation );
+    /**
+     * Get the logic used to remove map tiles while recovering from bad open locations.
+     *
+     * @return The map tile remover.
+     */
+    MapTileRemover getMapTileRemover()
+    {
+        return mapTileRemover;
+    }
 
-        while ( ! openRemovedMapTileLocationList.isEmpty() )
-        {
-            closedRemovedMapTileLocationList.addAll( openRemovedMapTileLocationList );
+    /**
+     * Place a mark on the trail. Changes to the map are recorded until the mark is released, and
+     * can be undone back to the mark until then.
+     *
+     * @return The mark.
+     */
+    int markTrail()
+    {
+        return mapTileTrail.mark();
+    }
 
-            List< MapTileLocation > tempRemovedMapTileLocationList =
-                    new LinkedList< MapTileLocation >( openRemovedMapTileLocationList );
+    /**
+     * Release a mark placed on the trail.
+     */
+    void releaseTrail()
+    {
+        mapTileTrail.release();
+    }
 
-            openRemovedMapTileLocationList.clear();
+    /**
+     * Undo all changes made to the map since a mark was placed on the trail, in reverse order. The
+     * map tile listeners are notified of every map tile that is removed or added back. Takes time
+     * proportional to the number of changes undone.
+     *
+     * @param mark
+     *            Mark to undo back to. The mark is not released.
+     */
+    void undoTrail( int mark )
+    {
+        Set< MapTileLocation > changedMapTileLocations = new LinkedHashSet< MapTileLocation >();
+        Set< MapTileLocation > changedOpenLocations = new LinkedHashSet< MapTileLocation >();
+
+        while ( mapTileTrail.size() > mark )
+        {
+            MapTileTrail.Entry entry = mapTileTrail.pop();
+            MapTileLocation mapTileLocation = entry.getMapTileLocation();
 
-            for ( MapTileLocation removedMapTileLocation : tempRemovedMapTileLocationList )
+            switch ( entry.getKind() )
             {
-                for ( MapTileEdgePosition mapTileEdgePosition :
-                        map.get( removedMapTileLocation ).getOpenMapTileEdgePositions() )
-                {
-                    MapTileLocation tempMapTileLocation = null;
-
-                    if ( mapTileEdgePosition.equals( MapTileEdgePosition.TOP ))
-                    {
-                        tempMapTileLocation =
-                                new MapTileLocation( removedMapTileLocation.getX(),
-                                                     removedMapTileLocation.getY() - 1 );
-                    }
-
-                    if ( mapTileEdgePosition.equals( MapTileEdgePosition.RIGHT ))
-                    {
-                        tempMapTileLocation =
-                                new MapTileLocation( removedMapTileLocation.getX() + 1,
-                                                     removedMapTileLocation.getY() );
-                    }
-
-                    if ( mapTileEdgePosition.equals( MapTileEdgePosition.BOTTOM ))
-                    {
-                        tempMapTileLocation =
-                                new MapTileLocation( removedMapTileLocation.getX(),
-                                                     removedMapTileLocation.getY() + 1 );
-                    }
-
-                    if ( mapTileEdgePosition.equals( MapTileEdgePosition.LEFT ))
-                    {
-                        tempMapTileLocation =
-                                new MapTileLocation( removedMapTileLocation.getX() - 1,
-                                                     removedMapTileLocation.getY() );
-                    }
-
-                    if (( mapAge.containsKey( tempMapTileLocation )) &&
-                        ( ! openRemovedMapTileLocationList.contains( tempMapTileLocation )) &&
-                        ( ! closedRemovedMapTileLocationList.contains( tempMapTileLocation )) &&
-                        ( mapAge.get( tempMapTileLocation ) >
-                          mapAge.get( removedMapTileLocation )))
-                    {
-                        openRemovedMapTileLocationList.add( tempMapTileLocation );
-                    }
-                }
+                case MapTileTrail.PLACE:
+                    undoPlaceMapTile( entry );
+                    changedMapTileLocations.add( mapTileLocation );
+                    break;
+
+                case MapTileTrail.REMOVE:
+                    undoTakeMapTile( entry );
+                    changedMapTileLocations.add( mapTileLocation );
+                    break;
+
+                case MapTileTrail.OPEN:
+                    openLocations.remove( mapTileLocation );
+                    changedOpenLocations.add( mapTileLocation );
+                    break;
+
+                case MapTileTrail.CLOSE:
+                    openLocations.restore( mapTileLocation, entry.getValue() );
+                    changedOpenLocations.add( mapTileLocation );
+                    break;
+
+                default:
+                    mapTileExclusionStore.put( mapTileLocation, entry.getMapTileExclusion() );
+                    changedOpenLocations.add( mapTileLocation );
+                    break;
             }
         }
 
-        for ( MapTileLocation removedMapTileLocation : closedRemovedMapTileLocationList )
+        for ( MapTileLocation mapTileLocation : changedMapTileLocations )
+        {
+            mapTileDomainTracker.updateMapTileDomains( mapTileLocation );
+        }
+
+        for ( MapTileLocation mapTileLocation : changedOpenLocations )
         {
-            removeMapTile( removedMapTileLocation );
+            updateMapTileDomain( mapTileLocation );
         }
     }
+
+    /**
+     * Undo the placement of a map tile recorded on the trail, notifying the map tile removal
+     * listeners.
+     *
+     * @param entry
+     *            Trail entry recording the placement.
+     */
+    private void undoPlaceMapTile( MapTileTrail.Entry entry )
+    {
+        MapTileLocation mapTileLocation = entry.getMapTileLocation();
+
+        mapTileListeners.beforeMapTileRemoved( mapTileLocation );
+
+        mapTiles.remove( mapTileLocation.getX(), mapTileLocation.getY() );
+        mapTileBounds.remove( mapTileLocation );
+        mapSnapshotStore.remove( mapTileLocation );
+        openLocationTracker.placementUndone( mapTileLocation.getX(), mapTileLocation.getY(),
+                                             (int) entry.getValue() );
+
+        // ages are handed out in increasing order, so the age counter can be rewound as well
+        if ( entry.getAge() == ageCounter - 1 )
+        {
+            ageCounter--;
+        }
+
+        mapTileListeners.mapTileRemoved( mapTileLocation );
+    }
+
+    /**
+     * Undo the removal of a map tile recorded on the trail, notifying the map tile addition
+     * listeners.
+     *
+     * @param entry
+     *            Trail entry recording the removal.
+     */
+    private void undoTakeMapTile( MapTileTrail.Entry entry )
+    {
+        MapTileLocation mapTileLocation = entry.getMapTileLocation();
+
+        mapTileListeners.beforeMapTileAdded( mapTileLocation );
+
+        mapTiles.put( mapTileLocation.getX(), mapTileLocation.getY(), (int) entry.getValue(),
+                      entry.getAge() );
+        mapTileBounds.add( mapTileLocation );
+        mapSnapshotStore.put( mapTileLocation, (int) entry.getValue() );
+        openLocationTracker.removalUndone( mapTileLocation.getX(), mapTileLocation.getY(),
+                                           (int) entry.getValue() );
+
+        mapTileListeners.mapTileAdded( mapTileLocation );
+    }
 }
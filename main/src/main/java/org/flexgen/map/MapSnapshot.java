@@ -0,0 +1,142 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Map;
+
+/**
+ * Class representing an immutable snapshot of the map of a map generator. A snapshot is published
+ * by the thread generating the map and can then be read from any number of other threads without
+ * locking, while the generation continues. The snapshot always shows the map as it was when the
+ * snapshot was published.
+ */
+public class MapSnapshot
+{
+    /**
+     * Map tile set used to resolve the variants of the map.
+     */
+    private final MapTileSet mapTileSet;
+
+    /**
+     * Version of the snapshot. Snapshots published later have higher versions.
+     */
+    private final long version;
+
+    /**
+     * Chunks of the map, keyed by chunk coordinates. Neither the directory nor the chunks are
+     * changed after the snapshot is published.
+     */
+    private final Map< Long, int[] > chunks;
+
+    /**
+     * Number of map tiles in the map.
+     */
+    private final int mapTileCount;
+
+    /**
+     * Construct a snapshot.
+     *
+     * @param mapTileSet
+     *            Map tile set used to resolve the variants of the map.
+     * @param version
+     *            Version of the snapshot.
+     * @param chunks
+     *            Chunks of the map, keyed by chunk coordinates.
+     * @param mapTileCount
+     *            Number of map tiles in the map.
+     */
+    MapSnapshot( MapTileSet mapTileSet, long version, Map< Long, int[] > chunks,
+                 int mapTileCount )
+    {
+        this.mapTileSet   = mapTileSet;
+        this.version      = version;
+        this.chunks       = chunks;
+        this.mapTileCount = mapTileCount;
+    }
+
+    /**
+     * Get the version of the snapshot. Snapshots published later by the same map generator have
+     * higher versions.
+     *
+     * @return The version of the snapshot.
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Get the number of map tiles in the snapshot.
+     *
+     * @return The number of map tiles in the snapshot.
+     */
+    public int getMapTileCount()
+    {
+        return mapTileCount;
+    }
+
+    /**
+     * Get the map tile at a specified location.
+     *
+     * @param mapTileLocation
+     *            Location for which to get the map tile. Cannot be null.
+     *
+     * @return The map tile at the specified location, or null if the location was empty when the
+     *         snapshot was published.
+     */
+    public MapTile getMapTile( MapTileLocation mapTileLocation )
+    {
+        if ( mapTileLocation == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
+        }
+
+        int x = mapTileLocation.getX();
+        int y = mapTileLocation.getY();
+        int[] chunk = chunks.get( MapSnapshotStore.getChunkKey( x, y ));
+
+        if ( chunk == null )
+        {
+            return null;
+        }
+
+        int variant = chunk[ MapSnapshotStore.getChunkIndex( x, y ) ];
+
+        if ( variant == 0 )
+        {
+            return null;
+        }
+
+        return mapTileSet.getMapTile( variant - 1 );
+    }
+}
@@ -0,0 +1,344 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class maintaining the published snapshots of a map generator. The variants of the map are kept
+ * in square chunks of map tile locations. A published snapshot shares every chunk with the store,
+ * and a chunk that is shared with a published snapshot is copied before it is changed again, so
+ * publishing a snapshot only copies the chunk directory and never the map tiles themselves.
+ */
+class MapSnapshotStore
+{
+    /**
+     * Number of bits of a coordinate that select the position of a map tile location within its
+     * chunk.
+     */
+    static final int CHUNK_SHIFT = 4;
+
+    /**
+     * Width and height of a chunk, in map tile locations.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * Mask selecting the position of a map tile location within its chunk from a coordinate.
+     */
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Chunks of the current map, keyed by chunk coordinates.
+     */
+    private final Map< Long, Chunk > chunks;
+
+    /**
+     * Flag indicating whether or not the store is kept up to date with the map. The store is only
+     * maintained once the first snapshot is published.
+     */
+    private boolean enabled;
+
+    /**
+     * Number of map tiles in the current map.
+     */
+    private int mapTileCount;
+
+    /**
+     * Version of the next snapshot to be published. Chunks created with this version have not
+     * been published yet and can be changed in place.
+     */
+    private long version;
+
+    /**
+     * Most recently published snapshot, or null if none was published yet.
+     */
+    private volatile MapSnapshot snapshot;
+
+    /**
+     * Construct an empty snapshot store.
+     */
+    MapSnapshotStore()
+    {
+        this.chunks       = new HashMap< Long, Chunk >();
+        this.enabled      = false;
+        this.mapTileCount = 0;
+        this.version      = 1;
+        this.snapshot     = null;
+    }
+
+    /**
+     * Get the key of the chunk containing a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The key of the chunk containing the map tile location.
+     */
+    static long getChunkKey( int x, int y )
+    {
+        return ((long) ( x >> CHUNK_SHIFT ) << 32 ) | (( y >> CHUNK_SHIFT ) & 0xFFFFFFFFL );
+    }
+
+    /**
+     * Get the index of a map tile location within its chunk.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The index of the map tile location within its chunk.
+     */
+    static int getChunkIndex( int x, int y )
+    {
+        return (( y & CHUNK_MASK ) << CHUNK_SHIFT ) | ( x & CHUNK_MASK );
+    }
+
+    /**
+     * Determine whether or not the store is kept up to date with the map.
+     *
+     * @return True if at least one snapshot was published, false otherwise.
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Start keeping the store up to date with the map.
+     *
+     * @param mapTiles
+     *            Map tiles of the current map.
+     */
+    void enable( MapTileStore mapTiles )
+    {
+        enabled = true;
+
+        mapTiles.visit( new MapTileStore.Visitor()
+        {
+            public void visit( int x, int y, int variant, int age )
+            {
+                put( x, y, variant );
+            }
+        } );
+    }
+
+    /**
+     * Record that a map tile was placed at a map tile location. Nothing happens if the store is
+     * not enabled.
+     *
+     * @param mapTileLocation
+     *            Map tile location at which the map tile was placed.
+     * @param variant
+     *            Variant of the map tile.
+     */
+    void put( MapTileLocation mapTileLocation, int variant )
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        put( mapTileLocation.getX(), mapTileLocation.getY(), variant );
+    }
+
+    /**
+     * Record that a map tile was placed at the map tile location with the specified coordinates.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     * @param variant
+     *            Variant of the map tile.
+     */
+    private void put( int x, int y, int variant )
+    {
+        Long key = getChunkKey( x, y );
+        Chunk chunk = chunks.get( key );
+
+        if ( chunk == null )
+        {
+            chunk = new Chunk( version );
+            chunks.put( key, chunk );
+        }
+        else if ( chunk.version != version )
+        {
+            chunk = new Chunk( chunk, version );
+            chunks.put( key, chunk );
+        }
+
+        int index = getChunkIndex( x, y );
+
+        if ( chunk.variants[ index ] == 0 )
+        {
+            chunk.count++;
+            mapTileCount++;
+        }
+
+        // variants are stored plus one, so the default value of the array means "empty"
+        chunk.variants[ index ] = variant + 1;
+    }
+
+    /**
+     * Record that the map tile at a map tile location was removed. Nothing happens if the store
+     * is not enabled.
+     *
+     * @param mapTileLocation
+     *            Map tile location from which the map tile was removed.
+     */
+    void remove( MapTileLocation mapTileLocation )
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        int x = mapTileLocation.getX();
+        int y = mapTileLocation.getY();
+        Long key = getChunkKey( x, y );
+        Chunk chunk = chunks.get( key );
+        int index = getChunkIndex( x, y );
+
+        if (( chunk == null ) || ( chunk.variants[ index ] == 0 ))
+        {
+            return;
+        }
+
+        mapTileCount--;
+
+        if ( chunk.count == 1 )
+        {
+            chunks.remove( key );
+            return;
+        }
+
+        if ( chunk.version != version )
+        {
+            chunk = new Chunk( chunk, version );
+            chunks.put( key, chunk );
+        }
+
+        chunk.variants[ index ] = 0;
+        chunk.count--;
+    }
+
+    /**
+     * Publish a snapshot of the current map. The published snapshot becomes visible to all threads.
+     *
+     * @param mapTileSet
+     *            Map tile set used to resolve the variants of the map.
+     *
+     * @return The published snapshot.
+     */
+    MapSnapshot publish( MapTileSet mapTileSet )
+    {
+        Map< Long, int[] > snapshotChunks = new HashMap< Long, int[] >( chunks.size() * 2 );
+
+        for ( Map.Entry< Long, Chunk > entry : chunks.entrySet() )
+        {
+            snapshotChunks.put( entry.getKey(), entry.getValue().variants );
+        }
+
+        MapSnapshot mapSnapshot =
+                new MapSnapshot( mapTileSet, version, snapshotChunks, mapTileCount );
+
+        // every chunk is now shared with the snapshot, so later changes have to copy it first
+        version++;
+        snapshot = mapSnapshot;
+        return mapSnapshot;
+    }
+
+    /**
+     * Get the most recently published snapshot. Can be called from any thread.
+     *
+     * @return The most recently published snapshot, or null if none was published yet.
+     */
+    MapSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Class representing a chunk of the map.
+     */
+    private static class Chunk
+    {
+        /**
+         * Variants of the map tiles in the chunk plus one, or 0 for empty map tile locations.
+         */
+        private final int[] variants;
+
+        /**
+         * Version of the snapshot store when the chunk was created.
+         */
+        private final long version;
+
+        /**
+         * Number of map tiles in the chunk.
+         */
+        private int count;
+
+        /**
+         * Construct an empty chunk.
+         *
+         * @param version
+         *            Version of the snapshot store.
+         */
+        Chunk( long version )
+        {
+            this.variants = new int[ CHUNK_SIZE * CHUNK_SIZE ];
+            this.version  = version;
+            this.count    = 0;
+        }
+
+        /**
+         * Construct a copy of a chunk.
+         *
+         * @param chunk
+         *            Chunk to copy.
+         * @param version
+         *            Version of the snapshot store.
+         */
+        Chunk( Chunk chunk, long version )
+        {
+            this.variants = chunk.variants.clone();
+            this.version  = version;
+            this.count    = chunk.count;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing the ways in which a map generator can store the map tiles it places.
+ */
+public class MapStorage
+{
+    /**
+     * Storage where the map tiles are kept in a single hash table keyed by their map tile
+     * locations. Suited to maps of any shape. This is the default storage.
+     */
+    public static final MapStorage HASH_TABLE = new MapStorage( "HashTable" );
+
+    /**
+     * Storage where the plane is split into square chunks of map tile locations that are
+     * allocated on demand. Suited to large maps that grow outwards, since neighboring map tile
+     * locations are usually found in the same chunk.
+     */
+    public static final MapStorage CHUNKED_GRID = new MapStorage( "ChunkedGrid" );
+
+    /**
+     * Storage like the chunked grid, except that the contents of the chunks are kept in direct
+     * memory outside of the heap. Suited to very large maps, since the map tiles add neither to
+     * the size of the heap nor to the work of the garbage collector. Closing the map generator
+     * drops the buffers holding the chunks, and the garbage collector then reclaims the direct
+     * memory once it finds them unreachable, which may take a while.
+     */
+    public static final MapStorage OFF_HEAP_CHUNKED_GRID =
+            new MapStorage( "OffHeapChunkedGrid" );
+
+    /**
+     * Storage where every map tile location within the bounds of the map tile location filter is
+     * kept in flat arrays, and the open locations within those bounds are also tracked in a
+     * bitmap. Suited to maps of a fixed size, which is why it is used by default when a map
+     * generator is constructed with the bounds of its map. The bounds cannot cover more than
+     * 16777216 map tile locations.
+     */
+    public static final MapStorage DENSE_RECTANGLE = new MapStorage( "DenseRectangle" );
+
+    /**
+     * Name of the map storage.
+     */
+    private final String name;
+
+    /**
+     * Construct a map storage with the specified name.
+     *
+     * @param name
+     *            Name of the map storage.
+     */
+    private MapStorage( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Get the storage to use by default for a map that fits the specified rectangle.
+     *
+     * @param minX
+     *            Smallest X coordinate of the rectangle.
+     * @param minY
+     *            Smallest Y coordinate of the rectangle.
+     * @param maxX
+     *            Largest X coordinate of the rectangle.
+     * @param maxY
+     *            Largest Y coordinate of the rectangle.
+     *
+     * @return DENSE_RECTANGLE if the rectangle is small enough to be covered by it, HASH_TABLE
+     *         otherwise.
+     */
+    static MapStorage getDefault( int minX, int minY, int maxX, int maxY )
+    {
+        if ( MapTileDenseGrid.fits( minX, minY, maxX, maxY ))
+        {
+            return DENSE_RECTANGLE;
+        }
+
+        return HASH_TABLE;
+    }
+
+    /**
+     * Create a store for the map tiles of a map that uses this storage.
+     *
+     * @param mapTileLocationFilter
+     *            Map tile location filter of the map.
+     *
+     * @return The store for the map tiles.
+     */
+    MapTileStore createMapTileStore( MapTileLocationFilter mapTileLocationFilter )
+    {
+        if ( this == DENSE_RECTANGLE )
+        {
+            return new MapTileDenseGrid( mapTileLocationFilter );
+        }
+
+        if ( this == CHUNKED_GRID )
+        {
+            return new MapTileChunkGrid();
+        }
+
+        if ( this == OFF_HEAP_CHUNKED_GRID )
+        {
+            return new MapTileOffHeapGrid();
+        }
+
+        return new MapTileTable();
+    }
+
+    /**
+     * Create a set for the open locations of a map that uses this storage.
+     *
+     * @param mapTileLocationFilter
+     *            Map tile location filter of the map.
+     *
+     * @return The set for the open locations.
+     */
+    OpenLocationSet createOpenLocationSet( MapTileLocationFilter mapTileLocationFilter )
+    {
+        if ( this == DENSE_RECTANGLE )
+        {
+            return new DenseOpenLocationSet( mapTileLocationFilter );
+        }
+
+        return new OpenLocationSet( mapTileLocationFilter );
+    }
+
+    /**
+     * Get the string representation of this object.
+     *
+     * @return The string representation of this object.
+     */
+    public String toString()
+    {
+        return name;
+    }
+}
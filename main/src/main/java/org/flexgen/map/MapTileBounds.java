@@ -0,0 +1,247 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.TreeMap;
+
+/**
+ * Class tracking the bounding box of the map tiles of a map generator. The number of map tiles in
+ * each occupied column and row is counted in a sorted map, so the bounds can be kept up to date in
+ * logarithmic time as map tiles are added and removed, and can be read in constant time. When a
+ * map tile on the edge of the bounding box is removed and leaves its column or row empty, the edge
+ * moves inwards to the next occupied column or row, however far away it is.
+ */
+class MapTileBounds
+{
+    /**
+     * Occupancy of the columns of the map.
+     */
+    private final Axis columns;
+
+    /**
+     * Occupancy of the rows of the map.
+     */
+    private final Axis rows;
+
+    /**
+     * Construct the bounds of an empty map.
+     */
+    MapTileBounds()
+    {
+        this.columns = new Axis();
+        this.rows    = new Axis();
+    }
+
+    /**
+     * Record that a map tile was added at a map tile location.
+     *
+     * @param mapTileLocation
+     *            Map tile location at which the map tile was added.
+     */
+    void add( MapTileLocation mapTileLocation )
+    {
+        columns.add( mapTileLocation.getX() );
+        rows.add( mapTileLocation.getY() );
+    }
+
+    /**
+     * Record that the map tile at a map tile location was removed.
+     *
+     * @param mapTileLocation
+     *            Map tile location from which the map tile was removed.
+     */
+    void remove( MapTileLocation mapTileLocation )
+    {
+        columns.remove( mapTileLocation.getX() );
+        rows.remove( mapTileLocation.getY() );
+    }
+
+    /**
+     * Determine whether or not the map contains any map tiles.
+     *
+     * @return True if the map contains no map tiles, false otherwise.
+     */
+    boolean isEmpty()
+    {
+        return columns.isEmpty();
+    }
+
+    /**
+     * Get the smallest X coordinate of the map tiles. Only valid if the map is not empty.
+     *
+     * @return The smallest X coordinate of the map tiles.
+     */
+    int getMinX()
+    {
+        return columns.min;
+    }
+
+    /**
+     * Get the smallest Y coordinate of the map tiles. Only valid if the map is not empty.
+     *
+     * @return The smallest Y coordinate of the map tiles.
+     */
+    int getMinY()
+    {
+        return rows.min;
+    }
+
+    /**
+     * Get the largest X coordinate of the map tiles. Only valid if the map is not empty.
+     *
+     * @return The largest X coordinate of the map tiles.
+     */
+    int getMaxX()
+    {
+        return columns.max;
+    }
+
+    /**
+     * Get the largest Y coordinate of the map tiles. Only valid if the map is not empty.
+     *
+     * @return The largest Y coordinate of the map tiles.
+     */
+    int getMaxY()
+    {
+        return rows.max;
+    }
+
+    /**
+     * Class tracking the occupancy of the columns or the rows of the map.
+     */
+    private static class Axis
+    {
+        /**
+         * Number of map tiles in each occupied column or row, keyed by coordinate in increasing
+         * order.
+         */
+        private final TreeMap< Integer, int[] > counts;
+
+        /**
+         * Smallest occupied coordinate.
+         */
+        private int min;
+
+        /**
+         * Largest occupied coordinate.
+         */
+        private int max;
+
+        /**
+         * Construct the occupancy of an empty map.
+         */
+        Axis()
+        {
+            this.counts = new TreeMap< Integer, int[] >();
+            this.min    = 0;
+            this.max    = 0;
+        }
+
+        /**
+         * Determine whether or not no column or row is occupied.
+         *
+         * @return True if no column or row is occupied, false otherwise.
+         */
+        boolean isEmpty()
+        {
+            return counts.isEmpty();
+        }
+
+        /**
+         * Record that a map tile was added at a coordinate.
+         *
+         * @param coordinate
+         *            Coordinate of the map tile.
+         */
+        void add( int coordinate )
+        {
+            if ( counts.isEmpty() )
+            {
+                min = coordinate;
+                max = coordinate;
+            }
+            else if ( coordinate < min )
+            {
+                min = coordinate;
+            }
+            else if ( coordinate > max )
+            {
+                max = coordinate;
+            }
+
+            int[] count = counts.get( coordinate );
+
+            if ( count == null )
+            {
+                counts.put( coordinate, new int[] { 1 } );
+            }
+            else
+            {
+                count[ 0 ]++;
+            }
+        }
+
+        /**
+         * Record that a map tile was removed at a coordinate.
+         *
+         * @param coordinate
+         *            Coordinate of the map tile.
+         */
+        void remove( int coordinate )
+        {
+            int[] count = counts.get( coordinate );
+            count[ 0 ]--;
+
+            if ( count[ 0 ] > 0 )
+            {
+                return;
+            }
+
+            counts.remove( coordinate );
+
+            if ( counts.isEmpty() )
+            {
+                return;
+            }
+
+            if ( coordinate == min )
+            {
+                min = counts.firstKey();
+            }
+            else if ( coordinate == max )
+            {
+                max = counts.lastKey();
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Class representing the variants of a map tile set that fit an empty map tile location with a
+ * particular neighbor signature. The fitting variants are stored in ascending order, so the
+ * variants of each map tile type form a contiguous range, together with the running totals of
+ * their weights. This allows a weighted random variant to be chosen with a single random number
+ * and a binary search.
+ * <p>
+ * Map tile candidates are immutable and are shared by all map generators that use the same map
+ * tile set.
+ */
+public class MapTileCandidates
+{
+    /**
+     * Map tile set the variants belong to.
+     */
+    private final MapTileSet mapTileSet;
+
+    /**
+     * Fitting variants, in ascending order.
+     */
+    private final int[] variants;
+
+    /**
+     * Running totals of the weights of the fitting variants. Element N is the sum of the weights of
+     * variants 0 through N.
+     */
+    private final long[] cumulativeWeights;
+
+    /**
+     * Index of the first fitting variant of each map tile type, indexed by map tile type index,
+     * followed by the total number of fitting variants.
+     */
+    private final int[] mapTileTypeOffsets;
+
+    /**
+     * Bit set of the fitting variants. Bit (variant % 64) of word (variant / 64) is set if the
+     * variant fits.
+     */
+    private final long[] variantSet;
+
+    /**
+     * Weighted entropy of the fitting variants.
+     */
+    private final double entropy;
+
+    /**
+     * Construct map tile candidates.
+     *
+     * @param mapTileSet
+     *            Map tile set the variants belong to.
+     * @param variantSet
+     *            Bit set of the fitting variants. Only distinct variants can be contained in the
+     *            bit set.
+     */
+    MapTileCandidates( MapTileSet mapTileSet, long[] variantSet )
+    {
+        int count = 0;
+
+        for ( long word : variantSet )
+        {
+            count += Long.bitCount( word );
+        }
+
+        int[] variants = new int[ count ];
+        long[] cumulativeWeights = new long[ count ];
+        int[] mapTileTypeOffsets = new int[ mapTileSet.getMapTileTypeCount() + 1 ];
+        long totalWeight = 0;
+        double weightedLogSum = 0;
+        int index = 0;
+
+        for ( int i = 0; i < mapTileSet.getMapTileTypeCount(); i++ )
+        {
+            int firstVariant = mapTileSet.getFirstVariant( i );
+            int lastVariant = firstVariant + mapTileSet.getDistinctVariantCount( i );
+            int weight = mapTileSet.getMapTileType( i ).getWeight();
+
+            mapTileTypeOffsets[ i ] = index;
+
+            for ( int variant = firstVariant; variant < lastVariant; variant++ )
+            {
+                if (( variantSet[ variant / 64 ] & ( 1L << ( variant % 64 ))) != 0 )
+                {
+                    totalWeight += weight;
+
+                    if ( weight > 0 )
+                    {
+                        weightedLogSum += weight * Math.log( weight );
+                    }
+
+                    variants[ index ] = variant;
+                    cumulativeWeights[ index ] = totalWeight;
+                    index++;
+                }
+            }
+        }
+
+        mapTileTypeOffsets[ mapTileSet.getMapTileTypeCount() ] = index;
+
+        this.mapTileSet         = mapTileSet;
+        this.variants           = variants;
+        this.cumulativeWeights  = cumulativeWeights;
+        this.mapTileTypeOffsets = mapTileTypeOffsets;
+        this.variantSet         = variantSet;
+        this.entropy            = computeEntropy( totalWeight, weightedLogSum );
+    }
+
+    /**
+     * Get the number of fitting variants.
+     *
+     * @return The number of fitting variants.
+     */
+    public int getVariantCount()
+    {
+        return variants.length;
+    }
+
+    /**
+     * Get the number of fitting variants of the specified map tile type.
+     *
+     * @param mapTileTypeIndex
+     *            Index of the map tile type in the map tile set. Must be a valid map tile type
+     *            index.
+     *
+     * @return The number of fitting variants of the specified map tile type.
+     */
+    public int getVariantCount( int mapTileTypeIndex )
+    {
+        checkMapTileTypeIndex( mapTileTypeIndex );
+        return mapTileTypeOffsets[ mapTileTypeIndex + 1 ] - mapTileTypeOffsets[ mapTileTypeIndex ];
+    }
+
+    /**
+     * Get the index of the first fitting variant of the specified map tile type. The fitting
+     * variants of the map tile type are stored contiguously starting at this index.
+     *
+     * @param mapTileTypeIndex
+     *            Index of the map tile type in the map tile set. Must be a valid map tile type
+     *            index.
+     *
+     * @return The index of the first fitting variant of the specified map tile type.
+     */
+    public int getFirstIndex( int mapTileTypeIndex )
+    {
+        checkMapTileTypeIndex( mapTileTypeIndex );
+        return mapTileTypeOffsets[ mapTileTypeIndex ];
+    }
+
+    /**
+     * Get the fitting variant at the specified index.
+     *
+     * @param index
+     *            Index of the fitting variant to get. Must be greater than or equal to 0. Must be
+     *            less than the number of fitting variants.
+     *
+     * @return The fitting variant at the specified index.
+     */
+    public int getVariant( int index )
+    {
+        checkIndex( index );
+        return variants[ index ];
+    }
+
+    /**
+     * Get the shared map tile instance of the fitting variant at the specified index.
+     *
+     * @param index
+     *            Index of the fitting variant. Must be greater than or equal to 0. Must be less
+     *            than the number of fitting variants.
+     *
+     * @return The shared map tile instance of the fitting variant at the specified index.
+     */
+    public MapTile getMapTile( int index )
+    {
+        checkIndex( index );
+        return mapTileSet.getMapTile( variants[ index ] );
+    }
+
+    /**
+     * Get the sum of the weights of all fitting variants.
+     *
+     * @return The sum of the weights of all fitting variants.
+     */
+    public long getTotalWeight()
+    {
+        if ( variants.length == 0 )
+        {
+            return 0;
+        }
+
+        return cumulativeWeights[ variants.length - 1 ];
+    }
+
+    /**
+     * Determine whether or not there are no fitting variants.
+     *
+     * @return True if there are no fitting variants, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return ( variants.length == 0 );
+    }
+
+    /**
+     * Get the weighted entropy of the fitting variants. The entropy is 0 if there is at most one
+     * fitting variant with any weight, and grows as more fitting variants with similar weights
+     * are available.
+     *
+     * @return The weighted entropy of the fitting variants.
+     */
+    public double getEntropy()
+    {
+        return entropy;
+    }
+
+    /**
+     * Determine whether or not the specified variant fits.
+     *
+     * @param variant
+     *            Variant to check.
+     *
+     * @return True if the variant fits, false otherwise.
+     */
+    public boolean containsVariant( int variant )
+    {
+        if (( variant < 0 ) || ( variant / 64 >= variantSet.length ))
+        {
+            return false;
+        }
+
+        return ( variantSet[ variant / 64 ] & ( 1L << ( variant % 64 ))) != 0;
+    }
+
+    /**
+     * Randomly choose a fitting variant. The probability of choosing a variant is its weight
+     * divided by the total weight of all fitting variants. Exactly one random number is drawn.
+     *
+     * @param improvedRandom
+     *            Random number generator to use. Cannot be null.
+     *
+     * @return The chosen variant.
+     */
+    public int chooseVariant( ImprovedRandom improvedRandom )
+    {
+        if ( improvedRandom == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'improvedRandom' cannot be null." );
+        }
+
+        if ( getTotalWeight() == 0 )
+        {
+            throw new IllegalStateException( "No variants with any weight are available." );
+        }
+
+        return variants[ findIndex( improvedRandom.nextLong( getTotalWeight() )) ];
+    }
+
+    /**
+     * Get a copy of the bit set of the fitting variants.
+     *
+     * @return Copy of the bit set of the fitting variants.
+     */
+    long[] copyVariantSet()
+    {
+        return variantSet.clone();
+    }
+
+    /**
+     * Get map tile candidates that contain the fitting variants of these map tile candidates,
+     * except for the specified variants.
+     *
+     * @param excludedVariantSet
+     *            Bit set of the variants that are to be left out.
+     *
+     * @return These map tile candidates if none of the variants are fitting variants, or new map
+     *         tile candidates without the variants otherwise.
+     */
+    MapTileCandidates withoutVariants( long[] excludedVariantSet )
+    {
+        long[] remainingVariantSet = null;
+
+        for ( int i = 0; i < variantSet.length; i++ )
+        {
+            if (( variantSet[ i ] & excludedVariantSet[ i ] ) != 0 )
+            {
+                if ( remainingVariantSet == null )
+                {
+                    remainingVariantSet = variantSet.clone();
+                }
+
+                remainingVariantSet[ i ] &= ~excludedVariantSet[ i ];
+            }
+        }
+
+        if ( remainingVariantSet == null )
+        {
+            return this;
+        }
+
+        return new MapTileCandidates( mapTileSet, remainingVariantSet );
+    }
+
+    /**
+     * Find the index of the fitting variant whose weight range contains the specified value.
+     *
+     * @param value
+     *            Value to look for. Must be greater than or equal to 0. Must be less than the total
+     *            weight.
+     *
+     * @return The index of the first fitting variant whose running weight total is greater than the
+     *         value.
+     */
+    int findIndex( long value )
+    {
+        int low = 0;
+        int high = variants.length - 1;
+
+        while ( low < high )
+        {
+            int middle = ( low + high ) >>> 1;
+
+            if ( cumulativeWeights[ middle ] > value )
+            {
+                high = middle;
+            }
+            else
+            {
+                low = middle + 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Verify that an index of a fitting variant is valid.
+     *
+     * @param index
+     *            Index to check.
+     */
+    private void checkIndex( int index )
+    {
+        if (( index < 0 ) || ( index >= variants.length ))
+        {
+            throw new IllegalArgumentException( "Parameter 'index' must be between 0 and " +
+                                                ( variants.length - 1 ) + "." );
+        }
+    }
+
+    /**
+     * Verify that a map tile type index is valid for the map tile set.
+     *
+     * @param mapTileTypeIndex
+     *            Map tile type index to check.
+     */
+    private void checkMapTileTypeIndex( int mapTileTypeIndex )
+    {
+        if (( mapTileTypeIndex < 0 ) || ( mapTileTypeIndex >= mapTileTypeOffsets.length - 1 ))
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileTypeIndex' must be between 0 " +
+                                                "and " + ( mapTileTypeOffsets.length - 2 ) + "." );
+        }
+    }
+
+    /**
+     * Compute the weighted entropy of a set of variants. The probability of a variant is its
+     * weight divided by the total weight, so the entropy is log( W ) - ( sum of w * log( w )) / W.
+     *
+     * @param totalWeight
+     *            Total weight W of the variants.
+     * @param weightedLogSum
+     *            Sum of w * log( w ) over the weights w of the variants.
+     *
+     * @return The weighted entropy of the variants.
+     */
+    private static double computeEntropy( long totalWeight, double weightedLogSum )
+    {
+        if ( totalWeight == 0 )
+        {
+            return 0;
+        }
+
+        return Math.log( totalWeight ) - ( weightedLogSum / totalWeight );
+    }
+}
@@ -0,0 +1,532 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Class representing the map tiles placed by a map generator as a sparse grid of chunks. The plane
+ * is split into square chunks of map tile locations, each holding the variants and ages of its map
+ * tiles in small primitive arrays. Chunks are allocated when the first map tile is placed in them
+ * and are found through a chunk directory keyed by chunk coordinates. The most recently used chunk
+ * is remembered, so looking up a neighbor within the same chunk is plain array index arithmetic.
+ * Chunks are kept once allocated, since maps generally grow rather than shrink. Subclasses can keep
+ * the contents of the chunks elsewhere by overriding the methods that access them.
+ */
+class MapTileChunkGrid implements MapTileStore
+{
+    /**
+     * Number of bits of a coordinate that select the position of a map tile location within its
+     * chunk.
+     */
+    static final int CHUNK_SHIFT = 5;
+
+    /**
+     * Width and height of a chunk, in map tile locations.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * Mask selecting the position of a map tile location within its chunk from a coordinate.
+     */
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Number of map tile locations in a chunk.
+     */
+    static final int CELL_COUNT = CHUNK_SIZE * CHUNK_SIZE;
+
+    /**
+     * Initial number of slots in the chunk directory. Must be a power of two.
+     */
+    private static final int INITIAL_DIRECTORY_CAPACITY = 16;
+
+    /**
+     * Packed chunk coordinates of the chunk in each slot of the chunk directory.
+     */
+    private long[] chunkKeys;
+
+    /**
+     * Number of the chunk in each slot of the chunk directory, or NONE if the slot is empty.
+     */
+    private int[] chunkNumbers;
+
+    /**
+     * Mask selecting a slot of the chunk directory from a hash code.
+     */
+    private int mask;
+
+    /**
+     * Number of chunks in the chunk directory. Chunks are numbered in the order in which they are
+     * allocated.
+     */
+    private int chunkCount;
+
+    /**
+     * Number of map tiles in the grid.
+     */
+    private int size;
+
+    /**
+     * Packed chunk coordinates of the most recently used chunk.
+     */
+    private long lastChunkKey;
+
+    /**
+     * Number of the most recently used chunk, or NONE if no chunk was used yet.
+     */
+    private int lastChunkNumber;
+
+    /**
+     * Variants of the map tiles in each chunk, indexed by chunk number. Not used by subclasses
+     * that keep the contents of the chunks elsewhere.
+     */
+    private int[][] chunkVariants;
+
+    /**
+     * Ages of the map tiles in each chunk, indexed by chunk number. Not used by subclasses that
+     * keep the contents of the chunks elsewhere.
+     */
+    private int[][] chunkAges;
+
+    /**
+     * Construct an empty grid.
+     */
+    MapTileChunkGrid()
+    {
+        this.chunkKeys       = new long[ INITIAL_DIRECTORY_CAPACITY ];
+        this.chunkNumbers    = new int[ INITIAL_DIRECTORY_CAPACITY ];
+        this.mask            = INITIAL_DIRECTORY_CAPACITY - 1;
+        this.chunkCount      = 0;
+        this.size            = 0;
+        this.lastChunkKey    = 0;
+        this.lastChunkNumber = NONE;
+        this.chunkVariants   = new int[ INITIAL_DIRECTORY_CAPACITY ][];
+        this.chunkAges       = new int[ INITIAL_DIRECTORY_CAPACITY ][];
+
+        Arrays.fill( chunkNumbers, NONE );
+    }
+
+    /**
+     * Get the number of map tiles in the grid.
+     *
+     * @return The number of map tiles in the grid.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Get the variant of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The variant of the map tile, or NONE if the map tile location is empty.
+     */
+    public int getVariant( int x, int y )
+    {
+        int chunkNumber = findChunk( x, y );
+
+        if ( chunkNumber == NONE )
+        {
+            return NONE;
+        }
+
+        return readVariant( chunkNumber, getCellIndex( x, y ));
+    }
+
+    /**
+     * Get the age of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The age of the map tile, or NONE if the map tile location is empty.
+     */
+    public int getAge( int x, int y )
+    {
+        int chunkNumber = findChunk( x, y );
+
+        if ( chunkNumber == NONE )
+        {
+            return NONE;
+        }
+
+        int cellIndex = getCellIndex( x, y );
+
+        if ( readVariant( chunkNumber, cellIndex ) == NONE )
+        {
+            return NONE;
+        }
+
+        return readAge( chunkNumber, cellIndex );
+    }
+
+    /**
+     * Put a map tile at a map tile location, replacing the map tile that was there.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     * @param variant
+     *            Variant of the map tile. Cannot be negative.
+     * @param age
+     *            Age of the map tile. Cannot be negative.
+     */
+    public void put( int x, int y, int variant, int age )
+    {
+        int chunkNumber = findChunk( x, y );
+
+        if ( chunkNumber == NONE )
+        {
+            chunkNumber = addChunk( x, y );
+        }
+
+        int cellIndex = getCellIndex( x, y );
+
+        if ( readVariant( chunkNumber, cellIndex ) == NONE )
+        {
+            size++;
+        }
+
+        write( chunkNumber, cellIndex, variant, age );
+    }
+
+    /**
+     * Remove the map tile at a map tile location. Nothing happens if the map tile location is
+     * empty.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     */
+    public void remove( int x, int y )
+    {
+        int chunkNumber = findChunk( x, y );
+
+        if ( chunkNumber == NONE )
+        {
+            return;
+        }
+
+        int cellIndex = getCellIndex( x, y );
+
+        if ( readVariant( chunkNumber, cellIndex ) != NONE )
+        {
+            write( chunkNumber, cellIndex, NONE, 0 );
+            size--;
+        }
+    }
+
+    /**
+     * Visit every map tile in the grid, in no particular order.
+     *
+     * @param visitor
+     *            Visitor to inform of each map tile.
+     */
+    public void visit( Visitor visitor )
+    {
+        for ( int slot = 0; slot < chunkNumbers.length; slot++ )
+        {
+            int chunkNumber = chunkNumbers[ slot ];
+
+            if ( chunkNumber == NONE )
+            {
+                continue;
+            }
+
+            int chunkX = (int) ( chunkKeys[ slot ] >> 32 ) << CHUNK_SHIFT;
+            int chunkY = (int) chunkKeys[ slot ] << CHUNK_SHIFT;
+
+            for ( int cellIndex = 0; cellIndex < CELL_COUNT; cellIndex++ )
+            {
+                int variant = readVariant( chunkNumber, cellIndex );
+
+                if ( variant != NONE )
+                {
+                    visitor.visit( chunkX + ( cellIndex & CHUNK_MASK ),
+                                   chunkY + ( cellIndex >> CHUNK_SHIFT ), variant,
+                                   readAge( chunkNumber, cellIndex ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the chunks of the grid. Nothing has to be done for chunks kept on the heap.
+     */
+    public void close()
+    {
+    }
+
+    /**
+     * Get a read-only view of the variants of a chunk, without copying them. The view holds the
+     * variant of each map tile location of the chunk, row by row, or NONE for empty map tile
+     * locations. The view reflects later changes to the chunk.
+     *
+     * @param chunkX
+     *            X coordinate of the chunk, which is the X coordinate of its map tile locations
+     *            divided by the chunk size, rounded down.
+     * @param chunkY
+     *            Y coordinate of the chunk, which is the Y coordinate of its map tile locations
+     *            divided by the chunk size, rounded down.
+     *
+     * @return The view of the variants of the chunk, or null if the chunk was not allocated.
+     */
+    IntBuffer getVariantView( int chunkX, int chunkY )
+    {
+        int chunkNumber = findChunk( chunkX << CHUNK_SHIFT, chunkY << CHUNK_SHIFT );
+
+        if ( chunkNumber == NONE )
+        {
+            return null;
+        }
+
+        return viewVariants( chunkNumber );
+    }
+
+    /**
+     * Allocate the contents of a new chunk, with all map tile locations empty.
+     *
+     * @param chunkNumber
+     *            Number of the new chunk. Chunks are allocated in increasing order of their
+     *            numbers.
+     */
+    void allocateChunk( int chunkNumber )
+    {
+        if ( chunkNumber == chunkVariants.length )
+        {
+            chunkVariants = Arrays.copyOf( chunkVariants, chunkNumber * 2 );
+            chunkAges     = Arrays.copyOf( chunkAges, chunkNumber * 2 );
+        }
+
+        chunkVariants[ chunkNumber ] = new int[ CELL_COUNT ];
+        chunkAges[ chunkNumber ]     = new int[ CELL_COUNT ];
+
+        Arrays.fill( chunkVariants[ chunkNumber ], NONE );
+    }
+
+    /**
+     * Read the variant at a map tile location of a chunk.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     * @param cellIndex
+     *            Index of the map tile location within the chunk.
+     *
+     * @return The variant, or NONE if the map tile location is empty.
+     */
+    int readVariant( int chunkNumber, int cellIndex )
+    {
+        return chunkVariants[ chunkNumber ][ cellIndex ];
+    }
+
+    /**
+     * Read the age at a map tile location of a chunk.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     * @param cellIndex
+     *            Index of the map tile location within the chunk.
+     *
+     * @return The age.
+     */
+    int readAge( int chunkNumber, int cellIndex )
+    {
+        return chunkAges[ chunkNumber ][ cellIndex ];
+    }
+
+    /**
+     * Write the variant and the age at a map tile location of a chunk.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     * @param cellIndex
+     *            Index of the map tile location within the chunk.
+     * @param variant
+     *            Variant, or NONE to empty the map tile location.
+     * @param age
+     *            Age.
+     */
+    void write( int chunkNumber, int cellIndex, int variant, int age )
+    {
+        chunkVariants[ chunkNumber ][ cellIndex ] = variant;
+        chunkAges[ chunkNumber ][ cellIndex ]     = age;
+    }
+
+    /**
+     * Get a read-only view of the variants of a chunk, without copying them.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     *
+     * @return The view of the variants of the chunk.
+     */
+    IntBuffer viewVariants( int chunkNumber )
+    {
+        return IntBuffer.wrap( chunkVariants[ chunkNumber ] ).asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the index of a map tile location within its chunk.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The index of the map tile location within its chunk.
+     */
+    private static int getCellIndex( int x, int y )
+    {
+        return (( y & CHUNK_MASK ) << CHUNK_SHIFT ) | ( x & CHUNK_MASK );
+    }
+
+    /**
+     * Find the chunk containing a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The number of the chunk containing the map tile location, or NONE if it was not
+     *         allocated yet.
+     */
+    private int findChunk( int x, int y )
+    {
+        long chunkKey = MapTileTable.pack( x >> CHUNK_SHIFT, y >> CHUNK_SHIFT );
+
+        if (( lastChunkNumber != NONE ) && ( chunkKey == lastChunkKey ))
+        {
+            return lastChunkNumber;
+        }
+
+        int slot = MapTileTable.hash( chunkKey ) & mask;
+
+        while ( chunkNumbers[ slot ] != NONE )
+        {
+            if ( chunkKeys[ slot ] == chunkKey )
+            {
+                lastChunkKey    = chunkKey;
+                lastChunkNumber = chunkNumbers[ slot ];
+                return lastChunkNumber;
+            }
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Allocate the chunk containing a map tile location and add it to the chunk directory.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The number of the allocated chunk.
+     */
+    private int addChunk( int x, int y )
+    {
+        if (( chunkCount + 1 ) * 2 > chunkNumbers.length )
+        {
+            growDirectory();
+        }
+
+        long chunkKey = MapTileTable.pack( x >> CHUNK_SHIFT, y >> CHUNK_SHIFT );
+        int chunkNumber = chunkCount;
+        allocateChunk( chunkNumber );
+        insertChunk( chunkKey, chunkNumber );
+        chunkCount++;
+
+        lastChunkKey    = chunkKey;
+        lastChunkNumber = chunkNumber;
+        return chunkNumber;
+    }
+
+    /**
+     * Insert a chunk into an empty slot of the chunk directory.
+     *
+     * @param chunkKey
+     *            Packed chunk coordinates of the chunk.
+     * @param chunkNumber
+     *            Number of the chunk.
+     */
+    private void insertChunk( long chunkKey, int chunkNumber )
+    {
+        int slot = MapTileTable.hash( chunkKey ) & mask;
+
+        while ( chunkNumbers[ slot ] != NONE )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+
+        chunkKeys[ slot ]    = chunkKey;
+        chunkNumbers[ slot ] = chunkNumber;
+    }
+
+    /**
+     * Double the number of slots in the chunk directory.
+     */
+    private void growDirectory()
+    {
+        long[] oldChunkKeys = chunkKeys;
+        int[] oldChunkNumbers = chunkNumbers;
+
+        chunkKeys    = new long[ oldChunkNumbers.length * 2 ];
+        chunkNumbers = new int[ oldChunkNumbers.length * 2 ];
+        mask         = chunkNumbers.length - 1;
+
+        Arrays.fill( chunkNumbers, NONE );
+
+        for ( int i = 0; i < oldChunkNumbers.length; i++ )
+        {
+            if ( oldChunkNumbers[ i ] != NONE )
+            {
+                insertChunk( oldChunkKeys[ i ], oldChunkNumbers[ i ] );
+            }
+        }
+    }
+}
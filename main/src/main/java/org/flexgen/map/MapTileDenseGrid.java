@@ -0,0 +1,307 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the map tiles placed by a map generator whose map fits a known rectangle. The
+ * variant and the age of every map tile location in the rectangle are kept in flat arrays, indexed
+ * by the offset of the map tile location from the corner of the rectangle, so finding a map tile
+ * or one of its neighbors costs no more than an array access. Map tiles that are placed outside of
+ * the rectangle are kept in a small hash table.
+ */
+class MapTileDenseGrid implements MapTileStore
+{
+    /**
+     * Largest number of map tile locations the rectangle of a dense grid can cover.
+     */
+    static final int MAX_CELL_COUNT = 1 << 24;
+
+    /**
+     * Smallest X coordinate of the rectangle.
+     */
+    private final int minX;
+
+    /**
+     * Smallest Y coordinate of the rectangle.
+     */
+    private final int minY;
+
+    /**
+     * Number of map tile locations in each row of the rectangle.
+     */
+    private final int width;
+
+    /**
+     * Number of map tile locations in each column of the rectangle.
+     */
+    private final int height;
+
+    /**
+     * Variant of the map tile at each map tile location in the rectangle, or NONE if the map tile
+     * location is empty.
+     */
+    private final int[] variants;
+
+    /**
+     * Age of the map tile at each map tile location in the rectangle.
+     */
+    private final int[] ages;
+
+    /**
+     * Map tiles placed outside of the rectangle.
+     */
+    private final MapTileTable overflow;
+
+    /**
+     * Number of map tiles in the rectangle.
+     */
+    private int size;
+
+    /**
+     * Construct an empty dense grid covering the bounds of a map tile location filter.
+     *
+     * @param mapTileLocationFilter
+     *            Map tile location filter whose bounds give the rectangle. The rectangle cannot
+     *            cover more than MAX_CELL_COUNT map tile locations.
+     */
+    MapTileDenseGrid( MapTileLocationFilter mapTileLocationFilter )
+    {
+        if ( ! fits( mapTileLocationFilter.getMinX(), mapTileLocationFilter.getMinY(),
+                     mapTileLocationFilter.getMaxX(), mapTileLocationFilter.getMaxY() ))
+        {
+            throw new IllegalArgumentException(
+                    "Dense storage cannot cover more than " + MAX_CELL_COUNT +
+                    " map tile locations." );
+        }
+
+        this.minX     = mapTileLocationFilter.getMinX();
+        this.minY     = mapTileLocationFilter.getMinY();
+        this.width    = mapTileLocationFilter.getMaxX() - minX + 1;
+        this.height   = mapTileLocationFilter.getMaxY() - minY + 1;
+        this.variants = new int[ width * height ];
+        this.ages     = new int[ width * height ];
+        this.overflow = new MapTileTable();
+        this.size     = 0;
+
+        Arrays.fill( variants, NONE );
+    }
+
+    /**
+     * Determine whether or not a dense grid can cover a rectangle.
+     *
+     * @param minX
+     *            Smallest X coordinate of the rectangle.
+     * @param minY
+     *            Smallest Y coordinate of the rectangle.
+     * @param maxX
+     *            Largest X coordinate of the rectangle.
+     * @param maxY
+     *            Largest Y coordinate of the rectangle.
+     *
+     * @return True if the rectangle covers no more than MAX_CELL_COUNT map tile locations, false
+     *         otherwise.
+     */
+    static boolean fits( int minX, int minY, int maxX, int maxY )
+    {
+        long cellCount = (((long) maxX - minX ) + 1 ) * (((long) maxY - minY ) + 1 );
+        return ( cellCount > 0 ) && ( cellCount <= MAX_CELL_COUNT );
+    }
+
+    /**
+     * Get the number of map tiles in the grid.
+     *
+     * @return The number of map tiles in the grid.
+     */
+    public int size()
+    {
+        return size + overflow.size();
+    }
+
+    /**
+     * Get the variant of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The variant of the map tile, or NONE if the map tile location is empty.
+     */
+    public int getVariant( int x, int y )
+    {
+        int index = indexOf( x, y );
+
+        if ( index < 0 )
+        {
+            return overflow.getVariant( x, y );
+        }
+
+        return variants[ index ];
+    }
+
+    /**
+     * Get the age of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The age of the map tile, or NONE if the map tile location is empty.
+     */
+    public int getAge( int x, int y )
+    {
+        int index = indexOf( x, y );
+
+        if ( index < 0 )
+        {
+            return overflow.getAge( x, y );
+        }
+
+        if ( variants[ index ] == NONE )
+        {
+            return NONE;
+        }
+
+        return ages[ index ];
+    }
+
+    /**
+     * Put a map tile at a map tile location, replacing the map tile that was there.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     * @param variant
+     *            Variant of the map tile. Cannot be negative.
+     * @param age
+     *            Age of the map tile. Cannot be negative.
+     */
+    public void put( int x, int y, int variant, int age )
+    {
+        int index = indexOf( x, y );
+
+        if ( index < 0 )
+        {
+            overflow.put( x, y, variant, age );
+            return;
+        }
+
+        if ( variants[ index ] == NONE )
+        {
+            size++;
+        }
+
+        variants[ index ] = variant;
+        ages[ index ]     = age;
+    }
+
+    /**
+     * Remove the map tile at a map tile location. Nothing happens if the map tile location is
+     * empty.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     */
+    public void remove( int x, int y )
+    {
+        int index = indexOf( x, y );
+
+        if ( index < 0 )
+        {
+            overflow.remove( x, y );
+            return;
+        }
+
+        if ( variants[ index ] != NONE )
+        {
+            variants[ index ] = NONE;
+            size--;
+        }
+    }
+
+    /**
+     * Visit every map tile in the grid, in no particular order.
+     *
+     * @param visitor
+     *            Visitor to inform of each map tile.
+     */
+    public void visit( Visitor visitor )
+    {
+        for ( int index = 0; index < variants.length; index++ )
+        {
+            if ( variants[ index ] != NONE )
+            {
+                visitor.visit( minX + ( index % width ), minY + ( index / width ),
+                               variants[ index ], ages[ index ] );
+            }
+        }
+
+        overflow.visit( visitor );
+    }
+
+    /**
+     * Release the resources held by the grid. Nothing has to be done for a grid kept on the heap.
+     */
+    public void close()
+    {
+    }
+
+    /**
+     * Get the index into the arrays of a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The index of the map tile location, or -1 if it is outside of the rectangle.
+     */
+    private int indexOf( int x, int y )
+    {
+        int column = x - minX;
+        int row    = y - minY;
+
+        if (( column < 0 ) || ( column >= width ) || ( row < 0 ) || ( row >= height ))
+        {
+            return -1;
+        }
+
+        return ( row * width ) + column;
+    }
+}
@@ -0,0 +1,420 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class keeping track of the candidate domains of the open locations of a map generator, together
+ * with the dead locations, the variants rejected by propagation, and the map tile location queue.
+ */
+class MapTileDomainTracker
+{
+    /**
+     * Map generator whose open locations are tracked.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Map tile set of the map generator.
+     */
+    private final MapTileSet mapTileSet;
+
+    /**
+     * Variants that are excluded for various locations in the map.
+     */
+    private final MapTileExclusionStore mapTileExclusionStore;
+
+    /**
+     * Open locations of the map generator.
+     */
+    private final OpenLocationSet openLocations;
+
+    /**
+     * Open locations closed since the candidate domains were last updated. Their candidate domains
+     * are dropped by the next update, unless they were opened again in the meantime.
+     */
+    private final List< MapTileLocation > closedLocations;
+
+    /**
+     * Candidate domains of the open locations on the map. Maps each open location to the map tile
+     * candidates that can legally be placed there, taking excluded map tiles into account. The
+     * domain of an open location is only recomputed when one of its neighbors or its excluded map
+     * tiles change.
+     */
+    private final Map< MapTileLocation, MapTileCandidates > mapTileDomains;
+
+    /**
+     * Set of dead locations on the map. A dead location is an open location whose candidate domain
+     * is empty. The set is kept up to date along with the candidate domains.
+     */
+    private final Set< MapTileLocation > deadLocations;
+
+    /**
+     * Bit sets of the variants that were rejected by propagation for various open locations in the
+     * map. Rejected variants are left out of the candidate domains until the map changes.
+     */
+    private final Map< MapTileLocation, long[] > rejectedVariantSets;
+
+    /**
+     * Priority queue of the open locations that are allowed by the map tile location filter,
+     * ordered according to the map tile selection mode. Only kept up to date when the map tile
+     * selection mode selects a map tile location first.
+     */
+    private final MapTileLocationQueue mapTileLocationQueue;
+
+    /**
+     * Construct a map tile domain tracker.
+     *
+     * @param mapGenerator
+     *            Map generator whose open locations are tracked.
+     * @param mapTileSet
+     *            Map tile set of the map generator.
+     * @param mapTileExclusionStore
+     *            Variants that are excluded for various locations in the map.
+     * @param openLocations
+     *            Open locations of the map generator.
+     */
+    MapTileDomainTracker( MapGenerator mapGenerator, MapTileSet mapTileSet,
+                          MapTileExclusionStore mapTileExclusionStore,
+                          OpenLocationSet openLocations )
+    {
+        this.mapGenerator          = mapGenerator;
+        this.mapTileSet            = mapTileSet;
+        this.mapTileExclusionStore = mapTileExclusionStore;
+        this.openLocations         = openLocations;
+        this.closedLocations       = new ArrayList< MapTileLocation >();
+        this.mapTileDomains        = new HashMap< MapTileLocation, MapTileCandidates >();
+        this.deadLocations         = new LinkedHashSet< MapTileLocation >();
+        this.rejectedVariantSets   = new HashMap< MapTileLocation, long[] >();
+        this.mapTileLocationQueue  = new MapTileLocationQueue();
+    }
+
+    /**
+     * Get the set of dead locations.
+     *
+     * @return The set of dead locations.
+     */
+    Set< MapTileLocation > getDeadLocations()
+    {
+        return deadLocations;
+    }
+
+    /**
+     * Get the candidate domain of an open location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to get the candidate domain.
+     *
+     * @return The candidate domain of the map tile location, or null if the map tile location is
+     *         not an open location.
+     */
+    MapTileCandidates getOpenLocationDomain( MapTileLocation mapTileLocation )
+    {
+        return mapTileDomains.get( mapTileLocation );
+    }
+
+    /**
+     * Get the candidate domain of an empty map tile location, computing it if the map tile location
+     * is not an open location.
+     *
+     * @param mapTileLocation
+     *            Empty map tile location for which to get the candidate domain.
+     *
+     * @return The candidate domain of the map tile location.
+     */
+    MapTileCandidates getMapTileDomain( MapTileLocation mapTileLocation )
+    {
+        MapTileCandidates mapTileDomain = mapTileDomains.get( mapTileLocation );
+
+        if ( mapTileDomain == null )
+        {
+            mapTileDomain = computeMapTileDomain( mapTileLocation );
+        }
+
+        return mapTileDomain;
+    }
+
+    /**
+     * Get the open location at the head of the map tile location queue.
+     *
+     * @return The open location at the head of the map tile location queue, or null if the queue
+     *         is empty.
+     */
+    MapTileLocation peekMapTileLocationQueue()
+    {
+        return mapTileLocationQueue.peek();
+    }
+
+    /**
+     * Get the number of open locations in the map tile location queue.
+     *
+     * @return The number of open locations in the map tile location queue.
+     */
+    int getMapTileLocationQueueSize()
+    {
+        return mapTileLocationQueue.size();
+    }
+
+    /**
+     * Rebuild the map tile location queue after the map tile selection mode changed.
+     *
+     * @param openLocations
+     *            Open locations of the map.
+     */
+    void rebuildMapTileLocationQueue( Iterable< MapTileLocation > openLocations )
+    {
+        mapTileLocationQueue.clear();
+
+        for ( MapTileLocation mapTileLocation : openLocations )
+        {
+            updateMapTileLocationQueue( mapTileLocation );
+        }
+    }
+
+    /**
+     * Reject a variant at an open location until the map changes.
+     *
+     * @param mapTileLocation
+     *            Open location at which to reject the variant.
+     * @param variant
+     *            Variant to reject.
+     */
+    void rejectVariant( MapTileLocation mapTileLocation, int variant )
+    {
+        long[] rejectedVariantSet = rejectedVariantSets.get( mapTileLocation );
+
+        if ( rejectedVariantSet == null )
+        {
+            rejectedVariantSet = new long[ mapTileSet.getAllVariantWordCount() ];
+            rejectedVariantSets.put( mapTileLocation, rejectedVariantSet );
+        }
+
+        rejectedVariantSet[ variant / 64 ] |= 1L << ( variant % 64 );
+        updateMapTileDomain( mapTileLocation );
+    }
+
+    /**
+     * Determine whether or not any map tiles were rejected by propagation since the map last
+     * changed.
+     *
+     * @return True if rejected map tiles exist, false otherwise.
+     */
+    boolean rejectedMapTilesExist()
+    {
+        return ! rejectedVariantSets.isEmpty();
+    }
+
+    /**
+     * Clear all rejected map tiles.
+     */
+    void clearRejectedMapTiles()
+    {
+        if ( rejectedVariantSets.isEmpty() )
+        {
+            return;
+        }
+
+        List< MapTileLocation > mapTileLocations =
+                new ArrayList< MapTileLocation >( rejectedVariantSets.keySet() );
+
+        rejectedVariantSets.clear();
+
+        for ( MapTileLocation mapTileLocation : mapTileLocations )
+        {
+            updateMapTileDomain( mapTileLocation );
+        }
+    }
+
+    /**
+     * Record that an open location was closed, so that its candidate domain is dropped by the next
+     * call to updateMapTileDomains().
+     *
+     * @param mapTileLocation
+     *            Open location that was closed.
+     */
+    void locationClosed( MapTileLocation mapTileLocation )
+    {
+        closedLocations.add( mapTileLocation );
+    }
+
+    /**
+     * Update the candidate domains of a map tile location and its four neighbors. Called after a
+     * map tile is added to or removed from the map tile location. The neighbors are looked up by
+     * their coordinates, so no map tile locations are created; neighbors that were closed are
+     * known from the calls to locationClosed().
+     *
+     * @param mapTileLocation
+     *            Map tile location at which a map tile was added or removed.
+     */
+    void updateMapTileDomains( MapTileLocation mapTileLocation )
+    {
+        int x = mapTileLocation.getX();
+        int y = mapTileLocation.getY();
+
+        updateMapTileDomain( mapTileLocation );
+        updateOpenLocationDomain( x,     y - 1 );
+        updateOpenLocationDomain( x + 1, y     );
+        updateOpenLocationDomain( x,     y + 1 );
+        updateOpenLocationDomain( x - 1, y     );
+
+        for ( int i = 0; i < closedLocations.size(); i++ )
+        {
+            if ( ! openLocations.contains( closedLocations.get( i )))
+            {
+                updateMapTileDomain( closedLocations.get( i ));
+            }
+        }
+
+        closedLocations.clear();
+    }
+
+    /**
+     * Update the candidate domain of the map tile location with the specified coordinates, if it
+     * is an open location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     */
+    private void updateOpenLocationDomain( int x, int y )
+    {
+        MapTileLocation mapTileLocation = openLocations.get( x, y );
+
+        if ( mapTileLocation != null )
+        {
+            updateMapTileDomain( mapTileLocation );
+        }
+    }
+
+    /**
+     * Update the candidate domain of a map tile location. The map tile location only has a
+     * candidate domain if it is an open location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to update the candidate domain.
+     */
+    void updateMapTileDomain( MapTileLocation mapTileLocation )
+    {
+        if ( ! mapGenerator.isOpenLocation( mapTileLocation ))
+        {
+            mapTileDomains.remove( mapTileLocation );
+            deadLocations.remove( mapTileLocation );
+            mapTileLocationQueue.remove( mapTileLocation );
+            return;
+        }
+
+        MapTileCandidates mapTileDomain = computeMapTileDomain( mapTileLocation );
+
+        mapTileDomains.put( mapTileLocation, mapTileDomain );
+        updateMapTileLocationQueue( mapTileLocation );
+
+        if ( mapTileDomain.isEmpty() )
+        {
+            deadLocations.add( mapTileLocation );
+        }
+        else
+        {
+            deadLocations.remove( mapTileLocation );
+        }
+    }
+
+    /**
+     * Update the priority of an open location in the map tile location queue. Nothing happens if
+     * the map tile selection mode does not select a map tile location first, or if the open
+     * location is not allowed by the map tile location filter.
+     *
+     * @param mapTileLocation
+     *            Open location for which to update the priority.
+     */
+    private void updateMapTileLocationQueue( MapTileLocation mapTileLocation )
+    {
+        MapTileSelectionMode mapTileSelectionMode = mapGenerator.getMapTileSelectionMode();
+
+        if ( mapTileSelectionMode == MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE )
+        {
+            return;
+        }
+
+        if (( ! mapTileLocationQueue.contains( mapTileLocation )) &&
+            ( ! openLocations.isAllowed( mapTileLocation )))
+        {
+            return;
+        }
+
+        MapTileCandidates mapTileDomain = mapTileDomains.get( mapTileLocation );
+
+        if ( mapTileSelectionMode == MapTileSelectionMode.MINIMUM_VARIANT_COUNT )
+        {
+            mapTileLocationQueue.update( mapTileLocation, mapTileDomain.getVariantCount() );
+        }
+        else
+        {
+            mapTileLocationQueue.update( mapTileLocation, mapTileDomain.getEntropy() );
+        }
+    }
+
+    /**
+     * Compute the candidate domain of an empty map tile location from its neighbors and its
+     * excluded and rejected map tiles.
+     *
+     * @param mapTileLocation
+     *            Empty map tile location for which to compute the candidate domain.
+     *
+     * @return The candidate domain of the map tile location.
+     */
+    private MapTileCandidates computeMapTileDomain( MapTileLocation mapTileLocation )
+    {
+        MapTileCandidates mapTileDomain = mapGenerator.getMapTileCandidates( mapTileLocation );
+        MapTileExclusion mapTileExclusion = mapTileExclusionStore.get( mapTileLocation );
+        long[] rejectedVariantSet = rejectedVariantSets.get( mapTileLocation );
+
+        if ( mapTileExclusion != null )
+        {
+            mapTileDomain = mapTileDomain.withoutVariants( mapTileExclusion.getVariantSet() );
+        }
+
+        if ( rejectedVariantSet != null )
+        {
+            mapTileDomain = mapTileDomain.withoutVariants( rejectedVariantSet );
+        }
+
+        return mapTileDomain;
+    }
+}
@@ -50,6 +50,12 @@ public class MapTileEdge
      */
     private final Collection< MapTileEdge > matchingMapTileEdges;
 
+    /**
+     * Flag indicating whether or not the collection of matching map tile edges can no longer be
+     * changed.
+     */
+    private volatile boolean frozen;
+
     /**
      * Construct a map tile edge.
      *
@@ -65,13 +71,15 @@ public class MapTileEdge
 
         this.name                 = name;
         this.matchingMapTileEdges = new LinkedList< MapTileEdge >();
+        this.frozen               = false;
     }
 
     /**
      * Add a map tile edge to the collection of map tile edges that match this map tile edge. It is
      * assumed that this map tile edge will match with itself if no matching map tile edges are
      * added, otherwise you must explicitly add this map tile edge as a matching map tile edge to
-     * itself in order to ensure it will match with itself.
+     * itself in order to ensure it will match with itself. Matching map tile edges cannot be added
+     * once this map tile edge has been frozen.
      *
      * @param mapTileEdge
      *            Map tile edge to add to the collection of map tile edges that match this map tile
@@ -84,6 +92,12 @@ public class MapTileEdge
             throw new IllegalArgumentException( "Parameter 'mapTileEdge' cannot be null." );
         }
 
+        if ( frozen )
+        {
+            throw new IllegalStateException( "Cannot add a matching map tile edge to a frozen " +
+                                             "map tile edge." );
+        }
+
         if ( matchingMapTileEdges.contains( mapTileEdge ))
         {
             throw new IllegalArgumentException(
@@ -93,6 +107,27 @@ public class MapTileEdge
         matchingMapTileEdges.add( mapTileEdge );
     }
 
+    /**
+     * Freeze this map tile edge so that no more matching map tile edges can be added to it. Map
+     * tile edges are frozen when they are compiled into a map tile set, since the map tile set
+     * captures which map tile edges match each other at that point. Freezing a map tile edge that
+     * is already frozen has no effect.
+     */
+    public void freeze()
+    {
+        frozen = true;
+    }
+
+    /**
+     * Determine whether or not this map tile edge has been frozen.
+     *
+     * @return True if this map tile edge has been frozen, false otherwise.
+     */
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
     /**
      * Determine if a specified map tile edge matches this map tile edge.
      *
@@ -68,6 +68,18 @@ public class MapTileEdgePosition
         MapTileEdgePosition.LEFT,
     };
 
+    /**
+     * Horizontal offsets of the neighbors of a map tile location, indexed by map tile edge
+     * position index.
+     */
+    static final int[] NEIGHBOR_X_OFFSETS = { 0, 1, 0, -1 };
+
+    /**
+     * Vertical offsets of the neighbors of a map tile location, indexed by map tile edge position
+     * index.
+     */
+    static final int[] NEIGHBOR_Y_OFFSETS = { -1, 0, 1, 0 };
+
     /**
      * Name of the map tile edge position.
      */
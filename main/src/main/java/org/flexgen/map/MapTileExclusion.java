@@ -0,0 +1,200 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing the variants excluded at a map tile location, together with the reason for
+ * excluding them. The reason is the set of map tiles that, together with any of the excluded
+ * variants, left some open location without a fitting variant. The exclusion holds for as long as
+ * all of those map tiles stay in place; it has no reason if it must hold indefinitely. Instances
+ * are immutable, so they can be kept on the undo log of the map generator as they are.
+ */
+class MapTileExclusion
+{
+    /**
+     * Bit set of the excluded variants.
+     */
+    private final long[] variantSet;
+
+    /**
+     * Locations of the map tiles that form the reason for the exclusion.
+     */
+    private final MapTileLocation[] reasonLocations;
+
+    /**
+     * Ages of the map tiles that form the reason for the exclusion, in the same order as their
+     * locations.
+     */
+    private final int[] reasonAges;
+
+    /**
+     * Construct a map tile exclusion.
+     *
+     * @param variantSet
+     *            Bit set of the excluded variants.
+     * @param reasonLocations
+     *            Locations of the map tiles that form the reason for the exclusion.
+     * @param reasonAges
+     *            Ages of the map tiles that form the reason for the exclusion, in the same order
+     *            as their locations.
+     */
+    MapTileExclusion( long[] variantSet, MapTileLocation[] reasonLocations, int[] reasonAges )
+    {
+        this.variantSet      = variantSet;
+        this.reasonLocations = reasonLocations;
+        this.reasonAges      = reasonAges;
+    }
+
+    /**
+     * Get the bit set of the excluded variants. The bit set must not be modified.
+     *
+     * @return The bit set of the excluded variants.
+     */
+    long[] getVariantSet()
+    {
+        return variantSet;
+    }
+
+    /**
+     * Get the number of map tiles that form the reason for the exclusion.
+     *
+     * @return The number of map tiles that form the reason for the exclusion.
+     */
+    int getReasonCount()
+    {
+        return reasonLocations.length;
+    }
+
+    /**
+     * Get the location of a map tile that forms part of the reason for the exclusion.
+     *
+     * @param index
+     *            Index of the map tile.
+     *
+     * @return The location of the map tile.
+     */
+    MapTileLocation getReasonLocation( int index )
+    {
+        return reasonLocations[ index ];
+    }
+
+    /**
+     * Get the age of a map tile that forms part of the reason for the exclusion.
+     *
+     * @param index
+     *            Index of the map tile.
+     *
+     * @return The age of the map tile.
+     */
+    int getReasonAge( int index )
+    {
+        return reasonAges[ index ];
+    }
+
+    /**
+     * Get a map tile exclusion that also excludes a variant, for the combined reasons of this
+     * exclusion and the new one.
+     *
+     * @param variant
+     *            Variant to exclude as well.
+     * @param newReasonLocations
+     *            Locations of the map tiles that form the reason for excluding the variant.
+     * @param newReasonAges
+     *            Ages of the map tiles that form the reason for excluding the variant, in the same
+     *            order as their locations.
+     *
+     * @return The combined map tile exclusion.
+     */
+    MapTileExclusion withVariant( int variant, MapTileLocation[] newReasonLocations,
+                                  int[] newReasonAges )
+    {
+        long[] combinedVariantSet = variantSet.clone();
+        combinedVariantSet[ variant / 64 ] |= 1L << ( variant % 64 );
+
+        MapTileLocation[] combinedReasonLocations =
+                new MapTileLocation[ reasonLocations.length + newReasonLocations.length ];
+        int[] combinedReasonAges = new int[ combinedReasonLocations.length ];
+        int count = reasonLocations.length;
+
+        System.arraycopy( reasonLocations, 0, combinedReasonLocations, 0, count );
+        System.arraycopy( reasonAges, 0, combinedReasonAges, 0, count );
+
+        for ( int i = 0; i < newReasonLocations.length; i++ )
+        {
+            if ( ! hasReason( newReasonLocations[ i ], newReasonAges[ i ] ))
+            {
+                combinedReasonLocations[ count ] = newReasonLocations[ i ];
+                combinedReasonAges[ count ] = newReasonAges[ i ];
+                count++;
+            }
+        }
+
+        if ( count < combinedReasonLocations.length )
+        {
+            MapTileLocation[] trimmedReasonLocations = new MapTileLocation[ count ];
+            int[] trimmedReasonAges = new int[ count ];
+
+            System.arraycopy( combinedReasonLocations, 0, trimmedReasonLocations, 0, count );
+            System.arraycopy( combinedReasonAges, 0, trimmedReasonAges, 0, count );
+
+            combinedReasonLocations = trimmedReasonLocations;
+            combinedReasonAges = trimmedReasonAges;
+        }
+
+        return new MapTileExclusion( combinedVariantSet, combinedReasonLocations,
+                                     combinedReasonAges );
+    }
+
+    /**
+     * Determine whether or not a map tile forms part of the reason for the exclusion.
+     *
+     * @param mapTileLocation
+     *            Location of the map tile.
+     * @param age
+     *            Age of the map tile.
+     *
+     * @return True if the map tile forms part of the reason for the exclusion, false otherwise.
+     */
+    private boolean hasReason( MapTileLocation mapTileLocation, int age )
+    {
+        for ( int i = 0; i < reasonLocations.length; i++ )
+        {
+            if (( reasonAges[ i ] == age ) && ( reasonLocations[ i ].equals( mapTileLocation )))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Collection;
+
+/**
+ * Class making the changes to the excluded variants of a map generator. Every change is recorded
+ * on the trail of the map generator so it can be undone, and the map tile exclusion store is kept
+ * within its capacity by evicting the oldest map tile locations from it.
+ */
+class MapTileExclusionRecorder
+{
+    /**
+     * Map generator whose excluded variants are changed.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Variants that are excluded for various locations in the map.
+     */
+    private final MapTileExclusionStore mapTileExclusionStore;
+
+    /**
+     * Undo log of the changes made to the map.
+     */
+    private final MapTileTrail mapTileTrail;
+
+    /**
+     * Construct a map tile exclusion recorder.
+     *
+     * @param mapGenerator
+     *            Map generator whose excluded variants are changed.
+     * @param mapTileExclusionStore
+     *            Variants that are excluded for various locations in the map.
+     * @param mapTileTrail
+     *            Undo log of the changes made to the map.
+     */
+    MapTileExclusionRecorder( MapGenerator mapGenerator,
+                              MapTileExclusionStore mapTileExclusionStore,
+                              MapTileTrail mapTileTrail )
+    {
+        this.mapGenerator          = mapGenerator;
+        this.mapTileExclusionStore = mapTileExclusionStore;
+        this.mapTileTrail          = mapTileTrail;
+    }
+
+    /**
+     * Exclude a variant at a map tile location, recording the change on the trail. If this makes
+     * the map tile exclusion store hold more map tile locations than its capacity, the oldest map
+     * tile locations are evicted from it.
+     *
+     * @param mapTileLocation
+     *            Map tile location at which to exclude the variant.
+     * @param variant
+     *            Variant to exclude.
+     * @param reasonLocations
+     *            Locations of the map tiles that caused the variant to be excluded, or null if the
+     *            variant is to be excluded until the exclusion is cleared.
+     */
+    void excludeVariant( MapTileLocation mapTileLocation, int variant,
+                         Collection< MapTileLocation > reasonLocations )
+    {
+        MapTileExclusion previousMapTileExclusion;
+
+        if ( reasonLocations == null )
+        {
+            previousMapTileExclusion =
+                    mapTileExclusionStore.exclude( mapTileLocation, variant, null, null );
+        }
+        else
+        {
+            MapTileLocation[] reasonLocationArray =
+                    reasonLocations.toArray( new MapTileLocation[ reasonLocations.size() ] );
+            int[] reasonAges = new int[ reasonLocationArray.length ];
+
+            for ( int i = 0; i < reasonLocationArray.length; i++ )
+            {
+                reasonAges[ i ] = mapGenerator.getAge( reasonLocationArray[ i ] );
+            }
+
+            previousMapTileExclusion = mapTileExclusionStore.exclude(
+                    mapTileLocation, variant, reasonLocationArray, reasonAges );
+        }
+
+        mapTileTrail.record( MapTileTrail.EXCLUDE, mapTileLocation, 0, 0,
+                             previousMapTileExclusion );
+        evictExcludedVariants();
+    }
+
+    /**
+     * Evict the oldest map tile locations from the map tile exclusion store until it holds no more
+     * map tile locations than its capacity.
+     */
+    void evictExcludedVariants()
+    {
+        MapTileLocation evictedMapTileLocation = mapTileExclusionStore.getEvictionCandidate();
+
+        while ( evictedMapTileLocation != null )
+        {
+            clearExcludedVariants( evictedMapTileLocation );
+            mapGenerator.updateMapTileDomain( evictedMapTileLocation );
+            evictedMapTileLocation = mapTileExclusionStore.getEvictionCandidate();
+        }
+    }
+
+    /**
+     * Clear the excluded variants of a map tile location, recording the change on the trail.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to clear the excluded variants.
+     */
+    void clearExcludedVariants( MapTileLocation mapTileLocation )
+    {
+        MapTileExclusion mapTileExclusion = mapTileExclusionStore.remove( mapTileLocation );
+
+        if ( mapTileExclusion != null )
+        {
+            mapTileTrail.record( MapTileTrail.EXCLUDE, mapTileLocation, 0, 0, mapTileExclusion );
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Class representing the variants excluded by a map generator while it recovers from bad open
+ * locations. The excluded variants of each map tile location are stored as a bit set. The store
+ * holds at most a fixed number of map tile locations; once it is full, the map tile location whose
+ * variants were excluded first is evicted, so memory use stays flat on long runs. Evicting an
+ * exclusion never makes generation incorrect, it only allows a variant to be tried again.
+ */
+class MapTileExclusionStore
+{
+    /**
+     * Reason used for exclusions that hold indefinitely.
+     */
+    private static final MapTileLocation[] NO_REASON_LOCATIONS = new MapTileLocation[ 0 ];
+
+    /**
+     * Ages used for exclusions that hold indefinitely.
+     */
+    private static final int[] NO_REASON_AGES = new int[ 0 ];
+
+    /**
+     * Number of 64-bit words in a variant bit set.
+     */
+    private final int variantWordCount;
+
+    /**
+     * Exclusions of the map tile locations, ordered by the time at which the map tile location
+     * was first added.
+     */
+    private final LinkedHashMap< MapTileLocation, MapTileExclusion > mapTileExclusions;
+
+    /**
+     * Maximum number of map tile locations held by the store.
+     */
+    private int capacity;
+
+    /**
+     * Construct an empty map tile exclusion store.
+     *
+     * @param variantWordCount
+     *            Number of 64-bit words in a variant bit set.
+     * @param capacity
+     *            Maximum number of map tile locations held by the store. Must be greater than 0.
+     */
+    MapTileExclusionStore( int variantWordCount, int capacity )
+    {
+        this.variantWordCount  = variantWordCount;
+        this.mapTileExclusions = new LinkedHashMap< MapTileLocation, MapTileExclusion >();
+        this.capacity          = capacity;
+    }
+
+    /**
+     * Get the maximum number of map tile locations held by the store.
+     *
+     * @return The maximum number of map tile locations held by the store.
+     */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Set the maximum number of map tile locations held by the store. Map tile locations beyond
+     * the new capacity remain in the store until they are evicted.
+     *
+     * @param capacity
+     *            Maximum number of map tile locations held by the store. Must be greater than 0.
+     */
+    void setCapacity( int capacity )
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the number of map tile locations held by the store.
+     *
+     * @return The number of map tile locations held by the store.
+     */
+    int size()
+    {
+        return mapTileExclusions.size();
+    }
+
+    /**
+     * Get the exclusion of a map tile location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to get the exclusion.
+     *
+     * @return The exclusion of the map tile location, or null if no variants are excluded at the
+     *         map tile location.
+     */
+    MapTileExclusion get( MapTileLocation mapTileLocation )
+    {
+        return mapTileExclusions.get( mapTileLocation );
+    }
+
+    /**
+     * Exclude a variant at a map tile location.
+     *
+     * @param mapTileLocation
+     *            Map tile location at which to exclude the variant.
+     * @param variant
+     *            Variant to exclude.
+     * @param reasonLocations
+     *            Locations of the map tiles that form the reason for excluding the variant, or
+     *            null if the exclusion holds indefinitely.
+     * @param reasonAges
+     *            Ages of the map tiles that form the reason for excluding the variant, in the same
+     *            order as their locations, or null if the exclusion holds indefinitely.
+     *
+     * @return The previous exclusion of the map tile location, or null if no variants were
+     *         excluded at the map tile location.
+     */
+    MapTileExclusion exclude( MapTileLocation mapTileLocation, int variant,
+                              MapTileLocation[] reasonLocations, int[] reasonAges )
+    {
+        MapTileExclusion previousMapTileExclusion = mapTileExclusions.get( mapTileLocation );
+        MapTileExclusion mapTileExclusion = previousMapTileExclusion;
+
+        if ( mapTileExclusion == null )
+        {
+            mapTileExclusion = new MapTileExclusion(
+                    new long[ variantWordCount ], NO_REASON_LOCATIONS, NO_REASON_AGES );
+        }
+
+        if ( reasonLocations == null )
+        {
+            mapTileExclusion = mapTileExclusion.withVariant( variant, NO_REASON_LOCATIONS,
+                                                             NO_REASON_AGES );
+        }
+        else
+        {
+            mapTileExclusion = mapTileExclusion.withVariant( variant, reasonLocations,
+                                                             reasonAges );
+        }
+
+        mapTileExclusions.put( mapTileLocation, mapTileExclusion );
+
+        return previousMapTileExclusion;
+    }
+
+    /**
+     * Set the exclusion of a map tile location.
+     *
+     * @param mapTileLocation
+     *            Map tile location for which to set the exclusion.
+     * @param mapTileExclusion
+     *            Exclusion of the map tile location, or null if no variants are to be excluded at
+     *            the map tile location.
+     */
+    void put( MapTileLocation mapTileLocation, MapTileExclusion mapTileExclusion )
+    {
+        if ( mapTileExclusion == null )
+        {
+            mapTileExclusions.remove( mapTileLocation );
+        }
+        else
+        {
+            mapTileExclusions.put( mapTileLocation, mapTileExclusion );
+        }
+    }
+
+    /**
+     * Remove a map tile location from the store.
+     *
+     * @param mapTileLocation
+     *            Map tile location to remove.
+     *
+     * @return The exclusion of the map tile location, or null if no variants were excluded at the
+     *         map tile location.
+     */
+    MapTileExclusion remove( MapTileLocation mapTileLocation )
+    {
+        return mapTileExclusions.remove( mapTileLocation );
+    }
+
+    /**
+     * Get the map tile location that is evicted next if the store holds more map tile locations
+     * than its capacity.
+     *
+     * @return The map tile location to evict, or null if the store is not over its capacity.
+     */
+    MapTileLocation getEvictionCandidate()
+    {
+        if ( mapTileExclusions.size() <= capacity )
+        {
+            return null;
+        }
+
+        return mapTileExclusions.keySet().iterator().next();
+    }
+}
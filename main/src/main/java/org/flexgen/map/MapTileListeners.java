@@ -0,0 +1,238 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class holding the map tile listeners of a map generator and notifying them of the map tiles
+ * being added to and removed from the map. The listeners are kept in array lists and notified by
+ * index, so notifying them allocates nothing.
+ */
+class MapTileListeners
+{
+    /**
+     * Map generator whose map tile listeners are held.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * List of "before map tile added" listeners.
+     */
+    private final List< BeforeMapTileAddedListener > beforeMapTileAddedListeners;
+
+    /**
+     * List of "before map tile removed" listeners.
+     */
+    private final List< BeforeMapTileRemovedListener > beforeMapTileRemovedListeners;
+
+    /**
+     * List of "map tile added" listeners.
+     */
+    private final List< MapTileAddedListener > mapTileAddedListeners;
+
+    /**
+     * List of "map tile removed" listeners.
+     */
+    private final List< MapTileRemovedListener > mapTileRemovedListeners;
+
+    /**
+     * List of "map tile added" listeners that are notified by coordinates.
+     */
+    private final List< MapTileAddedCoordinatesListener > mapTileAddedCoordinatesListeners;
+
+    /**
+     * List of "map tile removed" listeners that are notified by coordinates.
+     */
+    private final List< MapTileRemovedCoordinatesListener > mapTileRemovedCoordinatesListeners;
+
+    /**
+     * Construct an empty set of map tile listeners.
+     *
+     * @param mapGenerator
+     *            Map generator whose map tile listeners are held.
+     */
+    MapTileListeners( MapGenerator mapGenerator )
+    {
+        this.mapGenerator                       = mapGenerator;
+        this.beforeMapTileAddedListeners        = new ArrayList< BeforeMapTileAddedListener >();
+        this.beforeMapTileRemovedListeners      =
+                new ArrayList< BeforeMapTileRemovedListener >();
+        this.mapTileAddedListeners              = new ArrayList< MapTileAddedListener >();
+        this.mapTileRemovedListeners            = new ArrayList< MapTileRemovedListener >();
+        this.mapTileAddedCoordinatesListeners   =
+                new ArrayList< MapTileAddedCoordinatesListener >();
+        this.mapTileRemovedCoordinatesListeners =
+                new ArrayList< MapTileRemovedCoordinatesListener >();
+    }
+
+    /**
+     * Add a new "before map tile added" listener.
+     *
+     * @param beforeMapTileAddedListener
+     *            The listener to add.
+     */
+    void addBeforeMapTileAddedListener( BeforeMapTileAddedListener beforeMapTileAddedListener )
+    {
+        beforeMapTileAddedListeners.add( beforeMapTileAddedListener );
+    }
+
+    /**
+     * Add a new "before map tile removed" listener.
+     *
+     * @param beforeMapTileRemovedListener
+     *            The listener to add.
+     */
+    void addBeforeMapTileRemovedListener(
+            BeforeMapTileRemovedListener beforeMapTileRemovedListener )
+    {
+        beforeMapTileRemovedListeners.add( beforeMapTileRemovedListener );
+    }
+
+    /**
+     * Add a new "map tile added" listener.
+     *
+     * @param mapTileAddedListener
+     *            The listener to add.
+     */
+    void addMapTileAddedListener( MapTileAddedListener mapTileAddedListener )
+    {
+        mapTileAddedListeners.add( mapTileAddedListener );
+    }
+
+    /**
+     * Add a new "map tile removed" listener.
+     *
+     * @param mapTileRemovedListener
+     *            The listener to add.
+     */
+    void addMapTileRemovedListener( MapTileRemovedListener mapTileRemovedListener )
+    {
+        mapTileRemovedListeners.add( mapTileRemovedListener );
+    }
+
+    /**
+     * Add a new "map tile added" listener that is notified by coordinates.
+     *
+     * @param mapTileAddedCoordinatesListener
+     *            The listener to add.
+     */
+    void addMapTileAddedCoordinatesListener(
+            MapTileAddedCoordinatesListener mapTileAddedCoordinatesListener )
+    {
+        mapTileAddedCoordinatesListeners.add( mapTileAddedCoordinatesListener );
+    }
+
+    /**
+     * Add a new "map tile removed" listener that is notified by coordinates.
+     *
+     * @param mapTileRemovedCoordinatesListener
+     *            The listener to add.
+     */
+    void addMapTileRemovedCoordinatesListener(
+            MapTileRemovedCoordinatesListener mapTileRemovedCoordinatesListener )
+    {
+        mapTileRemovedCoordinatesListeners.add( mapTileRemovedCoordinatesListener );
+    }
+
+    /**
+     * Inform the "before map tile added" listeners that a map tile will be added.
+     *
+     * @param mapTileLocation
+     *            Location at which the map tile will be added.
+     */
+    void beforeMapTileAdded( MapTileLocation mapTileLocation )
+    {
+        for ( int i = 0; i < beforeMapTileAddedListeners.size(); i++ )
+        {
+            beforeMapTileAddedListeners.get( i ).beforeMapTileAdded( mapGenerator,
+                                                                      mapTileLocation );
+        }
+    }
+
+    /**
+     * Inform the "before map tile removed" listeners that a map tile will be removed.
+     *
+     * @param mapTileLocation
+     *            Location at which the map tile will be removed.
+     */
+    void beforeMapTileRemoved( MapTileLocation mapTileLocation )
+    {
+        for ( int i = 0; i < beforeMapTileRemovedListeners.size(); i++ )
+        {
+            beforeMapTileRemovedListeners.get( i ).beforeMapTileRemoved( mapGenerator,
+                                                                          mapTileLocation );
+        }
+    }
+
+    /**
+     * Inform the "map tile added" listeners that a map tile was added.
+     *
+     * @param mapTileLocation
+     *            Location at which the map tile was added.
+     */
+    void mapTileAdded( MapTileLocation mapTileLocation )
+    {
+        for ( int i = 0; i < mapTileAddedListeners.size(); i++ )
+        {
+            mapTileAddedListeners.get( i ).mapTileAdded( mapGenerator, mapTileLocation );
+        }
+
+        for ( int i = 0; i < mapTileAddedCoordinatesListeners.size(); i++ )
+        {
+            mapTileAddedCoordinatesListeners.get( i ).mapTileAdded(
+                    mapGenerator, mapTileLocation.getX(), mapTileLocation.getY() );
+        }
+    }
+
+    /**
+     * Inform the "map tile removed" listeners that a map tile was removed.
+     *
+     * @param mapTileLocation
+     *            Location at which the map tile was removed.
+     */
+    void mapTileRemoved( MapTileLocation mapTileLocation )
+    {
+        for ( int i = 0; i < mapTileRemovedListeners.size(); i++ )
+        {
+            mapTileRemovedListeners.get( i ).mapTileRemoved( mapGenerator, mapTileLocation );
+        }
+
+        for ( int i = 0; i < mapTileRemovedCoordinatesListeners.size(); i++ )
+        {
+            mapTileRemovedCoordinatesListeners.get( i ).mapTileRemoved(
+                    mapGenerator, mapTileLocation.getX(), mapTileLocation.getY() );
+        }
+    }
+}
@@ -172,12 +172,13 @@ public class MapTileLocation
     }
 
     /**
-     * Returns a hash code value for the object.
+     * Returns a hash code value for the object. All bits of both coordinates are mixed into the
+     * hash code, so map tile locations far apart on large maps do not collide.
      *
      * @return A hash code value for this object.
      */
     public int hashCode()
     {
-        return (( x & 65535 ) << 16 ) | ( y & 65535 );
+        return MapTileTable.hash( MapTileTable.pack( x, y ));
     }
 }
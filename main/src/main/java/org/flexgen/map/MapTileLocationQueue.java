@@ -0,0 +1,321 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class representing an indexed priority queue of map tile locations. The map tile location with
+ * the lowest priority is at the head of the queue. Map tile locations with the same priority are
+ * ordered by when they were first added to the queue. The priority of a map tile location that is
+ * already in the queue can be changed, and any map tile location can be removed, in logarithmic
+ * time.
+ */
+class MapTileLocationQueue
+{
+    /**
+     * Initial capacity of the queue.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Map tile locations in the queue, in heap order.
+     */
+    private MapTileLocation[] mapTileLocations;
+
+    /**
+     * Priorities of the map tile locations in the queue, in heap order.
+     */
+    private double[] priorities;
+
+    /**
+     * Sequence numbers of the map tile locations in the queue, in heap order. The sequence number
+     * records when the map tile location was added to the queue and breaks ties between equal
+     * priorities.
+     */
+    private long[] sequenceNumbers;
+
+    /**
+     * Position in the heap of each map tile location in the queue.
+     */
+    private final Map< MapTileLocation, Integer > positions;
+
+    /**
+     * Number of map tile locations in the queue.
+     */
+    private int size;
+
+    /**
+     * Sequence number to give to the next map tile location added to the queue.
+     */
+    private long sequenceCounter;
+
+    /**
+     * Construct an empty map tile location queue.
+     */
+    MapTileLocationQueue()
+    {
+        this.mapTileLocations = new MapTileLocation[ INITIAL_CAPACITY ];
+        this.priorities       = new double[ INITIAL_CAPACITY ];
+        this.sequenceNumbers  = new long[ INITIAL_CAPACITY ];
+        this.positions        = new HashMap< MapTileLocation, Integer >();
+        this.size             = 0;
+        this.sequenceCounter  = 0;
+    }
+
+    /**
+     * Get the map tile location at the head of the queue.
+     *
+     * @return The map tile location with the lowest priority, or null if the queue is empty.
+     */
+    MapTileLocation peek()
+    {
+        if ( size == 0 )
+        {
+            return null;
+        }
+
+        return mapTileLocations[ 0 ];
+    }
+
+    /**
+     * Get the number of map tile locations in the queue.
+     *
+     * @return The number of map tile locations in the queue.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Determine whether or not a map tile location is in the queue.
+     *
+     * @param mapTileLocation
+     *            Map tile location to check.
+     *
+     * @return True if the map tile location is in the queue, false otherwise.
+     */
+    boolean contains( MapTileLocation mapTileLocation )
+    {
+        return positions.containsKey( mapTileLocation );
+    }
+
+    /**
+     * Add a map tile location to the queue, or change its priority if it is already in the queue.
+     *
+     * @param mapTileLocation
+     *            Map tile location to add.
+     * @param priority
+     *            Priority of the map tile location.
+     */
+    void update( MapTileLocation mapTileLocation, double priority )
+    {
+        Integer position = positions.get( mapTileLocation );
+
+        if ( position == null )
+        {
+            if ( size == mapTileLocations.length )
+            {
+                mapTileLocations = Arrays.copyOf( mapTileLocations, size * 2 );
+                priorities = Arrays.copyOf( priorities, size * 2 );
+                sequenceNumbers = Arrays.copyOf( sequenceNumbers, size * 2 );
+            }
+
+            mapTileLocations[ size ] = mapTileLocation;
+            priorities[ size ] = priority;
+            sequenceNumbers[ size ] = sequenceCounter++;
+            positions.put( mapTileLocation, size );
+            siftUp( size++ );
+            return;
+        }
+
+        priorities[ position ] = priority;
+        siftDown( siftUp( position ));
+    }
+
+    /**
+     * Remove a map tile location from the queue. Nothing happens if the map tile location is not
+     * in the queue.
+     *
+     * @param mapTileLocation
+     *            Map tile location to remove.
+     */
+    void remove( MapTileLocation mapTileLocation )
+    {
+        Integer position = positions.remove( mapTileLocation );
+
+        if ( position == null )
+        {
+            return;
+        }
+
+        size--;
+
+        if ( position != size )
+        {
+            move( size, position );
+            siftDown( siftUp( position ));
+        }
+
+        mapTileLocations[ size ] = null;
+    }
+
+    /**
+     * Remove all map tile locations from the queue.
+     */
+    void clear()
+    {
+        Arrays.fill( mapTileLocations, 0, size, null );
+        positions.clear();
+        size = 0;
+    }
+
+    /**
+     * Move the element at a heap position up until its parent comes before it.
+     *
+     * @param position
+     *            Heap position of the element to move.
+     *
+     * @return The new heap position of the element.
+     */
+    private int siftUp( int position )
+    {
+        int current = position;
+
+        while ( current > 0 )
+        {
+            int parent = ( current - 1 ) / 2;
+
+            if ( ! before( current, parent ))
+            {
+                break;
+            }
+
+            swap( current, parent );
+            current = parent;
+        }
+
+        return current;
+    }
+
+    /**
+     * Move the element at a heap position down until it comes before its children.
+     *
+     * @param position
+     *            Heap position of the element to move.
+     */
+    private void siftDown( int position )
+    {
+        int current = position;
+
+        while (( current * 2 ) + 1 < size )
+        {
+            int child = ( current * 2 ) + 1;
+
+            if (( child + 1 < size ) && ( before( child + 1, child )))
+            {
+                child++;
+            }
+
+            if ( ! before( child, current ))
+            {
+                break;
+            }
+
+            swap( current, child );
+            current = child;
+        }
+    }
+
+    /**
+     * Determine whether or not the element at one heap position comes before the element at
+     * another heap position.
+     *
+     * @param position1
+     *            Heap position of the first element.
+     * @param position2
+     *            Heap position of the second element.
+     *
+     * @return True if the first element comes before the second element, false otherwise.
+     */
+    private boolean before( int position1, int position2 )
+    {
+        if ( priorities[ position1 ] != priorities[ position2 ] )
+        {
+            return priorities[ position1 ] < priorities[ position2 ];
+        }
+
+        return sequenceNumbers[ position1 ] < sequenceNumbers[ position2 ];
+    }
+
+    /**
+     * Swap the elements at two heap positions.
+     *
+     * @param position1
+     *            Heap position of the first element.
+     * @param position2
+     *            Heap position of the second element.
+     */
+    private void swap( int position1, int position2 )
+    {
+        MapTileLocation mapTileLocation = mapTileLocations[ position1 ];
+        double priority = priorities[ position1 ];
+        long sequenceNumber = sequenceNumbers[ position1 ];
+
+        move( position2, position1 );
+
+        mapTileLocations[ position2 ] = mapTileLocation;
+        priorities[ position2 ] = priority;
+        sequenceNumbers[ position2 ] = sequenceNumber;
+        positions.put( mapTileLocation, position2 );
+    }
+
+    /**
+     * Copy the element at one heap position to another heap position.
+     *
+     * @param from
+     *            Heap position of the element to copy.
+     * @param to
+     *            Heap position to copy the element to.
+     */
+    private void move( int from, int to )
+    {
+        mapTileLocations[ to ] = mapTileLocations[ from ];
+        priorities[ to ] = priorities[ from ];
+        sequenceNumbers[ to ] = sequenceNumbers[ from ];
+        positions.put( mapTileLocations[ to ], to );
+    }
+}
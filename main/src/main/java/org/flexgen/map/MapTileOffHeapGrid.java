@@ -0,0 +1,203 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Class representing the map tiles placed by a map generator as a sparse grid of chunks whose
+ * contents are kept outside of the heap. The chunks are laid out in slabs of direct memory, each
+ * holding a fixed number of chunks, so very large maps put neither their map tiles nor many small
+ * objects on the heap. Closing the grid drops all slabs at once, after which the direct memory is
+ * returned as soon as the garbage collector notices that the slabs are unreachable.
+ */
+class MapTileOffHeapGrid extends MapTileChunkGrid
+{
+    /**
+     * Number of bits of a chunk number that select the chunk within its slab.
+     */
+    private static final int SLAB_SHIFT = 6;
+
+    /**
+     * Number of chunks in a slab.
+     */
+    private static final int SLAB_CHUNK_COUNT = 1 << SLAB_SHIFT;
+
+    /**
+     * Mask selecting the chunk within its slab from a chunk number.
+     */
+    private static final int SLAB_MASK = SLAB_CHUNK_COUNT - 1;
+
+    /**
+     * Number of values stored for each chunk: the variants of its map tile locations followed by
+     * their ages.
+     */
+    private static final int CHUNK_STRIDE = 2 * CELL_COUNT;
+
+    /**
+     * Slabs of direct memory holding the contents of the chunks, or null once the grid is closed.
+     */
+    private IntBuffer[] slabs;
+
+    /**
+     * Construct an empty grid.
+     */
+    MapTileOffHeapGrid()
+    {
+        this.slabs = new IntBuffer[ 1 ];
+    }
+
+    /**
+     * Release the slabs of the grid. The grid cannot be used afterwards.
+     */
+    public void close()
+    {
+        slabs = null;
+    }
+
+    /**
+     * Allocate the contents of a new chunk, with all map tile locations empty. A new slab is
+     * allocated when the last one is full.
+     *
+     * @param chunkNumber
+     *            Number of the new chunk. Chunks are allocated in increasing order of their
+     *            numbers.
+     */
+    void allocateChunk( int chunkNumber )
+    {
+        int slabIndex = chunkNumber >> SLAB_SHIFT;
+
+        if ( slabIndex == slabs.length )
+        {
+            slabs = Arrays.copyOf( slabs, slabIndex * 2 );
+        }
+
+        if ( slabs[ slabIndex ] == null )
+        {
+            slabs[ slabIndex ] = ByteBuffer.allocateDirect( SLAB_CHUNK_COUNT * CHUNK_STRIDE * 4 )
+                    .order( ByteOrder.nativeOrder() ).asIntBuffer();
+        }
+
+        IntBuffer slab = slabs[ slabIndex ];
+        int offset = getOffset( chunkNumber );
+
+        for ( int cellIndex = 0; cellIndex < CELL_COUNT; cellIndex++ )
+        {
+            slab.put( offset + cellIndex, NONE );
+        }
+    }
+
+    /**
+     * Read the variant at a map tile location of a chunk.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     * @param cellIndex
+     *            Index of the map tile location within the chunk.
+     *
+     * @return The variant, or NONE if the map tile location is empty.
+     */
+    int readVariant( int chunkNumber, int cellIndex )
+    {
+        return slabs[ chunkNumber >> SLAB_SHIFT ].get( getOffset( chunkNumber ) + cellIndex );
+    }
+
+    /**
+     * Read the age at a map tile location of a chunk.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     * @param cellIndex
+     *            Index of the map tile location within the chunk.
+     *
+     * @return The age.
+     */
+    int readAge( int chunkNumber, int cellIndex )
+    {
+        return slabs[ chunkNumber >> SLAB_SHIFT ].get(
+                getOffset( chunkNumber ) + CELL_COUNT + cellIndex );
+    }
+
+    /**
+     * Write the variant and the age at a map tile location of a chunk.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     * @param cellIndex
+     *            Index of the map tile location within the chunk.
+     * @param variant
+     *            Variant, or NONE to empty the map tile location.
+     * @param age
+     *            Age.
+     */
+    void write( int chunkNumber, int cellIndex, int variant, int age )
+    {
+        IntBuffer slab = slabs[ chunkNumber >> SLAB_SHIFT ];
+        int offset = getOffset( chunkNumber ) + cellIndex;
+        slab.put( offset, variant );
+        slab.put( offset + CELL_COUNT, age );
+    }
+
+    /**
+     * Get a read-only view of the variants of a chunk, without copying them.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     *
+     * @return The view of the variants of the chunk.
+     */
+    IntBuffer viewVariants( int chunkNumber )
+    {
+        IntBuffer view = slabs[ chunkNumber >> SLAB_SHIFT ].duplicate();
+        int offset = getOffset( chunkNumber );
+        view.limit( offset + CELL_COUNT );
+        view.position( offset );
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the offset of the contents of a chunk within its slab.
+     *
+     * @param chunkNumber
+     *            Number of the chunk.
+     *
+     * @return The offset of the contents of the chunk within its slab.
+     */
+    private static int getOffset( int chunkNumber )
+    {
+        return ( chunkNumber & SLAB_MASK ) * CHUNK_STRIDE;
+    }
+}
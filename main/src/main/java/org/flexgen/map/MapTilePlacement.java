@@ -0,0 +1,93 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing the placement of a map tile at a map tile location.
+ */
+public class MapTilePlacement
+{
+    /**
+     * Map tile location at which the map tile is placed.
+     */
+    private final MapTileLocation mapTileLocation;
+
+    /**
+     * Map tile that is placed.
+     */
+    private final MapTile mapTile;
+
+    /**
+     * Construct a map tile placement.
+     *
+     * @param mapTileLocation
+     *            Map tile location at which the map tile is placed. Cannot be null.
+     * @param mapTile
+     *            Map tile that is placed. Cannot be null.
+     */
+    public MapTilePlacement( MapTileLocation mapTileLocation, MapTile mapTile )
+    {
+        if ( mapTileLocation == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileLocation' cannot be null." );
+        }
+
+        if ( mapTile == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTile' cannot be null." );
+        }
+
+        this.mapTileLocation = mapTileLocation;
+        this.mapTile         = mapTile;
+    }
+
+    /**
+     * Get the map tile location at which the map tile is placed.
+     *
+     * @return The map tile location at which the map tile is placed.
+     */
+    public MapTileLocation getMapTileLocation()
+    {
+        return mapTileLocation;
+    }
+
+    /**
+     * Get the map tile that is placed.
+     *
+     * @return The map tile that is placed.
+     */
+    public MapTile getMapTile()
+    {
+        return mapTile;
+    }
+}
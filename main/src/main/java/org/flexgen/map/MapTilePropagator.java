@@ -0,0 +1,321 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class for checking whether or not placing a variant at a map tile location would leave a nearby
+ * empty map tile location without any fitting variant. The candidate domains of the empty map tile
+ * locations within a radius of the placement are reduced, in the style of the AC-3 algorithm,
+ * until every remaining variant in every domain fits next to at least one remaining variant of
+ * each neighbor. The placement is rejected if any domain becomes empty.
+ */
+class MapTilePropagator
+{
+    /**
+     * Horizontal offsets of the neighbors of a map tile location, indexed by map tile edge
+     * position index.
+     */
+    private static final int[] NEIGHBOR_X_OFFSETS = MapTileEdgePosition.NEIGHBOR_X_OFFSETS;
+
+    /**
+     * Vertical offsets of the neighbors of a map tile location, indexed by map tile edge position
+     * index.
+     */
+    private static final int[] NEIGHBOR_Y_OFFSETS = MapTileEdgePosition.NEIGHBOR_Y_OFFSETS;
+
+    /**
+     * Map generator whose placements are checked.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Map tile set of the map generator.
+     */
+    private final MapTileSet mapTileSet;
+
+    /**
+     * Map tile location filter of the map generator.
+     */
+    private final MapTileLocationFilter mapTileLocationFilter;
+
+    /**
+     * Construct a map tile propagator.
+     *
+     * @param mapGenerator
+     *            Map generator whose placements are checked.
+     * @param mapTileSet
+     *            Map tile set of the map generator.
+     * @param mapTileLocationFilter
+     *            Map tile location filter of the map generator.
+     */
+    MapTilePropagator( MapGenerator mapGenerator, MapTileSet mapTileSet,
+                       MapTileLocationFilter mapTileLocationFilter )
+    {
+        this.mapGenerator          = mapGenerator;
+        this.mapTileSet            = mapTileSet;
+        this.mapTileLocationFilter = mapTileLocationFilter;
+    }
+
+    /**
+     * Determine whether or not a variant can be placed at an empty map tile location without
+     * leaving an empty map tile location within the specified radius without any fitting variant.
+     * Only empty map tile locations that are open, that would be opened by the placement, or that
+     * are allowed by the map tile location filter are considered.
+     *
+     * @param mapTileLocation
+     *            Empty map tile location at which the variant would be placed.
+     * @param variant
+     *            Distinct variant that would be placed.
+     * @param radius
+     *            Largest Manhattan distance from the map tile location of the empty map tile
+     *            locations to consider.
+     *
+     * @return True if every considered empty map tile location keeps at least one fitting variant,
+     *         false otherwise.
+     */
+    boolean isConsistent( MapTileLocation mapTileLocation, int variant, int radius )
+    {
+        List< MapTileLocation > region = buildRegion( mapTileLocation, variant, radius );
+        Map< MapTileLocation, Integer > regionIndexes = new HashMap< MapTileLocation, Integer >();
+
+        for ( int i = 0; i < region.size(); i++ )
+        {
+            regionIndexes.put( region.get( i ), i );
+        }
+
+        long[][] domains = new long[ region.size() ][];
+        int[][] neighbors = new int[ region.size() ][ NEIGHBOR_X_OFFSETS.length ];
+        Deque< Integer > arcs = new ArrayDeque< Integer >();
+        boolean[] queuedArcs = new boolean[ region.size() * NEIGHBOR_X_OFFSETS.length ];
+
+        // the map tile location of the placement is always the first element of the region
+        domains[ 0 ] = new long[ mapTileSet.getVariantWordCount() ];
+        domains[ 0 ][ variant / 64 ] = 1L << ( variant % 64 );
+
+        for ( int i = 0; i < region.size(); i++ )
+        {
+            MapTileLocation regionLocation = region.get( i );
+
+            if ( i > 0 )
+            {
+                domains[ i ] = mapGenerator.getMapTileDomain( regionLocation ).copyVariantSet();
+            }
+
+            for ( int j = 0; j < NEIGHBOR_X_OFFSETS.length; j++ )
+            {
+                Integer neighborIndex = regionIndexes.get(
+                        new MapTileLocation( regionLocation.getX() + NEIGHBOR_X_OFFSETS[ j ],
+                                             regionLocation.getY() + NEIGHBOR_Y_OFFSETS[ j ] ));
+
+                neighbors[ i ][ j ] = -1;
+
+                if ( neighborIndex != null )
+                {
+                    neighbors[ i ][ j ] = neighborIndex;
+
+                    // the domain of the placement is fixed, so it is never revised
+                    if ( i > 0 )
+                    {
+                        arcs.add(( i * NEIGHBOR_X_OFFSETS.length ) + j );
+                        queuedArcs[ ( i * NEIGHBOR_X_OFFSETS.length ) + j ] = true;
+                    }
+                }
+            }
+        }
+
+        long[] support = new long[ mapTileSet.getVariantWordCount() ];
+
+        while ( ! arcs.isEmpty() )
+        {
+            int arc = arcs.poll();
+            int index = arc / NEIGHBOR_X_OFFSETS.length;
+            int mapTileEdgePositionIndex = arc % NEIGHBOR_X_OFFSETS.length;
+            int neighborIndex = neighbors[ index ][ mapTileEdgePositionIndex ];
+
+            queuedArcs[ arc ] = false;
+
+            Arrays.fill( support, 0 );
+            mapTileSet.addNeighborSupport( support, mapTileEdgePositionIndex,
+                                           domains[ neighborIndex ] );
+
+            if ( revise( domains[ index ], support ))
+            {
+                if ( isEmpty( domains[ index ] ))
+                {
+                    return false;
+                }
+
+                // the neighbors of the revised domain must be revised against it again
+                for ( int j = 0; j < NEIGHBOR_X_OFFSETS.length; j++ )
+                {
+                    int otherIndex = neighbors[ index ][ j ];
+
+                    if (( otherIndex > 0 ) && ( otherIndex != neighborIndex ))
+                    {
+                        int otherArc = ( otherIndex * NEIGHBOR_X_OFFSETS.length ) +
+                                       (( j + 2 ) % NEIGHBOR_X_OFFSETS.length );
+
+                        if ( ! queuedArcs[ otherArc ] )
+                        {
+                            arcs.add( otherArc );
+                            queuedArcs[ otherArc ] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Build the list of map tile locations to propagate across. The first element is the map tile
+     * location of the placement, followed by the empty map tile locations to consider.
+     *
+     * @param mapTileLocation
+     *            Empty map tile location at which the variant would be placed.
+     * @param variant
+     *            Distinct variant that would be placed.
+     * @param radius
+     *            Largest Manhattan distance from the map tile location of the empty map tile
+     *            locations to consider.
+     *
+     * @return The list of map tile locations to propagate across.
+     */
+    private List< MapTileLocation > buildRegion( MapTileLocation mapTileLocation, int variant,
+                                                 int radius )
+    {
+        List< MapTileLocation > emptyLocations = new ArrayList< MapTileLocation >();
+
+        for ( int dy = -radius; dy <= radius; dy++ )
+        {
+            int span = radius - Math.abs( dy );
+
+            for ( int dx = -span; dx <= span; dx++ )
+            {
+                MapTileLocation emptyLocation = new MapTileLocation(
+                        mapTileLocation.getX() + dx, mapTileLocation.getY() + dy );
+
+                if ((( dx != 0 ) || ( dy != 0 )) &&
+                    ( mapGenerator.getVariant( emptyLocation ) == MapTileStore.NONE ))
+                {
+                    emptyLocations.add( emptyLocation );
+                }
+            }
+        }
+
+        Set< MapTileLocation > includedLocations = new HashSet< MapTileLocation >(
+                mapTileLocationFilter.getFilteredMapTileLocations( emptyLocations ));
+
+        for ( MapTileEdgePosition mapTileEdgePosition :
+                mapTileSet.getOpenMapTileEdgePositions( variant ))
+        {
+            includedLocations.add( new MapTileLocation(
+                    mapTileLocation.getX() + NEIGHBOR_X_OFFSETS[ mapTileEdgePosition.getIndex() ],
+                    mapTileLocation.getY() + NEIGHBOR_Y_OFFSETS[ mapTileEdgePosition.getIndex() ]));
+        }
+
+        List< MapTileLocation > region = new ArrayList< MapTileLocation >();
+        region.add( mapTileLocation );
+
+        for ( MapTileLocation emptyLocation : emptyLocations )
+        {
+            if (( includedLocations.contains( emptyLocation )) ||
+                ( mapGenerator.isOpenLocation( emptyLocation )))
+            {
+                region.add( emptyLocation );
+            }
+        }
+
+        return region;
+    }
+
+    /**
+     * Remove the variants that are not supported from a domain.
+     *
+     * @param domain
+     *            Bit set of the variants of the domain.
+     * @param support
+     *            Bit set of the supported variants.
+     *
+     * @return True if the domain changed, false otherwise.
+     */
+    private static boolean revise( long[] domain, long[] support )
+    {
+        boolean changed = false;
+
+        for ( int i = 0; i < domain.length; i++ )
+        {
+            long word = domain[ i ] & support[ i ];
+
+            if ( word != domain[ i ] )
+            {
+                domain[ i ] = word;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Determine whether or not a domain is empty.
+     *
+     * @param domain
+     *            Bit set of the variants of the domain.
+     *
+     * @return True if the domain is empty, false otherwise.
+     */
+    private static boolean isEmpty( long[] domain )
+    {
+        for ( long word : domain )
+        {
+            if ( word != 0 )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
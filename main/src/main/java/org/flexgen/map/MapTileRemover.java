@@ -0,0 +1,269 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class containing the logic a map generator uses to remove map tiles while recovering from bad
+ * open locations, shared by chronological backtracking and conflict-directed backjumping. The
+ * backtrack limits are charged for every map tile removed.
+ * <p>
+ * By default, a map tile is removed together with the newer map tiles connected to it, one at a
+ * time. With trail backtracking, the generation in progress keeps a mark on the trail, and a map
+ * tile placed since is removed by popping the trail back to its placement. This undoes every
+ * change made since, including the placements of unrelated newer map tiles, and restores the open
+ * locations exactly as they were recorded instead of scanning the neighborhood of each map tile.
+ */
+class MapTileRemover
+{
+    /**
+     * Map generator from which map tiles are removed.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Undo log of the changes made to the map.
+     */
+    private final MapTileTrail mapTileTrail;
+
+    /**
+     * Logic used to change the excluded variants of the map generator.
+     */
+    private final MapTileExclusionRecorder mapTileExclusionRecorder;
+
+    /**
+     * Backtrack limits of the map generator.
+     */
+    private final BacktrackBudget backtrackBudget;
+
+    /**
+     * Flag indicating whether or not generations started from now on remove map tiles by popping
+     * the trail.
+     */
+    private boolean trailBacktracking;
+
+    /**
+     * Mark placed on the trail by the generation in progress, below which the trail is never
+     * popped, or -1 if map tiles are not removed by popping the trail.
+     */
+    private int trailFloor;
+
+    /**
+     * Smallest position to which the trail was popped while recovering from the current
+     * placement, or Integer.MAX_VALUE if it was not popped.
+     */
+    private int poppedPosition;
+
+    /**
+     * Construct a map tile remover that does not use trail backtracking.
+     *
+     * @param mapGenerator
+     *            Map generator from which map tiles are removed.
+     * @param mapTileTrail
+     *            Undo log of the changes made to the map.
+     * @param mapTileExclusionRecorder
+     *            Logic used to change the excluded variants of the map generator.
+     * @param backtrackBudget
+     *            Backtrack limits of the map generator.
+     */
+    MapTileRemover( MapGenerator mapGenerator, MapTileTrail mapTileTrail,
+                    MapTileExclusionRecorder mapTileExclusionRecorder,
+                    BacktrackBudget backtrackBudget )
+    {
+        this.mapGenerator             = mapGenerator;
+        this.mapTileTrail             = mapTileTrail;
+        this.mapTileExclusionRecorder = mapTileExclusionRecorder;
+        this.backtrackBudget          = backtrackBudget;
+        this.trailBacktracking        = false;
+        this.trailFloor               = -1;
+        this.poppedPosition           = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Determine whether or not generations started from now on remove map tiles by popping the
+     * trail.
+     *
+     * @return True if trail backtracking is used, false otherwise.
+     */
+    boolean isTrailBacktracking()
+    {
+        return trailBacktracking;
+    }
+
+    /**
+     * Set whether or not generations started from now on remove map tiles by popping the trail.
+     *
+     * @param trailBacktracking
+     *            True if trail backtracking is to be used, false otherwise.
+     */
+    void setTrailBacktracking( boolean trailBacktracking )
+    {
+        this.trailBacktracking = trailBacktracking;
+    }
+
+    /**
+     * Start removing the map tiles placed by a generation by popping the trail.
+     *
+     * @param generationMark
+     *            Mark placed on the trail by the generation, below which the trail is never
+     *            popped.
+     */
+    void start( int generationMark )
+    {
+        trailFloor = generationMark;
+    }
+
+    /**
+     * Stop removing map tiles by popping the trail.
+     */
+    void finish()
+    {
+        trailFloor = -1;
+    }
+
+    /**
+     * Record that a new placement is made, before recovering from the bad open locations it
+     * causes.
+     */
+    void startPlacement()
+    {
+        poppedPosition = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Get the mark to undo back to when the recovery from the current placement is interrupted.
+     * If the trail was popped below the mark of the placement, the changes between are already
+     * gone, so the trail is undone back to the state before the oldest popped placement, which had
+     * no bad open locations.
+     *
+     * @param placementMark
+     *            Mark placed on the trail before the current placement.
+     *
+     * @return The mark to undo back to.
+     */
+    int getUndoMark( int placementMark )
+    {
+        return Math.min( placementMark, poppedPosition );
+    }
+
+    /**
+     * Exclude the variant of a map tile at its location, and remove it together with newer map
+     * tiles. The map tile and the newer map tiles connected to it are removed one at a time,
+     * unless the placement of the map tile is recorded on the trail above the floor, in which case
+     * the trail is popped back to that placement and the variant is excluded afterwards, since
+     * popping the trail would also undo the exclusion.
+     *
+     * @param mapTileLocation
+     *            Map tile location of the map tile to remove.
+     * @param reasonLocations
+     *            Locations of the map tiles that caused the variant to be excluded, or null if the
+     *            variant is to be excluded until the exclusion is cleared.
+     */
+    void excludeAndRemove( MapTileLocation mapTileLocation,
+                           Collection< MapTileLocation > reasonLocations )
+    {
+        int variant = mapGenerator.getVariant( mapTileLocation );
+        int position = -1;
+
+        if ( trailFloor != -1 )
+        {
+            position = mapTileTrail.findPlacement(
+                    mapTileLocation, mapGenerator.getAge( mapTileLocation ), trailFloor );
+        }
+
+        if ( position == -1 )
+        {
+            mapTileExclusionRecorder.excludeVariant( mapTileLocation, variant, reasonLocations );
+            removeNewerMapTileLocations( mapTileLocation );
+            return;
+        }
+
+        backtrackBudget.addRemovedMapTiles( mapTileTrail.countPlacements( position ));
+        poppedPosition = Math.min( poppedPosition, position );
+        mapGenerator.undoTrail( position );
+
+        mapTileExclusionRecorder.excludeVariant( mapTileLocation, variant, reasonLocations );
+        mapGenerator.updateMapTileDomain( mapTileLocation );
+    }
+
+    /**
+     * Remove the specified map tile location and all connected map tile locations that are newer
+     * than the specified map tile location. Map tile locations are removed in breadth-first order,
+     * starting with the specified map tile location, one at a time through
+     * MapGenerator.removeMapTileInternal(), rather than by popping the trail.
+     *
+     * @param mapTileLocation
+     *            Map tile location to remove.
+     */
+    private void removeNewerMapTileLocations( MapTileLocation mapTileLocation )
+    {
+        // map tile locations to be removed, in the order in which they were found
+        List< MapTileLocation > removedMapTileLocationList = new ArrayList< MapTileLocation >();
+        Set< MapTileLocation > removedMapTileLocationSet = new HashSet< MapTileLocation >();
+
+        removedMapTileLocationList.add( mapTileLocation );
+        removedMapTileLocationSet.add( mapTileLocation );
+
+        for ( int i = 0; i < removedMapTileLocationList.size(); i++ )
+        {
+            MapTileLocation removedMapTileLocation = removedMapTileLocationList.get( i );
+            int removedAge = mapGenerator.getAge( removedMapTileLocation );
+
+            int removedVariant = mapGenerator.getVariant( removedMapTileLocation );
+
+            for ( MapTileLocation neighborLocation : removedMapTileLocation.getNeighborLocations(
+                    mapGenerator.getMapTileSet().getOpenMapTileEdgePositions( removedVariant )))
+            {
+                int neighborAge = mapGenerator.getAge( neighborLocation );
+
+                if (( neighborAge != MapTileStore.NONE ) && ( neighborAge > removedAge ) &&
+                    ( removedMapTileLocationSet.add( neighborLocation )))
+                {
+                    removedMapTileLocationList.add( neighborLocation );
+                }
+            }
+        }
+
+        for ( MapTileLocation removedMapTileLocation : removedMapTileLocationList )
+        {
+            mapGenerator.removeMapTileInternal( removedMapTileLocation );
+        }
+
+        backtrackBudget.addRemovedMapTiles( removedMapTileLocationList.size() );
+    }
+}
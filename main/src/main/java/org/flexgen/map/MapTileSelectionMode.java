@@ -0,0 +1,89 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing the ways in which a map generator can select the next map tile to place while
+ * generating a map.
+ */
+public class MapTileSelectionMode
+{
+    /**
+     * Selection mode where a map tile type is chosen by weight from the map tile types that can be
+     * legally placed anywhere, followed by a uniformly chosen legal placement of that map tile
+     * type. This is the default selection mode.
+     */
+    public static final MapTileSelectionMode WEIGHTED_MAP_TILE_TYPE =
+            new MapTileSelectionMode( "WeightedMapTileType" );
+
+    /**
+     * Selection mode where the open location with the fewest legal variants is chosen, followed
+     * by a variant chosen by weight from the legal variants at that location.
+     */
+    public static final MapTileSelectionMode MINIMUM_VARIANT_COUNT =
+            new MapTileSelectionMode( "MinimumVariantCount" );
+
+    /**
+     * Selection mode where the open location with the lowest weighted entropy of its legal
+     * variants is chosen, followed by a variant chosen by weight from the legal variants at that
+     * location.
+     */
+    public static final MapTileSelectionMode MINIMUM_ENTROPY =
+            new MapTileSelectionMode( "MinimumEntropy" );
+
+    /**
+     * Name of the map tile selection mode.
+     */
+    private final String name;
+
+    /**
+     * Construct a map tile selection mode with the specified name.
+     *
+     * @param name
+     *            Name of the map tile selection mode.
+     */
+    private MapTileSelectionMode( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Get the string representation of this object.
+     *
+     * @return The string representation of this object.
+     */
+    public String toString()
+    {
+        return name;
+    }
+}
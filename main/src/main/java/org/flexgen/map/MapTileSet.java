@@ -0,0 +1,1108 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class representing a compiled, immutable set of map tile types. Every map tile type is expanded
+ * into one variant for each of the four map tile orientations, and each variant is assigned a dense
+ * integer identifier. The rotated edges, open edges and weight of every variant are computed once
+ * when the map tile set is constructed, and every variant is represented by a single shared map
+ * tile instance.
+ * <p>
+ * Variants for the distinct orientations of the map tile types come first, ordered by map tile
+ * type and then by the order of the distinct orientations of each map tile type. These are the
+ * only variants that are ever selected when generating a map. The remaining variants only exist so
+ * that map tiles in other orientations can still be added to a map explicitly.
+ * <p>
+ * Every distinct map tile edge instance used by the map tile types is assigned a dense ordinal,
+ * and the matching rules between map tile edges are compiled into a bit matrix so that checking
+ * whether two map tile edges match is a single bit test. The map tile edges are frozen once they
+ * have been compiled, since later changes to their matching rules would not be reflected in the
+ * bit matrix.
+ * <p>
+ * The map tiles that fit in an empty map tile location only depend on the facing map tile edges of
+ * the neighbors of that location. These facing map tile edges are packed into a neighbor signature,
+ * and the map tile candidates for each neighbor signature are computed once and then looked up
+ * from a concurrent cache.
+ * <p>
+ * Map tile sets are obtained through {@link #getInstance(MapTileType[])}, which returns the same
+ * map tile set for arrays containing the same map tile type instances in the same order. A map
+ * tile set can be shared by any number of map generators.
+ */
+public class MapTileSet
+{
+    /**
+     * Array of all map tile orientations, used to create the variants that do not correspond to a
+     * distinct orientation of a map tile type.
+     */
+    private static final MapTileOrientation[] ALL_ORIENTATIONS = new MapTileOrientation[]
+    {
+        MapTileOrientation.UPRIGHT,
+        MapTileOrientation.CLOCKWISE,
+        MapTileOrientation.FLIPPED,
+        MapTileOrientation.COUNTER_CLOCKWISE
+    };
+
+    /**
+     * The maximum number of distinct map tile edges a map tile set can contain, limited by the
+     * number of bits used for each neighbor in a neighbor signature.
+     */
+    private static final int MAX_MAP_TILE_EDGE_COUNT = 65535;
+
+    /**
+     * The maximum number of map tile sets that are retained by {@link #getInstance(MapTileType[])}.
+     */
+    private static final int CACHE_SIZE = 16;
+
+    /**
+     * Data structure containing the most recently used map tile sets, keyed by the map tile types
+     * they were compiled from. Iterates in access order so that the least recently used map tile
+     * set is evicted first.
+     */
+    private static final Map< Key, MapTileSet > CACHE =
+            new LinkedHashMap< Key, MapTileSet >( CACHE_SIZE, 0.75f, true )
+            {
+                private static final long serialVersionUID = 1L;
+
+                protected boolean removeEldestEntry( Map.Entry< Key, MapTileSet > eldest )
+                {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * Array of map tile types contained in this map tile set.
+     */
+    private final MapTileType[] mapTileTypes;
+
+    /**
+     * The size of the map unit array that defines the map tile types in this map tile set.
+     */
+    private final int tileSize;
+
+    /**
+     * The number of variants that correspond to a distinct orientation of a map tile type.
+     */
+    private final int distinctVariantCount;
+
+    /**
+     * Index of the first variant of each map tile type, indexed by map tile type index. The
+     * distinct variants of a map tile type are stored contiguously starting at this index.
+     */
+    private final int[] firstVariants;
+
+    /**
+     * Number of distinct variants of each map tile type, indexed by map tile type index.
+     */
+    private final int[] distinctVariantCounts;
+
+    /**
+     * Shared map tile instance for each variant, indexed by variant.
+     */
+    private final MapTile[] mapTiles;
+
+    /**
+     * Orientation of each variant, indexed by variant.
+     */
+    private final MapTileOrientation[] mapTileOrientations;
+
+    /**
+     * Index of the map tile type of each variant, indexed by variant.
+     */
+    private final int[] mapTileTypeIndexes;
+
+    /**
+     * Weight of each variant, indexed by variant.
+     */
+    private final int[] weights;
+
+    /**
+     * Rotated map tile edges of each variant, indexed by variant and then by map tile edge position
+     * index.
+     */
+    private final MapTileEdge[][] mapTileEdges;
+
+    /**
+     * Bit mask of the open edges of each variant, indexed by variant. Bit N is set if the map tile
+     * edge position with index N is open.
+     */
+    private final int[] openMapTileEdgeMasks;
+
+    /**
+     * Rotated open map tile edge positions of each variant, indexed by variant. The positions are
+     * stored in the same order in which the map tile type specifies its open edges.
+     */
+    private final MapTileEdgePosition[][] openMapTileEdgePositions;
+
+    /**
+     * Ordinal of the rotated map tile edge at each position of each variant. The ordinal for a
+     * variant and a map tile edge position is stored at index (variant * 4) + position index.
+     */
+    private final int[] mapTileEdgeOrdinals;
+
+    /**
+     * Map tile edges contained in this map tile set, indexed by ordinal.
+     */
+    private final MapTileEdge[] ordinalMapTileEdges;
+
+    /**
+     * Number of words in each row of the map tile edge match matrix.
+     */
+    private final int matchWordCount;
+
+    /**
+     * Bit matrix of which map tile edges match each other. Bit (second ordinal % 64) of word
+     * (first ordinal * match word count) + (second ordinal / 64) is set if the map tile edges with
+     * the two ordinals match. The matrix is symmetric.
+     */
+    private final long[] mapTileEdgeMatches;
+
+    /**
+     * Number of words in a bit set of distinct variants.
+     */
+    private final int variantWordCount;
+
+    /**
+     * Bit sets of the distinct variants that can be placed next to a neighbor. The bit set for a
+     * map tile edge position and the ordinal of the facing map tile edge of the neighbor at that
+     * position starts at word ((position index * map tile edge count) + ordinal) * variant word
+     * count.
+     */
+    private final long[] neighborMatches;
+
+    /**
+     * Data structure caching the map tile candidates for each neighbor signature.
+     */
+    private final ConcurrentMap< Long, MapTileCandidates > mapTileCandidatesMap;
+
+    /**
+     * Data structure mapping map tile edges to their ordinals. Map tile edges are compared by
+     * identity.
+     */
+    private final Map< MapTileEdge, Integer > mapTileEdgeOrdinalMap;
+
+    /**
+     * Data structure mapping map tiles to their variants.
+     */
+    private final Map< MapTile, Integer > variants;
+
+    /**
+     * Get the map tile set for an array of map tile types. Map tile sets are cached, so arrays that
+     * contain the same map tile type instances in the same order share a single map tile set.
+     *
+     * @param mapTileTypes
+     *            Array of map tile types to compile into the map tile set. Cannot be null. Must
+     *            contain at least one element. No element can be null. Cannot contain two or more
+     *            elements that are identical. All map tile types in the array must be the same
+     *            size.
+     *
+     * @return The map tile set for the array of map tile types.
+     */
+    public static MapTileSet getInstance( MapTileType[] mapTileTypes )
+    {
+        if ( mapTileTypes == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileTypes' cannot be null." );
+        }
+
+        Key key = new Key( mapTileTypes );
+
+        synchronized ( CACHE )
+        {
+            MapTileSet mapTileSet = CACHE.get( key );
+
+            if ( mapTileSet == null )
+            {
+                mapTileSet = new MapTileSet( mapTileTypes );
+                CACHE.put( key, mapTileSet );
+            }
+
+            return mapTileSet;
+        }
+    }
+
+    /**
+     * Construct a map tile set.
+     *
+     * @param mapTileTypes
+     *            Array of map tile types to compile into the map tile set. Cannot be null. Must
+     *            contain at least one element. No element can be null. Cannot contain two or more
+     *            elements that are identical. All map tile types in the array must be the same
+     *            size.
+     */
+    private MapTileSet( MapTileType[] mapTileTypes )
+    {
+        if ( mapTileTypes == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileTypes' cannot be null." );
+        }
+
+        if ( mapTileTypes.length == 0 )
+        {
+            throw new IllegalArgumentException(
+                    "Parameter 'mapTileTypes' must contain at least one element." );
+        }
+
+        int tileSize = 0;
+        int distinctVariantCount = 0;
+
+        for ( int i = 0; i < mapTileTypes.length; i++ )
+        {
+            // check for a null element
+            if ( mapTileTypes[ i ] == null )
+            {
+                throw new IllegalArgumentException(
+                        "Parameter 'mapTileTypes' must not contain any null elements." );
+            }
+
+            // check for a duplicate element
+            for ( int j = i + 1; j < mapTileTypes.length; j++ )
+            {
+                if ( mapTileTypes[ i ].equals( mapTileTypes[ j ] ))
+                {
+                    throw new IllegalArgumentException(
+                            "Parameter 'mapTileTypes' must not contain any duplicate elements." );
+                }
+            }
+
+            // check to see that all elements are the same size
+            if ( tileSize == 0 )
+            {
+                tileSize = mapTileTypes[ i ].getSize();
+            }
+            else
+            {
+                if ( tileSize != mapTileTypes[ i ].getSize() )
+                {
+                    throw new IllegalArgumentException( "All map tile types in parameter " +
+                                                        "'mapTileTypes' must be the same size." );
+                }
+            }
+
+            distinctVariantCount += mapTileTypes[ i ].getDistinctMapTileOrientations().length;
+        }
+
+        // assign an ordinal to every distinct map tile edge instance
+        Map< MapTileEdge, Integer > mapTileEdgeOrdinalMap =
+                new IdentityHashMap< MapTileEdge, Integer >();
+        List< MapTileEdge > ordinalMapTileEdges = new ArrayList< MapTileEdge >();
+
+        for ( MapTileType mapTileType : mapTileTypes )
+        {
+            for ( MapTileEdgePosition mapTileEdgePosition : MapTileEdgePosition.ALL_POSITIONS )
+            {
+                MapTileEdge mapTileEdge = mapTileType.getMapTileEdge( mapTileEdgePosition );
+
+                if ( ! mapTileEdgeOrdinalMap.containsKey( mapTileEdge ))
+                {
+                    mapTileEdgeOrdinalMap.put( mapTileEdge, ordinalMapTileEdges.size() );
+                    ordinalMapTileEdges.add( mapTileEdge );
+                }
+            }
+        }
+
+        // compile the matching rules of the map tile edges into a symmetric bit matrix
+        int mapTileEdgeCount = ordinalMapTileEdges.size();
+
+        if ( mapTileEdgeCount > MAX_MAP_TILE_EDGE_COUNT )
+        {
+            throw new IllegalArgumentException( "Map tile types in parameter 'mapTileTypes' " +
+                                                "cannot use more than " + MAX_MAP_TILE_EDGE_COUNT +
+                                                " distinct map tile edges." );
+        }
+
+        int matchWordCount = ( mapTileEdgeCount + 63 ) / 64;
+        long[] mapTileEdgeMatches =
+                compileMapTileEdgeMatches( ordinalMapTileEdges, matchWordCount );
+
+        for ( MapTileEdge mapTileEdge : ordinalMapTileEdges )
+        {
+            mapTileEdge.freeze();
+        }
+
+        int variantCount = mapTileTypes.length * ALL_ORIENTATIONS.length;
+
+        this.mapTileTypes             = mapTileTypes.clone();
+        this.tileSize                 = tileSize;
+        this.distinctVariantCount     = distinctVariantCount;
+        this.firstVariants            = new int[ mapTileTypes.length ];
+        this.distinctVariantCounts    = new int[ mapTileTypes.length ];
+        this.mapTiles                 = new MapTile[ variantCount ];
+        this.mapTileOrientations      = new MapTileOrientation[ variantCount ];
+        this.mapTileTypeIndexes       = new int[ variantCount ];
+        this.weights                  = new int[ variantCount ];
+        this.mapTileEdges             = new MapTileEdge[ variantCount ][];
+        this.openMapTileEdgeMasks     = new int[ variantCount ];
+        this.openMapTileEdgePositions = new MapTileEdgePosition[ variantCount ][];
+        this.mapTileEdgeOrdinals      = new int[ variantCount *
+                                                 MapTileEdgePosition.ALL_POSITIONS.length ];
+        this.ordinalMapTileEdges      = ordinalMapTileEdges.toArray(
+                                                new MapTileEdge[ mapTileEdgeCount ] );
+        this.matchWordCount           = matchWordCount;
+        this.mapTileEdgeMatches       = mapTileEdgeMatches;
+        this.variantWordCount         = ( distinctVariantCount + 63 ) / 64;
+        this.neighborMatches          = new long[ MapTileEdgePosition.ALL_POSITIONS.length *
+                                                  mapTileEdgeCount * variantWordCount ];
+        this.mapTileCandidatesMap     = new ConcurrentHashMap< Long, MapTileCandidates >();
+        this.mapTileEdgeOrdinalMap    = mapTileEdgeOrdinalMap;
+        this.variants                 = new HashMap< MapTile, Integer >();
+
+        // add the variants for the distinct orientations first so that they are contiguous
+        int variant = 0;
+
+        for ( int i = 0; i < this.mapTileTypes.length; i++ )
+        {
+            MapTileOrientation[] distinctMapTileOrientations =
+                    this.mapTileTypes[ i ].getDistinctMapTileOrientations();
+
+            firstVariants[ i ] = variant;
+            distinctVariantCounts[ i ] = distinctMapTileOrientations.length;
+
+            for ( MapTileOrientation mapTileOrientation : distinctMapTileOrientations )
+            {
+                addVariant( variant++, i, mapTileOrientation );
+            }
+        }
+
+        // add the variants for the remaining orientations
+        for ( int i = 0; i < this.mapTileTypes.length; i++ )
+        {
+            for ( MapTileOrientation mapTileOrientation : ALL_ORIENTATIONS )
+            {
+                if ( ! variants.containsKey(
+                        new MapTile( this.mapTileTypes[ i ], mapTileOrientation )))
+                {
+                    addVariant( variant++, i, mapTileOrientation );
+                }
+            }
+        }
+
+        compileNeighborMatches();
+    }
+
+    /**
+     * Get the size of the map unit array that defines the map tile types in this map tile set.
+     *
+     * @return The size of the map unit array that defines the map tile types in this map tile set.
+     */
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+
+    /**
+     * Get the number of map tile types in this map tile set.
+     *
+     * @return The number of map tile types in this map tile set.
+     */
+    public int getMapTileTypeCount()
+    {
+        return mapTileTypes.length;
+    }
+
+    /**
+     * Get the map tile type with the specified index.
+     *
+     * @param mapTileTypeIndex
+     *            Index of the map tile type to get. Must be greater than or equal to 0. Must be
+     *            less than the number of map tile types in this map tile set.
+     *
+     * @return The map tile type with the specified index.
+     */
+    public MapTileType getMapTileType( int mapTileTypeIndex )
+    {
+        checkMapTileTypeIndex( mapTileTypeIndex );
+        return mapTileTypes[ mapTileTypeIndex ];
+    }
+
+    /**
+     * Get the total number of variants in this map tile set.
+     *
+     * @return The total number of variants in this map tile set.
+     */
+    public int getVariantCount()
+    {
+        return mapTiles.length;
+    }
+
+    /**
+     * Get the number of variants that correspond to a distinct orientation of a map tile type.
+     * These variants have the identifiers 0 through one less than the returned value.
+     *
+     * @return The number of variants that correspond to a distinct orientation of a map tile type.
+     */
+    public int getDistinctVariantCount()
+    {
+        return distinctVariantCount;
+    }
+
+    /**
+     * Get the first variant of the specified map tile type. The distinct variants of the map tile
+     * type are stored contiguously starting at this variant.
+     *
+     * @param mapTileTypeIndex
+     *            Index of the map tile type for which to get the first variant. Must be a valid map
+     *            tile type index.
+     *
+     * @return The first variant of the specified map tile type.
+     */
+    public int getFirstVariant( int mapTileTypeIndex )
+    {
+        checkMapTileTypeIndex( mapTileTypeIndex );
+        return firstVariants[ mapTileTypeIndex ];
+    }
+
+    /**
+     * Get the number of distinct variants of the specified map tile type.
+     *
+     * @param mapTileTypeIndex
+     *            Index of the map tile type for which to get the number of distinct variants. Must
+     *            be a valid map tile type index.
+     *
+     * @return The number of distinct variants of the specified map tile type.
+     */
+    public int getDistinctVariantCount( int mapTileTypeIndex )
+    {
+        checkMapTileTypeIndex( mapTileTypeIndex );
+        return distinctVariantCounts[ mapTileTypeIndex ];
+    }
+
+    /**
+     * Get the variant of the specified map tile.
+     *
+     * @param mapTile
+     *            Map tile for which to get the variant. Cannot be null.
+     *
+     * @return The variant of the specified map tile, or -1 if the type of the map tile is not part
+     *         of this map tile set.
+     */
+    public int getVariant( MapTile mapTile )
+    {
+        if ( mapTile == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTile' cannot be null." );
+        }
+
+        Integer variant = variants.get( mapTile );
+
+        if ( variant == null )
+        {
+            return -1;
+        }
+
+        return variant;
+    }
+
+    /**
+     * Get the shared map tile instance of the specified variant.
+     *
+     * @param variant
+     *            Variant for which to get the map tile. Must be a valid variant.
+     *
+     * @return The shared map tile instance of the specified variant.
+     */
+    public MapTile getMapTile( int variant )
+    {
+        checkVariant( variant );
+        return mapTiles[ variant ];
+    }
+
+    /**
+     * Get the orientation of the specified variant.
+     *
+     * @param variant
+     *            Variant for which to get the orientation. Must be a valid variant.
+     *
+     * @return The orientation of the specified variant.
+     */
+    public MapTileOrientation getMapTileOrientation( int variant )
+    {
+        checkVariant( variant );
+        return mapTileOrientations[ variant ];
+    }
+
+    /**
+     * Get the index of the map tile type of the specified variant.
+     *
+     * @param variant
+     *            Variant for which to get the map tile type index. Must be a valid variant.
+     *
+     * @return The index of the map tile type of the specified variant.
+     */
+    public int getMapTileTypeIndex( int variant )
+    {
+        checkVariant( variant );
+        return mapTileTypeIndexes[ variant ];
+    }
+
+    /**
+     * Get the weight of the specified variant.
+     *
+     * @param variant
+     *            Variant for which to get the weight. Must be a valid variant.
+     *
+     * @return The weight of the specified variant.
+     */
+    public int getWeight( int variant )
+    {
+        checkVariant( variant );
+        return weights[ variant ];
+    }
+
+    /**
+     * Get the map tile edge at the specified position of the specified variant.
+     *
+     * @param variant
+     *            Variant for which to get the map tile edge. Must be a valid variant.
+     * @param mapTileEdgePosition
+     *            Position of the map tile edge to get. Cannot be null.
+     *
+     * @return The map tile edge at the specified position of the specified variant.
+     */
+    public MapTileEdge getMapTileEdge( int variant, MapTileEdgePosition mapTileEdgePosition )
+    {
+        checkVariant( variant );
+
+        if ( mapTileEdgePosition == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileEdgePosition' cannot be null." );
+        }
+
+        return mapTileEdges[ variant ][ mapTileEdgePosition.getIndex() ];
+    }
+
+    /**
+     * Get the number of distinct map tile edges in this map tile set. The map tile edges have the
+     * ordinals 0 through one less than the returned value.
+     *
+     * @return The number of distinct map tile edges in this map tile set.
+     */
+    public int getMapTileEdgeCount()
+    {
+        return ordinalMapTileEdges.length;
+    }
+
+    /**
+     * Get the map tile edge with the specified ordinal.
+     *
+     * @param ordinal
+     *            Ordinal of the map tile edge to get. Must be a valid ordinal.
+     *
+     * @return The map tile edge with the specified ordinal.
+     */
+    public MapTileEdge getMapTileEdge( int ordinal )
+    {
+        checkOrdinal( ordinal );
+        return ordinalMapTileEdges[ ordinal ];
+    }
+
+    /**
+     * Get the ordinal of the map tile edge at the specified position of the specified variant.
+     *
+     * @param variant
+     *            Variant for which to get the map tile edge ordinal. Must be a valid variant.
+     * @param mapTileEdgePosition
+     *            Position of the map tile edge. Cannot be null.
+     *
+     * @return The ordinal of the map tile edge at the specified position of the specified variant.
+     */
+    public int getMapTileEdgeOrdinal( int variant, MapTileEdgePosition mapTileEdgePosition )
+    {
+        checkVariant( variant );
+
+        if ( mapTileEdgePosition == null )
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileEdgePosition' cannot be null." );
+        }
+
+        return mapTileEdgeOrdinals[ ( variant * MapTileEdgePosition.ALL_POSITIONS.length ) +
+                                    mapTileEdgePosition.getIndex() ];
+    }
+
+    /**
+     * Determine whether or not the map tile edges with the specified ordinals match.
+     *
+     * @param firstOrdinal
+     *            Ordinal of the first map tile edge. Must be a valid ordinal.
+     * @param secondOrdinal
+     *            Ordinal of the second map tile edge. Must be a valid ordinal.
+     *
+     * @return True if the map tile edges match, false otherwise.
+     */
+    public boolean mapTileEdgesMatch( int firstOrdinal, int secondOrdinal )
+    {
+        checkOrdinal( firstOrdinal );
+        checkOrdinal( secondOrdinal );
+
+        return ( mapTileEdgeMatches[ ( firstOrdinal * matchWordCount ) + ( secondOrdinal / 64 ) ] &
+                 ( 1L << ( secondOrdinal % 64 ))) != 0;
+    }
+
+    /**
+     * Get the bit mask of the open edges of the specified variant. Bit N of the mask is set if the
+     * map tile edge position with index N is open.
+     *
+     * @param variant
+     *            Variant for which to get the open edge mask. Must be a valid variant.
+     *
+     * @return The bit mask of the open edges of the specified variant.
+     */
+    public int getOpenMapTileEdgeMask( int variant )
+    {
+        checkVariant( variant );
+        return openMapTileEdgeMasks[ variant ];
+    }
+
+    /**
+     * Get the rotated open map tile edge positions of the specified variant, in the same order in
+     * which the map tile type specifies its open edges. The returned array is shared and must not
+     * be modified.
+     *
+     * @param variant
+     *            Variant for which to get the open map tile edge positions. Must be a valid
+     *            variant.
+     *
+     * @return The rotated open map tile edge positions of the specified variant.
+     */
+    MapTileEdgePosition[] getOpenMapTileEdgePositions( int variant )
+    {
+        return openMapTileEdgePositions[ variant ];
+    }
+
+    /**
+     * Determine whether or not a variant can be placed next to a neighboring variant. This method
+     * does not validate its parameters since it is called on the hot path of map generation.
+     *
+     * @param variant
+     *            Variant to check.
+     * @param mapTileEdgePositionIndex
+     *            Index of the map tile edge position of the variant that faces the neighboring
+     *            variant.
+     * @param neighborVariant
+     *            Neighboring variant.
+     *
+     * @return True if the facing map tile edges of the two variants match, false otherwise.
+     */
+    boolean variantMatchesNeighbor( int variant, int mapTileEdgePositionIndex,
+                                    int neighborVariant )
+    {
+        // the facing edge of the neighbor is on the opposite side
+        int neighborMapTileEdgePositionIndex = ( mapTileEdgePositionIndex + 2 ) % 4;
+
+        int ordinal = mapTileEdgeOrdinals[ ( variant * 4 ) + mapTileEdgePositionIndex ];
+        int neighborOrdinal = mapTileEdgeOrdinals[ ( neighborVariant * 4 ) +
+                                                   neighborMapTileEdgePositionIndex ];
+
+        return ( mapTileEdgeMatches[ ( neighborOrdinal * matchWordCount ) + ( ordinal / 64 ) ] &
+                 ( 1L << ( ordinal % 64 ))) != 0;
+    }
+
+    /**
+     * Get the neighbor signature contribution of a neighboring variant. The neighbor signature of
+     * an empty map tile location is the bitwise OR of the contributions of all of its neighbors.
+     * This method does not validate its parameters since it is called on the hot path of map
+     * generation.
+     *
+     * @param mapTileEdgePositionIndex
+     *            Index of the map tile edge position, relative to the empty map tile location, at
+     *            which the neighboring variant is located.
+     * @param neighborVariant
+     *            Neighboring variant.
+     *
+     * @return The neighbor signature contribution of the neighboring variant.
+     */
+    long getNeighborSignature( int mapTileEdgePositionIndex, int neighborVariant )
+    {
+        // the facing edge of the neighbor is on the opposite side
+        int neighborMapTileEdgePositionIndex = ( mapTileEdgePositionIndex + 2 ) % 4;
+        int neighborOrdinal = mapTileEdgeOrdinals[ ( neighborVariant * 4 ) +
+                                                   neighborMapTileEdgePositionIndex ];
+
+        return ((long) ( neighborOrdinal + 1 )) << ( 16 * mapTileEdgePositionIndex );
+    }
+
+    /**
+     * Get the number of words in a bit set of distinct variants.
+     *
+     * @return The number of words in a bit set of distinct variants.
+     */
+    int getVariantWordCount()
+    {
+        return variantWordCount;
+    }
+
+    /**
+     * Get the number of words in a bit set of all variants, including the variants that do not
+     * correspond to a distinct orientation. Map tiles added to the map directly can be of any
+     * variant, so bit sets of variants excluded or rejected at map tile locations use this size.
+     *
+     * @return The number of words in a bit set of all variants.
+     */
+    int getAllVariantWordCount()
+    {
+        return ( mapTiles.length + 63 ) / 64;
+    }
+
+    /**
+     * Add the distinct variants that fit next to at least one of a set of neighboring variants to
+     * a bit set of distinct variants. This method does not validate its parameters since it is
+     * called on the hot path of propagation.
+     *
+     * @param variantSet
+     *            Bit set of distinct variants to add the fitting variants to.
+     * @param mapTileEdgePositionIndex
+     *            Index of the map tile edge position, relative to the fitting variants, at which
+     *            the neighboring variants are located.
+     * @param neighborVariantSet
+     *            Bit set of the neighboring variants.
+     */
+    void addNeighborSupport( long[] variantSet, int mapTileEdgePositionIndex,
+                             long[] neighborVariantSet )
+    {
+        // the facing edge of the neighbor is on the opposite side
+        int neighborMapTileEdgePositionIndex = ( mapTileEdgePositionIndex + 2 ) % 4;
+
+        for ( int i = 0; i < neighborVariantSet.length; i++ )
+        {
+            long word = neighborVariantSet[ i ];
+
+            while ( word != 0 )
+            {
+                int neighborVariant = ( i * 64 ) + Long.numberOfTrailingZeros( word );
+                int neighborOrdinal = mapTileEdgeOrdinals[ ( neighborVariant * 4 ) +
+                                                           neighborMapTileEdgePositionIndex ];
+                int offset = (( mapTileEdgePositionIndex * ordinalMapTileEdges.length ) +
+                              neighborOrdinal ) * variantWordCount;
+
+                for ( int j = 0; j < variantWordCount; j++ )
+                {
+                    variantSet[ j ] |= neighborMatches[ offset + j ];
+                }
+
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Get the map tile candidates for an empty map tile location with the specified neighbor
+     * signature. The map tile candidates are computed the first time a neighbor signature is seen
+     * and cached after that.
+     *
+     * @param neighborSignature
+     *            Neighbor signature of the empty map tile location.
+     *
+     * @return The map tile candidates for the neighbor signature.
+     */
+    MapTileCandidates getMapTileCandidates( long neighborSignature )
+    {
+        MapTileCandidates mapTileCandidates = mapTileCandidatesMap.get( neighborSignature );
+
+        if ( mapTileCandidates == null )
+        {
+            long[] variantSet = new long[ variantWordCount ];
+
+            for ( int variant = 0; variant < distinctVariantCount; variant++ )
+            {
+                variantSet[ variant / 64 ] |= 1L << ( variant % 64 );
+            }
+
+            for ( int i = 0; i < MapTileEdgePosition.ALL_POSITIONS.length; i++ )
+            {
+                int neighborValue = (int) (( neighborSignature >>> ( 16 * i )) & 0xFFFF );
+
+                if ( neighborValue != 0 )
+                {
+                    int offset = (( i * ordinalMapTileEdges.length ) + neighborValue - 1 ) *
+                                 variantWordCount;
+
+                    for ( int j = 0; j < variantWordCount; j++ )
+                    {
+                        variantSet[ j ] &= neighborMatches[ offset + j ];
+                    }
+                }
+            }
+
+            mapTileCandidates = new MapTileCandidates( this, variantSet );
+
+            MapTileCandidates existingMapTileCandidates =
+                    mapTileCandidatesMap.putIfAbsent( neighborSignature, mapTileCandidates );
+
+            if ( existingMapTileCandidates != null )
+            {
+                mapTileCandidates = existingMapTileCandidates;
+            }
+        }
+
+        return mapTileCandidates;
+    }
+
+    /**
+     * Add a variant to this map tile set.
+     *
+     * @param variant
+     *            Identifier of the variant to add.
+     * @param mapTileTypeIndex
+     *            Index of the map tile type of the variant.
+     * @param mapTileOrientation
+     *            Orientation of the variant.
+     */
+    private void addVariant( int variant, int mapTileTypeIndex,
+                             MapTileOrientation mapTileOrientation )
+    {
+        MapTileType mapTileType = mapTileTypes[ mapTileTypeIndex ];
+        MapTile mapTile = new MapTile( mapTileType, mapTileOrientation );
+
+        mapTiles[ variant ] = mapTile;
+        mapTileOrientations[ variant ] = mapTileOrientation;
+        mapTileTypeIndexes[ variant ] = mapTileTypeIndex;
+        weights[ variant ] = mapTileType.getWeight();
+        mapTileEdges[ variant ] = new MapTileEdge[ MapTileEdgePosition.ALL_POSITIONS.length ];
+        openMapTileEdgePositions[ variant ] = mapTile.getOpenMapTileEdgePositions();
+
+        for ( MapTileEdgePosition mapTileEdgePosition : MapTileEdgePosition.ALL_POSITIONS )
+        {
+            mapTileEdges[ variant ][ mapTileEdgePosition.getIndex() ] =
+                    mapTile.getMapTileEdge( mapTileEdgePosition );
+            mapTileEdgeOrdinals[ ( variant * MapTileEdgePosition.ALL_POSITIONS.length ) +
+                                 mapTileEdgePosition.getIndex() ] =
+                    mapTileEdgeOrdinalMap.get( mapTile.getMapTileEdge( mapTileEdgePosition ));
+        }
+
+        for ( MapTileEdgePosition mapTileEdgePosition : openMapTileEdgePositions[ variant ] )
+        {
+            openMapTileEdgeMasks[ variant ] |= 1 << mapTileEdgePosition.getIndex();
+        }
+
+        variants.put( mapTile, variant );
+    }
+
+    /**
+     * Compute the bit sets of the distinct variants that can be placed next to each possible
+     * neighbor.
+     */
+    private void compileNeighborMatches()
+    {
+        int mapTileEdgeCount = ordinalMapTileEdges.length;
+
+        for ( int i = 0; i < MapTileEdgePosition.ALL_POSITIONS.length; i++ )
+        {
+            for ( int neighborOrdinal = 0; neighborOrdinal < mapTileEdgeCount; neighborOrdinal++ )
+            {
+                int offset = (( i * mapTileEdgeCount ) + neighborOrdinal ) * variantWordCount;
+
+                for ( int variant = 0; variant < distinctVariantCount; variant++ )
+                {
+                    int ordinal = mapTileEdgeOrdinals[ ( variant * 4 ) + i ];
+
+                    if (( mapTileEdgeMatches[ ( neighborOrdinal * matchWordCount ) +
+                                              ( ordinal / 64 ) ] &
+                          ( 1L << ( ordinal % 64 ))) != 0 )
+                    {
+                        neighborMatches[ offset + ( variant / 64 ) ] |= 1L << ( variant % 64 );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compile the matching rules of a list of map tile edges into a bit matrix.
+     *
+     * @param ordinalMapTileEdges
+     *            List of map tile edges, indexed by ordinal.
+     * @param matchWordCount
+     *            Number of words in each row of the bit matrix.
+     *
+     * @return The bit matrix of which map tile edges match each other.
+     */
+    private static long[] compileMapTileEdgeMatches( List< MapTileEdge > ordinalMapTileEdges,
+                                                     int matchWordCount )
+    {
+        int mapTileEdgeCount = ordinalMapTileEdges.size();
+        long[] mapTileEdgeMatches = new long[ mapTileEdgeCount * matchWordCount ];
+
+        for ( int i = 0; i < mapTileEdgeCount; i++ )
+        {
+            MapTileEdge firstMapTileEdge = ordinalMapTileEdges.get( i );
+
+            for ( int j = 0; j < mapTileEdgeCount; j++ )
+            {
+                MapTileEdge secondMapTileEdge = ordinalMapTileEdges.get( j );
+
+                if ( firstMapTileEdge.mapTileEdgeMatches( secondMapTileEdge ))
+                {
+                    if ( ! secondMapTileEdge.mapTileEdgeMatches( firstMapTileEdge ))
+                    {
+                        throw new IllegalArgumentException(
+                                "Map tile edge '" + firstMapTileEdge + "' matches map tile edge '" +
+                                secondMapTileEdge + "', but map tile edge '" + secondMapTileEdge +
+                                "' does not match map tile edge '" + firstMapTileEdge + "'." );
+                    }
+
+                    mapTileEdgeMatches[ ( i * matchWordCount ) + ( j / 64 ) ] |= 1L << ( j % 64 );
+                }
+            }
+        }
+
+        return mapTileEdgeMatches;
+    }
+
+    /**
+     * Verify that a map tile type index is valid for this map tile set.
+     *
+     * @param mapTileTypeIndex
+     *            Map tile type index to check.
+     */
+    private void checkMapTileTypeIndex( int mapTileTypeIndex )
+    {
+        if (( mapTileTypeIndex < 0 ) || ( mapTileTypeIndex >= mapTileTypes.length ))
+        {
+            throw new IllegalArgumentException( "Parameter 'mapTileTypeIndex' must be between 0 " +
+                                                "and " + ( mapTileTypes.length - 1 ) + "." );
+        }
+    }
+
+    /**
+     * Verify that a map tile edge ordinal is valid for this map tile set.
+     *
+     * @param ordinal
+     *            Map tile edge ordinal to check.
+     */
+    private void checkOrdinal( int ordinal )
+    {
+        if (( ordinal < 0 ) || ( ordinal >= ordinalMapTileEdges.length ))
+        {
+            throw new IllegalArgumentException( "Parameter 'ordinal' must be between 0 and " +
+                                                ( ordinalMapTileEdges.length - 1 ) + "." );
+        }
+    }
+
+    /**
+     * Verify that a variant is valid for this map tile set.
+     *
+     * @param variant
+     *            Variant to check.
+     */
+    private void checkVariant( int variant )
+    {
+        if (( variant < 0 ) || ( variant >= mapTiles.length ))
+        {
+            throw new IllegalArgumentException( "Parameter 'variant' must be between 0 and " +
+                                                ( mapTiles.length - 1 ) + "." );
+        }
+    }
+
+    /**
+     * Class used as the key for cached map tile sets. Two keys are equal if they contain the same
+     * map tile type instances in the same order.
+     */
+    private static class Key
+    {
+        /**
+         * Array of map tile types the map tile set was compiled from.
+         */
+        private final MapTileType[] mapTileTypes;
+
+        /**
+         * Construct a key.
+         *
+         * @param mapTileTypes
+         *            Array of map tile types the map tile set was compiled from.
+         */
+        private Key( MapTileType[] mapTileTypes )
+        {
+            this.mapTileTypes = mapTileTypes.clone();
+        }
+
+        /**
+         * Determine whether or not this key is equal to another object.
+         *
+         * @param obj
+         *            Object to compare against.
+         *
+         * @return True if the other object is a key with the same map tile type instances in the
+         *         same order, false otherwise.
+         */
+        public boolean equals( Object obj )
+        {
+            if ( ! ( obj instanceof Key ))
+            {
+                return false;
+            }
+
+            Key key = (Key) obj;
+
+            if ( mapTileTypes.length != key.mapTileTypes.length )
+            {
+                return false;
+            }
+
+            for ( int i = 0; i < mapTileTypes.length; i++ )
+            {
+                if ( mapTileTypes[ i ] != key.mapTileTypes[ i ] )
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Get the hash code of this key.
+         *
+         * @return The hash code of this key.
+         */
+        public int hashCode()
+        {
+            int hashCode = 1;
+
+            for ( MapTileType mapTileType : mapTileTypes )
+            {
+                hashCode = ( 31 * hashCode ) + System.identityHashCode( mapTileType );
+            }
+
+            return hashCode;
+        }
+    }
+}
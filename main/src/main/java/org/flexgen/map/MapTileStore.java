@@ -0,0 +1,134 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Interface defining the storage of the map tiles placed by a map generator. Map tile locations
+ * are given by their coordinates, and each map tile is stored as its variant and its age.
+ */
+interface MapTileStore
+{
+    /**
+     * Value returned for the variant or age of an empty map tile location.
+     */
+    int NONE = -1;
+
+    /**
+     * Get the number of map tiles in the store.
+     *
+     * @return The number of map tiles in the store.
+     */
+    int size();
+
+    /**
+     * Get the variant of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The variant of the map tile, or NONE if the map tile location is empty.
+     */
+    int getVariant( int x, int y );
+
+    /**
+     * Get the age of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The age of the map tile, or NONE if the map tile location is empty.
+     */
+    int getAge( int x, int y );
+
+    /**
+     * Put a map tile at a map tile location, replacing the map tile that was there.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     * @param variant
+     *            Variant of the map tile. Cannot be negative.
+     * @param age
+     *            Age of the map tile. Cannot be negative.
+     */
+    void put( int x, int y, int variant, int age );
+
+    /**
+     * Remove the map tile at a map tile location. Nothing happens if the map tile location is
+     * empty.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     */
+    void remove( int x, int y );
+
+    /**
+     * Visit every map tile in the store, in no particular order.
+     *
+     * @param visitor
+     *            Visitor to inform of each map tile.
+     */
+    void visit( Visitor visitor );
+
+    /**
+     * Release the resources held by the store. The store cannot be used afterwards.
+     */
+    void close();
+
+    /**
+     * Interface defining a mechanism for visiting the map tiles in a store.
+     */
+    interface Visitor
+    {
+        /**
+         * Visit a map tile.
+         *
+         * @param x
+         *            X coordinate of the map tile location.
+         * @param y
+         *            Y coordinate of the map tile location.
+         * @param variant
+         *            Variant of the map tile.
+         * @param age
+         *            Age of the map tile.
+         */
+        void visit( int x, int y, int variant, int age );
+    }
+}
@@ -0,0 +1,351 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the map tiles placed by a map generator. The map tiles are kept in an open
+ * addressing hash table that is keyed by the packed coordinates of their map tile locations and
+ * stores the variant and the age of each map tile inline, so no objects are allocated per map
+ * tile. Collisions are resolved by linear probing, and removals shift later entries back instead
+ * of leaving tombstones, so lookups never slow down as map tiles come and go.
+ */
+class MapTileTable implements MapTileStore
+{
+    /**
+     * Initial number of slots in the table. Must be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Packed coordinates of the map tile location in each slot.
+     */
+    private long[] keys;
+
+    /**
+     * Variant of the map tile in each slot, or NONE if the slot is empty.
+     */
+    private int[] variants;
+
+    /**
+     * Age of the map tile in each slot.
+     */
+    private int[] ages;
+
+    /**
+     * Mask selecting a slot from a hash code.
+     */
+    private int mask;
+
+    /**
+     * Number of map tiles in the table.
+     */
+    private int size;
+
+    /**
+     * Construct an empty table.
+     */
+    MapTileTable()
+    {
+        allocate( INITIAL_CAPACITY );
+        this.size = 0;
+    }
+
+    /**
+     * Pack the coordinates of a map tile location into a single value.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The packed coordinates.
+     */
+    static long pack( int x, int y )
+    {
+        return ((long) x << 32 ) | ( y & 0xFFFFFFFFL );
+    }
+
+    /**
+     * Compute a well mixed hash code for packed coordinates, so that nearby map tile locations are
+     * spread over the whole table.
+     *
+     * @param key
+     *            Packed coordinates of a map tile location.
+     *
+     * @return The hash code of the packed coordinates.
+     */
+    static int hash( long key )
+    {
+        long h = key;
+        h = ( h ^ ( h >>> 33 )) * 0xFF51AFD7ED558CCDL;
+        h = ( h ^ ( h >>> 33 )) * 0xC4CEB9FE1A85EC53L;
+        return (int) ( h ^ ( h >>> 33 ));
+    }
+
+    /**
+     * Get the number of map tiles in the table.
+     *
+     * @return The number of map tiles in the table.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Get the variant of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The variant of the map tile, or NONE if the map tile location is empty.
+     */
+    public int getVariant( int x, int y )
+    {
+        int slot = find( pack( x, y ));
+
+        if ( slot < 0 )
+        {
+            return NONE;
+        }
+
+        return variants[ slot ];
+    }
+
+    /**
+     * Get the age of the map tile at a map tile location.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     *
+     * @return The age of the map tile, or NONE if the map tile location is empty.
+     */
+    public int getAge( int x, int y )
+    {
+        int slot = find( pack( x, y ));
+
+        if ( slot < 0 )
+        {
+            return NONE;
+        }
+
+        return ages[ slot ];
+    }
+
+    /**
+     * Put a map tile at a map tile location, replacing the map tile that was there.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     * @param variant
+     *            Variant of the map tile. Cannot be negative.
+     * @param age
+     *            Age of the map tile. Cannot be negative.
+     */
+    public void put( int x, int y, int variant, int age )
+    {
+        if (( size + 1 ) * 4 > keys.length * 3 )
+        {
+            rehash( keys.length * 2 );
+        }
+
+        long key = pack( x, y );
+        int slot = hash( key ) & mask;
+
+        while ( variants[ slot ] != NONE )
+        {
+            if ( keys[ slot ] == key )
+            {
+                variants[ slot ] = variant;
+                ages[ slot ]     = age;
+                return;
+            }
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        keys[ slot ]     = key;
+        variants[ slot ] = variant;
+        ages[ slot ]     = age;
+        size++;
+    }
+
+    /**
+     * Remove the map tile at a map tile location. Nothing happens if the map tile location is
+     * empty.
+     *
+     * @param x
+     *            X coordinate of the map tile location.
+     * @param y
+     *            Y coordinate of the map tile location.
+     */
+    public void remove( int x, int y )
+    {
+        int slot = find( pack( x, y ));
+
+        if ( slot < 0 )
+        {
+            return;
+        }
+
+        size--;
+
+        // shift later entries of the probe sequence back, so no entry becomes unreachable
+        int hole = slot;
+        int next = ( hole + 1 ) & mask;
+
+        while ( variants[ next ] != NONE )
+        {
+            int home = hash( keys[ next ] ) & mask;
+
+            if ((( next - home ) & mask ) >= (( next - hole ) & mask ))
+            {
+                keys[ hole ]     = keys[ next ];
+                variants[ hole ] = variants[ next ];
+                ages[ hole ]     = ages[ next ];
+                hole = next;
+            }
+
+            next = ( next + 1 ) & mask;
+        }
+
+        variants[ hole ] = NONE;
+    }
+
+    /**
+     * Visit every map tile in the table, in no particular order.
+     *
+     * @param visitor
+     *            Visitor to inform of each map tile.
+     */
+    public void visit( Visitor visitor )
+    {
+        for ( int slot = 0; slot < keys.length; slot++ )
+        {
+            if ( variants[ slot ] != NONE )
+            {
+                visitor.visit((int) ( keys[ slot ] >> 32 ), (int) keys[ slot ], variants[ slot ],
+                               ages[ slot ] );
+            }
+        }
+    }
+
+    /**
+     * Release the resources held by the table. Nothing has to be done for a table kept on the
+     * heap.
+     */
+    public void close()
+    {
+    }
+
+    /**
+     * Find the slot holding a map tile location.
+     *
+     * @param key
+     *            Packed coordinates of the map tile location.
+     *
+     * @return The index of the slot, or -1 if the map tile location is empty.
+     */
+    private int find( long key )
+    {
+        int slot = hash( key ) & mask;
+
+        while ( variants[ slot ] != NONE )
+        {
+            if ( keys[ slot ] == key )
+            {
+                return slot;
+            }
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Allocate empty arrays for the table.
+     *
+     * @param capacity
+     *            Number of slots. Must be a power of two.
+     */
+    private void allocate( int capacity )
+    {
+        keys     = new long[ capacity ];
+        variants = new int[ capacity ];
+        ages     = new int[ capacity ];
+        mask     = capacity - 1;
+
+        Arrays.fill( variants, NONE );
+    }
+
+    /**
+     * Move the map tiles into a table with a different number of slots.
+     *
+     * @param capacity
+     *            New number of slots. Must be a power of two.
+     */
+    private void rehash( int capacity )
+    {
+        long[] oldKeys = keys;
+        int[] oldVariants = variants;
+        int[] oldAges = ages;
+
+        allocate( capacity );
+
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldVariants[ i ] != NONE )
+            {
+                int slot = hash( oldKeys[ i ] ) & mask;
+
+                while ( variants[ slot ] != NONE )
+                {
+                    slot = ( slot + 1 ) & mask;
+                }
+
+                keys[ slot ]     = oldKeys[ i ];
+                variants[ slot ] = oldVariants[ i ];
+                ages[ slot ]     = oldAges[ i ];
+            }
+        }
+    }
+}
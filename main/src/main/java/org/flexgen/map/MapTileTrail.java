@@ -0,0 +1,347 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing the undo log of a map generator. While at least one mark is held, every change
+ * the map generator makes to its state is recorded as an entry on the trail, together with what
+ * is needed to reverse it. Popping the trail back to a mark undoes the changes made since the mark
+ * in time proportional to the number of changes. When no mark is held, nothing is recorded.
+ * <p>
+ * The trail is popped by checkpoints, restarts and interrupted placements. By default, recovery
+ * from bad open locations does not pop it: that recovery removes only the newer map tiles
+ * connected to the map tile it removes first, while popping the trail would also undo every
+ * unrelated map tile placed since. With trail backtracking, recovery pops the trail back to the
+ * placement of the map tile it removes, restoring the open locations recorded on it exactly.
+ */
+class MapTileTrail
+{
+    /**
+     * Kind of entry recording that a map tile was placed.
+     */
+    static final int PLACE = 0;
+
+    /**
+     * Kind of entry recording that a map tile was removed.
+     */
+    static final int REMOVE = 1;
+
+    /**
+     * Kind of entry recording that an open location was added.
+     */
+    static final int OPEN = 2;
+
+    /**
+     * Kind of entry recording that an open location was removed.
+     */
+    static final int CLOSE = 3;
+
+    /**
+     * Kind of entry recording that the excluded variants of a map tile location changed.
+     */
+    static final int EXCLUDE = 4;
+
+    /**
+     * Entries of the trail, oldest first.
+     */
+    private final List< Entry > entries;
+
+    /**
+     * Number of marks currently held.
+     */
+    private int markCount;
+
+    /**
+     * Construct an empty trail.
+     */
+    MapTileTrail()
+    {
+        this.entries   = new ArrayList< Entry >();
+        this.markCount = 0;
+    }
+
+    /**
+     * Place a mark on the trail. Changes are recorded until the mark is released.
+     *
+     * @return The mark, which is the current size of the trail.
+     */
+    int mark()
+    {
+        markCount++;
+        return entries.size();
+    }
+
+    /**
+     * Release a mark that was placed on the trail. The trail is discarded once no marks are held.
+     */
+    void release()
+    {
+        markCount--;
+
+        if ( markCount == 0 )
+        {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Determine whether or not changes are being recorded.
+     *
+     * @return True if at least one mark is held, false otherwise.
+     */
+    boolean isRecording()
+    {
+        return ( markCount > 0 );
+    }
+
+    /**
+     * Get the number of entries on the trail.
+     *
+     * @return The number of entries on the trail.
+     */
+    int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Record a change, if changes are being recorded.
+     *
+     * @param kind
+     *            Kind of the change.
+     * @param mapTileLocation
+     *            Map tile location that was changed.
+     * @param value
+     *            Variant for PLACE and REMOVE entries, sequence number for OPEN and CLOSE entries,
+     *            and 0 otherwise.
+     * @param age
+     *            Age of the map tile for PLACE and REMOVE entries, and 0 otherwise.
+     * @param mapTileExclusion
+     *            Previous exclusion of the map tile location for EXCLUDE entries, and null
+     *            otherwise.
+     */
+    void record( int kind, MapTileLocation mapTileLocation, long value, int age,
+                 MapTileExclusion mapTileExclusion )
+    {
+        if ( markCount > 0 )
+        {
+            entries.add( new Entry( kind, mapTileLocation, value, age, mapTileExclusion ));
+        }
+    }
+
+    /**
+     * Find the entry recording the placement of a map tile, searching back from the most recent
+     * entry. Placements are recorded in increasing order of the ages of their map tiles, so the
+     * search stops at the first older placement, and takes time proportional to the number of
+     * entries after the one found. If the open location was closed for the placement just before
+     * it, the position of the entry recording that is returned instead, so undoing back to the
+     * position opens the location again.
+     *
+     * @param mapTileLocation
+     *            Map tile location of the map tile.
+     * @param age
+     *            Age of the map tile.
+     * @param floor
+     *            Smallest position at which the entry may be found.
+     *
+     * @return The position of the entry, or -1 if the placement is not recorded at or above the
+     *         floor.
+     */
+    int findPlacement( MapTileLocation mapTileLocation, int age, int floor )
+    {
+        for ( int i = entries.size() - 1; i >= floor; i-- )
+        {
+            Entry entry = entries.get( i );
+
+            if (( entry.kind == PLACE ) && ( entry.age <= age ))
+            {
+                if (( entry.age == age ) && ( entry.mapTileLocation.equals( mapTileLocation )))
+                {
+                    if (( i > floor ) && ( entries.get( i - 1 ).kind == CLOSE ) &&
+                        ( entries.get( i - 1 ).mapTileLocation.equals( mapTileLocation )))
+                    {
+                        return i - 1;
+                    }
+
+                    return i;
+                }
+
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Count the map tile placements recorded at or after a position.
+     *
+     * @param position
+     *            Position of the first entry to count.
+     *
+     * @return The number of map tile placements.
+     */
+    int countPlacements( int position )
+    {
+        int placementCount = 0;
+
+        for ( int i = position; i < entries.size(); i++ )
+        {
+            if ( entries.get( i ).kind == PLACE )
+            {
+                placementCount++;
+            }
+        }
+
+        return placementCount;
+    }
+
+    /**
+     * Remove the most recent entry from the trail.
+     *
+     * @return The most recent entry.
+     */
+    Entry pop()
+    {
+        return entries.remove( entries.size() - 1 );
+    }
+
+    /**
+     * Class representing a single change recorded on the trail.
+     */
+    static class Entry
+    {
+        /**
+         * Kind of the change.
+         */
+        private final int kind;
+
+        /**
+         * Map tile location that was changed.
+         */
+        private final MapTileLocation mapTileLocation;
+
+        /**
+         * Variant or sequence number, depending on the kind of the change.
+         */
+        private final long value;
+
+        /**
+         * Age of the map tile, for PLACE and REMOVE entries.
+         */
+        private final int age;
+
+        /**
+         * Previous exclusion of the map tile location, for EXCLUDE entries.
+         */
+        private final MapTileExclusion mapTileExclusion;
+
+        /**
+         * Construct a trail entry.
+         *
+         * @param kind
+         *            Kind of the change.
+         * @param mapTileLocation
+         *            Map tile location that was changed.
+         * @param value
+         *            Variant or sequence number, depending on the kind of the change.
+         * @param age
+         *            Age of the map tile, for PLACE and REMOVE entries.
+         * @param mapTileExclusion
+         *            Previous exclusion of the map tile location, for EXCLUDE entries.
+         */
+        Entry( int kind, MapTileLocation mapTileLocation, long value, int age,
+               MapTileExclusion mapTileExclusion )
+        {
+            this.kind             = kind;
+            this.mapTileLocation  = mapTileLocation;
+            this.value            = value;
+            this.age              = age;
+            this.mapTileExclusion = mapTileExclusion;
+        }
+
+        /**
+         * Get the kind of the change.
+         *
+         * @return The kind of the change.
+         */
+        int getKind()
+        {
+            return kind;
+        }
+
+        /**
+         * Get the map tile location that was changed.
+         *
+         * @return The map tile location that was changed.
+         */
+        MapTileLocation getMapTileLocation()
+        {
+            return mapTileLocation;
+        }
+
+        /**
+         * Get the variant or sequence number, depending on the kind of the change.
+         *
+         * @return The variant or sequence number.
+         */
+        long getValue()
+        {
+            return value;
+        }
+
+        /**
+         * Get the age of the map tile, for PLACE and REMOVE entries.
+         *
+         * @return The age of the map tile.
+         */
+        int getAge()
+        {
+            return age;
+        }
+
+        /**
+         * Get the previous exclusion of the map tile location, for EXCLUDE entries.
+         *
+         * @return The previous exclusion of the map tile location, or null if no variants were
+         *         excluded there.
+         */
+        MapTileExclusion getMapTileExclusion()
+        {
+            return mapTileExclusion;
+        }
+    }
+}
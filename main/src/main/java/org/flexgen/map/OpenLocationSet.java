@@ -0,0 +1,520 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Class representing the set of open locations of a map generator. Like a linked hash set, it
+ * iterates over the open locations in the order in which they were added. Unlike a linked hash
+ * set, each open location is given a sequence number when it is added, and a removed open location
+ * can be restored to its original position in the iteration order using that sequence number. This
+ * allows changes to the set to be undone exactly.
+ * <p>
+ * The open locations are kept in an array in the order of their sequence numbers, and the slot of
+ * each open location in the array is kept in a primitive hash table, so adding, finding and
+ * removing an open location takes constant time. A removed open location leaves an empty slot
+ * behind, so a restored open location can go straight back into its slot. The empty slots are
+ * squeezed out once they outnumber the open locations, so iterating over the set takes time
+ * proportional to the number of open locations, even while changes are recorded on the trail for a
+ * long time. An open location whose slot was squeezed out is given a new slot when restored, which
+ * only moves the open locations between it and the nearest empty slot.
+ */
+class OpenLocationSet extends AbstractSet< MapTileLocation >
+{
+    /**
+     * Initial number of slots in the array.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Map tile location filter of the map generator.
+     */
+    private final MapTileLocationFilter mapTileLocationFilter;
+
+    /**
+     * Live view of the open locations allowed by the map tile location filter, or null if the
+     * filter is not a rectangular map tile location filter.
+     */
+    private final FilteredOpenLocations filteredOpenLocations;
+
+    /**
+     * One-element list handed to a map tile location filter that is not rectangular to check
+     * whether it allows a single map tile location.
+     */
+    private final List< MapTileLocation > mapTileLocationList;
+
+    /**
+     * Open location in each slot, or null if the slot is empty. Only the first slotCount slots are
+     * in use.
+     */
+    private MapTileLocation[] entries;
+
+    /**
+     * Sequence number of each slot, in increasing order.
+     */
+    private long[] sequenceNumbers;
+
+    /**
+     * Slot of each open location, stored as the variant of its map tile location.
+     */
+    private MapTileTable slots;
+
+    /**
+     * Number of slots in use, including the empty ones.
+     */
+    private int slotCount;
+
+    /**
+     * Number of open locations.
+     */
+    private int size;
+
+    /**
+     * Sequence number to give to the next open location that is added.
+     */
+    private long sequenceCounter;
+
+    /**
+     * Construct an empty open location set.
+     *
+     * @param mapTileLocationFilter
+     *            Map tile location filter of the map generator.
+     */
+    OpenLocationSet( MapTileLocationFilter mapTileLocationFilter )
+    {
+        this.mapTileLocationFilter = mapTileLocationFilter;
+
+        if ( mapTileLocationFilter instanceof RectangularMapTileLocationFilter )
+        {
+            this.filteredOpenLocations = new FilteredOpenLocations(
+                    this, (RectangularMapTileLocationFilter) mapTileLocationFilter );
+        }
+        else
+        {
+            this.filteredOpenLocations = null;
+        }
+
+        this.mapTileLocationList = Arrays.asList( new MapTileLocation[ 1 ] );
+        this.entries             = new MapTileLocation[ INITIAL_CAPACITY ];
+        this.sequenceNumbers     = new long[ INITIAL_CAPACITY ];
+        this.slots               = new MapTileTable();
+        this.slotCount           = 0;
+        this.size                = 0;
+        this.sequenceCounter     = 0;
+    }
+
+    /**
+     * Get an iterator over the open locations, in the order in which they were added. The
+     * iterator does not support removal.
+     *
+     * @return An iterator over the open locations.
+     */
+    public Iterator< MapTileLocation > iterator()
+    {
+        return new Iterator< MapTileLocation >()
+        {
+            /**
+             * Slot of the next open location to return.
+             */
+            private int slot = nextSlot( 0 );
+
+            /**
+             * Determine whether or not there are more open locations.
+             *
+             * @return True if there are more open locations, false otherwise.
+             */
+            public boolean hasNext()
+            {
+                return slot < slotCount;
+            }
+
+            /**
+             * Get the next open location.
+             *
+             * @return The next open location.
+             */
+            public MapTileLocation next()
+            {
+                if ( slot >= slotCount )
+                {
+                    throw new NoSuchElementException();
+                }
+
+                MapTileLocation mapTileLocation = entries[ slot ];
+                slot = nextSlot( slot + 1 );
+                return mapTileLocation;
+            }
+
+            /**
+             * Removal is not supported.
+             */
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Get the open locations that are allowed by the map tile location filter. For a rectangular
+     * map tile location filter, this is a live view of this set, so nothing is copied; for any
+     * other filter, the filter makes a copy.
+     *
+     * @return The open locations that are allowed by the map tile location filter.
+     */
+    Collection< MapTileLocation > getFilteredOpenLocations()
+    {
+        if ( filteredOpenLocations == null )
+        {
+            return mapTileLocationFilter.getFilteredMapTileLocations( this );
+        }
+
+        return filteredOpenLocations;
+    }
+
+    /**
+     * Determine whether or not a map tile location is allowed by the map tile location filter. A
+     * rectangular map tile location filter is checked against its bounds directly; any other
+     * filter is given a reused one-element list, so only the filter itself may allocate.
+     *
+     * @param mapTileLocation
+     *            Map tile location to check.
+     *
+     * @return True if the map tile location is allowed by the map tile location filter, false
+     *         otherwise.
+     */
+    boolean isAllowed( MapTileLocation mapTileLocation )
+    {
+        if ( filteredOpenLocations != null )
+        {
+            return filteredOpenLocations.isWithinBounds( mapTileLocation );
+        }
+
+        mapTileLocationList.set( 0, mapTileLocation );
+
+        try
+        {
+            return ! mapTileLocationFilter.getFilteredMapTileLocations(
+                    mapTileLocationList ).isEmpty();
+        }
+        finally
+        {
+            mapTileLocationList.set( 0, null );
+        }
+    }
+
+    /**
+     * Get the number of open locations.
+     *
+     * @return The number of open locations.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Determine whether or not the specified object is an open location in this set.
+     *
+     * @param obj
+     *            Object to check.
+     *
+     * @return True if the object is an open location in this set, false otherwise.
+     */
+    public boolean contains( Object obj )
+    {
+        if ( ! ( obj instanceof MapTileLocation ))
+        {
+            return false;
+        }
+
+        MapTileLocation mapTileLocation = (MapTileLocation) obj;
+        return contains( mapTileLocation.getX(), mapTileLocation.getY() );
+    }
+
+    /**
+     * Determine whether or not the map tile location with the specified coordinates is an open
+     * location in this set.
+     *
+     * @param x
+     *            X coordinate of the map tile location to check.
+     * @param y
+     *            Y coordinate of the map tile location to check.
+     *
+     * @return True if the map tile location is an open location in this set, false otherwise.
+     */
+    boolean contains( int x, int y )
+    {
+        return slots.getVariant( x, y ) != MapTileStore.NONE;
+    }
+
+    /**
+     * Get the open location with the specified coordinates.
+     *
+     * @param x
+     *            X coordinate of the open location to get.
+     * @param y
+     *            Y coordinate of the open location to get.
+     *
+     * @return The open location held by this set, or null if the map tile location with the
+     *         specified coordinates is not an open location.
+     */
+    MapTileLocation get( int x, int y )
+    {
+        int slot = slots.getVariant( x, y );
+
+        if ( slot == MapTileStore.NONE )
+        {
+            return null;
+        }
+
+        return entries[ slot ];
+    }
+
+    /**
+     * Add an open location to the end of the iteration order. Nothing happens if the open
+     * location is already in this set.
+     *
+     * @param mapTileLocation
+     *            Open location to add.
+     *
+     * @return True if the open location was added, false otherwise.
+     */
+    public boolean add( MapTileLocation mapTileLocation )
+    {
+        if ( contains( mapTileLocation.getX(), mapTileLocation.getY() ))
+        {
+            return false;
+        }
+
+        restore( mapTileLocation, sequenceCounter++ );
+        return true;
+    }
+
+    /**
+     * Remove an open location from this set.
+     *
+     * @param obj
+     *            Open location to remove.
+     *
+     * @return True if the open location was removed, false otherwise.
+     */
+    public boolean remove( Object obj )
+    {
+        if ( ! ( obj instanceof MapTileLocation ))
+        {
+            return false;
+        }
+
+        MapTileLocation mapTileLocation = (MapTileLocation) obj;
+        int slot = slots.getVariant( mapTileLocation.getX(), mapTileLocation.getY() );
+
+        if ( slot == MapTileStore.NONE )
+        {
+            return false;
+        }
+
+        slots.remove( mapTileLocation.getX(), mapTileLocation.getY() );
+        entries[ slot ] = null;
+        size--;
+
+        while (( slotCount > 0 ) && ( entries[ slotCount - 1 ] == null ))
+        {
+            slotCount--;
+        }
+
+        if ( slotCount - size > Math.max( size, INITIAL_CAPACITY ))
+        {
+            compact();
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove all open locations from this set.
+     */
+    public void clear()
+    {
+        Arrays.fill( entries, 0, slotCount, null );
+        slots     = new MapTileTable();
+        slotCount = 0;
+        size      = 0;
+    }
+
+    /**
+     * Get the sequence number of an open location.
+     *
+     * @param mapTileLocation
+     *            Open location for which to get the sequence number.
+     *
+     * @return The sequence number of the open location, or -1 if it is not in this set.
+     */
+    long getSequenceNumber( MapTileLocation mapTileLocation )
+    {
+        int slot = slots.getVariant( mapTileLocation.getX(), mapTileLocation.getY() );
+
+        if ( slot == MapTileStore.NONE )
+        {
+            return -1;
+        }
+
+        return sequenceNumbers[ slot ];
+    }
+
+    /**
+     * Add an open location at the position in the iteration order given by a sequence number. Used
+     * to undo the removal of an open location.
+     *
+     * @param mapTileLocation
+     *            Open location to add. Must not be in this set.
+     * @param sequenceNumber
+     *            Sequence number the open location had when it was removed.
+     */
+    void restore( MapTileLocation mapTileLocation, long sequenceNumber )
+    {
+        int slot = Arrays.binarySearch( sequenceNumbers, 0, slotCount, sequenceNumber );
+
+        if ( slot < 0 )
+        {
+            slot = -( slot + 1 );
+            insertSlot( slot );
+            sequenceNumbers[ slot ] = sequenceNumber;
+        }
+
+        entries[ slot ] = mapTileLocation;
+        slots.put( mapTileLocation.getX(), mapTileLocation.getY(), slot, 0 );
+        size++;
+    }
+
+    /**
+     * Get the number of slots in use, including the empty ones.
+     *
+     * @return The number of slots in use.
+     */
+    int getSlotCount()
+    {
+        return slotCount;
+    }
+
+    /**
+     * Find the first slot at or after the specified slot that holds an open location.
+     *
+     * @param slot
+     *            Slot at which to start looking.
+     *
+     * @return The slot holding an open location, or slotCount if there is none.
+     */
+    private int nextSlot( int slot )
+    {
+        int nextSlot = slot;
+
+        while (( nextSlot < slotCount ) && ( entries[ nextSlot ] == null ))
+        {
+            nextSlot++;
+        }
+
+        return nextSlot;
+    }
+
+    /**
+     * Open up an empty slot at the specified position, moving the slots after it back by one up to
+     * the nearest empty slot, which is reused. If there is no empty slot after the position, a slot
+     * is added at the end. Appending a slot at the end only moves something if the array has to
+     * grow.
+     *
+     * @param slot
+     *            Position of the new slot.
+     */
+    private void insertSlot( int slot )
+    {
+        int emptySlot = slot;
+
+        while (( emptySlot < slotCount ) && ( entries[ emptySlot ] != null ))
+        {
+            emptySlot++;
+        }
+
+        if ( emptySlot == slotCount )
+        {
+            if ( slotCount == entries.length )
+            {
+                entries         = Arrays.copyOf( entries, entries.length * 2 );
+                sequenceNumbers = Arrays.copyOf( sequenceNumbers, sequenceNumbers.length * 2 );
+            }
+
+            slotCount++;
+        }
+
+        if ( slot < emptySlot )
+        {
+            System.arraycopy( entries, slot, entries, slot + 1, emptySlot - slot );
+            System.arraycopy( sequenceNumbers, slot, sequenceNumbers, slot + 1, emptySlot - slot );
+
+            for ( int i = slot + 1; i <= emptySlot; i++ )
+            {
+                slots.put( entries[ i ].getX(), entries[ i ].getY(), i, 0 );
+            }
+        }
+
+        entries[ slot ] = null;
+    }
+
+    /**
+     * Squeeze the empty slots out of the array, keeping the open locations in order.
+     */
+    private void compact()
+    {
+        int count = 0;
+
+        for ( int i = 0; i < slotCount; i++ )
+        {
+            if ( entries[ i ] != null )
+            {
+                entries[ count ]         = entries[ i ];
+                sequenceNumbers[ count ] = sequenceNumbers[ i ];
+                slots.put( entries[ count ].getX(), entries[ count ].getY(), count, 0 );
+                count++;
+            }
+        }
+
+        Arrays.fill( entries, count, slotCount, null );
+        slotCount = count;
+    }
+}
@@ -0,0 +1,434 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class keeping the open locations of a map generator up to date as map tiles are added and
+ * removed. A location is open while it is empty and a map tile next to it has an open edge facing
+ * it. Every change is recorded on the trail of the map generator so it can be undone.
+ * <p>
+ * By default, removing a map tile closes the locations next to it and then opens again every
+ * location that a map tile within two steps faces, which moves the locations that stay open to
+ * the end of the iteration order. With open edge counting, every location keeps the number of
+ * placed map tiles whose open edges face it, so removing a map tile only closes the locations
+ * whose count drops to zero, and the locations that stay open keep their place in the iteration
+ * order.
+ */
+class OpenLocationTracker
+{
+    /**
+     * Map tiles of the map generator.
+     */
+    private final MapTileStore mapTiles;
+
+    /**
+     * Map tile set of the map generator.
+     */
+    private final MapTileSet mapTileSet;
+
+    /**
+     * Open locations of the map generator.
+     */
+    private final OpenLocationSet openLocations;
+
+    /**
+     * Undo log of the changes made to the map.
+     */
+    private final MapTileTrail mapTileTrail;
+
+    /**
+     * Logic used to keep the candidate domains of the open locations up to date.
+     */
+    private final MapTileDomainTracker mapTileDomainTracker;
+
+    /**
+     * Number of placed map tiles whose open edges face each location, stored as the variant of the
+     * location, or null if open edges are not counted. Locations without any are left out.
+     */
+    private MapTileTable openEdgeCounts;
+
+    /**
+     * Construct an open location tracker.
+     *
+     * @param mapTiles
+     *            Map tiles of the map generator.
+     * @param mapTileSet
+     *            Map tile set of the map generator.
+     * @param openLocations
+     *            Open locations of the map generator.
+     * @param mapTileTrail
+     *            Undo log of the changes made to the map.
+     * @param mapTileDomainTracker
+     *            Logic used to keep the candidate domains of the open locations up to date.
+     */
+    OpenLocationTracker( MapTileStore mapTiles, MapTileSet mapTileSet,
+                         OpenLocationSet openLocations, MapTileTrail mapTileTrail,
+                         MapTileDomainTracker mapTileDomainTracker )
+    {
+        this.mapTiles             = mapTiles;
+        this.mapTileSet           = mapTileSet;
+        this.openLocations        = openLocations;
+        this.mapTileTrail         = mapTileTrail;
+        this.mapTileDomainTracker = mapTileDomainTracker;
+        this.openEdgeCounts       = null;
+    }
+
+    /**
+     * Determine whether or not the open edges facing every location are counted.
+     *
+     * @return True if open edges are counted, false otherwise.
+     */
+    boolean isOpenEdgeCounting()
+    {
+        return openEdgeCounts != null;
+    }
+
+    /**
+     * Set whether or not the open edges facing every location are counted. When counting is turned
+     * on, the counts are computed from the map tiles on the map, which takes time proportional to
+     * the number of map tiles.
+     *
+     * @param openEdgeCounting
+     *            True if open edges are to be counted, false otherwise.
+     */
+    void setOpenEdgeCounting( boolean openEdgeCounting )
+    {
+        if ( ! openEdgeCounting )
+        {
+            openEdgeCounts = null;
+            return;
+        }
+
+        if ( openEdgeCounts == null )
+        {
+            openEdgeCounts = new MapTileTable();
+
+            mapTiles.visit( new MapTileStore.Visitor()
+            {
+                /**
+                 * Count the open edges of a map tile on the map.
+                 *
+                 * @param x
+                 *            X coordinate of the map tile location of the map tile.
+                 * @param y
+                 *            Y coordinate of the map tile location of the map tile.
+                 * @param variant
+                 *            Variant of the map tile.
+                 * @param age
+                 *            Age of the map tile.
+                 */
+                public void visit( int x, int y, int variant, int age )
+                {
+                    adjustOpenEdgeCounts( x, y, variant, 1 );
+                }
+            } );
+        }
+    }
+
+    /**
+     * Open the locations that the open edges of a map tile that was just added face, counting the
+     * open edges if open edge counting is on.
+     *
+     * @param x
+     *            X coordinate of the map tile location of the map tile.
+     * @param y
+     *            Y coordinate of the map tile location of the map tile.
+     */
+    void mapTileAdded( int x, int y )
+    {
+        if ( openEdgeCounts != null )
+        {
+            adjustOpenEdgeCounts( x, y, mapTiles.getVariant( x, y ), 1 );
+        }
+
+        addOpenLocations( x, y );
+    }
+
+    /**
+     * Update the open locations after a map tile was removed. By default, the locations next to
+     * the map tile are closed, and then every location that a remaining map tile within two steps
+     * faces with an open edge is opened again, including the location of the removed map tile.
+     * With open edge counting, only the locations that no other map tile faces are closed, and the
+     * location of the removed map tile is opened if another map tile faces it.
+     *
+     * @param x
+     *            X coordinate of the map tile location of the removed map tile.
+     * @param y
+     *            Y coordinate of the map tile location of the removed map tile.
+     * @param variant
+     *            Variant of the removed map tile.
+     */
+    void mapTileRemoved( int x, int y, int variant )
+    {
+        if ( openEdgeCounts != null )
+        {
+            uncountOpenEdges( x, y, variant );
+
+            if ( openEdgeCounts.getVariant( x, y ) != MapTileStore.NONE )
+            {
+                openLocation( new MapTileLocation( x, y ));
+            }
+
+            return;
+        }
+
+        closeLocation( x,     y - 1 );
+        closeLocation( x,     y + 1 );
+        closeLocation( x - 1, y     );
+        closeLocation( x + 1, y     );
+
+        addOpenLocations( x,     y - 1 );
+        addOpenLocations( x,     y + 1 );
+        addOpenLocations( x - 1, y     );
+        addOpenLocations( x + 1, y     );
+        addOpenLocations( x,     y - 2 );
+        addOpenLocations( x,     y + 2 );
+        addOpenLocations( x - 2, y     );
+        addOpenLocations( x + 2, y     );
+        addOpenLocations( x - 1, y - 1 );
+        addOpenLocations( x + 1, y - 1 );
+        addOpenLocations( x - 1, y + 1 );
+        addOpenLocations( x + 1, y + 1 );
+    }
+
+    /**
+     * Update the open edge counts after the placement of a map tile was undone. The open locations
+     * themselves are restored from the trail.
+     *
+     * @param x
+     *            X coordinate of the map tile location of the map tile.
+     * @param y
+     *            Y coordinate of the map tile location of the map tile.
+     * @param variant
+     *            Variant of the map tile.
+     */
+    void placementUndone( int x, int y, int variant )
+    {
+        if ( openEdgeCounts != null )
+        {
+            adjustOpenEdgeCounts( x, y, variant, -1 );
+        }
+    }
+
+    /**
+     * Update the open edge counts after the removal of a map tile was undone. The open locations
+     * themselves are restored from the trail.
+     *
+     * @param x
+     *            X coordinate of the map tile location of the map tile.
+     * @param y
+     *            Y coordinate of the map tile location of the map tile.
+     * @param variant
+     *            Variant of the map tile.
+     */
+    void removalUndone( int x, int y, int variant )
+    {
+        if ( openEdgeCounts != null )
+        {
+            adjustOpenEdgeCounts( x, y, variant, 1 );
+        }
+    }
+
+    /**
+     * Remove an open location, recording the change on the trail. Nothing happens if the location
+     * is not open.
+     *
+     * @param mapTileLocation
+     *            Map tile location to close.
+     */
+    void closeLocation( MapTileLocation mapTileLocation )
+    {
+        long sequenceNumber = openLocations.getSequenceNumber( mapTileLocation );
+
+        if ( sequenceNumber != -1 )
+        {
+            openLocations.remove( mapTileLocation );
+            mapTileDomainTracker.locationClosed( mapTileLocation );
+            mapTileTrail.record( MapTileTrail.CLOSE, mapTileLocation, sequenceNumber, 0, null );
+        }
+    }
+
+    /**
+     * Stop counting the open edges of a removed map tile towards the locations they face. A
+     * location that no other map tile faces any more is closed.
+     *
+     * @param x
+     *            X coordinate of the map tile location of the removed map tile.
+     * @param y
+     *            Y coordinate of the map tile location of the removed map tile.
+     * @param variant
+     *            Variant of the removed map tile.
+     */
+    private void uncountOpenEdges( int x, int y, int variant )
+    {
+        for ( MapTileEdgePosition mapTileEdgePosition :
+                mapTileSet.getOpenMapTileEdgePositions( variant ))
+        {
+            int neighborX = x + MapTileEdgePosition.NEIGHBOR_X_OFFSETS[
+                    mapTileEdgePosition.getIndex() ];
+            int neighborY = y + MapTileEdgePosition.NEIGHBOR_Y_OFFSETS[
+                    mapTileEdgePosition.getIndex() ];
+
+            if ( adjustOpenEdgeCount( neighborX, neighborY, -1 ) == 0 )
+            {
+                closeLocation( neighborX, neighborY );
+            }
+        }
+    }
+
+    /**
+     * Adjust the open edge counts of the locations that the open edges of a map tile face, without
+     * opening or closing any location.
+     *
+     * @param x
+     *            X coordinate of the map tile location of the map tile.
+     * @param y
+     *            Y coordinate of the map tile location of the map tile.
+     * @param variant
+     *            Variant of the map tile.
+     * @param delta
+     *            1 if the map tile was placed, -1 if it was removed.
+     */
+    private void adjustOpenEdgeCounts( int x, int y, int variant, int delta )
+    {
+        for ( MapTileEdgePosition mapTileEdgePosition :
+                mapTileSet.getOpenMapTileEdgePositions( variant ))
+        {
+            adjustOpenEdgeCount(
+                    x + MapTileEdgePosition.NEIGHBOR_X_OFFSETS[ mapTileEdgePosition.getIndex() ],
+                    y + MapTileEdgePosition.NEIGHBOR_Y_OFFSETS[ mapTileEdgePosition.getIndex() ],
+                    delta );
+        }
+    }
+
+    /**
+     * Adjust the open edge count of a location.
+     *
+     * @param x
+     *            X coordinate of the location.
+     * @param y
+     *            Y coordinate of the location.
+     * @param delta
+     *            Amount to add to the open edge count.
+     *
+     * @return The new open edge count of the location.
+     */
+    private int adjustOpenEdgeCount( int x, int y, int delta )
+    {
+        int count = openEdgeCounts.getVariant( x, y );
+
+        if ( count == MapTileStore.NONE )
+        {
+            count = 0;
+        }
+
+        count += delta;
+
+        if ( count == 0 )
+        {
+            openEdgeCounts.remove( x, y );
+        }
+        else
+        {
+            openEdgeCounts.put( x, y, count, 0 );
+        }
+
+        return count;
+    }
+
+    /**
+     * Add open locations for the map tile at the specified map tile location. Map tile location
+     * objects are only created for the open locations that are actually added.
+     *
+     * @param x
+     *            X coordinate of the map tile location specifying the map tile for which to add
+     *            open locations.
+     * @param y
+     *            Y coordinate of the map tile location specifying the map tile for which to add
+     *            open locations.
+     */
+    private void addOpenLocations( int x, int y )
+    {
+        int variant = mapTiles.getVariant( x, y );
+
+        if ( variant != MapTileStore.NONE )
+        {
+            for ( MapTileEdgePosition mapTileEdgePosition :
+                    mapTileSet.getOpenMapTileEdgePositions( variant ))
+            {
+                int neighborX = x + MapTileEdgePosition.NEIGHBOR_X_OFFSETS[
+                        mapTileEdgePosition.getIndex() ];
+                int neighborY = y + MapTileEdgePosition.NEIGHBOR_Y_OFFSETS[
+                        mapTileEdgePosition.getIndex() ];
+
+                if (( mapTiles.getVariant( neighborX, neighborY ) == MapTileStore.NONE ) &&
+                    ( ! openLocations.contains( neighborX, neighborY )))
+                {
+                    openLocation( new MapTileLocation( neighborX, neighborY ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Add an open location, recording the change on the trail. Nothing happens if the location is
+     * already open.
+     *
+     * @param mapTileLocation
+     *            Map tile location to open.
+     */
+    private void openLocation( MapTileLocation mapTileLocation )
+    {
+        if ( openLocations.add( mapTileLocation ))
+        {
+            mapTileTrail.record( MapTileTrail.OPEN, mapTileLocation, 0, 0, null );
+        }
+    }
+
+    /**
+     * Remove an open location, recording the change on the trail. Nothing happens if the location
+     * is not open. A map tile location object is only created if the location is open.
+     *
+     * @param x
+     *            X coordinate of the map tile location to close.
+     * @param y
+     *            Y coordinate of the map tile location to close.
+     */
+    private void closeLocation( int x, int y )
+    {
+        if ( openLocations.contains( x, y ))
+        {
+            closeLocation( new MapTileLocation( x, y ));
+        }
+    }
+}
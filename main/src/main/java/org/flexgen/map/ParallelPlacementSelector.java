@@ -0,0 +1,296 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Class selecting several map tile placements at once, from regions of the map that are far enough
+ * apart not to interact. The plane is split into square regions, and the regions are colored like
+ * a two by two checkerboard, so no two regions of the same color touch. Each round, the generation
+ * strategy selects one placement in every region of one color that holds part of the frontier,
+ * seeing only the frontier of that region and drawing from a random number generator of its own.
+ * The selections only read the state of the map generator, so they can run on several threads at
+ * once without locking. The placements are returned in a fixed order, and the random number
+ * generators of the regions are seeded in that order, so the map depends on the seed and the region
+ * size, but not on the number of threads.
+ */
+class ParallelPlacementSelector
+{
+    /**
+     * Map generator whose placements are selected.
+     */
+    private final MapGenerator mapGenerator;
+
+    /**
+     * Width and height of the regions, or 0 if placements are selected one at a time.
+     */
+    private int regionSize;
+
+    /**
+     * Executor on which the placements of the regions are selected, or null to select them on the
+     * generating thread.
+     */
+    private Executor executor;
+
+    /**
+     * Number of rounds of selections made, which decides the color of the regions used next.
+     */
+    private int roundCount;
+
+    /**
+     * Construct a parallel placement selector that is disabled.
+     *
+     * @param mapGenerator
+     *            Map generator whose placements are selected.
+     */
+    ParallelPlacementSelector( MapGenerator mapGenerator )
+    {
+        this.mapGenerator = mapGenerator;
+        this.regionSize   = 0;
+        this.executor     = null;
+        this.roundCount   = 0;
+    }
+
+    /**
+     * Get the width and height of the regions.
+     *
+     * @return The width and height of the regions, or 0 if placements are selected one at a time.
+     */
+    int getRegionSize()
+    {
+        return regionSize;
+    }
+
+    /**
+     * Set the width and height of the regions and the executor on which their placements are
+     * selected.
+     *
+     * @param regionSize
+     *            Width and height of the regions, or 0 to select placements one at a time.
+     * @param executor
+     *            Executor on which the placements of the regions are selected, or null to select
+     *            them on the generating thread.
+     */
+    void configure( int regionSize, Executor executor )
+    {
+        this.regionSize = regionSize;
+        this.executor   = executor;
+        this.roundCount = 0;
+    }
+
+    /**
+     * Determine whether or not placements are selected in rounds. The generation strategies of the
+     * map tile selection modes that fill the most constrained open location first always select
+     * placements one at a time, since they rank the open locations of the whole map.
+     *
+     * @return True if placements are selected in rounds, false otherwise.
+     */
+    boolean isEnabled()
+    {
+        return ( regionSize > 0 ) &&
+               ( ! ( mapGenerator.getGenerationStrategy() instanceof PriorityGenerationStrategy ));
+    }
+
+    /**
+     * Select one placement in every region of the next color that holds part of the frontier. If
+     * no region of that color holds part of the frontier, the following colors are tried in turn.
+     *
+     * @param generationContext
+     *            Generation context of the whole map.
+     *
+     * @return The selected placements, in the order of the regions. Regions for which the
+     *         generation strategy selected no placement are left out. The list is empty if the
+     *         selection was interrupted.
+     */
+    List< MapTilePlacement > selectMapTilePlacements( GenerationContext generationContext )
+    {
+        Map< Long, List< MapTileLocation >> regionFrontiers = null;
+
+        for ( int i = 0; ( i < 4 ) && (( regionFrontiers == null ) ||
+                                       ( regionFrontiers.isEmpty() )); i++ )
+        {
+            regionFrontiers = splitFrontier( generationContext.getFrontier(), roundCount % 4 );
+            roundCount++;
+        }
+
+        ImprovedRandom improvedRandom = generationContext.getImprovedRandom();
+        List< FutureTask< MapTilePlacement >> selections =
+                new ArrayList< FutureTask< MapTilePlacement >>( regionFrontiers.size() );
+
+        for ( List< MapTileLocation > regionFrontier : regionFrontiers.values() )
+        {
+            ImprovedRandom regionImprovedRandom = new ImprovedRandom();
+            regionImprovedRandom.setSeed( improvedRandom.nextLong() );
+
+            final GenerationContext regionGenerationContext =
+                    new GenerationContext( mapGenerator, regionImprovedRandom, regionFrontier );
+            final GenerationStrategy generationStrategy = mapGenerator.getGenerationStrategy();
+
+            FutureTask< MapTilePlacement > selection = new FutureTask< MapTilePlacement >(
+                    new Callable< MapTilePlacement >()
+            {
+                /**
+                 * Select the placement of the region.
+                 *
+                 * @return The placement, or null if no legal map tile can be placed.
+                 */
+                public MapTilePlacement call()
+                {
+                    return generationStrategy.selectMapTilePlacement( regionGenerationContext );
+                }
+            });
+
+            selections.add( selection );
+
+            // only the default strategy is known to be safe to call from several threads at once
+            if (( executor == null ) ||
+                ( generationStrategy.getClass() != DefaultGenerationStrategy.class ))
+            {
+                selection.run();
+            }
+            else
+            {
+                executor.execute( selection );
+            }
+        }
+
+        return collectMapTilePlacements( selections );
+    }
+
+    /**
+     * Split the frontier into the frontiers of the regions of one color.
+     *
+     * @param frontier
+     *            Frontier of the whole map.
+     * @param color
+     *            Color of the regions, from 0 to 3.
+     *
+     * @return The frontiers of the regions of the color that hold part of the frontier, keyed by
+     *         the packed coordinates of the regions, in the order in which the regions are first
+     *         reached by the frontier.
+     */
+    private Map< Long, List< MapTileLocation >> splitFrontier(
+            Iterable< MapTileLocation > frontier, int color )
+    {
+        Map< Long, List< MapTileLocation >> regionFrontiers =
+                new LinkedHashMap< Long, List< MapTileLocation >>();
+
+        for ( MapTileLocation mapTileLocation : frontier )
+        {
+            int regionX = Math.floorDiv( mapTileLocation.getX(), regionSize );
+            int regionY = Math.floorDiv( mapTileLocation.getY(), regionSize );
+
+            if ((( regionX & 1 ) | (( regionY & 1 ) << 1 )) == color )
+            {
+                Long regionKey = MapTileTable.pack( regionX, regionY );
+                List< MapTileLocation > regionFrontier = regionFrontiers.get( regionKey );
+
+                if ( regionFrontier == null )
+                {
+                    regionFrontier = new ArrayList< MapTileLocation >();
+                    regionFrontiers.put( regionKey, regionFrontier );
+                }
+
+                regionFrontier.add( mapTileLocation );
+            }
+        }
+
+        return regionFrontiers;
+    }
+
+    /**
+     * Wait for the selections of the regions and collect their placements. If the waiting thread
+     * is interrupted, the remaining selections are cancelled, the interrupt is kept, and no
+     * placements are returned.
+     *
+     * @param selections
+     *            Selections of the regions, in the order of the regions.
+     *
+     * @return The selected placements, in the order of the regions.
+     */
+    private static List< MapTilePlacement > collectMapTilePlacements(
+            List< FutureTask< MapTilePlacement >> selections )
+    {
+        List< MapTilePlacement > mapTilePlacements =
+                new ArrayList< MapTilePlacement >( selections.size() );
+
+        try
+        {
+            for ( FutureTask< MapTilePlacement > selection : selections )
+            {
+                MapTilePlacement mapTilePlacement = selection.get();
+
+                if ( mapTilePlacement != null )
+                {
+                    mapTilePlacements.add( mapTilePlacement );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            for ( FutureTask< MapTilePlacement > selection : selections )
+            {
+                selection.cancel( false );
+            }
+
+            Thread.currentThread().interrupt();
+            mapTilePlacements.clear();
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            if ( e.getCause() instanceof Error )
+            {
+                throw (Error) e.getCause();
+            }
+
+            throw new IllegalStateException( e.getCause() );
+        }
+
+        return mapTilePlacements;
+    }
+}
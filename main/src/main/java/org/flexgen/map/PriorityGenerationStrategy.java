@@ -0,0 +1,68 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Generation strategy that chooses the open location at the head of the map tile location queue of
+ * the map generator, followed by a legal variant chosen by weight at that location. The order of
+ * the queue is determined by the map tile selection mode of the map generator. Exactly one random
+ * number is drawn for each selection.
+ */
+class PriorityGenerationStrategy implements GenerationStrategy
+{
+    /**
+     * Select the next map tile to place.
+     *
+     * @param generationContext
+     *            Generation context giving read access to the state of the map generator.
+     *
+     * @return The next map tile placement, or null if no legal map tile with any weight can be
+     *         placed at the open location at the head of the map tile location queue.
+     */
+    public MapTilePlacement selectMapTilePlacement( GenerationContext generationContext )
+    {
+        MapTileLocation mapTileLocation = generationContext.peekMapTileLocationQueue();
+        MapTileCandidates mapTileDomain = generationContext.getMapTileDomain( mapTileLocation );
+
+        if ( mapTileDomain.getTotalWeight() == 0 )
+        {
+            return null;
+        }
+
+        // randomly pick one of the legal variants by weight
+        int variant = mapTileDomain.chooseVariant( generationContext.getImprovedRandom() );
+
+        return new MapTilePlacement( mapTileLocation,
+                                     generationContext.getMapTileSet().getMapTile( variant ));
+    }
+}
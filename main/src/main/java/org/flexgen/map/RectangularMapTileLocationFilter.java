@@ -32,8 +32,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.flexgen.map;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 
 /**
  * Class implementing logic for filtering map tile locations based upon a specified rectangular
@@ -146,7 +146,8 @@ public class RectangularMapTileLocationFilter implements MapTileLocationFilter
     public Collection< MapTileLocation > getFilteredMapTileLocations(
             Collection< MapTileLocation > mapTileLocations )
     {
-        Collection< MapTileLocation > filteredOpenLocations = new LinkedList< MapTileLocation >();
+        Collection< MapTileLocation > filteredOpenLocations =
+                new ArrayList< MapTileLocation >( mapTileLocations.size() );
 
         for ( MapTileLocation mapTileLocation : mapTileLocations )
         {
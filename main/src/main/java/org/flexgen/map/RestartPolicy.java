@@ -0,0 +1,145 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+/**
+ * Class representing the restart policies a map generator can apply when recovering from bad open
+ * locations exceeds one of its backtrack limits. After each restart, the limits are scaled
+ * according to the policy, so that later attempts get a larger budget.
+ */
+public class RestartPolicy
+{
+    /**
+     * Restart policy where the map generator does not restart. Exceeding a backtrack limit causes
+     * generation to fail instead. This is the default restart policy.
+     */
+    public static final RestartPolicy NONE = new RestartPolicy( "None" );
+
+    /**
+     * Restart policy where the backtrack limits are scaled by the Luby sequence 1, 1, 2, 1, 1, 2,
+     * 4, 1, 1, 2, ... after each restart.
+     */
+    public static final RestartPolicy LUBY = new RestartPolicy( "Luby" );
+
+    /**
+     * Restart policy where the backtrack limits grow by half after each restart.
+     */
+    public static final RestartPolicy GEOMETRIC = new RestartPolicy( "Geometric" );
+
+    /**
+     * Name of the restart policy.
+     */
+    private final String name;
+
+    /**
+     * Construct a restart policy with the specified name.
+     *
+     * @param name
+     *            Name of the restart policy.
+     */
+    private RestartPolicy( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Get the string representation of this object.
+     *
+     * @return The string representation of this object.
+     */
+    public String toString()
+    {
+        return name;
+    }
+
+    /**
+     * Scale a backtrack limit according to this restart policy.
+     *
+     * @param limit
+     *            Backtrack limit to scale. Must be greater than 0.
+     * @param restartCount
+     *            Number of restarts that have already taken place. Must be greater than or equal
+     *            to 0.
+     *
+     * @return The scaled backtrack limit, which is never more than Integer.MAX_VALUE.
+     */
+    long scaleLimit( int limit, int restartCount )
+    {
+        double multiplier = 1;
+
+        if ( this == LUBY )
+        {
+            multiplier = getLubyValue( restartCount );
+        }
+
+        if ( this == GEOMETRIC )
+        {
+            multiplier = Math.pow( 1.5, restartCount );
+        }
+
+        return (long) Math.min( limit * multiplier, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Get an element of the Luby sequence.
+     *
+     * @param index
+     *            Index of the element, starting at 0.
+     *
+     * @return The element of the Luby sequence.
+     */
+    private static double getLubyValue( int index )
+    {
+        // find the smallest complete subsequence, of size 2^(k+1) - 1, containing the index
+        long size = 1;
+        int power = 0;
+
+        while ( size < index + 1 )
+        {
+            power++;
+            size = ( 2 * size ) + 1;
+        }
+
+        // descend into the subsequences until the index is at the end of one
+        long localIndex = index;
+
+        while ( size - 1 != localIndex )
+        {
+            size = ( size - 1 ) >> 1;
+            power--;
+            localIndex = localIndex % size;
+        }
+
+        return Math.pow( 2, power );
+    }
+}
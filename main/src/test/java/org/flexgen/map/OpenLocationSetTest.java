@@ -0,0 +1,241 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the OpenLocationSet class. It is in the same package as the class it tests, since
+ * the class is not visible outside of its package.
+ */
+public class OpenLocationSetTest
+{
+    /**
+     * Verify that the empty slots left by removed open locations are squeezed out, so the number
+     * of slots stays close to the number of open locations while the frontier moves on. No undo
+     * is pending in this test, but the set behaves the same while changes are recorded on the
+     * trail.
+     */
+    @Test
+    public void remove_slotCount()
+    {
+        OpenLocationSet openLocationSet =
+                new OpenLocationSet( new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        for ( int x = 0; x < 200; x++ )
+        {
+            openLocationSet.add( new MapTileLocation( x, 0 ));
+        }
+
+        for ( int x = 200; x < 100000; x++ )
+        {
+            openLocationSet.remove( openLocationSet.iterator().next() );
+            openLocationSet.add( new MapTileLocation( x, 0 ));
+        }
+
+        Assert.assertEquals( "Unexpected size.", 200, openLocationSet.size() );
+        Assert.assertTrue( "Unexpected slot count " + openLocationSet.getSlotCount() + ".",
+                           openLocationSet.getSlotCount() <= 2 * openLocationSet.size() + 64 );
+    }
+
+    /**
+     * Verify that open locations restored after their slots were squeezed out go back to their
+     * original positions in the iteration order.
+     */
+    @Test
+    public void restore_afterCompaction()
+    {
+        OpenLocationSet openLocationSet =
+                new OpenLocationSet( new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+        List< MapTileLocation > mapTileLocations = new ArrayList< MapTileLocation >();
+        List< Long > sequenceNumbers = new ArrayList< Long >();
+
+        for ( int x = 0; x < 400; x++ )
+        {
+            mapTileLocations.add( new MapTileLocation( x, 0 ));
+            openLocationSet.add( mapTileLocations.get( x ));
+        }
+
+        // remove every other open location, then most of the rest, so the slots are squeezed out
+        for ( int x = 0; x < 400; x += 2 )
+        {
+            sequenceNumbers.add( openLocationSet.getSequenceNumber( mapTileLocations.get( x )));
+            openLocationSet.remove( mapTileLocations.get( x ));
+        }
+
+        for ( int x = 1; x < 390; x += 2 )
+        {
+            sequenceNumbers.add( openLocationSet.getSequenceNumber( mapTileLocations.get( x )));
+            openLocationSet.remove( mapTileLocations.get( x ));
+        }
+
+        Assert.assertTrue( "Unexpected slot count " + openLocationSet.getSlotCount() + ".",
+                           openLocationSet.getSlotCount() <= 2 * openLocationSet.size() + 64 );
+
+        // undo the removals in reverse order
+        for ( int i = sequenceNumbers.size() - 1; i >= 0; i-- )
+        {
+            int x;
+
+            if ( i < 200 )
+            {
+                x = i * 2;
+            }
+            else
+            {
+                x = (( i - 200 ) * 2 ) + 1;
+            }
+
+            openLocationSet.restore( mapTileLocations.get( x ), sequenceNumbers.get( i ));
+        }
+
+        Assert.assertEquals( "Unexpected size.", 400, openLocationSet.size() );
+
+        Iterator< MapTileLocation > iterator = openLocationSet.iterator();
+
+        for ( int x = 0; x < 400; x++ )
+        {
+            Assert.assertEquals( "Unexpected open location.", mapTileLocations.get( x ),
+                                 iterator.next() );
+            Assert.assertTrue( "Expected open location.",
+                               openLocationSet.contains( mapTileLocations.get( x )));
+        }
+
+        Assert.assertFalse( "Unexpected open location.", iterator.hasNext() );
+    }
+
+    /**
+     * Verify that the isAllowed() method checks a map tile location against the bounds of a
+     * rectangular map tile location filter.
+     */
+    @Test
+    public void isAllowed_rectangular()
+    {
+        OpenLocationSet openLocationSet =
+                new OpenLocationSet( new RectangularMapTileLocationFilter( 0, 0, 2, 1 ));
+
+        Assert.assertEquals( "Unexpected allowed flag.", true,
+                             openLocationSet.isAllowed( new MapTileLocation( 2, 1 )));
+        Assert.assertEquals( "Unexpected allowed flag.", false,
+                             openLocationSet.isAllowed( new MapTileLocation( 3, 1 )));
+        Assert.assertEquals( "Unexpected allowed flag.", false,
+                             openLocationSet.isAllowed( new MapTileLocation( 0, -1 )));
+    }
+
+    /**
+     * Verify that the isAllowed() method asks a map tile location filter that is not rectangular
+     * about a single map tile location.
+     */
+    @Test
+    public void isAllowed_otherFilter()
+    {
+        OpenLocationSet openLocationSet = new OpenLocationSet( new MapTileLocationFilter()
+        {
+            /**
+             * Get the smallest X coordinate of the diagonal.
+             *
+             * @return The smallest X coordinate of the diagonal.
+             */
+            public int getMinX()
+            {
+                return 0;
+            }
+
+            /**
+             * Get the smallest Y coordinate of the diagonal.
+             *
+             * @return The smallest Y coordinate of the diagonal.
+             */
+            public int getMinY()
+            {
+                return 0;
+            }
+
+            /**
+             * Get the largest X coordinate of the diagonal.
+             *
+             * @return The largest X coordinate of the diagonal.
+             */
+            public int getMaxX()
+            {
+                return 9;
+            }
+
+            /**
+             * Get the largest Y coordinate of the diagonal.
+             *
+             * @return The largest Y coordinate of the diagonal.
+             */
+            public int getMaxY()
+            {
+                return 9;
+            }
+
+            /**
+             * Keep the map tile locations on the diagonal.
+             *
+             * @param mapTileLocations
+             *            Collection of map tile locations to filter.
+             *
+             * @return The map tile locations on the diagonal.
+             */
+            public Collection< MapTileLocation > getFilteredMapTileLocations(
+                    Collection< MapTileLocation > mapTileLocations )
+            {
+                List< MapTileLocation > filteredMapTileLocations =
+                        new ArrayList< MapTileLocation >();
+
+                for ( MapTileLocation mapTileLocation : mapTileLocations )
+                {
+                    if ( mapTileLocation.getX() == mapTileLocation.getY() )
+                    {
+                        filteredMapTileLocations.add( mapTileLocation );
+                    }
+                }
+
+                return filteredMapTileLocations;
+            }
+        } );
+
+        Assert.assertEquals( "Unexpected allowed flag.", true,
+                             openLocationSet.isAllowed( new MapTileLocation( 3, 3 )));
+        Assert.assertEquals( "Unexpected allowed flag.", false,
+                             openLocationSet.isAllowed( new MapTileLocation( 3, 4 )));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.test.support.TestMapTileRemovedListener;
+import org.flexgen.test.helper.MapGeneratorHelper;
+import org.flexgen.test.helper.tiles.DungeonTiles;
+
+/**
+ * Test class for the OpenLocationTracker class. It is in the same package as the class it tests,
+ * since the class is not visible outside of its package.
+ */
+public class OpenLocationTrackerTest
+{
+    /**
+     * Verify that with open edge counting, the open locations match the locations faced by the
+     * open edges of the placed map tiles after every step of generating a map, whether bad open
+     * locations are corrected by removing map tiles or by popping the trail.
+     */
+    @Test
+    public void setOpenEdgeCounting_generate()
+    {
+        int removedCount = 0;
+
+        for ( int seed = 0; seed < 6; seed++ )
+        {
+            MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( seed );
+            TestMapTileRemovedListener mapTileRemovedListener = new TestMapTileRemovedListener();
+            mapGenerator.addMapTileRemovedListener( mapTileRemovedListener );
+            mapGenerator.setOpenEdgeCounting( true );
+            mapGenerator.setTrailBacktracking( seed % 2 == 1 );
+
+            while ( mapGenerator.generate( 1 ) != GenerationStatus.COMPLETE )
+            {
+                assertOpenLocations( mapGenerator );
+            }
+
+            MapGeneratorHelper.assertIsValid( mapGenerator );
+            removedCount += mapTileRemovedListener.getMapTileLocations().size();
+        }
+
+        Assert.assertTrue( "Expected removed map tiles.", removedCount > 0 );
+    }
+
+    /**
+     * Verify that open edge counting can be turned on for a map that already has map tiles, and
+     * that the open edge counts stay correct when the map is rolled back.
+     */
+    @Test
+    public void setOpenEdgeCounting_rollback()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        mapGenerator.generate();
+        mapGenerator.setOpenEdgeCounting( true );
+        assertOpenLocations( mapGenerator );
+
+        MapCheckpoint mapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.removeMapTile( new MapTileLocation( 0, 0 ));
+        assertOpenLocations( mapGenerator );
+
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( DungeonTiles.THREE_WAY_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+        assertOpenLocations( mapGenerator );
+
+        mapGenerator.rollback( mapCheckpoint );
+        mapGenerator.release( mapCheckpoint );
+        assertOpenLocations( mapGenerator );
+
+        mapGenerator.removeMapTile( new MapTileLocation( 0, 0 ));
+        assertOpenLocations( mapGenerator );
+
+        mapGenerator.generate();
+        MapGeneratorHelper.assertIsValid( mapGenerator );
+    }
+
+    /**
+     * Verify that the open locations of a map are the empty locations within the map tile location
+     * filter that a placed map tile faces with an open edge.
+     *
+     * @param mapGenerator
+     *            Map generator containing the map. Its map tile location filter must allow the
+     *            locations from (0, 0) to (9, 9).
+     */
+    private static void assertOpenLocations( MapGenerator mapGenerator )
+    {
+        Set< MapTileLocation > expectedOpenLocations = new HashSet< MapTileLocation >();
+
+        for ( int y = -1; y <= 10; y++ )
+        {
+            for ( int x = -1; x <= 10; x++ )
+            {
+                MapTile mapTile = mapGenerator.getMapTile( x, y );
+
+                if ( mapTile == null )
+                {
+                    continue;
+                }
+
+                for ( MapTileEdgePosition mapTileEdgePosition :
+                        mapTile.getOpenMapTileEdgePositions() )
+                {
+                    int neighborX = x + MapTileEdgePosition.NEIGHBOR_X_OFFSETS[
+                            mapTileEdgePosition.getIndex() ];
+                    int neighborY = y + MapTileEdgePosition.NEIGHBOR_Y_OFFSETS[
+                            mapTileEdgePosition.getIndex() ];
+
+                    if (( neighborX >= 0 ) && ( neighborY >= 0 ) &&
+                        ( neighborX <= 9 ) && ( neighborY <= 9 ) &&
+                        ( mapGenerator.getMapTile( neighborX, neighborY ) == null ))
+                    {
+                        expectedOpenLocations.add( new MapTileLocation( neighborX, neighborY ));
+                    }
+                }
+            }
+        }
+
+        Assert.assertEquals( "Unexpected open locations.", expectedOpenLocations,
+                             new HashSet< MapTileLocation >(
+                                     mapGenerator.getFilteredOpenLocations() ));
+    }
+}
@@ -0,0 +1,402 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.AsyncMapGenerator;
+import org.flexgen.map.GenerationProgressListener;
+import org.flexgen.map.GenerationStatus;
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.MapTilePlacement;
+import org.flexgen.map.RectangularMapTileLocationFilter;
+import org.flexgen.map.test.support.TestExecutor;
+import org.flexgen.map.test.support.TestGenerationProgressListener;
+import org.flexgen.map.test.support.TestGenerationStrategy;
+import org.flexgen.test.helper.MapGeneratorHelper;
+import org.flexgen.test.helper.tiles.RiverTiles;
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Test class for the AsyncMapGenerator class.
+ */
+public class AsyncMapGeneratorTest
+{
+    /**
+     * Verify that the constructor throws the correct exception when the mapGenerator parameter is
+     * null.
+     */
+    @Test
+    public void constructor_mapGenerator_null()
+    {
+        try
+        {
+            new AsyncMapGenerator( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapGenerator' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the constructor throws the correct exception when the generationExecutor
+     * parameter is null.
+     */
+    @Test
+    public void constructor_generationExecutor_null()
+    {
+        try
+        {
+            new AsyncMapGenerator( MapGeneratorHelper.buildDungeon( 1 ), null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'generationExecutor' cannot be null.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the setListenerExecutor() method throws the correct exception when the
+     * listenerExecutor parameter is null.
+     */
+    @Test
+    public void setListenerExecutor_null()
+    {
+        AsyncMapGenerator asyncMapGenerator =
+                new AsyncMapGenerator( MapGeneratorHelper.buildDungeon( 1 ));
+
+        try
+        {
+            asyncMapGenerator.setListenerExecutor( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'listenerExecutor' cannot be null.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the generate() method generates the same map on the shared executor as the
+     * generate() method of the map generator.
+     *
+     * @throws Exception
+     *             If the generation of the map fails or takes too long.
+     */
+    @Test
+    public void generate() throws Exception
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        AsyncMapGenerator asyncMapGenerator = new AsyncMapGenerator( mapGenerator );
+
+        Assert.assertSame( "Unexpected map generator.", mapGenerator,
+                           asyncMapGenerator.getMapGenerator() );
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.COMPLETE,
+                             asyncMapGenerator.generate().get( 60, TimeUnit.SECONDS ));
+
+        for ( int y = 0; y <= 9; y++ )
+        {
+            for ( int x = 0; x <= 9; x++ )
+            {
+                MapTileLocation mapTileLocation = new MapTileLocation( x, y );
+
+                Assert.assertEquals( "Unexpected map tile at " + x + ", " + y + ".",
+                                     expectedMapGenerator.getMapTile( mapTileLocation ),
+                                     mapGenerator.getMapTile( mapTileLocation ));
+            }
+        }
+    }
+
+    /**
+     * Verify that a stage that depends on the future of a generation can start another generation
+     * of the map.
+     *
+     * @throws Exception
+     *             If the generation of the map fails.
+     */
+    @Test
+    public void generate_thenCompose() throws Exception
+    {
+        TestExecutor testExecutor = new TestExecutor();
+        final AsyncMapGenerator asyncMapGenerator =
+                new AsyncMapGenerator( MapGeneratorHelper.buildDungeon( 3 ), testExecutor );
+        CompletableFuture< GenerationStatus > future = asyncMapGenerator.generate().thenCompose(
+                new Function< GenerationStatus, CompletableFuture< GenerationStatus >>()
+        {
+            public CompletableFuture< GenerationStatus > apply(
+                    GenerationStatus generationStatus )
+            {
+                return asyncMapGenerator.generate();
+            }
+        } );
+
+        testExecutor.runAll();
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.COMPLETE, future.get() );
+        Assert.assertEquals( "Unexpected running flag.", false, asyncMapGenerator.isRunning() );
+    }
+
+    /**
+     * Verify that another generation of the map can be started as soon as the caller waiting for
+     * the previous one wakes up.
+     */
+    @Test
+    public void generate_afterJoin()
+    {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try
+        {
+            AsyncMapGenerator asyncMapGenerator =
+                    new AsyncMapGenerator( MapGeneratorHelper.buildDungeon( 3 ), executorService );
+
+            for ( int i = 0; i < 500; i++ )
+            {
+                Assert.assertEquals( "Unexpected status.", GenerationStatus.COMPLETE,
+                                     asyncMapGenerator.generate().join() );
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Verify that a generation of the map that is cancelled before it runs does not place any map
+     * tiles, and that only one generation of the map can run at a time.
+     */
+    @Test
+    public void generate_cancelled()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        TestExecutor testExecutor = new TestExecutor();
+        AsyncMapGenerator asyncMapGenerator = new AsyncMapGenerator( mapGenerator, testExecutor );
+        CompletableFuture< GenerationStatus > future = asyncMapGenerator.generate();
+
+        Assert.assertEquals( "Unexpected running flag.", true, asyncMapGenerator.isRunning() );
+
+        try
+        {
+            asyncMapGenerator.generate();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "A generation of the map is already running.", e.getMessage() );
+        }
+
+        Assert.assertEquals( "Unexpected cancel result.", true, future.cancel( true ));
+
+        testExecutor.runAll();
+
+        Assert.assertEquals( "Unexpected running flag.", false, asyncMapGenerator.isRunning() );
+        Assert.assertEquals( "Unexpected generating flag.", false, mapGenerator.isGenerating() );
+        Assert.assertEquals( "Unexpected map tile.", null,
+                             mapGenerator.getMapTile( new MapTileLocation( 1, 0 )));
+        Assert.assertEquals( "Unexpected map tile.", null,
+                             mapGenerator.getMapTile( new MapTileLocation( 0, 1 )));
+    }
+
+    /**
+     * Verify that the generate( long ) method stops once the deadline has passed.
+     *
+     * @throws Exception
+     *             If the generation of the map fails.
+     */
+    @Test
+    public void generate_deadline() throws Exception
+    {
+        TestExecutor testExecutor = new TestExecutor();
+        AsyncMapGenerator asyncMapGenerator =
+                new AsyncMapGenerator( MapGeneratorHelper.buildDungeon( 3 ), testExecutor );
+        CompletableFuture< GenerationStatus > future =
+                asyncMapGenerator.generate( System.nanoTime() - 1 );
+
+        testExecutor.runAll();
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.DEADLINE_EXCEEDED,
+                             future.get() );
+    }
+
+    /**
+     * Verify that the future completes exceptionally when the map generator throws an exception.
+     *
+     * @throws InterruptedException
+     *             If the current thread is interrupted.
+     */
+    @Test
+    public void generate_exception() throws InterruptedException
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                                  new RectangularMapTileLocationFilter( 0, 0, 2, 0 ));
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.CLOCKWISE ));
+        mapGenerator.setGenerationStrategy( new TestGenerationStrategy(
+                new MapTilePlacement(
+                        new MapTileLocation( 1, 0 ),
+                        new MapTile( RiverTiles.ALL_GRASS, MapTileOrientation.UPRIGHT ))));
+
+        TestExecutor testExecutor = new TestExecutor();
+        AsyncMapGenerator asyncMapGenerator = new AsyncMapGenerator( mapGenerator, testExecutor );
+        CompletableFuture< GenerationStatus > future = asyncMapGenerator.generate();
+
+        testExecutor.runAll();
+
+        try
+        {
+            future.get();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( ExecutionException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Generation strategy selected an illegal map tile placement.",
+                                 e.getCause().getMessage() );
+        }
+
+        Assert.assertEquals( "Unexpected running flag.", false, asyncMapGenerator.isRunning() );
+    }
+
+    /**
+     * Verify that a generation of the map started through a second asynchronous map generator is
+     * refused while a generation through the first one is running on the same map generator.
+     *
+     * @throws Exception
+     *             If the generation of the map fails.
+     */
+    @Test
+    public void generate_sharedMapGenerator() throws Exception
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        TestExecutor testExecutor = new TestExecutor();
+        final TestExecutor otherTestExecutor = new TestExecutor();
+        AsyncMapGenerator asyncMapGenerator = new AsyncMapGenerator( mapGenerator, testExecutor );
+        AsyncMapGenerator otherAsyncMapGenerator =
+                new AsyncMapGenerator( mapGenerator, otherTestExecutor );
+
+        // the other generation runs from within the first one, once it has placed a map tile
+        mapGenerator.setProgressInterval( 1 );
+        mapGenerator.addGenerationProgressListener( new GenerationProgressListener()
+        {
+            public void generationProgressed( MapGenerator generatingMapGenerator,
+                                              int placementCount, int frontierSize,
+                                              int removedCount )
+            {
+                otherTestExecutor.runAll();
+            }
+        } );
+
+        CompletableFuture< GenerationStatus > future = asyncMapGenerator.generate();
+        CompletableFuture< GenerationStatus > otherFuture = otherAsyncMapGenerator.generate();
+
+        testExecutor.runAll();
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.COMPLETE, future.get() );
+
+        try
+        {
+            otherFuture.get();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( ExecutionException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "The map is already being generated.",
+                                 e.getCause().getMessage() );
+        }
+
+        Assert.assertEquals( "Unexpected running flag.", false,
+                             otherAsyncMapGenerator.isRunning() );
+    }
+
+    /**
+     * Verify that generation progress listeners added through the asynchronous map generator are
+     * informed on the listener executor.
+     */
+    @Test
+    public void addGenerationProgressListener()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        mapGenerator.setProgressInterval( 5 );
+
+        TestExecutor generationExecutor = new TestExecutor();
+        TestExecutor listenerExecutor = new TestExecutor();
+        TestGenerationProgressListener generationProgressListener =
+                new TestGenerationProgressListener();
+        AsyncMapGenerator asyncMapGenerator =
+                new AsyncMapGenerator( mapGenerator, generationExecutor );
+        asyncMapGenerator.setListenerExecutor( listenerExecutor );
+        asyncMapGenerator.addGenerationProgressListener( generationProgressListener );
+
+        Assert.assertSame( "Unexpected listener executor.", listenerExecutor,
+                           asyncMapGenerator.getListenerExecutor() );
+
+        asyncMapGenerator.generate();
+        generationExecutor.runAll();
+
+        Assert.assertTrue( "Expected progress reports.", listenerExecutor.getExecutionCount() > 0 );
+        Assert.assertEquals( "Unexpected progress reports before running the listener executor.",
+                             0, generationProgressListener.getPlacementCounts().size() );
+
+        listenerExecutor.runAll();
+
+        Assert.assertEquals( "Unexpected progress reports.",
+                             listenerExecutor.getExecutionCount(),
+                             generationProgressListener.getPlacementCounts().size() );
+    }
+}
@@ -33,12 +33,14 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.flexgen.map.test;
 
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import org.flexgen.map.MapGenerator;
 import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileEdgePosition;
 import org.flexgen.map.MapTileLocation;
 import org.flexgen.map.MapTileOrientation;
 import org.flexgen.map.MapTileType;
@@ -49,9 +51,11 @@ import org.flexgen.map.test.support.TestMapTileAddedListener;
 import org.flexgen.map.test.support.TestMapTileRemovedListener;
 import org.flexgen.test.helper.GeneralHelper;
 import org.flexgen.test.helper.MapGeneratorHelper;
+import org.flexgen.test.helper.MapTileEdgeHelper;
 import org.flexgen.test.helper.MapTileLocationHelper;
 import org.flexgen.test.helper.MapTileOrientationHelper;
 import org.flexgen.test.helper.MapTileTypeHelper;
+import org.flexgen.test.helper.MapUnitHelper;
 import org.flexgen.test.helper.tiles.DungeonTiles;
 import org.flexgen.test.helper.tiles.RiverTiles;
 import org.flexgen.util.ImprovedRandom;
@@ -481,6 +485,100 @@ public class MapGeneratorTest
         Assert.assertEquals( "Unexpected return value.", tileY, mapGenerator.getMaxY() );
     }
 
+    /**
+     * Verify that the getMinX(), getMinY(), getMaxX(), and getMaxY() methods return the correct
+     * values as map tiles on the edges of the map are removed.
+     */
+    @Test
+    public void getBounds_mapTilesRemoved()
+    {
+        MapGenerator mapGenerator = new MapGenerator(
+                new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+        MapTile mapTile = new MapTile( RiverTiles.ALL_GRASS, MapTileOrientation.UPRIGHT );
+
+        mapGenerator.addMapTile( new MapTileLocation( -5, -7 ), mapTile );
+        mapGenerator.addMapTile( new MapTileLocation( -3, 9 ), mapTile );
+        mapGenerator.addMapTile( new MapTileLocation( 12, -2 ), mapTile );
+        mapGenerator.addMapTile( new MapTileLocation( 8, 20 ), mapTile );
+
+        assertBounds( mapGenerator, -5, -7, 12, 20 );
+
+        mapGenerator.removeMapTile( new MapTileLocation( -5, -7 ));
+        assertBounds( mapGenerator, -3, -2, 12, 20 );
+
+        mapGenerator.removeMapTile( new MapTileLocation( 8, 20 ));
+        assertBounds( mapGenerator, -3, -2, 12, 9 );
+
+        mapGenerator.removeMapTile( new MapTileLocation( 12, -2 ));
+        assertBounds( mapGenerator, -3, 0, 0, 9 );
+
+        mapGenerator.removeMapTile( new MapTileLocation( -3, 9 ));
+        assertBounds( mapGenerator, 0, 0, 0, 0 );
+    }
+
+    /**
+     * Verify that the getMinX(), getMinY(), getMaxX(), and getMaxY() methods return the correct
+     * values when a map tile on the edge of the map is removed and the next occupied column and
+     * row are very far away.
+     */
+    @Test
+    public void getBounds_distantMapTileRemoved()
+    {
+        MapGenerator mapGenerator = new MapGenerator(
+                new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+        MapTile mapTile = new MapTile( RiverTiles.ALL_GRASS, MapTileOrientation.UPRIGHT );
+
+        mapGenerator.addMapTile( new MapTileLocation( -1000000000, -1000000000 ), mapTile );
+        mapGenerator.addMapTile( new MapTileLocation( 1000000000, 1000000000 ), mapTile );
+        mapGenerator.addMapTile( new MapTileLocation( 0, 0 ), mapTile );
+
+        mapGenerator.removeMapTile( new MapTileLocation( -1000000000, -1000000000 ));
+        assertBounds( mapGenerator, 0, 0, 1000000000, 1000000000 );
+
+        mapGenerator.removeMapTile( new MapTileLocation( 1000000000, 1000000000 ));
+        assertBounds( mapGenerator, 0, 0, 0, 0 );
+    }
+
+    /**
+     * Verify that the getMapTile() method returns the correct values after many map tiles spread
+     * over very large coordinates are added and half of them are removed again.
+     */
+    @Test
+    public void getMapTile_manyMapTilesRemoved()
+    {
+        MapGenerator mapGenerator = new MapGenerator(
+                new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+        MapTile mapTile = new MapTile( RiverTiles.ALL_GRASS, MapTileOrientation.UPRIGHT );
+        int mapTileCount = 2000;
+
+        for ( int i = 0; i < mapTileCount; i++ )
+        {
+            mapGenerator.addMapTile( new MapTileLocation( i * 65536, -i * 131072 ), mapTile );
+        }
+
+        for ( int i = 0; i < mapTileCount; i += 2 )
+        {
+            mapGenerator.removeMapTile( new MapTileLocation( i * 65536, -i * 131072 ));
+        }
+
+        for ( int i = 0; i < mapTileCount; i++ )
+        {
+            MapTile expectedMapTile = null;
+
+            if ( i % 2 == 1 )
+            {
+                expectedMapTile = mapTile;
+            }
+
+            Assert.assertEquals( "Unexpected map tile.", expectedMapTile,
+                                 mapGenerator.getMapTile(
+                                         new MapTileLocation( i * 65536, -i * 131072 )));
+        }
+    }
+
     /**
      * Verify that the getMapTile() method throws the correct exception when the mapTileLocation
      * parameter is null.
@@ -545,6 +643,29 @@ public class MapGeneratorTest
                              mapGenerator.getMapTile( mapTileLocation ));
     }
 
+    /**
+     * Verify that the getMapTileCandidates() method throws the correct exception when the
+     * mapTileLocation parameter is null.
+     */
+    @Test
+    public void getMapTileCandidates_mapTileLocation_null()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.getMapTileCandidates( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTileLocation' cannot be null.", e.getMessage() );
+        }
+    }
+
     /**
      * Verify that the addMapTile() method throws the correct exception when the mapTileLocation
      * parameter is null.
@@ -611,6 +732,39 @@ public class MapGeneratorTest
         }
     }
 
+    /**
+     * Verify that the addMapTile() method throws the correct exception when the mapTile parameter
+     * is of a map tile type that is not part of the map tile set.
+     */
+    @Test
+    public void addMapTile_mapTile_unknownType()
+    {
+        MapTileType[] mapTileTypes = MapTileTypeHelper.buildArray();
+        MapTile mapTile = new MapTile( MapTileTypeHelper.build(),
+                                       MapTileOrientationHelper.getRandomOrientation() );
+
+        MapTileLocation mapTileLocation = MapTileLocationHelper.build();
+
+        MapGenerator mapGenerator = new MapGenerator(
+                new ImprovedRandom(), mapTileTypes,
+                new RectangularMapTileLocationFilter(
+                        mapTileLocation.getX(), mapTileLocation.getY(),
+                        mapTileLocation.getX(), mapTileLocation.getY() ));
+
+        try
+        {
+            mapGenerator.addMapTile( mapTileLocation, mapTile );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTile' must be of a map tile type that is part of " +
+                                 "the map tile set.",
+                                 e.getMessage() );
+        }
+    }
+
     /**
      * Verify that the addMapTile() method adds the specified map tile at the specified map tile
      * location.
@@ -732,6 +886,75 @@ public class MapGeneratorTest
                              mapGenerators.get( 0 ));
     }
 
+    /**
+     * Verify that the addMapTile() method tracks the dead locations it creates and removes map
+     * tiles until no dead locations remain.
+     */
+    @Test
+    public void addMapTile_deadLocations()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 2 ));
+
+        TestMapTileAddedListener mapTileAddedListener = new TestMapTileAddedListener();
+        mapGenerator.addMapTileAddedListener( mapTileAddedListener );
+
+        mapGenerator.addMapTile( new MapTileLocation( 0, 0 ),
+                                 new MapTile( RiverTiles.STRAIGHT_RIVER,
+                                              MapTileOrientation.UPRIGHT ));
+        mapGenerator.addMapTile( new MapTileLocation( 0, 2 ),
+                                 new MapTile( RiverTiles.STRAIGHT_RIVER,
+                                              MapTileOrientation.CLOCKWISE ));
+
+        List< Set< MapTileLocation >> deadLocationsList =
+                mapTileAddedListener.getDeadLocationsList();
+
+        Assert.assertEquals( "Unexpected number of dead location sets.", 2,
+                             deadLocationsList.size() );
+        Assert.assertTrue( "Expected no dead locations.", deadLocationsList.get( 0 ).isEmpty() );
+        Assert.assertEquals( "Unexpected number of dead locations.", 1,
+                             deadLocationsList.get( 1 ).size() );
+        Assert.assertTrue( "Expected dead location.",
+                           deadLocationsList.get( 1 ).contains( new MapTileLocation( 0, 1 )));
+        Assert.assertTrue( "Expected no dead locations.",
+                           mapGenerator.getDeadLocations().isEmpty() );
+        Assert.assertNull( "Expected map tile to be removed.",
+                           mapGenerator.getMapTile( new MapTileLocation( 0, 2 )));
+    }
+
+    /**
+     * Verify that the addMapTile() method removes a map tile that creates dead locations when the
+     * map tile is in an orientation that is not distinct and the map tile set has more than 64
+     * distinct variants.
+     */
+    @Test
+    public void addMapTile_deadLocations_nonDistinctVariant()
+    {
+        MapTileType[] mapTileTypes = new MapTileType[ 64 ];
+
+        for ( int i = 0; i < mapTileTypes.length; i++ )
+        {
+            mapTileTypes[ i ] = new MapTileType(
+                    GeneralHelper.getUniqueString(), 1, MapUnitHelper.buildArray( 1 ),
+                    MapTileEdgeHelper.buildArray(),
+                    new MapTileOrientation[] { MapTileOrientation.UPRIGHT },
+                    new MapTileEdgePosition[] { MapTileEdgePosition.TOP } );
+        }
+
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), mapTileTypes,
+                                  new RectangularMapTileLocationFilter( 0, 0, 9, 9 ));
+
+        mapGenerator.addMapTile( new MapTileLocation( 5, 5 ),
+                                 new MapTile( mapTileTypes[ 63 ], MapTileOrientation.CLOCKWISE ));
+
+        Assert.assertTrue( "Expected no dead locations.",
+                           mapGenerator.getDeadLocations().isEmpty() );
+        Assert.assertNull( "Expected map tile to be removed.",
+                           mapGenerator.getMapTile( new MapTileLocation( 5, 5 )));
+    }
+
     /**
      * Verify that the removeMapTile() method throws the correct exception when the mapTileLocation
      * parameter is null.
@@ -1646,4 +1869,27 @@ public class MapGeneratorTest
         Assert.assertEquals( "Unexpected map generator.", mapGenerator,
                              mapGenerators.get( 0 ));
     }
+
+    /**
+     * Verify the bounds of a map.
+     *
+     * @param mapGenerator
+     *            Map generator containing the map.
+     * @param minX
+     *            Expected smallest X coordinate.
+     * @param minY
+     *            Expected smallest Y coordinate.
+     * @param maxX
+     *            Expected largest X coordinate.
+     * @param maxY
+     *            Expected largest Y coordinate.
+     */
+    private static void assertBounds( MapGenerator mapGenerator, int minX, int minY, int maxX,
+                                      int maxY )
+    {
+        Assert.assertEquals( "Unexpected minimum X.", minX, mapGenerator.getMinX() );
+        Assert.assertEquals( "Unexpected minimum Y.", minY, mapGenerator.getMinY() );
+        Assert.assertEquals( "Unexpected maximum X.", maxX, mapGenerator.getMaxX() );
+        Assert.assertEquals( "Unexpected maximum Y.", maxY, mapGenerator.getMaxY() );
+    }
 }
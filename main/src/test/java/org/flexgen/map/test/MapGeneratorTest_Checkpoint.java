@@ -0,0 +1,348 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.MapCheckpoint;
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.RestartPolicy;
+import org.flexgen.map.test.support.TestMapTileAddedListener;
+import org.flexgen.map.test.support.TestMapTileRemovedListener;
+import org.flexgen.test.helper.MapGeneratorHelper;
+import org.flexgen.test.helper.tiles.DungeonTiles;
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Test class for the MapGenerator class. Contains tests for checkpoints and rollbacks.
+ */
+public class MapGeneratorTest_Checkpoint
+{
+    /**
+     * Verify that the rollback() method throws the correct exception when the mapCheckpoint
+     * parameter is null.
+     */
+    @Test
+    public void rollback_mapCheckpoint_null()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+
+        try
+        {
+            mapGenerator.rollback( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapCheckpoint' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the rollback() method throws the correct exception when the mapCheckpoint
+     * parameter is a checkpoint of another map generator.
+     */
+    @Test
+    public void rollback_mapCheckpoint_otherMapGenerator()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+        MapCheckpoint mapCheckpoint = MapGeneratorHelper.buildDungeon( 1 ).checkpoint();
+
+        try
+        {
+            mapGenerator.rollback( mapCheckpoint );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapCheckpoint' must be a checkpoint of this map " +
+                                 "generator.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the release() method throws the correct exception when the mapCheckpoint
+     * parameter was already released.
+     */
+    @Test
+    public void release_mapCheckpoint_released()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+        MapCheckpoint mapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.release( mapCheckpoint );
+
+        try
+        {
+            mapGenerator.release( mapCheckpoint );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapCheckpoint' must not be released.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the rollback() method throws the correct exception while the map is being
+     * generated.
+     */
+    @Test
+    public void rollback_generating()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+        MapCheckpoint mapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.generate( 1 );
+
+        try
+        {
+            mapGenerator.rollback( mapCheckpoint );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Cannot roll back while the map is being generated.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the checkpoint() method throws the correct exception while the map is being
+     * generated, since a restart of the generation would undo changes recorded before the
+     * checkpoint, and that a checkpoint can be taken again once the generation is finished.
+     */
+    @Test
+    public void checkpoint_generating()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+        mapGenerator.setRestartPolicy( RestartPolicy.LUBY );
+        mapGenerator.setBacktrackLimit( 1 );
+        mapGenerator.generate( 1 );
+
+        try
+        {
+            mapGenerator.checkpoint();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Cannot take a checkpoint while the map is being generated.",
+                                 e.getMessage() );
+        }
+
+        mapGenerator.generate();
+        MapCheckpoint mapCheckpoint = mapGenerator.checkpoint();
+
+        Assert.assertEquals( "Unexpected released flag.", false, mapCheckpoint.isReleased() );
+    }
+
+    /**
+     * Verify that rolling back a generated map removes every generated map tile, notifies the map
+     * tile removal listeners, and keeps the checkpoint so the map can be rolled back again.
+     */
+    @Test
+    public void rollback()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        MapCheckpoint mapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.generate();
+
+        int generatedCount = getMapTileCount( mapGenerator ) - 1;
+        TestMapTileAddedListener mapTileAddedListener = new TestMapTileAddedListener();
+        TestMapTileRemovedListener mapTileRemovedListener = new TestMapTileRemovedListener();
+        mapGenerator.addMapTileAddedListener( mapTileAddedListener );
+        mapGenerator.addMapTileRemovedListener( mapTileRemovedListener );
+        mapGenerator.rollback( mapCheckpoint );
+
+        Assert.assertTrue( "Expected generated map tiles.", generatedCount > 0 );
+        Assert.assertEquals( "Unexpected map tile count.", 1, getMapTileCount( mapGenerator ));
+        Assert.assertEquals( "Unexpected net number of removed map tiles.", generatedCount,
+                             mapTileRemovedListener.getMapTileLocations().size() -
+                             mapTileAddedListener.getMapTileLocations().size() );
+        Assert.assertEquals( "Unexpected released flag.", false, mapCheckpoint.isReleased() );
+        Assert.assertSame( "Unexpected map generator.", mapGenerator,
+                           mapCheckpoint.getMapGenerator() );
+
+        mapGenerator.generate();
+        mapGenerator.rollback( mapCheckpoint );
+
+        Assert.assertEquals( "Unexpected map tile count after second rollback.", 1,
+                             getMapTileCount( mapGenerator ));
+        Assert.assertEquals( "Unexpected dead locations.", 0,
+                             mapGenerator.getDeadLocations().size() );
+    }
+
+    /**
+     * Verify that a map that was rolled back generates the same map as a map that was never
+     * changed.
+     */
+    @Test
+    public void rollback_restoresState()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 5 );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 5 );
+        MapCheckpoint mapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.addMapTile(
+                new MapTileLocation( 1, 0 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.CLOCKWISE ));
+        mapGenerator.removeMapTile( new MapTileLocation( 0, 0 ));
+        mapGenerator.rollback( mapCheckpoint );
+        mapGenerator.release( mapCheckpoint );
+        mapGenerator.generate();
+
+        for ( int y = -1; y <= 10; y++ )
+        {
+            for ( int x = -1; x <= 10; x++ )
+            {
+                MapTileLocation mapTileLocation = new MapTileLocation( x, y );
+
+                Assert.assertEquals( "Unexpected map tile at " + x + ", " + y + ".",
+                                     expectedMapGenerator.getMapTile( mapTileLocation ),
+                                     mapGenerator.getMapTile( mapTileLocation ));
+            }
+        }
+    }
+
+    /**
+     * Verify that a large map that was generated and then rolled back generates the same map as a
+     * map that was never changed. Generating the large map opens and closes enough open locations
+     * for every open location to be restored to its original place in the order.
+     */
+    @Test
+    public void rollback_largeMap()
+    {
+        MapGenerator expectedMapGenerator =
+                MapGeneratorHelper.buildDungeon( new ImprovedRandom(), 1, 30 );
+        expectedMapGenerator.generate();
+
+        ImprovedRandom improvedRandom = new ImprovedRandom();
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( improvedRandom, 2, 30 );
+        MapCheckpoint mapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.generate();
+        mapGenerator.rollback( mapCheckpoint );
+        mapGenerator.release( mapCheckpoint );
+
+        improvedRandom.setSeed( 1 );
+        mapGenerator.generate();
+
+        for ( int y = -31; y <= 31; y++ )
+        {
+            for ( int x = -31; x <= 31; x++ )
+            {
+                MapTileLocation mapTileLocation = new MapTileLocation( x, y );
+
+                Assert.assertEquals( "Unexpected map tile at " + x + ", " + y + ".",
+                                     expectedMapGenerator.getMapTile( mapTileLocation ),
+                                     mapGenerator.getMapTile( mapTileLocation ));
+            }
+        }
+    }
+
+    /**
+     * Verify that rolling back to a checkpoint releases newer checkpoints, and that releasing a
+     * checkpoint keeps the changes made since it was taken.
+     */
+    @Test
+    public void rollback_nested()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+        MapCheckpoint outerMapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 1 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+
+        MapCheckpoint innerMapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 2 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+
+        MapCheckpoint releasedMapCheckpoint = mapGenerator.checkpoint();
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 3 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+        mapGenerator.release( releasedMapCheckpoint );
+
+        Assert.assertEquals( "Unexpected map tile count after release.", 4,
+                             getMapTileCount( mapGenerator ));
+
+        mapGenerator.rollback( innerMapCheckpoint );
+
+        Assert.assertEquals( "Unexpected map tile count after inner rollback.", 2,
+                             getMapTileCount( mapGenerator ));
+
+        mapGenerator.rollback( outerMapCheckpoint );
+
+        Assert.assertEquals( "Unexpected map tile count after outer rollback.", 1,
+                             getMapTileCount( mapGenerator ));
+        Assert.assertEquals( "Unexpected released flag.", true, innerMapCheckpoint.isReleased() );
+        Assert.assertEquals( "Unexpected released flag.", false,
+                             outerMapCheckpoint.isReleased() );
+    }
+
+    /**
+     * Count the map tiles within the bounds of a dungeon map.
+     *
+     * @param mapGenerator
+     *            Map generator containing the map.
+     *
+     * @return The number of map tiles.
+     */
+    private static int getMapTileCount( MapGenerator mapGenerator )
+    {
+        int mapTileCount = 0;
+
+        for ( int y = -1; y <= 10; y++ )
+        {
+            for ( int x = -1; x <= 10; x++ )
+            {
+                if ( mapGenerator.getMapTile( new MapTileLocation( x, y )) != null )
+                {
+                    mapTileCount++;
+                }
+            }
+        }
+
+        return mapTileCount;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapStorage;
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.test.support.TestMapTileAddedListener;
+import org.flexgen.map.test.support.TestMapTileCoordinatesListener;
+import org.flexgen.map.test.support.TestMapTileRemovedListener;
+import org.flexgen.test.helper.MapGeneratorHelper;
+import org.flexgen.test.helper.tiles.DungeonTiles;
+
+/**
+ * Test class for the MapGenerator class. Contains tests for the methods and listeners that use
+ * the coordinates of map tile locations.
+ */
+public class MapGeneratorTest_Coordinates
+{
+    /**
+     * Verify that the getMapTile() method returns the same map tiles for coordinates as for map
+     * tile locations.
+     */
+    @Test
+    public void getMapTile_coordinates()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, MapStorage.HASH_TABLE, 9 );
+        mapGenerator.generate();
+
+        for ( int y = -10; y <= 10; y++ )
+        {
+            for ( int x = -10; x <= 10; x++ )
+            {
+                Assert.assertEquals( "Unexpected map tile.",
+                                     mapGenerator.getMapTile( new MapTileLocation( x, y )),
+                                     mapGenerator.getMapTile( x, y ));
+            }
+        }
+    }
+
+    /**
+     * Verify that the getMapTile() method throws the correct exception once the map generator is
+     * closed.
+     */
+    @Test
+    public void getMapTile_coordinates_closed()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, MapStorage.HASH_TABLE, 9 );
+        mapGenerator.close();
+
+        try
+        {
+            mapGenerator.getMapTile( 0, 0 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "The map generator was closed.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that map tiles can be added and removed by coordinates.
+     */
+    @Test
+    public void addMapTile_removeMapTile_coordinates()
+    {
+        MapGenerator mapGenerator =
+                MapGeneratorHelper.buildDungeon( 1, MapStorage.DENSE_RECTANGLE, 9 );
+        MapTile mapTile =
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT );
+
+        mapGenerator.addMapTile( 0, 1, mapTile );
+        Assert.assertEquals( "Unexpected map tile.", mapTile, mapGenerator.getMapTile( 0, 1 ));
+        Assert.assertEquals( "Unexpected map tile.", mapTile,
+                             mapGenerator.getMapTile( new MapTileLocation( 0, 1 )));
+
+        mapGenerator.removeMapTile( 0, 1 );
+        Assert.assertNull( "Unexpected map tile.", mapGenerator.getMapTile( 0, 1 ));
+    }
+
+    /**
+     * Verify that the removeMapTile() method throws the correct exception when there is no map
+     * tile at the coordinates.
+     */
+    @Test
+    public void removeMapTile_coordinates_empty()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, MapStorage.HASH_TABLE, 9 );
+
+        try
+        {
+            mapGenerator.removeMapTile( 5, 5 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTileLocation' must locate an existing map tile.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the coordinates listeners are informed of the same changes as the map tile
+     * listeners, including the changes made while recovering from bad open locations, for both
+     * hash table and dense storage.
+     */
+    @Test
+    public void coordinatesListeners()
+    {
+        verifyCoordinatesListeners( MapStorage.HASH_TABLE );
+        verifyCoordinatesListeners( MapStorage.DENSE_RECTANGLE );
+    }
+
+    /**
+     * Verify that the coordinates listeners of a map generator using the specified storage are
+     * informed of the same changes as the map tile listeners.
+     *
+     * @param mapStorage
+     *            Storage to use for the map tiles.
+     */
+    private static void verifyCoordinatesListeners( MapStorage mapStorage )
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3, mapStorage, 9 );
+        TestMapTileAddedListener mapTileAddedListener = new TestMapTileAddedListener();
+        TestMapTileRemovedListener mapTileRemovedListener = new TestMapTileRemovedListener();
+        TestMapTileCoordinatesListener mapTileCoordinatesListener =
+                new TestMapTileCoordinatesListener();
+
+        mapGenerator.addMapTileAddedListener( mapTileAddedListener );
+        mapGenerator.addMapTileRemovedListener( mapTileRemovedListener );
+        mapGenerator.addMapTileAddedCoordinatesListener( mapTileCoordinatesListener );
+        mapGenerator.addMapTileRemovedCoordinatesListener( mapTileCoordinatesListener );
+        mapGenerator.generate();
+
+        Assert.assertFalse( "Expected map tiles to be removed.",
+                            mapTileRemovedListener.getMapTileLocations().isEmpty() );
+        Assert.assertEquals( "Unexpected added map tile locations.",
+                             mapTileAddedListener.getMapTileLocations(),
+                             mapTileCoordinatesListener.getAddedMapTileLocations() );
+        Assert.assertEquals( "Unexpected removed map tile locations.",
+                             mapTileRemovedListener.getMapTileLocations(),
+                             mapTileCoordinatesListener.getRemovedMapTileLocations() );
+    }
+}
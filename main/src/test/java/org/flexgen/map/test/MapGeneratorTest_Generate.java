@@ -36,8 +36,16 @@ import org.flexgen.map.MapGenerator;
 import org.flexgen.map.MapTile;
 import org.flexgen.map.MapTileLocation;
 import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.MapTilePlacement;
+import org.flexgen.map.MapTileSelectionMode;
 import org.flexgen.map.MapTileType;
 import org.flexgen.map.RectangularMapTileLocationFilter;
+import org.flexgen.map.RestartCause;
+import org.flexgen.map.RestartPolicy;
+import org.flexgen.map.RestartScope;
+import org.flexgen.map.test.support.TestGenerationStrategy;
+import org.flexgen.map.test.support.TestMapTileRemovedListener;
+import org.flexgen.map.test.support.TestRestartListener;
 import org.flexgen.test.helper.MapGeneratorHelper;
 import org.flexgen.test.helper.tiles.DungeonTiles;
 import org.flexgen.test.helper.tiles.RiverTiles;
@@ -1009,4 +1017,346 @@ public class MapGeneratorTest_Generate
 
         return actualMapGenerator;
     }
+
+    /**
+     * Verify that the generate() method does not have to remove any map tiles when propagation
+     * is enabled with a large enough radius.
+     */
+    @Test
+    public void generate_propagation()
+    {
+        int removedCount = 0;
+        int propagationRemovedCount = 0;
+
+        for ( int seed = 0; seed < 10; seed++ )
+        {
+            removedCount += generate_getRemovedCount(
+                    seed, MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE, 0, false );
+            propagationRemovedCount += generate_getRemovedCount(
+                    seed, MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE, 2, false );
+        }
+
+        Assert.assertTrue( "Expected removed map tiles without propagation.", removedCount > 0 );
+        Assert.assertEquals( "Unexpected number of removed map tiles with propagation.", 0,
+                             propagationRemovedCount );
+    }
+
+    /**
+     * Verify that the generate() method removes fewer map tiles when the open location with the
+     * fewest legal variants or the lowest entropy is filled first.
+     */
+    @Test
+    public void generate_minimumEntropy()
+    {
+        int removedCount = 0;
+        int variantCountRemovedCount = 0;
+        int entropyRemovedCount = 0;
+
+        for ( int seed = 0; seed < 10; seed++ )
+        {
+            removedCount += generate_getRemovedCount(
+                    seed, MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE, 0, false );
+            variantCountRemovedCount += generate_getRemovedCount(
+                    seed, MapTileSelectionMode.MINIMUM_VARIANT_COUNT, 0, false );
+            entropyRemovedCount += generate_getRemovedCount(
+                    seed, MapTileSelectionMode.MINIMUM_ENTROPY, 0, false );
+        }
+
+        Assert.assertTrue( "Expected fewer removed map tiles with MINIMUM_VARIANT_COUNT.",
+                           variantCountRemovedCount < removedCount );
+        Assert.assertTrue( "Expected fewer removed map tiles with MINIMUM_ENTROPY.",
+                           entropyRemovedCount < removedCount );
+    }
+
+    /**
+     * Verify that the generate() method removes fewer map tiles when conflict-directed
+     * backjumping is used.
+     */
+    @Test
+    public void generate_conflictDirectedBackjumping()
+    {
+        int removedCount = 0;
+        int backjumpingRemovedCount = 0;
+
+        for ( int seed = 0; seed < 10; seed++ )
+        {
+            removedCount += generate_getRemovedCount(
+                    seed, MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE, 0, false );
+            backjumpingRemovedCount += generate_getRemovedCount(
+                    seed, MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE, 0, true );
+        }
+
+        Assert.assertTrue( "Expected fewer removed map tiles with conflict-directed backjumping.",
+                           backjumpingRemovedCount < removedCount );
+    }
+
+    /**
+     * Verify that the generate() method produces valid maps when bad open locations are corrected
+     * by popping the trail, with and without conflict-directed backjumping.
+     */
+    @Test
+    public void generate_trailBacktracking()
+    {
+        int removedCount = 0;
+
+        for ( int seed = 0; seed < 10; seed++ )
+        {
+            for ( int i = 0; i < 2; i++ )
+            {
+                MapGenerator mapGenerator = generate_buildDungeonMapGenerator( seed );
+                TestMapTileRemovedListener mapTileRemovedListener =
+                        new TestMapTileRemovedListener();
+                mapGenerator.addMapTileRemovedListener( mapTileRemovedListener );
+                mapGenerator.setTrailBacktracking( true );
+                mapGenerator.setConflictDirectedBackjumping( i == 1 );
+                mapGenerator.generate();
+
+                MapGeneratorHelper.assertIsValid( mapGenerator );
+                removedCount += mapTileRemovedListener.getMapTileLocations().size();
+            }
+        }
+
+        Assert.assertTrue( "Expected removed map tiles.", removedCount > 0 );
+    }
+
+    /**
+     * Verify that the generate() method throws the correct exception when the backtrack depth
+     * limit is exceeded without a restart policy.
+     */
+    @Test
+    public void generate_backtrackDepthLimit_noRestart()
+    {
+        MapGenerator mapGenerator = generate_buildDungeonMapGenerator( 3 );
+        mapGenerator.setBacktrackDepthLimit( 1 );
+
+        try
+        {
+            mapGenerator.generate();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "Backtrack depth limit exceeded.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the generate() method throws the correct exception when the backtrack limit is
+     * exceeded without a restart policy.
+     */
+    @Test
+    public void generate_backtrackLimit_noRestart()
+    {
+        MapGenerator mapGenerator = generate_buildDungeonMapGenerator( 3 );
+        mapGenerator.setBacktrackLimit( 1 );
+
+        try
+        {
+            mapGenerator.generate();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "Backtrack limit exceeded.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the generate() method restarts the whole map and reports the restart when the
+     * backtrack limit is exceeded.
+     */
+    @Test
+    public void generate_restart()
+    {
+        MapGenerator mapGenerator = generate_buildDungeonMapGenerator( 3 );
+        TestRestartListener restartListener = new TestRestartListener();
+        mapGenerator.addRestartListener( restartListener );
+        mapGenerator.setBacktrackLimit( 1 );
+        mapGenerator.setRestartPolicy( RestartPolicy.LUBY );
+        mapGenerator.generate();
+
+        Assert.assertEquals( "Unexpected restart count.", 1, mapGenerator.getRestartCount() );
+        Assert.assertEquals( "Unexpected restart cause.", RestartCause.BACKTRACK_COUNT,
+                             restartListener.getRestartCauses().get( 0 ));
+        Assert.assertEquals( "Unexpected restart policy.", RestartPolicy.LUBY,
+                             restartListener.getRestartPolicies().get( 0 ));
+        Assert.assertEquals( "Unexpected restart scope.", RestartScope.MAP,
+                             restartListener.getRestartScopes().get( 0 ));
+        Assert.assertEquals( "Unexpected dead locations.", 0,
+                             mapGenerator.getDeadLocations().size() );
+        Assert.assertEquals( "Unexpected initial map tile.",
+                             new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE,
+                                          MapTileOrientation.UPRIGHT ),
+                             mapGenerator.getMapTile( new MapTileLocation( 0, 0 )));
+    }
+
+    /**
+     * Verify that the generate() method reports every restart when restarting regions of the map.
+     */
+    @Test
+    public void generate_restart_region()
+    {
+        MapGenerator mapGenerator = generate_buildDungeonMapGenerator( 3 );
+        TestRestartListener restartListener = new TestRestartListener();
+        mapGenerator.addRestartListener( restartListener );
+        mapGenerator.setBacktrackDepthLimit( 1 );
+        mapGenerator.setRestartPolicy( RestartPolicy.GEOMETRIC );
+        mapGenerator.setRestartScope( RestartScope.REGION );
+        mapGenerator.generate();
+
+        Assert.assertTrue( "Expected restarts.", mapGenerator.getRestartCount() > 0 );
+        Assert.assertEquals( "Unexpected number of reported restarts.",
+                             mapGenerator.getRestartCount(),
+                             restartListener.getRestartCauses().size() );
+        Assert.assertEquals( "Unexpected restart cause.", RestartCause.BACKTRACK_DEPTH,
+                             restartListener.getRestartCauses().get( 0 ));
+        Assert.assertEquals( "Unexpected restart policy.", RestartPolicy.GEOMETRIC,
+                             restartListener.getRestartPolicies().get( 0 ));
+        Assert.assertEquals( "Unexpected dead locations.", 0,
+                             mapGenerator.getDeadLocations().size() );
+    }
+
+    /**
+     * Build a map generator for a dungeon map that has its initial map tile in place.
+     *
+     * @param seed
+     *            Seed for the random number generator.
+     *
+     * @return The map generator.
+     */
+    private MapGenerator generate_buildDungeonMapGenerator( long seed )
+    {
+        ImprovedRandom improvedRandom = new ImprovedRandom();
+        improvedRandom.setSeed( seed );
+
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            DungeonTiles.STRAIGHT_HALLWAY_TYPE,
+            DungeonTiles.CORNER_HALLWAY_TYPE,
+            DungeonTiles.THREE_WAY_HALLWAY_TYPE
+        };
+
+        MapGenerator mapGenerator =
+                new MapGenerator( improvedRandom, mapTileTypes,
+                                  new RectangularMapTileLocationFilter( 0, 0, 9, 9 ));
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+
+        return mapGenerator;
+    }
+
+    /**
+     * Generate a dungeon map and count the map tiles that were removed while generating it.
+     *
+     * @param seed
+     *            Seed for the random number generator.
+     * @param mapTileSelectionMode
+     *            Map tile selection mode of the map generator.
+     * @param propagationRadius
+     *            Propagation radius of the map generator.
+     * @param conflictDirectedBackjumping
+     *            Flag indicating whether or not the map generator uses conflict-directed
+     *            backjumping.
+     *
+     * @return The number of map tiles that were removed while generating the map.
+     */
+    private int generate_getRemovedCount( long seed, MapTileSelectionMode mapTileSelectionMode,
+                                          int propagationRadius,
+                                          boolean conflictDirectedBackjumping )
+    {
+        ImprovedRandom improvedRandom = new ImprovedRandom();
+        improvedRandom.setSeed( seed );
+
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            DungeonTiles.STRAIGHT_HALLWAY_TYPE,
+            DungeonTiles.CORNER_HALLWAY_TYPE,
+            DungeonTiles.THREE_WAY_HALLWAY_TYPE
+        };
+
+        MapGenerator mapGenerator =
+                new MapGenerator( improvedRandom, mapTileTypes,
+                                  new RectangularMapTileLocationFilter( 0, 0, 9, 9 ));
+
+        TestMapTileRemovedListener mapTileRemovedListener = new TestMapTileRemovedListener();
+        mapGenerator.addMapTileRemovedListener( mapTileRemovedListener );
+        mapGenerator.setMapTileSelectionMode( mapTileSelectionMode );
+        mapGenerator.setPropagationRadius( propagationRadius );
+        mapGenerator.setConflictDirectedBackjumping( conflictDirectedBackjumping );
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+        mapGenerator.generate();
+
+        return mapTileRemovedListener.getMapTileLocations().size();
+    }
+
+    /**
+     * Verify that the generate() method places the map tiles selected by the generation strategy.
+     */
+    @Test
+    public void generate_generationStrategy()
+    {
+        MapGenerator expectedMapGenerator =
+                new MapGenerator( new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                                  new RectangularMapTileLocationFilter( 0, 0, 2, 0 ));
+        expectedMapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.CLOCKWISE ));
+        expectedMapGenerator.addMapTile(
+                new MapTileLocation( 1, 0 ),
+                new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.CLOCKWISE ));
+        expectedMapGenerator.addMapTile(
+                new MapTileLocation( 2, 0 ),
+                new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.CLOCKWISE ));
+
+        MapGenerator actualMapGenerator =
+                new MapGenerator( new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                                  new RectangularMapTileLocationFilter( 0, 0, 2, 0 ));
+        actualMapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.CLOCKWISE ));
+
+        TestGenerationStrategy generationStrategy = new TestGenerationStrategy();
+        actualMapGenerator.setGenerationStrategy( generationStrategy );
+        actualMapGenerator.generate();
+
+        MapGeneratorHelper.assertAreEqual( expectedMapGenerator, actualMapGenerator );
+        Assert.assertEquals( "Unexpected number of selections.", 2,
+                             generationStrategy.getSelectionCount() );
+    }
+
+    /**
+     * Verify that the generate() method throws the correct exception when the generation strategy
+     * selects an illegal map tile placement.
+     */
+    @Test
+    public void generate_generationStrategy_illegalPlacement()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                                  new RectangularMapTileLocationFilter( 0, 0, 2, 0 ));
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.CLOCKWISE ));
+        mapGenerator.setGenerationStrategy( new TestGenerationStrategy(
+                new MapTilePlacement(
+                        new MapTileLocation( 1, 0 ),
+                        new MapTile( RiverTiles.ALL_GRASS, MapTileOrientation.UPRIGHT ))));
+
+        try
+        {
+            mapGenerator.generate();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Generation strategy selected an illegal map tile placement.",
+                                 e.getMessage() );
+        }
+    }
 }
@@ -0,0 +1,445 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.CancellationToken;
+import org.flexgen.map.GenerationStatus;
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.RestartPolicy;
+import org.flexgen.map.test.support.TestCancellingMapTileRemovedListener;
+import org.flexgen.map.test.support.TestGenerationProgressListener;
+import org.flexgen.test.helper.MapGeneratorHelper;
+
+/**
+ * Test class for the MapGenerator class. Contains tests for generating a map in several steps, and
+ * for interrupting and monitoring the generation of a map.
+ */
+public class MapGeneratorTest_GenerateSteps
+{
+    /**
+     * Verify that the generate( int ) method throws the correct exception when the maxPlacements
+     * parameter is 0.
+     */
+    @Test
+    public void generate_maxPlacements_zero()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+
+        try
+        {
+            mapGenerator.generate( 0 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'maxPlacements' must be greater than 0.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the generateFor() method throws the correct exception when the nanos parameter
+     * is negative.
+     */
+    @Test
+    public void generateFor_nanos_negative()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+
+        try
+        {
+            mapGenerator.generateFor( -1 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "Parameter 'nanos' cannot be negative.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the generate( int ) method places no more than the specified number of map
+     * tiles, and that a map generated one map tile at a time is identical to a map generated by a
+     * single call to generate().
+     */
+    @Test
+    public void generate_maxPlacements()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 5 );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 5 );
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.PROGRESSED,
+                             mapGenerator.generate( 1 ));
+        Assert.assertEquals( "Unexpected generating flag.", true, mapGenerator.isGenerating() );
+        Assert.assertEquals( "Unexpected map tile count.", 2, getMapTileCount( mapGenerator ));
+
+        int callCount = 1;
+
+        while ( mapGenerator.generate( 1 ) != GenerationStatus.COMPLETE )
+        {
+            callCount++;
+        }
+
+        Assert.assertTrue( "Expected several calls.", callCount > 1 );
+        Assert.assertEquals( "Unexpected generating flag.", false, mapGenerator.isGenerating() );
+        assertMapsEqual( expectedMapGenerator, mapGenerator );
+        Assert.assertEquals( "Unexpected status after completion.", GenerationStatus.COMPLETE,
+                             mapGenerator.generate( 1 ));
+    }
+
+    /**
+     * Verify that a map generated in several steps is identical to a map generated by a single
+     * call to generate() when the map generator restarts.
+     */
+    @Test
+    public void generate_maxPlacements_restart()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        expectedMapGenerator.setBacktrackLimit( 1 );
+        expectedMapGenerator.setRestartPolicy( RestartPolicy.LUBY );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        mapGenerator.setBacktrackLimit( 1 );
+        mapGenerator.setRestartPolicy( RestartPolicy.LUBY );
+
+        while ( mapGenerator.generate( 3 ) != GenerationStatus.COMPLETE )
+        {
+            Assert.assertEquals( "Unexpected generating flag.", true,
+                                 mapGenerator.isGenerating() );
+        }
+
+        Assert.assertEquals( "Unexpected restart count.", expectedMapGenerator.getRestartCount(),
+                             mapGenerator.getRestartCount() );
+        assertMapsEqual( expectedMapGenerator, mapGenerator );
+    }
+
+    /**
+     * Verify that the generateFor() method does not place any map tiles when no time is given, and
+     * that generate() continues the generation of the map.
+     */
+    @Test
+    public void generateFor_noTime()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 7 );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 7 );
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.BUDGET_EXHAUSTED,
+                             mapGenerator.generateFor( 0 ));
+        Assert.assertEquals( "Unexpected generating flag.", true, mapGenerator.isGenerating() );
+        Assert.assertEquals( "Unexpected map tile count.", 1, getMapTileCount( mapGenerator ));
+
+        mapGenerator.generate();
+
+        Assert.assertEquals( "Unexpected generating flag.", false, mapGenerator.isGenerating() );
+        assertMapsEqual( expectedMapGenerator, mapGenerator );
+    }
+
+    /**
+     * Verify that the generateFor() method finishes the map when given enough time.
+     */
+    @Test
+    public void generateFor_enoughTime()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 7 );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 7 );
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.COMPLETE,
+                             mapGenerator.generateFor( Long.MAX_VALUE - 1 ));
+        assertMapsEqual( expectedMapGenerator, mapGenerator );
+    }
+
+    /**
+     * Verify that the generate( CancellationToken ) method throws the correct exception when the
+     * cancellationToken parameter is null.
+     */
+    @Test
+    public void generate_cancellationToken_null()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+
+        try
+        {
+            mapGenerator.generate( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'cancellationToken' cannot be null.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the generate( CancellationToken, long ) method throws the correct exception when
+     * the cancellationToken parameter is null.
+     */
+    @Test
+    public void generate_deadline_cancellationToken_null()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+
+        try
+        {
+            mapGenerator.generate( null, System.nanoTime() );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'cancellationToken' cannot be null.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the generate( CancellationToken ) method does not place any map tiles when the
+     * cancellation token is already cancelled, and finishes the generation of the map.
+     */
+    @Test
+    public void generate_cancelled()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 7 );
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.CANCELLED,
+                             mapGenerator.generate( cancellationToken ));
+        Assert.assertEquals( "Unexpected generating flag.", false, mapGenerator.isGenerating() );
+        Assert.assertEquals( "Unexpected map tile count.", 1, getMapTileCount( mapGenerator ));
+    }
+
+    /**
+     * Verify that the generate( CancellationToken ) method leaves no bad open locations behind
+     * when the generation of the map is cancelled while recovering from bad open locations.
+     */
+    @Test
+    public void generate_cancelled_recovery()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        CancellationToken cancellationToken = new CancellationToken();
+        TestCancellingMapTileRemovedListener mapTileRemovedListener =
+                new TestCancellingMapTileRemovedListener( cancellationToken );
+        mapGenerator.addMapTileRemovedListener( mapTileRemovedListener );
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.CANCELLED,
+                             mapGenerator.generate( cancellationToken ));
+        Assert.assertTrue( "Expected removed map tiles.",
+                           mapTileRemovedListener.getRemovedCount() > 0 );
+        Assert.assertEquals( "Unexpected dead locations.", 0,
+                             mapGenerator.getDeadLocations().size() );
+        Assert.assertTrue( "Expected placed map tiles.", getMapTileCount( mapGenerator ) > 1 );
+    }
+
+    /**
+     * Verify that a map generated one map tile at a time is identical to a map generated by a
+     * single call to generate() when bad open locations are corrected by popping the trail.
+     */
+    @Test
+    public void generate_maxPlacements_trailBacktracking()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 5 );
+        expectedMapGenerator.setTrailBacktracking( true );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 5 );
+        mapGenerator.setTrailBacktracking( true );
+
+        while ( mapGenerator.generate( 1 ) != GenerationStatus.COMPLETE )
+        {
+            Assert.assertEquals( "Unexpected generating flag.", true,
+                                 mapGenerator.isGenerating() );
+        }
+
+        assertMapsEqual( expectedMapGenerator, mapGenerator );
+        MapGeneratorHelper.assertIsValid( mapGenerator );
+    }
+
+    /**
+     * Verify that the generate( CancellationToken ) method leaves no bad open locations behind
+     * when the generation of the map is cancelled while popping the trail, and that the
+     * generation of the map can be finished afterwards.
+     */
+    @Test
+    public void generate_cancelled_trailBacktracking()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        mapGenerator.setTrailBacktracking( true );
+        CancellationToken cancellationToken = new CancellationToken();
+        TestCancellingMapTileRemovedListener mapTileRemovedListener =
+                new TestCancellingMapTileRemovedListener( cancellationToken );
+        mapGenerator.addMapTileRemovedListener( mapTileRemovedListener );
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.CANCELLED,
+                             mapGenerator.generate( cancellationToken ));
+        Assert.assertTrue( "Expected removed map tiles.",
+                           mapTileRemovedListener.getRemovedCount() > 0 );
+        Assert.assertEquals( "Unexpected dead locations.", 0,
+                             mapGenerator.getDeadLocations().size() );
+
+        mapGenerator.generate();
+
+        MapGeneratorHelper.assertIsValid( mapGenerator );
+    }
+
+    /**
+     * Verify that the generate( CancellationToken, long ) method does not place any map tiles when
+     * the deadline has passed.
+     */
+    @Test
+    public void generate_deadlinePassed()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 7 );
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.DEADLINE_EXCEEDED,
+                             mapGenerator.generate( new CancellationToken(),
+                                                    System.nanoTime() - 1 ));
+        Assert.assertEquals( "Unexpected generating flag.", false, mapGenerator.isGenerating() );
+        Assert.assertEquals( "Unexpected map tile count.", 1, getMapTileCount( mapGenerator ));
+    }
+
+    /**
+     * Verify that the generate( CancellationToken, long ) method finishes the map before a distant
+     * deadline, producing the same map as generate().
+     */
+    @Test
+    public void generate_deadline()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        expectedMapGenerator.generate();
+
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.COMPLETE,
+                             mapGenerator.generate( new CancellationToken(),
+                                                    System.nanoTime() + 3600000000000L ));
+        assertMapsEqual( expectedMapGenerator, mapGenerator );
+    }
+
+    /**
+     * Verify that the generation progress listeners are informed each time the number of placed
+     * map tiles reaches a multiple of the progress interval.
+     */
+    @Test
+    public void generate_progress()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        TestGenerationProgressListener generationProgressListener =
+                new TestGenerationProgressListener();
+        mapGenerator.addGenerationProgressListener( generationProgressListener );
+        mapGenerator.setProgressInterval( 5 );
+        mapGenerator.generate();
+
+        Assert.assertTrue( "Expected progress reports.",
+                           generationProgressListener.getPlacementCounts().size() > 1 );
+
+        int lastRemovedCount = 0;
+
+        for ( int i = 0; i < generationProgressListener.getPlacementCounts().size(); i++ )
+        {
+            Assert.assertEquals( "Unexpected placement count.", ( i + 1 ) * 5,
+                                 generationProgressListener.getPlacementCounts().get( i )
+                                         .intValue() );
+            Assert.assertTrue( "Unexpected removed count.",
+                               generationProgressListener.getRemovedCounts().get( i ) >=
+                               lastRemovedCount );
+
+            lastRemovedCount = generationProgressListener.getRemovedCounts().get( i );
+        }
+
+        Assert.assertTrue( "Expected removed map tiles.", lastRemovedCount > 0 );
+    }
+
+    /**
+     * Count the map tiles within the bounds of a dungeon map.
+     *
+     * @param mapGenerator
+     *            Map generator containing the map.
+     *
+     * @return The number of map tiles.
+     */
+    private static int getMapTileCount( MapGenerator mapGenerator )
+    {
+        int mapTileCount = 0;
+
+        for ( int y = -1; y <= 10; y++ )
+        {
+            for ( int x = -1; x <= 10; x++ )
+            {
+                if ( mapGenerator.getMapTile( new MapTileLocation( x, y )) != null )
+                {
+                    mapTileCount++;
+                }
+            }
+        }
+
+        return mapTileCount;
+    }
+
+    /**
+     * Verify that two dungeon maps contain the same map tiles.
+     *
+     * @param expectedMapGenerator
+     *            Map generator containing the expected map.
+     * @param actualMapGenerator
+     *            Map generator containing the actual map.
+     */
+    private static void assertMapsEqual( MapGenerator expectedMapGenerator,
+                                         MapGenerator actualMapGenerator )
+    {
+        for ( int y = -1; y <= 10; y++ )
+        {
+            for ( int x = -1; x <= 10; x++ )
+            {
+                MapTileLocation mapTileLocation = new MapTileLocation( x, y );
+
+                Assert.assertEquals( "Unexpected map tile at " + x + ", " + y + ".",
+                                     expectedMapGenerator.getMapTile( mapTileLocation ),
+                                     actualMapGenerator.getMapTile( mapTileLocation ));
+            }
+        }
+    }
+}
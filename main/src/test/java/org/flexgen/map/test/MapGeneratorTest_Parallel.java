@@ -0,0 +1,245 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.DefaultGenerationStrategy;
+import org.flexgen.map.GenerationContext;
+import org.flexgen.map.GenerationStatus;
+import org.flexgen.map.GenerationStrategy;
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapTilePlacement;
+import org.flexgen.map.MapTileSelectionMode;
+import org.flexgen.test.helper.MapGeneratorHelper;
+
+/**
+ * Test class for the MapGenerator class. Contains tests for selecting map tile placements from
+ * several regions of the map at once.
+ */
+public class MapGeneratorTest_Parallel
+{
+    /**
+     * Verify that the setParallelGeneration() method throws the correct exception when the
+     * regionSize parameter is negative.
+     */
+    @Test
+    public void setParallelGeneration_regionSize_negative()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, 9 );
+
+        try
+        {
+            mapGenerator.setParallelGeneration( -1, null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'regionSize' cannot be negative.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the getParallelRegionSize() method returns the correct value.
+     */
+    @Test
+    public void getParallelRegionSize()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, 9 );
+
+        Assert.assertEquals( "Unexpected default region size.", 0,
+                             mapGenerator.getParallelRegionSize() );
+
+        mapGenerator.setParallelGeneration( 8, null );
+
+        Assert.assertEquals( "Unexpected region size.", 8,
+                             mapGenerator.getParallelRegionSize() );
+    }
+
+    /**
+     * Verify that placements selected from several regions at once produce a complete and valid
+     * map.
+     */
+    @Test
+    public void generate_valid()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, 30 );
+        mapGenerator.setParallelGeneration( 6, null );
+        mapGenerator.generate();
+
+        MapGeneratorHelper.assertIsValid( mapGenerator );
+    }
+
+    /**
+     * Verify that placements selected from several regions at once produce a complete and valid
+     * map when map tiles have to be removed again.
+     */
+    @Test
+    public void generate_backtracking()
+    {
+        for ( long seed = 1; seed <= 5; seed++ )
+        {
+            MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( seed, 9 );
+            mapGenerator.setParallelGeneration( 3, null );
+            mapGenerator.generate();
+
+            MapGeneratorHelper.assertIsValid( mapGenerator );
+        }
+    }
+
+    /**
+     * Verify that the map does not depend on the executor on which the placements are selected.
+     */
+    @Test
+    public void generate_executor()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 1, 40 );
+        expectedMapGenerator.setParallelGeneration( 8, null );
+        expectedMapGenerator.generate();
+
+        ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+
+        try
+        {
+            MapGenerator actualMapGenerator = MapGeneratorHelper.buildDungeon( 1, 40 );
+            actualMapGenerator.setParallelGeneration( 8, executorService );
+            actualMapGenerator.generate();
+
+            MapGeneratorHelper.assertAreEqual( expectedMapGenerator, actualMapGenerator );
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Verify that a generation strategy other than the default one is only called on the thread
+     * that generates the map, even when an executor is given.
+     */
+    @Test
+    public void generate_executor_customGenerationStrategy()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 1, 20 );
+        expectedMapGenerator.setParallelGeneration( 4, null );
+        expectedMapGenerator.generate();
+
+        final Set< Thread > threads = Collections.synchronizedSet( new HashSet< Thread >() );
+        final GenerationStrategy defaultGenerationStrategy = new DefaultGenerationStrategy();
+        ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+
+        try
+        {
+            MapGenerator actualMapGenerator = MapGeneratorHelper.buildDungeon( 1, 20 );
+            actualMapGenerator.setParallelGeneration( 4, executorService );
+            actualMapGenerator.setGenerationStrategy( new GenerationStrategy()
+            {
+                /**
+                 * Record the calling thread and select the placement of the default strategy.
+                 *
+                 * @param generationContext
+                 *            Generation context giving read access to the state of the map
+                 *            generator.
+                 *
+                 * @return The placement selected by the default strategy.
+                 */
+                public MapTilePlacement selectMapTilePlacement(
+                        GenerationContext generationContext )
+                {
+                    threads.add( Thread.currentThread() );
+                    return defaultGenerationStrategy.selectMapTilePlacement( generationContext );
+                }
+            });
+            actualMapGenerator.generate();
+
+            Assert.assertEquals( "Unexpected threads.",
+                                 Collections.singleton( Thread.currentThread() ), threads );
+            MapGeneratorHelper.assertAreEqual( expectedMapGenerator, actualMapGenerator );
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Verify that a map generated in several calls is identical to a map generated in a single
+     * call when placements are selected from several regions at once.
+     */
+    @Test
+    public void generate_steps()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 2, 20 );
+        expectedMapGenerator.setParallelGeneration( 4, null );
+        expectedMapGenerator.generate();
+
+        MapGenerator actualMapGenerator = MapGeneratorHelper.buildDungeon( 2, 20 );
+        actualMapGenerator.setParallelGeneration( 4, null );
+
+        GenerationStatus generationStatus = GenerationStatus.PROGRESSED;
+
+        while ( generationStatus != GenerationStatus.COMPLETE )
+        {
+            generationStatus = actualMapGenerator.generate( 5 );
+        }
+
+        MapGeneratorHelper.assertAreEqual( expectedMapGenerator, actualMapGenerator );
+    }
+
+    /**
+     * Verify that the region size does not affect the map tile selection modes that fill the most
+     * constrained open location first.
+     */
+    @Test
+    public void generate_minimumVariantCount()
+    {
+        MapGenerator expectedMapGenerator = MapGeneratorHelper.buildDungeon( 1, 15 );
+        expectedMapGenerator.setMapTileSelectionMode( MapTileSelectionMode.MINIMUM_VARIANT_COUNT );
+        expectedMapGenerator.generate();
+
+        MapGenerator actualMapGenerator = MapGeneratorHelper.buildDungeon( 1, 15 );
+        actualMapGenerator.setMapTileSelectionMode( MapTileSelectionMode.MINIMUM_VARIANT_COUNT );
+        actualMapGenerator.setParallelGeneration( 4, null );
+        actualMapGenerator.generate();
+
+        MapGeneratorHelper.assertAreEqual( expectedMapGenerator, actualMapGenerator );
+    }
+}
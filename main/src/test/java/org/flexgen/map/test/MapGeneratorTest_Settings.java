@@ -0,0 +1,480 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.DefaultGenerationStrategy;
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapTileSelectionMode;
+import org.flexgen.map.RectangularMapTileLocationFilter;
+import org.flexgen.map.RestartPolicy;
+import org.flexgen.map.RestartScope;
+import org.flexgen.map.test.support.TestGenerationStrategy;
+import org.flexgen.test.helper.MapTileTypeHelper;
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Test class for the MapGenerator class. Contains tests for the settings of the map generator.
+ */
+public class MapGeneratorTest_Settings
+{
+    /**
+     * Verify that propagation is disabled by default.
+     */
+    @Test
+    public void getPropagationRadius()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected propagation radius.", 0,
+                             mapGenerator.getPropagationRadius() );
+
+        mapGenerator.setPropagationRadius( 3 );
+
+        Assert.assertEquals( "Unexpected propagation radius.", 3,
+                             mapGenerator.getPropagationRadius() );
+    }
+
+    /**
+     * Verify that the setPropagationRadius() method throws the correct exception when the
+     * propagationRadius parameter is negative.
+     */
+    @Test
+    public void setPropagationRadius_negative()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setPropagationRadius( -1 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'propagationRadius' cannot be negative.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that conflict-directed backjumping is disabled by default and can be enabled.
+     */
+    @Test
+    public void isConflictDirectedBackjumping()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected conflict-directed backjumping flag.", false,
+                             mapGenerator.isConflictDirectedBackjumping() );
+
+        mapGenerator.setConflictDirectedBackjumping( true );
+
+        Assert.assertEquals( "Unexpected conflict-directed backjumping flag.", true,
+                             mapGenerator.isConflictDirectedBackjumping() );
+    }
+
+    /**
+     * Verify that trail backtracking is disabled by default and can be enabled.
+     */
+    @Test
+    public void isTrailBacktracking()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected trail backtracking flag.", false,
+                             mapGenerator.isTrailBacktracking() );
+
+        mapGenerator.setTrailBacktracking( true );
+
+        Assert.assertEquals( "Unexpected trail backtracking flag.", true,
+                             mapGenerator.isTrailBacktracking() );
+    }
+
+    /**
+     * Verify that open edge counting is disabled by default and can be enabled.
+     */
+    @Test
+    public void isOpenEdgeCounting()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected open edge counting flag.", false,
+                             mapGenerator.isOpenEdgeCounting() );
+
+        mapGenerator.setOpenEdgeCounting( true );
+
+        Assert.assertEquals( "Unexpected open edge counting flag.", true,
+                             mapGenerator.isOpenEdgeCounting() );
+    }
+
+    /**
+     * Verify that the getExclusionCapacity() method returns the default and the set exclusion
+     * capacity.
+     */
+    @Test
+    public void getExclusionCapacity()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected exclusion capacity.", 4096,
+                             mapGenerator.getExclusionCapacity() );
+
+        mapGenerator.setExclusionCapacity( 1 );
+
+        Assert.assertEquals( "Unexpected exclusion capacity.", 1,
+                             mapGenerator.getExclusionCapacity() );
+    }
+
+    /**
+     * Verify that the setExclusionCapacity() method throws the correct exception when the
+     * exclusionCapacity parameter is 0.
+     */
+    @Test
+    public void setExclusionCapacity_zero()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setExclusionCapacity( 0 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'exclusionCapacity' must be greater than 0.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the getBacktrackLimit() and getBacktrackDepthLimit() methods return no limit by
+     * default and the limits that were set.
+     */
+    @Test
+    public void getBacktrackLimit()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected backtrack limit.", 0,
+                             mapGenerator.getBacktrackLimit() );
+        Assert.assertEquals( "Unexpected backtrack depth limit.", 0,
+                             mapGenerator.getBacktrackDepthLimit() );
+
+        mapGenerator.setBacktrackLimit( 100 );
+        mapGenerator.setBacktrackDepthLimit( 10 );
+
+        Assert.assertEquals( "Unexpected backtrack limit.", 100,
+                             mapGenerator.getBacktrackLimit() );
+        Assert.assertEquals( "Unexpected backtrack depth limit.", 10,
+                             mapGenerator.getBacktrackDepthLimit() );
+    }
+
+    /**
+     * Verify that the setBacktrackLimit() method throws the correct exception when the
+     * backtrackLimit parameter is negative.
+     */
+    @Test
+    public void setBacktrackLimit_negative()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setBacktrackLimit( -1 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'backtrackLimit' cannot be negative.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the setBacktrackDepthLimit() method throws the correct exception when the
+     * backtrackDepthLimit parameter is negative.
+     */
+    @Test
+    public void setBacktrackDepthLimit_negative()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setBacktrackDepthLimit( -1 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'backtrackDepthLimit' cannot be negative.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the default restart policy is NONE and the default restart scope is MAP, and
+     * that both can be changed.
+     */
+    @Test
+    public void getRestartPolicy()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected restart policy.", RestartPolicy.NONE,
+                             mapGenerator.getRestartPolicy() );
+        Assert.assertEquals( "Unexpected restart scope.", RestartScope.MAP,
+                             mapGenerator.getRestartScope() );
+
+        mapGenerator.setRestartPolicy( RestartPolicy.GEOMETRIC );
+        mapGenerator.setRestartScope( RestartScope.REGION );
+
+        Assert.assertEquals( "Unexpected restart policy.", RestartPolicy.GEOMETRIC,
+                             mapGenerator.getRestartPolicy() );
+        Assert.assertEquals( "Unexpected restart scope.", RestartScope.REGION,
+                             mapGenerator.getRestartScope() );
+    }
+
+    /**
+     * Verify that the setRestartPolicy() method throws the correct exception when the
+     * restartPolicy parameter is null.
+     */
+    @Test
+    public void setRestartPolicy_null()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setRestartPolicy( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'restartPolicy' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the setRestartScope() method throws the correct exception when the restartScope
+     * parameter is null.
+     */
+    @Test
+    public void setRestartScope_null()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setRestartScope( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'restartScope' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the progress interval defaults to 100 and can be changed.
+     */
+    @Test
+    public void getProgressInterval()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected progress interval.", 100,
+                             mapGenerator.getProgressInterval() );
+
+        mapGenerator.setProgressInterval( 5 );
+
+        Assert.assertEquals( "Unexpected progress interval.", 5,
+                             mapGenerator.getProgressInterval() );
+    }
+
+    /**
+     * Verify that the setProgressInterval() method throws the correct exception when the
+     * progressInterval parameter is 0.
+     */
+    @Test
+    public void setProgressInterval_zero()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setProgressInterval( 0 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'progressInterval' must be greater than 0.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the default map tile selection mode is WEIGHTED_MAP_TILE_TYPE.
+     */
+    @Test
+    public void getMapTileSelectionMode()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected map tile selection mode.",
+                             MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE,
+                             mapGenerator.getMapTileSelectionMode() );
+
+        mapGenerator.setMapTileSelectionMode( MapTileSelectionMode.MINIMUM_ENTROPY );
+
+        Assert.assertEquals( "Unexpected map tile selection mode.",
+                             MapTileSelectionMode.MINIMUM_ENTROPY,
+                             mapGenerator.getMapTileSelectionMode() );
+    }
+
+    /**
+     * Verify that the setMapTileSelectionMode() method throws the correct exception when the
+     * mapTileSelectionMode parameter is null.
+     */
+    @Test
+    public void setMapTileSelectionMode_null()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setMapTileSelectionMode( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTileSelectionMode' cannot be null.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the default generation strategy is a DefaultGenerationStrategy, and that setting
+     * the map tile selection mode back to WEIGHTED_MAP_TILE_TYPE restores it.
+     */
+    @Test
+    public void getGenerationStrategy()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertTrue( "Unexpected generation strategy.",
+                           mapGenerator.getGenerationStrategy() instanceof
+                                   DefaultGenerationStrategy );
+
+        TestGenerationStrategy generationStrategy = new TestGenerationStrategy();
+        mapGenerator.setGenerationStrategy( generationStrategy );
+
+        Assert.assertSame( "Unexpected generation strategy.", generationStrategy,
+                           mapGenerator.getGenerationStrategy() );
+
+        mapGenerator.setMapTileSelectionMode( MapTileSelectionMode.WEIGHTED_MAP_TILE_TYPE );
+
+        Assert.assertTrue( "Unexpected generation strategy.",
+                           mapGenerator.getGenerationStrategy() instanceof
+                                   DefaultGenerationStrategy );
+    }
+
+    /**
+     * Verify that the setGenerationStrategy() method throws the correct exception when the
+     * generationStrategy parameter is null.
+     */
+    @Test
+    public void setGenerationStrategy_null()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        try
+        {
+            mapGenerator.setGenerationStrategy( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'generationStrategy' cannot be null.",
+                                 e.getMessage() );
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import java.nio.IntBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapStorage;
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.RectangularMapTileLocationFilter;
+import org.flexgen.test.helper.MapGeneratorHelper;
+import org.flexgen.test.helper.MapTileTypeHelper;
+import org.flexgen.test.helper.tiles.DungeonTiles;
+import org.flexgen.util.ImprovedRandom;
+
+/**
+ * Test class for the MapGenerator class. Contains tests for the storage of the map tiles.
+ */
+public class MapGeneratorTest_Storage
+{
+    /**
+     * Verify that the constructor throws the correct exception when the mapStorage parameter is
+     * null.
+     */
+    @Test
+    public void constructor_mapStorage_null()
+    {
+        try
+        {
+            new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                              new RectangularMapTileLocationFilter( 0, 0, 0, 0 ), null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapStorage' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that a map generator stores its map tiles in a hash table by default.
+     */
+    @Test
+    public void getMapStorage_default()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
+
+        Assert.assertEquals( "Unexpected map storage.", MapStorage.HASH_TABLE,
+                             mapGenerator.getMapStorage() );
+    }
+
+    /**
+     * Verify that the getMapStorage() method returns the storage the map generator was
+     * constructed with.
+     */
+    @Test
+    public void getMapStorage()
+    {
+        MapGenerator mapGenerator =
+                MapGeneratorHelper.buildDungeon( 1, MapStorage.CHUNKED_GRID, 9 );
+
+        Assert.assertEquals( "Unexpected map storage.", MapStorage.CHUNKED_GRID,
+                             mapGenerator.getMapStorage() );
+    }
+
+    /**
+     * Verify that a map generated with a chunked grid is the same as the one generated with a hash
+     * table, including when recovering from bad open locations.
+     */
+    @Test
+    public void generate_chunkedGrid()
+    {
+        verifySameMap( MapStorage.CHUNKED_GRID, 3, 9 );
+    }
+
+    /**
+     * Verify that a map generated with a chunked grid is the same as the one generated with a hash
+     * table when the map spans several chunks, including chunks at negative coordinates.
+     */
+    @Test
+    public void generate_chunkedGrid_severalChunks()
+    {
+        for ( long seed = 1; seed <= 3; seed++ )
+        {
+            verifySameMap( MapStorage.CHUNKED_GRID, seed, 40 );
+        }
+    }
+
+    /**
+     * Verify that a map generated with an off-heap chunked grid is the same as the one generated
+     * with a hash table, including when recovering from bad open locations and when the map spans
+     * several chunks.
+     */
+    @Test
+    public void generate_offHeapChunkedGrid()
+    {
+        verifySameMap( MapStorage.OFF_HEAP_CHUNKED_GRID, 3, 9 );
+        verifySameMap( MapStorage.OFF_HEAP_CHUNKED_GRID, 1, 40 );
+    }
+
+    /**
+     * Verify that a map generated with dense storage is the same as the one generated with a hash
+     * table, including when recovering from bad open locations.
+     */
+    @Test
+    public void generate_denseRectangle()
+    {
+        verifySameMap( MapStorage.DENSE_RECTANGLE, 3, 9 );
+        verifySameMap( MapStorage.DENSE_RECTANGLE, 1, 40 );
+    }
+
+    /**
+     * Verify that a map generator constructed with the bounds of its map uses dense storage, unless
+     * the bounds cover too many map tile locations for it.
+     */
+    @Test
+    public void getMapStorage_bounds()
+    {
+        MapGenerator mapGenerator =
+                new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                  -10, -10, 10, 10 );
+
+        Assert.assertEquals( "Unexpected map storage.", MapStorage.DENSE_RECTANGLE,
+                             mapGenerator.getMapStorage() );
+
+        mapGenerator = new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                                         0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE );
+
+        Assert.assertEquals( "Unexpected map storage.", MapStorage.HASH_TABLE,
+                             mapGenerator.getMapStorage() );
+    }
+
+    /**
+     * Verify that the constructor throws the correct exception when dense storage is requested for
+     * bounds that cover too many map tile locations.
+     */
+    @Test
+    public void constructor_denseRectangle_tooLarge()
+    {
+        try
+        {
+            new MapGenerator( new ImprovedRandom(), MapTileTypeHelper.buildArray(),
+                              new RectangularMapTileLocationFilter( 0, 0, 4096, 4095 ),
+                              MapStorage.DENSE_RECTANGLE );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Dense storage cannot cover more than 16777216 map tile " +
+                                 "locations.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that dense storage keeps map tiles that are placed outside of the bounds of the map
+     * tile location filter.
+     */
+    @Test
+    public void addMapTile_denseRectangle_outsideBounds()
+    {
+        MapGenerator mapGenerator =
+                MapGeneratorHelper.buildDungeon( 1, MapStorage.DENSE_RECTANGLE, 9 );
+        MapTileLocation mapTileLocation = new MapTileLocation( 20, -20 );
+        MapTile mapTile =
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT );
+
+        mapGenerator.addMapTile( mapTileLocation, mapTile );
+        Assert.assertEquals( "Unexpected map tile.", mapTile,
+                             mapGenerator.getMapTile( mapTileLocation ));
+
+        mapGenerator.removeMapTile( mapTileLocation );
+        Assert.assertNull( "Unexpected map tile.", mapGenerator.getMapTile( mapTileLocation ));
+        Assert.assertEquals( "Unexpected map tile.", mapTile,
+                             mapGenerator.getMapTile( new MapTileLocation( 0, 0 )));
+    }
+
+    /**
+     * Verify that the getChunkSize() method throws the correct exception when the map storage does
+     * not use chunks.
+     */
+    @Test
+    public void getChunkSize_hashTable()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, MapStorage.HASH_TABLE, 9 );
+
+        try
+        {
+            mapGenerator.getChunkSize();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "The map storage does not use chunks.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the getChunkVariants() method returns views of the variants of the chunks for
+     * both chunked storages.
+     */
+    @Test
+    public void getChunkVariants()
+    {
+        verifyChunkVariants( MapStorage.CHUNKED_GRID );
+        verifyChunkVariants( MapStorage.OFF_HEAP_CHUNKED_GRID );
+    }
+
+    /**
+     * Verify that the getChunkVariants() method returns null for a chunk in which no map tile was
+     * placed.
+     */
+    @Test
+    public void getChunkVariants_emptyChunk()
+    {
+        MapGenerator mapGenerator =
+                MapGeneratorHelper.buildDungeon( 1, MapStorage.OFF_HEAP_CHUNKED_GRID, 9 );
+
+        Assert.assertNull( "Unexpected view.", mapGenerator.getChunkVariants( 5, -5 ));
+    }
+
+    /**
+     * Verify that the getMapTile() method throws the correct exception once the map generator is
+     * closed, and that closing it again does nothing.
+     */
+    @Test
+    public void close()
+    {
+        MapGenerator mapGenerator =
+                MapGeneratorHelper.buildDungeon( 1, MapStorage.OFF_HEAP_CHUNKED_GRID, 9 );
+        Assert.assertFalse( "Unexpected closed flag.", mapGenerator.isClosed() );
+
+        mapGenerator.close();
+        mapGenerator.close();
+        Assert.assertTrue( "Unexpected closed flag.", mapGenerator.isClosed() );
+
+        try
+        {
+            mapGenerator.getMapTile( new MapTileLocation( 0, 0 ));
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "The map generator was closed.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the close() method throws the correct exception while the map is being
+     * generated.
+     */
+    @Test
+    public void close_generating()
+    {
+        MapGenerator mapGenerator =
+                MapGeneratorHelper.buildDungeon( 1, MapStorage.OFF_HEAP_CHUNKED_GRID, 9 );
+        mapGenerator.generate( 1 );
+
+        try
+        {
+            mapGenerator.close();
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Cannot close while the map is being generated.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the views returned by the getChunkVariants() method for a generated map hold the
+     * variants of the map tiles of the map.
+     *
+     * @param mapStorage
+     *            Chunked storage to verify.
+     */
+    private static void verifyChunkVariants( MapStorage mapStorage )
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1, mapStorage, 40 );
+        mapGenerator.generate();
+
+        int chunkSize = mapGenerator.getChunkSize();
+        Assert.assertEquals( "Unexpected chunk size.", 32, chunkSize );
+
+        for ( int chunkY = -2; chunkY <= 1; chunkY++ )
+        {
+            for ( int chunkX = -2; chunkX <= 1; chunkX++ )
+            {
+                IntBuffer variants = mapGenerator.getChunkVariants( chunkX, chunkY );
+                Assert.assertNotNull( "Expected view.", variants );
+                Assert.assertTrue( "Expected read-only view.", variants.isReadOnly() );
+                Assert.assertEquals( "Unexpected view size.", chunkSize * chunkSize,
+                                     variants.remaining() );
+
+                for ( int i = 0; i < chunkSize * chunkSize; i++ )
+                {
+                    MapTile mapTile = mapGenerator.getMapTile( new MapTileLocation(
+                            chunkX * chunkSize + i % chunkSize,
+                            chunkY * chunkSize + i / chunkSize ));
+                    int variant = variants.get( i );
+
+                    if ( mapTile == null )
+                    {
+                        Assert.assertEquals( "Unexpected variant.", -1, variant );
+                    }
+                    else
+                    {
+                        Assert.assertEquals( "Unexpected map tile.", mapTile,
+                                             mapGenerator.getMapTileSet().getMapTile( variant ));
+                    }
+                }
+            }
+        }
+
+        mapGenerator.close();
+    }
+
+    /**
+     * Verify that a map generated with a specified storage is the same as the one generated with a
+     * hash table.
+     *
+     * @param mapStorage
+     *            Storage to verify.
+     * @param seed
+     *            Seed for the random number generator.
+     * @param radius
+     *            Largest distance from the origin of the map tile locations of the map.
+     */
+    private static void verifySameMap( MapStorage mapStorage, long seed, int radius )
+    {
+        MapGenerator expectedMapGenerator =
+                MapGeneratorHelper.buildDungeon( seed, MapStorage.HASH_TABLE, radius );
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( seed, mapStorage, radius );
+        expectedMapGenerator.generate();
+        mapGenerator.generate();
+
+        for ( int y = -radius - 1; y <= radius + 1; y++ )
+        {
+            for ( int x = -radius - 1; x <= radius + 1; x++ )
+            {
+                MapTileLocation mapTileLocation = new MapTileLocation( x, y );
+
+                Assert.assertEquals( "Unexpected map tile.",
+                                     expectedMapGenerator.getMapTile( mapTileLocation ),
+                                     mapGenerator.getMapTile( mapTileLocation ));
+            }
+        }
+    }
+}
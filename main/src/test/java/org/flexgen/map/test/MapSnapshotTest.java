@@ -0,0 +1,300 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.GenerationProgressListener;
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapSnapshot;
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.test.helper.MapGeneratorHelper;
+import org.flexgen.test.helper.tiles.DungeonTiles;
+
+/**
+ * Test class for the MapSnapshot class.
+ */
+public class MapSnapshotTest
+{
+    /**
+     * Verify that the getSnapshot() method returns null before a snapshot is published.
+     */
+    @Test
+    public void getSnapshot_notPublished()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+
+        Assert.assertNull( "Unexpected snapshot.", mapGenerator.getSnapshot() );
+    }
+
+    /**
+     * Verify that the getMapTile() method throws the correct exception when the mapTileLocation
+     * parameter is null.
+     */
+    @Test
+    public void getMapTile_mapTileLocation_null()
+    {
+        MapSnapshot mapSnapshot = MapGeneratorHelper.buildDungeon( 1 ).publishSnapshot();
+
+        try
+        {
+            mapSnapshot.getMapTile( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTileLocation' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that a published snapshot contains the map tiles of the map and becomes the most
+     * recently published snapshot.
+     */
+    @Test
+    public void publishSnapshot()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+        MapTile mapTile =
+                new MapTile( DungeonTiles.CORNER_HALLWAY_TYPE, MapTileOrientation.CLOCKWISE );
+        mapGenerator.addMapTile( new MapTileLocation( -17, -33 ), mapTile );
+
+        MapSnapshot mapSnapshot = mapGenerator.publishSnapshot();
+
+        Assert.assertSame( "Unexpected snapshot.", mapSnapshot, mapGenerator.getSnapshot() );
+        Assert.assertEquals( "Unexpected map tile count.", 2, mapSnapshot.getMapTileCount() );
+        Assert.assertEquals( "Unexpected map tile.",
+                             new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE,
+                                          MapTileOrientation.UPRIGHT ),
+                             mapSnapshot.getMapTile( new MapTileLocation( 0, 0 )));
+        Assert.assertEquals( "Unexpected map tile.", mapTile,
+                             mapSnapshot.getMapTile( new MapTileLocation( -17, -33 )));
+        Assert.assertNull( "Unexpected map tile.",
+                           mapSnapshot.getMapTile( new MapTileLocation( 1, 0 )));
+        Assert.assertNull( "Unexpected map tile.",
+                           mapSnapshot.getMapTile( new MapTileLocation( 100, 100 )));
+    }
+
+    /**
+     * Verify that a published snapshot is not affected by later changes to the map.
+     */
+    @Test
+    public void publishSnapshot_immutable()
+    {
+        MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 1 );
+        MapSnapshot firstSnapshot = mapGenerator.publishSnapshot();
+
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 1 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+        mapGenerator.removeMapTile( new MapTileLocation( 0, 0 ));
+
+        MapSnapshot secondSnapshot = mapGenerator.publishSnapshot();
+
+        Assert.assertTrue( "Unexpected version.",
+                           secondSnapshot.getVersion() > firstSnapshot.getVersion() );
+        Assert.assertEquals( "Unexpected map tile count.", 1, firstSnapshot.getMapTileCount() );
+        Assert.assertNotNull( "Unexpected map tile.",
+                              firstSnapshot.getMapTile( new MapTileLocation( 0, 0 )));
+        Assert.assertNull( "Unexpected map tile.",
+                           firstSnapshot.getMapTile( new MapTileLocation( 0, 1 )));
+        Assert.assertEquals( "Unexpected map tile count.", 1, secondSnapshot.getMapTileCount() );
+        Assert.assertNull( "Unexpected map tile.",
+                           secondSnapshot.getMapTile( new MapTileLocation( 0, 0 )));
+        Assert.assertNotNull( "Unexpected map tile.",
+                              secondSnapshot.getMapTile( new MapTileLocation( 0, 1 )));
+    }
+
+    /**
+     * Verify that the snapshots published while the map is generated match the map at the time
+     * they are published, including while recovering from bad open locations, and that a snapshot
+     * of the finished map is published when the generation returns.
+     */
+    @Test
+    public void generate()
+    {
+        final MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        final List< MapSnapshot > mapSnapshots = new ArrayList< MapSnapshot >();
+        mapGenerator.setProgressInterval( 1 );
+        mapGenerator.addGenerationProgressListener( new GenerationProgressListener()
+        {
+            public void generationProgressed( MapGenerator progressedMapGenerator,
+                                              int placementCount, int frontierSize,
+                                              int removedCount )
+            {
+                MapSnapshot mapSnapshot = progressedMapGenerator.getSnapshot();
+                verifySnapshot( progressedMapGenerator, mapSnapshot );
+                mapSnapshots.add( mapSnapshot );
+            }
+        } );
+
+        mapGenerator.publishSnapshot();
+        mapGenerator.generate();
+
+        Assert.assertFalse( "Expected snapshots.", mapSnapshots.isEmpty() );
+        Assert.assertTrue( "Expected a new snapshot.",
+                           mapGenerator.getSnapshot().getVersion() >
+                           mapSnapshots.get( mapSnapshots.size() - 1 ).getVersion() );
+        verifySnapshot( mapGenerator, mapGenerator.getSnapshot() );
+
+        for ( int i = 1; i < mapSnapshots.size(); i++ )
+        {
+            Assert.assertTrue( "Unexpected version.",
+                               mapSnapshots.get( i ).getVersion() >
+                               mapSnapshots.get( i - 1 ).getVersion() );
+        }
+    }
+
+    /**
+     * Verify that another thread can read consistent snapshots while the map is generated.
+     *
+     * @throws Exception
+     *             If the reading thread is interrupted.
+     */
+    @Test
+    public void generate_concurrentReader() throws Exception
+    {
+        final MapGenerator mapGenerator = MapGeneratorHelper.buildDungeon( 3 );
+        final List< String > failures = new ArrayList< String >();
+        final boolean[] done = new boolean[ 1 ];
+        mapGenerator.setProgressInterval( 1 );
+        mapGenerator.publishSnapshot();
+
+        Thread reader = new Thread()
+        {
+            public void run()
+            {
+                long version = 0;
+
+                while ( true )
+                {
+                    boolean last;
+
+                    synchronized ( done )
+                    {
+                        last = done[ 0 ];
+                    }
+
+                    MapSnapshot mapSnapshot = mapGenerator.getSnapshot();
+
+                    if ( mapSnapshot.getVersion() < version )
+                    {
+                        failures.add( "Version went backwards." );
+                    }
+
+                    if ( countMapTiles( mapSnapshot ) != mapSnapshot.getMapTileCount() )
+                    {
+                        failures.add( "Inconsistent snapshot." );
+                    }
+
+                    version = mapSnapshot.getVersion();
+
+                    if ( last )
+                    {
+                        return;
+                    }
+                }
+            }
+        };
+
+        reader.start();
+        mapGenerator.generate();
+
+        synchronized ( done )
+        {
+            done[ 0 ] = true;
+        }
+
+        reader.join();
+
+        Assert.assertEquals( "Unexpected failures.", new ArrayList< String >(), failures );
+    }
+
+    /**
+     * Verify that a snapshot matches the current map within the bounds of a dungeon map.
+     *
+     * @param mapGenerator
+     *            Map generator containing the map.
+     * @param mapSnapshot
+     *            Snapshot to verify.
+     */
+    private static void verifySnapshot( MapGenerator mapGenerator, MapSnapshot mapSnapshot )
+    {
+        for ( int y = -1; y <= 10; y++ )
+        {
+            for ( int x = -1; x <= 10; x++ )
+            {
+                MapTileLocation mapTileLocation = new MapTileLocation( x, y );
+                Assert.assertEquals( "Unexpected map tile.",
+                                     mapGenerator.getMapTile( mapTileLocation ),
+                                     mapSnapshot.getMapTile( mapTileLocation ));
+            }
+        }
+
+        Assert.assertEquals( "Unexpected map tile count.", countMapTiles( mapSnapshot ),
+                             mapSnapshot.getMapTileCount() );
+    }
+
+    /**
+     * Count the map tiles of a snapshot within the bounds of a dungeon map.
+     *
+     * @param mapSnapshot
+     *            Snapshot containing the map.
+     *
+     * @return The number of map tiles.
+     */
+    private static int countMapTiles( MapSnapshot mapSnapshot )
+    {
+        int mapTileCount = 0;
+
+        for ( int y = -1; y <= 10; y++ )
+        {
+            for ( int x = -1; x <= 10; x++ )
+            {
+                if ( mapSnapshot.getMapTile( new MapTileLocation( x, y )) != null )
+                {
+                    mapTileCount++;
+                }
+            }
+        }
+
+        return mapTileCount;
+    }
+}
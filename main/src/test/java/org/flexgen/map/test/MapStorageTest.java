@@ -0,0 +1,60 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.MapStorage;
+
+/**
+ * Test class for the MapStorage class.
+ */
+public class MapStorageTest
+{
+    /**
+     * Verify that the toString() method returns the correct value for all map storages.
+     */
+    @Test
+    public void toStringTest()
+    {
+        Assert.assertEquals( "Unexpected result for HASH_TABLE.", "HashTable",
+                             MapStorage.HASH_TABLE.toString() );
+        Assert.assertEquals( "Unexpected result for CHUNKED_GRID.", "ChunkedGrid",
+                             MapStorage.CHUNKED_GRID.toString() );
+        Assert.assertEquals( "Unexpected result for OFF_HEAP_CHUNKED_GRID.", "OffHeapChunkedGrid",
+                             MapStorage.OFF_HEAP_CHUNKED_GRID.toString() );
+        Assert.assertEquals( "Unexpected result for DENSE_RECTANGLE.", "DenseRectangle",
+                             MapStorage.DENSE_RECTANGLE.toString() );
+    }
+}
@@ -0,0 +1,228 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileCandidates;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.RectangularMapTileLocationFilter;
+import org.flexgen.test.helper.tiles.RiverTiles;
+import org.flexgen.util.ImprovedRandom;
+import org.flexgen.util.test.support.TestImprovedRandom;
+
+/**
+ * Test class for the MapTileCandidates class.
+ */
+public class MapTileCandidatesTest
+{
+    /**
+     * Verify that the map tile candidates for a location without any neighbors contain every
+     * distinct variant.
+     */
+    @Test
+    public void noNeighbors()
+    {
+        MapGenerator mapGenerator = buildMapGenerator();
+        MapTileCandidates mapTileCandidates =
+                mapGenerator.getMapTileCandidates( new MapTileLocation( 5, 5 ));
+
+        Assert.assertEquals( "Unexpected variant count.", 3, mapTileCandidates.getVariantCount() );
+        Assert.assertEquals( "Unexpected total weight.", 3, mapTileCandidates.getTotalWeight() );
+        Assert.assertEquals( "Unexpected variant count for map tile type 0.", 1,
+                             mapTileCandidates.getVariantCount( 0 ));
+        Assert.assertEquals( "Unexpected variant count for map tile type 1.", 2,
+                             mapTileCandidates.getVariantCount( 1 ));
+        Assert.assertEquals( "Unexpected first index for map tile type 1.", 1,
+                             mapTileCandidates.getFirstIndex( 1 ));
+    }
+
+    /**
+     * Verify that the map tile candidates for a location only contain the variants that match the
+     * neighbors of the location.
+     */
+    @Test
+    public void neighbors()
+    {
+        MapGenerator mapGenerator = buildMapGenerator();
+        mapGenerator.addMapTile( new MapTileLocation( 0, 0 ),
+                                 new MapTile( RiverTiles.STRAIGHT_RIVER,
+                                              MapTileOrientation.UPRIGHT ));
+
+        MapTileCandidates belowMapTileCandidates =
+                mapGenerator.getMapTileCandidates( new MapTileLocation( 0, 1 ));
+
+        Assert.assertEquals( "Unexpected variant count below.", 1,
+                             belowMapTileCandidates.getVariantCount() );
+        Assert.assertEquals( "Unexpected map tile below.",
+                             new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.UPRIGHT ),
+                             belowMapTileCandidates.getMapTile( 0 ));
+
+        MapTileCandidates leftMapTileCandidates =
+                mapGenerator.getMapTileCandidates( new MapTileLocation( -1, 0 ));
+
+        Assert.assertEquals( "Unexpected variant count to the left.", 2,
+                             leftMapTileCandidates.getVariantCount() );
+        Assert.assertEquals( "Unexpected first map tile to the left.",
+                             new MapTile( RiverTiles.ALL_GRASS, MapTileOrientation.UPRIGHT ),
+                             leftMapTileCandidates.getMapTile( 0 ));
+        Assert.assertEquals( "Unexpected second map tile to the left.",
+                             new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.UPRIGHT ),
+                             leftMapTileCandidates.getMapTile( 1 ));
+        Assert.assertEquals( "Unexpected containsVariant() result.", false,
+                             leftMapTileCandidates.containsVariant(
+                                     mapGenerator.getMapTileSet().getVariant(
+                                             new MapTile( RiverTiles.STRAIGHT_RIVER,
+                                                          MapTileOrientation.CLOCKWISE ))));
+    }
+
+    /**
+     * Verify that the getEntropy() method returns the weighted entropy of the fitting variants.
+     */
+    @Test
+    public void getEntropy()
+    {
+        MapGenerator mapGenerator = buildMapGenerator();
+        mapGenerator.addMapTile( new MapTileLocation( 0, 0 ),
+                                 new MapTile( RiverTiles.STRAIGHT_RIVER,
+                                              MapTileOrientation.UPRIGHT ));
+
+        Assert.assertEquals( "Unexpected entropy without neighbors.", Math.log( 3 ),
+                             mapGenerator.getMapTileCandidates(
+                                     new MapTileLocation( 5, 5 )).getEntropy(), 1e-9 );
+        Assert.assertEquals( "Unexpected entropy to the left.", Math.log( 2 ),
+                             mapGenerator.getMapTileCandidates(
+                                     new MapTileLocation( -1, 0 )).getEntropy(), 1e-9 );
+        Assert.assertEquals( "Unexpected entropy below.", 0,
+                             mapGenerator.getMapTileCandidates(
+                                     new MapTileLocation( 0, 1 )).getEntropy(), 1e-9 );
+    }
+
+    /**
+     * Verify that map generators using the same map tile types share their map tile candidates.
+     */
+    @Test
+    public void shared()
+    {
+        MapGenerator mapGenerator1 = buildMapGenerator();
+        MapGenerator mapGenerator2 = buildMapGenerator();
+
+        Assert.assertSame( "Unexpected map tile candidates.",
+                           mapGenerator1.getMapTileCandidates( new MapTileLocation( 0, 0 )),
+                           mapGenerator2.getMapTileCandidates( new MapTileLocation( 7, 3 )));
+    }
+
+    /**
+     * Verify that the chooseVariant() method picks the variant whose weight range contains the
+     * random value.
+     */
+    @Test
+    public void chooseVariant()
+    {
+        MapTileCandidates mapTileCandidates =
+                buildMapGenerator().getMapTileCandidates( new MapTileLocation( 0, 0 ));
+
+        TestImprovedRandom testImprovedRandom = new TestImprovedRandom();
+        testImprovedRandom.addTransaction( 0 );
+        testImprovedRandom.addTransaction( 1 );
+        testImprovedRandom.addTransaction( 2 );
+
+        Assert.assertEquals( "Unexpected variant for 0.", 0,
+                             mapTileCandidates.chooseVariant( testImprovedRandom ));
+        Assert.assertEquals( "Unexpected variant for 1.", 1,
+                             mapTileCandidates.chooseVariant( testImprovedRandom ));
+        Assert.assertEquals( "Unexpected variant for 2.", 2,
+                             mapTileCandidates.chooseVariant( testImprovedRandom ));
+        Assert.assertEquals( "Unexpected remaining transactions.", true,
+                             testImprovedRandom.isEmpty() );
+    }
+
+    /**
+     * Verify that the chooseVariant() method throws the correct exception when the improvedRandom
+     * parameter is null.
+     */
+    @Test
+    public void chooseVariant_improvedRandom_null()
+    {
+        MapTileCandidates mapTileCandidates =
+                buildMapGenerator().getMapTileCandidates( new MapTileLocation( 0, 0 ));
+
+        try
+        {
+            mapTileCandidates.chooseVariant( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'improvedRandom' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the getVariant() method throws the correct exception when the index parameter is
+     * too large.
+     */
+    @Test
+    public void getVariant_index_tooLarge()
+    {
+        MapTileCandidates mapTileCandidates =
+                buildMapGenerator().getMapTileCandidates( new MapTileLocation( 0, 0 ));
+
+        try
+        {
+            mapTileCandidates.getVariant( 3 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'index' must be between 0 and 2.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Build a map generator that uses the river map tile types.
+     *
+     * @return The generated map generator.
+     */
+    private static MapGenerator buildMapGenerator()
+    {
+        return new MapGenerator( new ImprovedRandom(), RiverTiles.MAP_TILE_TYPES,
+                                 new RectangularMapTileLocationFilter( -10, -10, 10, 10 ));
+    }
+}
@@ -144,6 +144,45 @@ public class MapTileEdgeTest
                              mapTileEdge1.mapTileEdgeMatches( mapTileEdge3 ));
     }
 
+    /**
+     * Verify that the addMatchingMapTileEdge() method throws the correct exception when the map
+     * tile edge has been frozen.
+     */
+    @Test
+    public void addMatchingMapTileEdge_frozen()
+    {
+        MapTileEdge mapTileEdge = MapTileEdgeHelper.build();
+        mapTileEdge.freeze();
+
+        try
+        {
+            mapTileEdge.addMatchingMapTileEdge( MapTileEdgeHelper.build() );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalStateException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Cannot add a matching map tile edge to a frozen map tile edge.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the isFrozen() method returns the correct value before and after the map tile
+     * edge is frozen.
+     */
+    @Test
+    public void isFrozen()
+    {
+        MapTileEdge mapTileEdge = MapTileEdgeHelper.build();
+
+        Assert.assertEquals( "Unexpected value before freezing.", false, mapTileEdge.isFrozen() );
+
+        mapTileEdge.freeze();
+
+        Assert.assertEquals( "Unexpected value after freezing.", true, mapTileEdge.isFrozen() );
+    }
+
     /**
      * Verify that the toString() method returns the correct value.
      */
@@ -277,16 +277,36 @@ public class MapTileLocationTest
     }
 
     /**
-     * Verify that the hashCode() method returns the correct value.
+     * Verify that the hashCode() method returns the same value for equal map tile locations.
      */
     @Test
     public void hashCodeTest()
     {
         int x = GeneralHelper.getRandom().nextInt( 1000 );
         int y = GeneralHelper.getRandom().nextInt( 1000 );
-        MapTileLocation mapTileLocation = new MapTileLocation( x, y );
+        MapTileLocation mapTileLocation1 = new MapTileLocation( x, y );
+        MapTileLocation mapTileLocation2 = new MapTileLocation( x, y );
+
+        Assert.assertEquals( "Unexpected return value.", mapTileLocation1.hashCode(),
+                             mapTileLocation2.hashCode() );
+    }
 
-        Assert.assertEquals( "Unexpected return value.", (( x & 65535 ) << 16 ) | ( y & 65535 ),
-                             mapTileLocation.hashCode() );
+    /**
+     * Verify that the hashCode() method returns different values for map tile locations that only
+     * differ in the upper bits of their coordinates.
+     */
+    @Test
+    public void hashCodeTest_largeCoordinates()
+    {
+        int x = GeneralHelper.getRandom().nextInt( 1000 );
+        int y = GeneralHelper.getRandom().nextInt( 1000 );
+        MapTileLocation mapTileLocation1 = new MapTileLocation( x, y );
+        MapTileLocation mapTileLocation2 = new MapTileLocation( x + 65536, y );
+        MapTileLocation mapTileLocation3 = new MapTileLocation( x, y + 65536 );
+
+        Assert.assertTrue( "Unexpected collision.",
+                           mapTileLocation1.hashCode() != mapTileLocation2.hashCode() );
+        Assert.assertTrue( "Unexpected collision.",
+                           mapTileLocation1.hashCode() != mapTileLocation3.hashCode() );
     }
 }
@@ -0,0 +1,101 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.MapTilePlacement;
+import org.flexgen.test.helper.tiles.RiverTiles;
+
+/**
+ * Test class for the MapTilePlacement class.
+ */
+public class MapTilePlacementTest
+{
+    /**
+     * Verify that the constructor throws the correct exception when the mapTileLocation parameter
+     * is null.
+     */
+    @Test
+    public void constructor_mapTileLocation_null()
+    {
+        try
+        {
+            new MapTilePlacement( null,
+                                  new MapTile( RiverTiles.ALL_GRASS, MapTileOrientation.UPRIGHT ));
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTileLocation' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the constructor throws the correct exception when the mapTile parameter is null.
+     */
+    @Test
+    public void constructor_mapTile_null()
+    {
+        try
+        {
+            new MapTilePlacement( new MapTileLocation( 0, 0 ), null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTile' cannot be null.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the getters return the values given to the constructor.
+     */
+    @Test
+    public void getters()
+    {
+        MapTileLocation mapTileLocation = new MapTileLocation( 3, -2 );
+        MapTile mapTile = new MapTile( RiverTiles.STRAIGHT_RIVER, MapTileOrientation.CLOCKWISE );
+        MapTilePlacement mapTilePlacement = new MapTilePlacement( mapTileLocation, mapTile );
+
+        Assert.assertEquals( "Unexpected map tile location.", mapTileLocation,
+                             mapTilePlacement.getMapTileLocation() );
+        Assert.assertEquals( "Unexpected map tile.", mapTile, mapTilePlacement.getMapTile() );
+    }
+}
@@ -0,0 +1,416 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileEdge;
+import org.flexgen.map.MapTileEdgePosition;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.MapTileSet;
+import org.flexgen.map.MapTileType;
+import org.flexgen.test.helper.MapTileEdgeHelper;
+import org.flexgen.test.helper.MapTileOrientationHelper;
+import org.flexgen.test.helper.MapTileTypeHelper;
+import org.flexgen.test.helper.MapUnitHelper;
+import org.flexgen.test.helper.tiles.DungeonTiles;
+import org.flexgen.test.helper.tiles.RiverTiles;
+
+/**
+ * Test class for the MapTileSet class.
+ */
+public class MapTileSetTest
+{
+    /**
+     * Verify that the getInstance() method throws the correct exception when the mapTileTypes
+     * parameter is null.
+     */
+    @Test
+    public void getInstance_mapTileTypes_nullArray()
+    {
+        try
+        {
+            MapTileSet.getInstance( null );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.", "Parameter 'mapTileTypes' cannot be null.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the getInstance() method throws the correct exception when the mapTileTypes
+     * parameter contains a null element.
+     */
+    @Test
+    public void getInstance_mapTileTypes_nullElement()
+    {
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            MapTileTypeHelper.build(),
+            null
+        };
+
+        try
+        {
+            MapTileSet.getInstance( mapTileTypes );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'mapTileTypes' must not contain any null elements.",
+                                 e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the getInstance() method returns the same map tile set for arrays containing the
+     * same map tile types.
+     */
+    @Test
+    public void getInstance_sameMapTileTypes()
+    {
+        MapTileType[] mapTileTypes = MapTileTypeHelper.buildArray( 1, 3 );
+
+        MapTileSet mapTileSet = MapTileSet.getInstance( mapTileTypes );
+
+        Assert.assertSame( "Unexpected map tile set.", mapTileSet,
+                           MapTileSet.getInstance( mapTileTypes.clone() ));
+    }
+
+    /**
+     * Verify that the getInstance() method returns different map tile sets for arrays containing
+     * the same map tile types in a different order.
+     */
+    @Test
+    public void getInstance_differentOrder()
+    {
+        MapTileType[] mapTileTypes = MapTileTypeHelper.buildArray( 1, 2 );
+
+        MapTileType[] reversedMapTileTypes = new MapTileType[]
+        {
+            mapTileTypes[ 1 ],
+            mapTileTypes[ 0 ]
+        };
+
+        Assert.assertNotSame( "Unexpected map tile set.", MapTileSet.getInstance( mapTileTypes ),
+                              MapTileSet.getInstance( reversedMapTileTypes ));
+    }
+
+    /**
+     * Verify that the getInstance() method throws the correct exception when a map tile edge
+     * matches another map tile edge that does not match it back.
+     */
+    @Test
+    public void getInstance_asymmetricMapTileEdges()
+    {
+        MapTileEdge mapTileEdge1 = new MapTileEdge( "Edge 1" );
+        MapTileEdge mapTileEdge2 = new MapTileEdge( "Edge 2" );
+
+        mapTileEdge1.addMatchingMapTileEdge( mapTileEdge2 );
+        mapTileEdge2.addMatchingMapTileEdge( mapTileEdge2 );
+
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            buildMapTileType( mapTileEdge1 ),
+            buildMapTileType( mapTileEdge2 )
+        };
+
+        try
+        {
+            MapTileSet.getInstance( mapTileTypes );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Map tile edge 'Edge 1' matches map tile edge 'Edge 2', but map " +
+                                 "tile edge 'Edge 2' does not match map tile edge 'Edge 1'.",
+                                 e.getMessage() );
+        }
+
+        Assert.assertEquals( "Unexpected frozen value.", false, mapTileEdge1.isFrozen() );
+    }
+
+    /**
+     * Verify that the getInstance() method freezes the map tile edges of the map tile types.
+     */
+    @Test
+    public void getInstance_mapTileEdgesFrozen()
+    {
+        MapTileEdge mapTileEdge = MapTileEdgeHelper.build();
+
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            buildMapTileType( mapTileEdge )
+        };
+
+        MapTileSet.getInstance( mapTileTypes );
+
+        Assert.assertEquals( "Unexpected frozen value.", true, mapTileEdge.isFrozen() );
+    }
+
+    /**
+     * Verify that the compiled map tile edge matches agree with the mapTileEdgeMatches() method of
+     * the map tile edges.
+     */
+    @Test
+    public void mapTileEdgesMatch()
+    {
+        MapTileSet mapTileSet = MapTileSet.getInstance( RiverTiles.MAP_TILE_TYPES );
+
+        Assert.assertEquals( "Unexpected map tile edge count.", 3,
+                             mapTileSet.getMapTileEdgeCount() );
+
+        for ( int i = 0; i < mapTileSet.getMapTileEdgeCount(); i++ )
+        {
+            for ( int j = 0; j < mapTileSet.getMapTileEdgeCount(); j++ )
+            {
+                Assert.assertEquals( "Unexpected match for " + i + " and " + j + ".",
+                                     mapTileSet.getMapTileEdge( i ).mapTileEdgeMatches(
+                                             mapTileSet.getMapTileEdge( j )),
+                                     mapTileSet.mapTileEdgesMatch( i, j ));
+            }
+        }
+    }
+
+    /**
+     * Verify that a map tile edge without any matching map tile edges only matches itself.
+     */
+    @Test
+    public void mapTileEdgesMatch_noMatchingMapTileEdges()
+    {
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            buildMapTileType( MapTileEdgeHelper.build() ),
+            buildMapTileType( MapTileEdgeHelper.build() )
+        };
+
+        MapTileSet mapTileSet = MapTileSet.getInstance( mapTileTypes );
+
+        Assert.assertEquals( "Unexpected match for 0 and 0.", true,
+                             mapTileSet.mapTileEdgesMatch( 0, 0 ));
+        Assert.assertEquals( "Unexpected match for 0 and 1.", false,
+                             mapTileSet.mapTileEdgesMatch( 0, 1 ));
+        Assert.assertEquals( "Unexpected match for 1 and 1.", true,
+                             mapTileSet.mapTileEdgesMatch( 1, 1 ));
+    }
+
+    /**
+     * Verify that the mapTileEdgesMatch() method throws the correct exception when an ordinal
+     * parameter is too large.
+     */
+    @Test
+    public void mapTileEdgesMatch_ordinal_tooLarge()
+    {
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            buildMapTileType( MapTileEdgeHelper.build() )
+        };
+
+        MapTileSet mapTileSet = MapTileSet.getInstance( mapTileTypes );
+
+        try
+        {
+            mapTileSet.mapTileEdgesMatch( 0, 1 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'ordinal' must be between 0 and 0.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Verify that the map tile set contains one variant for each orientation of each map tile type
+     * and that the distinct variants come first.
+     */
+    @Test
+    public void variants()
+    {
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            DungeonTiles.STRAIGHT_HALLWAY_TYPE,
+            DungeonTiles.CORNER_HALLWAY_TYPE,
+            DungeonTiles.THREE_WAY_HALLWAY_TYPE
+        };
+
+        MapTileSet mapTileSet = MapTileSet.getInstance( mapTileTypes );
+
+        int distinctVariantCount = 0;
+
+        for ( MapTileType mapTileType : mapTileTypes )
+        {
+            distinctVariantCount += mapTileType.getDistinctMapTileOrientations().length;
+        }
+
+        Assert.assertEquals( "Unexpected variant count.",
+                             mapTileTypes.length * MapTileOrientationHelper.ALL_ORIENTATIONS.length,
+                             mapTileSet.getVariantCount() );
+        Assert.assertEquals( "Unexpected distinct variant count.", distinctVariantCount,
+                             mapTileSet.getDistinctVariantCount() );
+
+        int variant = 0;
+
+        for ( int i = 0; i < mapTileTypes.length; i++ )
+        {
+            for ( MapTileOrientation mapTileOrientation :
+                    mapTileTypes[ i ].getDistinctMapTileOrientations() )
+            {
+                Assert.assertEquals( "Unexpected map tile.",
+                                     new MapTile( mapTileTypes[ i ], mapTileOrientation ),
+                                     mapTileSet.getMapTile( variant ));
+                Assert.assertEquals( "Unexpected map tile type index.", i,
+                                     mapTileSet.getMapTileTypeIndex( variant ));
+                Assert.assertEquals( "Unexpected weight.", mapTileTypes[ i ].getWeight(),
+                                     mapTileSet.getWeight( variant ));
+
+                variant++;
+            }
+        }
+    }
+
+    /**
+     * Verify that the getVariant() method returns a variant whose shared map tile and precomputed
+     * edges match the specified map tile.
+     */
+    @Test
+    public void getVariant()
+    {
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            DungeonTiles.STRAIGHT_HALLWAY_TYPE,
+            DungeonTiles.CORNER_HALLWAY_TYPE,
+            DungeonTiles.THREE_WAY_HALLWAY_TYPE
+        };
+
+        MapTileSet mapTileSet = MapTileSet.getInstance( mapTileTypes );
+
+        for ( MapTileType mapTileType : mapTileTypes )
+        {
+            for ( MapTileOrientation mapTileOrientation :
+                    MapTileOrientationHelper.ALL_ORIENTATIONS )
+            {
+                MapTile mapTile = new MapTile( mapTileType, mapTileOrientation );
+                int variant = mapTileSet.getVariant( mapTile );
+
+                Assert.assertEquals( "Unexpected map tile.", mapTile,
+                                     mapTileSet.getMapTile( variant ));
+                Assert.assertSame( "Unexpected map tile instance.",
+                                   mapTileSet.getMapTile( variant ),
+                                   mapTileSet.getMapTile( mapTileSet.getVariant( mapTile )));
+
+                int openMapTileEdgeMask = 0;
+
+                for ( MapTileEdgePosition mapTileEdgePosition :
+                        mapTile.getOpenMapTileEdgePositions() )
+                {
+                    openMapTileEdgeMask |= 1 << mapTileEdgePosition.getIndex();
+                }
+
+                Assert.assertEquals( "Unexpected open map tile edge mask.", openMapTileEdgeMask,
+                                     mapTileSet.getOpenMapTileEdgeMask( variant ));
+
+                for ( MapTileEdgePosition mapTileEdgePosition : MapTileEdgePosition.ALL_POSITIONS )
+                {
+                    Assert.assertSame( "Unexpected map tile edge.",
+                                       mapTile.getMapTileEdge( mapTileEdgePosition ),
+                                       mapTileSet.getMapTileEdge( variant, mapTileEdgePosition ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify that the getVariant() method returns -1 for a map tile whose map tile type is not
+     * part of the map tile set.
+     */
+    @Test
+    public void getVariant_unknownMapTileType()
+    {
+        MapTileSet mapTileSet = MapTileSet.getInstance( MapTileTypeHelper.buildArray() );
+
+        Assert.assertEquals( "Unexpected variant.", -1,
+                             mapTileSet.getVariant( new MapTile( MapTileTypeHelper.build(),
+                                                                 MapTileOrientation.UPRIGHT )));
+    }
+
+    /**
+     * Verify that the getMapTile() method throws the correct exception when the variant parameter
+     * is too large.
+     */
+    @Test
+    public void getMapTile_variant_tooLarge()
+    {
+        MapTileSet mapTileSet = MapTileSet.getInstance( MapTileTypeHelper.buildArray() );
+
+        try
+        {
+            mapTileSet.getMapTile( 4 );
+            Assert.fail( "Expected exception." );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            Assert.assertEquals( "Unexpected message.",
+                                 "Parameter 'variant' must be between 0 and 3.", e.getMessage() );
+        }
+    }
+
+    /**
+     * Build a map tile type that uses the same map tile edge on all four sides.
+     *
+     * @param mapTileEdge
+     *            Map tile edge to use on all four sides.
+     *
+     * @return The generated map tile type.
+     */
+    private static MapTileType buildMapTileType( MapTileEdge mapTileEdge )
+    {
+        MapTileEdge[] mapTileEdges = new MapTileEdge[]
+        {
+            mapTileEdge,
+            mapTileEdge,
+            mapTileEdge,
+            mapTileEdge
+        };
+
+        return new MapTileType( mapTileEdge.toString(), 1, MapUnitHelper.buildArray( 1 ),
+                                mapTileEdges, MapTileOrientationHelper.ALL_ORIENTATIONS );
+    }
+}
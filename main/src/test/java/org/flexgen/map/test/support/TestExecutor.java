@@ -0,0 +1,95 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test.support;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Test class implementing the Executor interface. Tasks are queued and run on demand.
+ */
+public class TestExecutor implements Executor
+{
+    /**
+     * The list of tasks that have not been run yet.
+     */
+    private List< Runnable > runnables;
+
+    /**
+     * The number of tasks that have been submitted.
+     */
+    private int executionCount;
+
+    /**
+     * Construct a test executor.
+     */
+    public TestExecutor()
+    {
+        runnables = new LinkedList< Runnable >();
+        executionCount = 0;
+    }
+
+    /**
+     * Queue a task.
+     *
+     * @param runnable
+     *            Task to queue.
+     */
+    public void execute( Runnable runnable )
+    {
+        runnables.add( runnable );
+        executionCount++;
+    }
+
+    /**
+     * Run all queued tasks, including tasks queued while running them.
+     */
+    public void runAll()
+    {
+        while ( ! runnables.isEmpty() )
+        {
+            runnables.remove( 0 ).run();
+        }
+    }
+
+    /**
+     * Get the number of tasks that have been submitted.
+     *
+     * @return The number of tasks that have been submitted.
+     */
+    public int getExecutionCount()
+    {
+        return executionCount;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test.support;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.flexgen.map.GenerationProgressListener;
+import org.flexgen.map.MapGenerator;
+
+/**
+ * Test class implementing the GenerationProgressListener interface.
+ */
+public class TestGenerationProgressListener implements GenerationProgressListener
+{
+    /**
+     * The list of placement counts that have been reported.
+     */
+    private List< Integer > placementCounts;
+
+    /**
+     * The list of frontier sizes that have been reported.
+     */
+    private List< Integer > frontierSizes;
+
+    /**
+     * The list of removed map tile counts that have been reported.
+     */
+    private List< Integer > removedCounts;
+
+    /**
+     * Construct a test generation progress listener.
+     */
+    public TestGenerationProgressListener()
+    {
+        placementCounts = new LinkedList< Integer >();
+        frontierSizes = new LinkedList< Integer >();
+        removedCounts = new LinkedList< Integer >();
+    }
+
+    /**
+     * Informs the listener that the generation of the map has progressed.
+     *
+     * @param mapGenerator
+     *            Map generator that is generating the map.
+     * @param placementCount
+     *            Number of map tiles placed since the generation of the map started.
+     * @param frontierSize
+     *            Number of open locations that are allowed by the map tile location filter.
+     * @param removedCount
+     *            Number of map tiles removed while recovering from bad open locations.
+     */
+    public void generationProgressed( MapGenerator mapGenerator, int placementCount,
+                                      int frontierSize, int removedCount )
+    {
+        placementCounts.add( placementCount );
+        frontierSizes.add( frontierSize );
+        removedCounts.add( removedCount );
+    }
+
+    /**
+     * Get the list of placement counts that have been reported.
+     *
+     * @return The list of placement counts that have been reported.
+     */
+    public List< Integer > getPlacementCounts()
+    {
+        return placementCounts;
+    }
+
+    /**
+     * Get the list of frontier sizes that have been reported.
+     *
+     * @return The list of frontier sizes that have been reported.
+     */
+    public List< Integer > getFrontierSizes()
+    {
+        return frontierSizes;
+    }
+
+    /**
+     * Get the list of removed map tile counts that have been reported.
+     *
+     * @return The list of removed map tile counts that have been reported.
+     */
+    public List< Integer > getRemovedCounts()
+    {
+        return removedCounts;
+    }
+}
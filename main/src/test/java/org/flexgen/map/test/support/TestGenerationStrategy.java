@@ -0,0 +1,111 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test.support;
+
+import org.flexgen.map.GenerationContext;
+import org.flexgen.map.GenerationStrategy;
+import org.flexgen.map.MapTileCandidates;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTilePlacement;
+
+/**
+ * Test class implementing the GenerationStrategy interface. Unless a fixed map tile placement is
+ * given, it places the first map tile of the candidate domain of the first open location of the
+ * frontier.
+ */
+public class TestGenerationStrategy implements GenerationStrategy
+{
+    /**
+     * Map tile placement to return from every selection, or null to select from the frontier.
+     */
+    private final MapTilePlacement mapTilePlacement;
+
+    /**
+     * Number of selections that have been made.
+     */
+    private int selectionCount;
+
+    /**
+     * Construct a test generation strategy that selects from the frontier.
+     */
+    public TestGenerationStrategy()
+    {
+        this( null );
+    }
+
+    /**
+     * Construct a test generation strategy that always returns the same map tile placement.
+     *
+     * @param mapTilePlacement
+     *            Map tile placement to return from every selection, or null to select from the
+     *            frontier.
+     */
+    public TestGenerationStrategy( MapTilePlacement mapTilePlacement )
+    {
+        this.mapTilePlacement = mapTilePlacement;
+        this.selectionCount = 0;
+    }
+
+    /**
+     * Select the next map tile to place.
+     *
+     * @param generationContext
+     *            Generation context giving read access to the state of the map generator.
+     *
+     * @return The next map tile placement.
+     */
+    public MapTilePlacement selectMapTilePlacement( GenerationContext generationContext )
+    {
+        selectionCount++;
+
+        if ( mapTilePlacement != null )
+        {
+            return mapTilePlacement;
+        }
+
+        MapTileLocation mapTileLocation = generationContext.getFrontier().iterator().next();
+        MapTileCandidates mapTileDomain = generationContext.getMapTileDomain( mapTileLocation );
+
+        return new MapTilePlacement( mapTileLocation, mapTileDomain.getMapTile( 0 ));
+    }
+
+    /**
+     * Get the number of selections that have been made.
+     *
+     * @return The number of selections that have been made.
+     */
+    public int getSelectionCount()
+    {
+        return selectionCount;
+    }
+}
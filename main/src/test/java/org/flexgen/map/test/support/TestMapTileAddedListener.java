@@ -32,8 +32,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.flexgen.map.test.support;
 
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 
@@ -56,6 +58,11 @@ public class TestMapTileAddedListener implements MapTileAddedListener
      */
     private List< MapGenerator > mapGenerators;
 
+    /**
+     * The list of sets of dead locations at the time each map tile was added.
+     */
+    private List< Set< MapTileLocation >> deadLocationsList;
+
     /**
      * Construct a test "map tile added" listener.
      */
@@ -63,6 +70,7 @@ public class TestMapTileAddedListener implements MapTileAddedListener
     {
         mapTileLocations = new LinkedList< MapTileLocation >();
         mapGenerators = new LinkedList< MapGenerator >();
+        deadLocationsList = new LinkedList< Set< MapTileLocation >>();
     }
 
     /**
@@ -79,6 +87,8 @@ public class TestMapTileAddedListener implements MapTileAddedListener
                               mapGenerator.getMapTile( mapTileLocation ));
         mapTileLocations.add( mapTileLocation );
         mapGenerators.add( mapGenerator );
+        deadLocationsList.add(
+                new LinkedHashSet< MapTileLocation >( mapGenerator.getDeadLocations() ));
     }
 
     /**
@@ -100,4 +110,14 @@ public class TestMapTileAddedListener implements MapTileAddedListener
     {
         return mapGenerators;
     }
+
+    /**
+     * Get the list of sets of dead locations at the time each map tile was added.
+     *
+     * @return The list of sets of dead locations at the time each map tile was added.
+     */
+    public List< Set< MapTileLocation >> getDeadLocationsList()
+    {
+        return deadLocationsList;
+    }
 }
@@ -0,0 +1,118 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test.support;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapTileAddedCoordinatesListener;
+import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileRemovedCoordinatesListener;
+
+/**
+ * Test class implementing the MapTileAddedCoordinatesListener and
+ * MapTileRemovedCoordinatesListener interfaces.
+ */
+public class TestMapTileCoordinatesListener
+        implements MapTileAddedCoordinatesListener, MapTileRemovedCoordinatesListener
+{
+    /**
+     * The list of map tile locations at which map tiles have been added.
+     */
+    private List< MapTileLocation > addedMapTileLocations;
+
+    /**
+     * The list of map tile locations at which map tiles have been removed.
+     */
+    private List< MapTileLocation > removedMapTileLocations;
+
+    /**
+     * Construct a test map tile coordinates listener.
+     */
+    public TestMapTileCoordinatesListener()
+    {
+        addedMapTileLocations = new LinkedList< MapTileLocation >();
+        removedMapTileLocations = new LinkedList< MapTileLocation >();
+    }
+
+    /**
+     * Informs the listener that a map tile has been added at the specified coordinates.
+     *
+     * @param mapGenerator
+     *            Map generator that added the map tile.
+     * @param x
+     *            X coordinate of the location at which the map tile was added.
+     * @param y
+     *            Y coordinate of the location at which the map tile was added.
+     */
+    public void mapTileAdded( MapGenerator mapGenerator, int x, int y )
+    {
+        addedMapTileLocations.add( new MapTileLocation( x, y ));
+    }
+
+    /**
+     * Informs the listener that a map tile has been removed at the specified coordinates.
+     *
+     * @param mapGenerator
+     *            Map generator that removed the map tile.
+     * @param x
+     *            X coordinate of the location at which the map tile was removed.
+     * @param y
+     *            Y coordinate of the location at which the map tile was removed.
+     */
+    public void mapTileRemoved( MapGenerator mapGenerator, int x, int y )
+    {
+        removedMapTileLocations.add( new MapTileLocation( x, y ));
+    }
+
+    /**
+     * Get the list of map tile locations at which map tiles have been added.
+     *
+     * @return The list of map tile locations at which map tiles have been added.
+     */
+    public List< MapTileLocation > getAddedMapTileLocations()
+    {
+        return addedMapTileLocations;
+    }
+
+    /**
+     * Get the list of map tile locations at which map tiles have been removed.
+     *
+     * @return The list of map tile locations at which map tiles have been removed.
+     */
+    public List< MapTileLocation > getRemovedMapTileLocations()
+    {
+        return removedMapTileLocations;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+
+FlexGen : Flexible Map Generator Library
+
+Copyright (C) 2009-2014 Jeffrey J. Weston <jjweston@gmail.com>
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+* Redistributions of source code must retain the above copyright notice, this
+  list of conditions and the following disclaimer.
+* Redistributions in binary form must reproduce the above copyright notice,
+  this list of conditions and the following disclaimer in the documentation
+  and/or other materials provided with the distribution.
+* Neither the name of the FlexGen project nor the names of its contributors
+  may be used to endorse or promote products derived from this software
+  without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.flexgen.map.test.support;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.flexgen.map.MapGenerator;
+import org.flexgen.map.RestartCause;
+import org.flexgen.map.RestartListener;
+import org.flexgen.map.RestartPolicy;
+import org.flexgen.map.RestartScope;
+
+/**
+ * Test class implementing the RestartListener interface.
+ */
+public class TestRestartListener implements RestartListener
+{
+    /**
+     * The list of restart causes that have been reported.
+     */
+    private List< RestartCause > restartCauses;
+
+    /**
+     * The list of restart policies that have been reported.
+     */
+    private List< RestartPolicy > restartPolicies;
+
+    /**
+     * The list of restart scopes that have been reported.
+     */
+    private List< RestartScope > restartScopes;
+
+    /**
+     * Construct a test restart listener.
+     */
+    public TestRestartListener()
+    {
+        restartCauses = new LinkedList< RestartCause >();
+        restartPolicies = new LinkedList< RestartPolicy >();
+        restartScopes = new LinkedList< RestartScope >();
+    }
+
+    /**
+     * Informs the listener that the map generator has restarted the generation of the map.
+     *
+     * @param mapGenerator
+     *            Map generator that restarted.
+     * @param restartCause
+     *            Backtrack limit that was exceeded.
+     * @param restartPolicy
+     *            Restart policy that was applied.
+     * @param restartScope
+     *            Part of the map that was cleared.
+     */
+    public void restarted( MapGenerator mapGenerator, RestartCause restartCause,
+                           RestartPolicy restartPolicy, RestartScope restartScope )
+    {
+        restartCauses.add( restartCause );
+        restartPolicies.add( restartPolicy );
+        restartScopes.add( restartScope );
+    }
+
+    /**
+     * Get the list of restart causes that have been reported.
+     *
+     * @return The list of restart causes that have been reported.
+     */
+    public List< RestartCause > getRestartCauses()
+    {
+        return restartCauses;
+    }
+
+    /**
+     * Get the list of restart policies that have been reported.
+     *
+     * @return The list of restart policies that have been reported.
+     */
+    public List< RestartPolicy > getRestartPolicies()
+    {
+        return restartPolicies;
+    }
+
+    /**
+     * Get the list of restart scopes that have been reported.
+     *
+     * @return The list of restart scopes that have been reported.
+     */
+    public List< RestartScope > getRestartScopes()
+    {
+        return restartScopes;
+    }
+}
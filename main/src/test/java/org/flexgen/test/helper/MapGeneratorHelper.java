@@ -34,9 +34,17 @@ package org.flexgen.test.helper;
 
 import org.junit.Assert;
 
+import org.flexgen.map.GenerationStatus;
 import org.flexgen.map.MapGenerator;
+import org.flexgen.map.MapStorage;
+import org.flexgen.map.MapTile;
+import org.flexgen.map.MapTileEdgePosition;
 import org.flexgen.map.MapTileLocation;
+import org.flexgen.map.MapTileLocationFilter;
+import org.flexgen.map.MapTileOrientation;
+import org.flexgen.map.MapTileType;
 import org.flexgen.map.RectangularMapTileLocationFilter;
+import org.flexgen.test.helper.tiles.DungeonTiles;
 import org.flexgen.util.ImprovedRandom;
 
 /**
@@ -55,6 +63,118 @@ public class MapGeneratorHelper
                                  new RectangularMapTileLocationFilter( 0, 0, 0, 0 ));
     }
 
+    /**
+     * Build a map generator for a dungeon map from 0, 0 to 9, 9 that has its initial map tile in
+     * place.
+     *
+     * @param seed
+     *            Seed for the random number generator.
+     *
+     * @return The map generator.
+     */
+    public static MapGenerator buildDungeon( long seed )
+    {
+        return buildDungeon( new ImprovedRandom(), seed,
+                             new RectangularMapTileLocationFilter( 0, 0, 9, 9 ),
+                             MapStorage.HASH_TABLE );
+    }
+
+    /**
+     * Build a map generator for a dungeon map centered on the origin that has its initial map tile
+     * in place.
+     *
+     * @param seed
+     *            Seed for the random number generator.
+     * @param radius
+     *            Largest distance from the origin of the map tile locations of the map.
+     *
+     * @return The map generator.
+     */
+    public static MapGenerator buildDungeon( long seed, int radius )
+    {
+        return buildDungeon( new ImprovedRandom(), seed, radius );
+    }
+
+    /**
+     * Build a map generator for a dungeon map centered on the origin that has its initial map tile
+     * in place, using the specified random number generator.
+     *
+     * @param improvedRandom
+     *            Random number generator to use.
+     * @param seed
+     *            Seed for the random number generator.
+     * @param radius
+     *            Largest distance from the origin of the map tile locations of the map.
+     *
+     * @return The map generator.
+     */
+    public static MapGenerator buildDungeon( ImprovedRandom improvedRandom, long seed, int radius )
+    {
+        return buildDungeon( improvedRandom, seed,
+                             new RectangularMapTileLocationFilter( -radius, -radius,
+                                                                   radius, radius ),
+                             MapStorage.HASH_TABLE );
+    }
+
+    /**
+     * Build a map generator for a dungeon map centered on the origin that has its initial map tile
+     * in place and stores its map tiles in the specified way.
+     *
+     * @param seed
+     *            Seed for the random number generator.
+     * @param mapStorage
+     *            Storage to use for the map tiles of the map.
+     * @param radius
+     *            Largest distance from the origin of the map tile locations of the map.
+     *
+     * @return The map generator.
+     */
+    public static MapGenerator buildDungeon( long seed, MapStorage mapStorage, int radius )
+    {
+        return buildDungeon( new ImprovedRandom(), seed,
+                             new RectangularMapTileLocationFilter( -radius, -radius,
+                                                                   radius, radius ),
+                             mapStorage );
+    }
+
+    /**
+     * Build a map generator for a dungeon map made of straight, corner and three-way hallways,
+     * with a straight hallway placed upright at the origin.
+     *
+     * @param improvedRandom
+     *            Random number generator to use.
+     * @param seed
+     *            Seed for the random number generator.
+     * @param mapTileLocationFilter
+     *            Map tile location filter for open locations.
+     * @param mapStorage
+     *            Storage to use for the map tiles of the map.
+     *
+     * @return The map generator.
+     */
+    private static MapGenerator buildDungeon( ImprovedRandom improvedRandom, long seed,
+                                              MapTileLocationFilter mapTileLocationFilter,
+                                              MapStorage mapStorage )
+    {
+        improvedRandom.setSeed( seed );
+
+        MapTileType[] mapTileTypes = new MapTileType[]
+        {
+            DungeonTiles.STRAIGHT_HALLWAY_TYPE,
+            DungeonTiles.CORNER_HALLWAY_TYPE,
+            DungeonTiles.THREE_WAY_HALLWAY_TYPE
+        };
+
+        MapGenerator mapGenerator =
+                new MapGenerator( improvedRandom, mapTileTypes, mapTileLocationFilter,
+                                  mapStorage );
+        mapGenerator.addMapTile(
+                new MapTileLocation( 0, 0 ),
+                new MapTile( DungeonTiles.STRAIGHT_HALLWAY_TYPE, MapTileOrientation.UPRIGHT ));
+
+        return mapGenerator;
+    }
+
     /**
      * Verify that two map generators are equal.
      *
@@ -88,4 +208,78 @@ public class MapGeneratorHelper
     private MapGeneratorHelper()
     {
     }
+
+    /**
+     * Verify that a map has no open locations left, has no dead locations, that the edges of all
+     * neighboring map tiles match, and that no open edge faces an empty location within the
+     * bounds of the map. The map tile location filter must be rectangular.
+     *
+     * @param mapGenerator
+     *            Map generator containing the map.
+     */
+    public static void assertIsValid( MapGenerator mapGenerator )
+    {
+        Assert.assertEquals( "Unexpected status.", GenerationStatus.COMPLETE,
+                             mapGenerator.generate( 1 ));
+        Assert.assertEquals( "Unexpected dead locations.", 0,
+                             mapGenerator.getDeadLocations().size() );
+
+        for ( int y = mapGenerator.getMinY(); y <= mapGenerator.getMaxY(); y++ )
+        {
+            for ( int x = mapGenerator.getMinX(); x <= mapGenerator.getMaxX(); x++ )
+            {
+                MapTile mapTile = mapGenerator.getMapTile( x, y );
+                MapTile rightMapTile = mapGenerator.getMapTile( x + 1, y );
+                MapTile bottomMapTile = mapGenerator.getMapTile( x, y + 1 );
+
+                if ( mapTile != null )
+                {
+                    assertNoHoles( mapGenerator, new MapTileLocation( x, y ), mapTile );
+                }
+
+                if (( mapTile != null ) && ( rightMapTile != null ))
+                {
+                    Assert.assertTrue( "Unexpected right edge at (" + x + ", " + y + ").",
+                                       mapTile.getMapTileEdge( MapTileEdgePosition.RIGHT )
+                                               .mapTileEdgeMatches( rightMapTile.getMapTileEdge(
+                                                       MapTileEdgePosition.LEFT )));
+                }
+
+                if (( mapTile != null ) && ( bottomMapTile != null ))
+                {
+                    Assert.assertTrue( "Unexpected bottom edge at (" + x + ", " + y + ").",
+                                       mapTile.getMapTileEdge( MapTileEdgePosition.BOTTOM )
+                                               .mapTileEdgeMatches( bottomMapTile.getMapTileEdge(
+                                                       MapTileEdgePosition.TOP )));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify that no open edge of a map tile faces an empty location within the bounds of the map.
+     *
+     * @param mapGenerator
+     *            Map generator containing the map.
+     * @param mapTileLocation
+     *            Location of the map tile.
+     * @param mapTile
+     *            Map tile to check.
+     */
+    private static void assertNoHoles( MapGenerator mapGenerator,
+                                       MapTileLocation mapTileLocation, MapTile mapTile )
+    {
+        for ( MapTileLocation neighborLocation : mapTileLocation.getNeighborLocations(
+                mapTile.getOpenMapTileEdgePositions() ))
+        {
+            if (( neighborLocation.getX() >= mapGenerator.getMinX() ) &&
+                ( neighborLocation.getY() >= mapGenerator.getMinY() ) &&
+                ( neighborLocation.getX() <= mapGenerator.getMaxX() ) &&
+                ( neighborLocation.getY() <= mapGenerator.getMaxY() ))
+            {
+                Assert.assertNotNull( "Unexpected hole at " + neighborLocation.toString() + ".",
+                                      mapGenerator.getMapTile( neighborLocation ));
+            }
+        }
+    }
 }